@@ -68,7 +68,7 @@ primary_key_phrase= # no primary key list was provided by user
 fi
 echo
 echo "========"
-echo "Replicating ${src_host}:${src_schema}.${tablename} for ${src_userid} with ${src_password}"
+echo "Replicating and copying ${src_host}:${src_schema}.${tablename} for ${src_userid} with ${src_password}"
 echo "as ${dest_host}:${dest_schema}.${tablename} with primary keys ${primary_keys} for ${dest_userid} with ${dest_password}"
 echo "========"
 echo
@@ -76,18 +76,8 @@ echo
 # Setting block size has to be thought about more. See com/ibm/as400/access/doc-files/JDBCProperties.html, e.g. :
 # db -db as400 -property \${ block size }$ 512 -star ${tablename} -to @_src_AutoReplicate ${src_host} ${src_schema} ${src_userid} ${src_password}
 java -Xms4g -Xmx4g -jar /opt/ublu/ublu.jar << ENDENDENDENDEND
-put \${ Replicating table structure as specified ... }$
-db -db as400 -replicate ${tablename} ${dest_host} postgres ${dest_schema} ${dest_userid} ${dest_password} ${primary_key_phrase} ${src_host} ${src_schema} ${src_userid} ${src_password}
-put \${ Querying source database ... }$
-db -db as400 -star ${tablename} -to @_src_AutoReplicate ${src_host} ${src_schema} ${src_userid} ${src_password}
-put \${ Querying destination database ... }$
-db -db postgres -star ${tablename} -to @_dest_AutoReplicate ${dest_host} ${dest_schema} ${dest_userid} ${dest_password}
-put \${ Copying records ... }$
-rs -insert -from @_src_AutoReplicate -to @_dest_AutoReplicate
-put \${ Closing destination database ... }$
-rs -closedb @_dest_AutoReplicate
-put \${ Closing source database ... }$
-rs -closedb @_src_AutoReplicate
+put \${ Replicating table structure as specified and copying rows ... }$
+db -db as400 -replicate ${tablename} ${dest_host} postgres ${dest_schema} ${dest_userid} ${dest_password} -copy ${primary_key_phrase} ${src_host} ${src_schema} ${src_userid} ${src_password}
 put \${ Replication complete. }$
 ENDENDENDENDEND
 exit $? # return the exit status of Ublu
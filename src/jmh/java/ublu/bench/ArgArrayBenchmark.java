@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ublu.util.ArgArray;
+
+/**
+ * Consume long generated command lines such as a <code>programcall</code>
+ * with hundreds of <code>-in</code> parameters. The <code>listRemoveFront</code>
+ * benchmark consumes the same lexes the way the arg array did when it was an
+ * <code>ArrayList</code> whose <code>next()</code> was <code>remove(0)</code>.
+ *
+ * @author jwoehr
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgArrayBenchmark {
+
+    @Param({"1000", "10000"})
+    private int tokens;
+
+    private String[] plainLexes;
+    private String[] quotedLexes;
+
+    @Setup
+    public void setup() {
+        List<String> plain = new ArrayList<>();
+        List<String> quoted = new ArrayList<>();
+        plain.add("programcall");
+        quoted.add("programcall");
+        while (plain.size() < tokens) {
+            plain.add("-in");
+            plain.add("@parm" + plain.size());
+            plain.add("10");
+        }
+        while (quoted.size() < tokens) {
+            quoted.add("-in");
+            quoted.add("${");
+            quoted.add("some");
+            quoted.add("text");
+            quoted.add("}$");
+        }
+        plainLexes = plain.toArray(new String[plain.size()]);
+        quotedLexes = quoted.toArray(new String[quoted.size()]);
+    }
+
+    @Benchmark
+    public void argArrayNext(Blackhole bh) {
+        ArgArray argArray = new ArgArray(null, plainLexes);
+        while (!argArray.isEmpty()) {
+            bh.consume(argArray.next());
+        }
+    }
+
+    @Benchmark
+    public void listRemoveFront(Blackhole bh) {
+        List<String> list = new ArrayList<>(Arrays.asList(plainLexes));
+        while (!list.isEmpty()) {
+            bh.consume(list.remove(0));
+        }
+    }
+
+    @Benchmark
+    public void argArrayQuotations(Blackhole bh) {
+        ArgArray argArray = new ArgArray(null, quotedLexes);
+        while (!argArray.isEmpty()) {
+            bh.consume(argArray.nextMaybeQuotation());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ublu.Ublu;
+import ublu.command.CommandInterface.COMMANDRESULT;
+import ublu.util.CompiledBlock;
+import ublu.util.Expression;
+import ublu.util.Interpreter;
+
+/**
+ * Compute <code>(a * b + c) / d</code> over tuples holding strings, as
+ * tuples put from the command line or a datapoint do, either as a chain of
+ * <code>eval</code> commands or as one <code>expr</code>.
+ *
+ * @author jwoehr
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private Interpreter interpreter;
+    private CompiledBlock evalChain;
+    private CompiledBlock expr;
+    private Expression expression;
+
+    @Setup
+    public void setup() throws Expression.ExpressionException {
+        new Ublu(new String[0]);
+        interpreter = Ublu.getMainInterpreter();
+        interpreter.setTuple("@a", "6");
+        interpreter.setTuple("@b", "7");
+        interpreter.setTuple("@c", "3");
+        interpreter.setTuple("@d", "4");
+        evalChain = CompiledBlock.compile("eval -to @t * @a @b eval -to @t + @t @c eval -to @r / @t @d");
+        expr = CompiledBlock.compile("expr -to @r ${ ( @a * @b + @c ) / @d }$");
+        expression = Expression.compile(" ( @a * @b + @c ) / @d ");
+    }
+
+    @Benchmark
+    public COMMANDRESULT evalChain() {
+        return interpreter.executeBlock(evalChain);
+    }
+
+    @Benchmark
+    public COMMANDRESULT expr() {
+        return interpreter.executeBlock(expr);
+    }
+
+    @Benchmark
+    public Object evaluate() throws Expression.ExpressionException {
+        return expression.evaluate(interpreter);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ublu.util.CompiledBlock;
+import ublu.util.Lexer;
+
+/**
+ * Lex every <code>.ublu</code> file under <code>examples/</code> and
+ * <code>extensions/</code>, either line by line as <code>include</code>
+ * reads them or each file whole, so that blocks spanning lines are packed.
+ * The <code>splitThenPack</code> benchmark lexes the way the parser did
+ * before the {@link Lexer}, splitting on a regular expression and then
+ * packing the array of lexes.
+ *
+ * @author jwoehr
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"lines", "files"})
+    private String unit;
+
+    private String[] corpus;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (String dir : new String[]{"examples", "extensions"}) {
+            collect(Paths.get(dir), texts);
+        }
+        if (texts.isEmpty()) {
+            throw new IOException("No .ublu files found, run from the project directory");
+        }
+        corpus = texts.toArray(new String[texts.size()]);
+    }
+
+    private void collect(Path dir, List<String> texts) throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path path : ds) {
+                if (Files.isDirectory(path)) {
+                    collect(path, texts);
+                } else if (path.toString().endsWith(".ublu")) {
+                    String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                    if (unit.equals("files")) {
+                        texts.add(text);
+                    } else {
+                        for (String line : text.split("\n")) {
+                            texts.add(line);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void splitThenPack(Blackhole bh) {
+        for (String text : corpus) {
+            String trimmed = text.trim();
+            bh.consume(CompiledBlock.fromLexes(trimmed, trimmed.split("\\p{Space}+")));
+        }
+    }
+
+    @Benchmark
+    public void lexer(Blackhole bh) {
+        for (String text : corpus) {
+            String trimmed = text.trim();
+            bh.consume(Lexer.lex(trimmed, trimmed));
+        }
+    }
+}
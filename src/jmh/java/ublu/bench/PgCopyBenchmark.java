@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.postgresql.copy.CopyIn;
+import ublu.Ublu;
+import ublu.db.DbPostgres;
+import ublu.db.PgCopyEncoder;
+import ublu.db.TableLoader;
+
+/**
+ * Load <code>rows</code> rows of CSV into a PostgreSQL table the way
+ * <code>db -load</code> does, by batched INSERT or by COPY in text or
+ * binary format.
+ * <p>
+ * Given <code>-p url=jdbc:postgresql://host/db -p user=u -p
+ * password=p</code> the rows go into table <code>ublu_bench</code> there,
+ * which is created if need be and truncated before each load. Without a
+ * url the connection is a stand-in that discards what it is sent, which
+ * measures only the client side: parsing, binding and encoding.</p>
+ *
+ * @author jwoehr
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgCopyBenchmark {
+
+    private static final String TABLE = "ublu_bench";
+    private static final String[] NAMES = {"id", "amt", "note", "ts"};
+    private static final int[] TYPES = {Types.BIGINT, Types.NUMERIC, Types.VARCHAR, Types.TIMESTAMP};
+    private static final String[] TYPE_NAMES = {"int8", "numeric", "varchar", "timestamp"};
+
+    @Param({"insert", "text", "binary"})
+    public String format;
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({""})
+    public String url;
+
+    @Param({""})
+    public String user;
+
+    @Param({""})
+    public String password;
+
+    private String csv;
+    private DbPostgres db;
+
+    @Setup
+    public void setup() throws SQLException {
+        new Ublu(new String[0]);
+        Ublu.getMainInterpreter().getLogger().setLevel(Level.WARNING);
+        StringBuilder sb = new StringBuilder("id,amt,note,ts\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(',').append(i % 100000).append('.').append(i % 100)
+                    .append(",\"row ").append(i).append(", a note\",2024-02-29 13:14:15.")
+                    .append(i % 1000000).append('\n');
+        }
+        csv = sb.toString();
+        if (url.isEmpty()) {
+            db = new DiscardingDb();
+            db.setConnection(proxy(Connection.class, new DiscardingConnection()));
+        } else {
+            db = new DbPostgres();
+            db.setConnection(DriverManager.getConnection(url, user, password));
+            try (Statement statement = db.getConnection().createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                        + " (id bigint, amt numeric(12,2), note varchar(64), ts timestamp)");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        db.getConnection().close();
+    }
+
+    @Benchmark
+    public long load() throws SQLException, IOException {
+        if (!url.isEmpty()) {
+            try (Statement statement = db.getConnection().createStatement()) {
+                statement.execute("TRUNCATE " + TABLE);
+            }
+        }
+        TableLoader loader = new TableLoader(db, TABLE);
+        loader.setCommitInterval(0);
+        switch (format) {
+            case "text":
+                loader.setCopyFormat(PgCopyEncoder.FORMAT.TEXT);
+                break;
+            case "binary":
+                loader.setCopyFormat(PgCopyEncoder.FORMAT.BINARY);
+                break;
+            default:
+                loader.setCopyFormat(null);
+        }
+        return loader.load(new BufferedReader(new StringReader(csv)), TableLoader.SOURCEFORMAT.CSV);
+    }
+
+    private static <T> T proxy(Class<T> c, InvocationHandler handler) {
+        return c.cast(Proxy.newProxyInstance(PgCopyBenchmark.class.getClassLoader(), new Class<?>[]{c}, handler));
+    }
+
+    /**
+     * Stand-in for a server: answers the loader's metadata query and swallows
+     * statements and COPY data.
+     */
+    private static class DiscardingConnection implements InvocationHandler {
+
+        private boolean autoCommit = true;
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) {
+            Object result = null;
+            switch (m.getName()) {
+                case "getAutoCommit":
+                    result = autoCommit;
+                    break;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    break;
+                case "createStatement":
+                    result = proxy(Statement.class, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object p, Method m, Object[] args) {
+                            return m.getName().equals("executeQuery") ? emptyResultSet() : null;
+                        }
+                    });
+                    break;
+                case "prepareStatement":
+                    result = proxy(PreparedStatement.class, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object p, Method m, Object[] args) {
+                            return m.getName().equals("executeBatch") ? new int[0] : null;
+                        }
+                    });
+                    break;
+                default:
+            }
+            return result;
+        }
+
+        private ResultSet emptyResultSet() {
+            final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object p, Method m, Object[] args) {
+                    Object result = null;
+                    switch (m.getName()) {
+                        case "getColumnCount":
+                            result = NAMES.length;
+                            break;
+                        case "getColumnName":
+                            result = NAMES[(Integer) args[0] - 1];
+                            break;
+                        case "getColumnType":
+                            result = TYPES[(Integer) args[0] - 1];
+                            break;
+                        case "getColumnTypeName":
+                            result = TYPE_NAMES[(Integer) args[0] - 1];
+                            break;
+                        default:
+                            result = 0;
+                    }
+                    return result;
+                }
+            });
+            return proxy(ResultSet.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object p, Method m, Object[] args) {
+                    return m.getName().equals("getMetaData") ? metaData : null;
+                }
+            });
+        }
+    }
+
+    /**
+     * A DbPostgres whose COPY goes nowhere.
+     */
+    private static class DiscardingDb extends DbPostgres {
+
+        @Override
+        public CopyIn copyIn(String sql) {
+            return proxy(CopyIn.class, new InvocationHandler() {
+                private boolean active = true;
+
+                @Override
+                public Object invoke(Object p, Method m, Object[] args) {
+                    Object result = null;
+                    switch (m.getName()) {
+                        case "isActive":
+                            result = active;
+                            break;
+                        case "endCopy":
+                            active = false;
+                            result = 0L;
+                            break;
+                        case "getHandledRowCount":
+                            result = 0L;
+                            break;
+                        case "cancelCopy":
+                            active = false;
+                            break;
+                        case "getFieldCount":
+                        case "getFormat":
+                            result = 0;
+                            break;
+                        default:
+                    }
+                    return result;
+                }
+            });
+        }
+    }
+}
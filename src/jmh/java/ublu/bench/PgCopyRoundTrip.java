@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import ublu.Ublu;
+import ublu.db.DbPostgres;
+import ublu.db.PgCopyEncoder;
+import ublu.db.TableLoader;
+
+/**
+ * Round trip check of the binary COPY format written by
+ * {@link PgCopyEncoder} for the types whose encoding is not simply a Java
+ * primitive: numeric, date, time, timetz, timestamp and timestamptz. The
+ * cases include negative and fractional numerics, dates and timestamps
+ * before 2000 and times at several zone offsets.
+ * <p>
+ * Each case is encoded as <code>db -load</code> encodes a CSV field, then
+ * decoded by a decoder written from the PostgreSQL receive functions, and
+ * the value decoded compared with the value parsed from the case.</p>
+ * <p>
+ * Given a url (and user and password) the cases are also loaded into two
+ * temporary tables on that PostgreSQL server, one by text COPY, which the
+ * server parses itself, and one by binary COPY, and the two read back as
+ * text and compared.</p>
+ * <p>
+ * <code>mvn -P jmh test-compile exec:exec -Djmh.main=ublu.bench.PgCopyRoundTrip
+ * -Djmh.args="[jdbc:postgresql://host/db user password]"</code></p>
+ * <p>
+ * Exits 0 if every case round trips, else 1.</p>
+ *
+ * @author jwoehr
+ */
+public class PgCopyRoundTrip {
+
+    private static final String[] TYPE_NAMES = {"numeric", "date", "time", "timetz", "timestamp", "timestamptz"};
+    private static final String[][] CASES = {
+        {"0", "1", "-1", "12.50", "-12.50", "0.0001", "-0.000012340", "10000", "-99990000.0001",
+            "123456789012345678901234567890.123456789", "1E+3", "-7E-10"},
+        {"2000-01-01", "1999-12-31", "1970-01-01", "1900-02-28", "1582-10-15", "2024-02-29"},
+        {"00:00:00", "23:59:59.999999", "12:34:56.5", "00:00:00.000001"},
+        {"12:34:56+05:30", "12:34:56-08:00", "00:00:00Z", "23:59:59.999999+14:00", "06:00:00-12:00"},
+        {"2000-01-01 00:00:00", "1999-12-31 23:59:59.999999", "1969-07-20 20:17:40", "1900-01-01 00:00:00.5",
+            "2038-01-19 03:14:08"},
+        {"2000-01-01 00:00:00", "1999-12-31 23:59:59.999999", "1969-07-20 20:17:40", "1900-01-01 00:00:00.5",
+            "2038-01-19 03:14:08"}
+    };
+    private static final String[] COLUMNS = {"n", "d", "t", "tz", "ts", "tstz"};
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private int failures;
+
+    /**
+     * Run the check
+     *
+     * @param args optional url, user and password of a PostgreSQL server
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        new Ublu(new String[0]);
+        Ublu.getMainInterpreter().getLogger().setLevel(Level.WARNING);
+        PgCopyRoundTrip roundTrip = new PgCopyRoundTrip();
+        roundTrip.checkDecoded();
+        if (args.length > 0 && args[0].startsWith("jdbc:")) {
+            roundTrip.checkServer(args[0], args.length > 1 ? args[1] : "", args.length > 2 ? args[2] : "");
+        }
+        System.out.println(roundTrip.failures == 0 ? "All cases round trip" : roundTrip.failures + " cases failed");
+        System.exit(roundTrip.failures == 0 ? 0 : 1);
+    }
+
+    private void fail(String type, String text, String message) {
+        failures++;
+        System.out.println("FAIL " + type + " " + text + ": " + message);
+    }
+
+    /**
+     * Encode each case, decode it and compare it to the case parsed
+     *
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void checkDecoded() throws IOException, SQLException {
+        for (int column = 0; column < TYPE_NAMES.length; column++) {
+            String type = TYPE_NAMES[column];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PgCopyEncoder encoder = PgCopyEncoder.newEncoder(PgCopyEncoder.FORMAT.BINARY, bytes, new String[]{type});
+            for (String text : CASES[column]) {
+                encoder.startRow();
+                encoder.writeString(text);
+                encoder.endRow();
+            }
+            encoder.finish();
+            List<byte[]> fields = fields(bytes.toByteArray());
+            if (fields.size() != CASES[column].length) {
+                fail(type, Arrays.toString(CASES[column]), "decoded " + fields.size() + " fields");
+            } else {
+                for (int i = 0; i < fields.size(); i++) {
+                    String text = CASES[column][i];
+                    try {
+                        Object decoded = decode(type, new DataInputStream(new ByteArrayInputStream(fields.get(i))), fields.get(i).length);
+                        Object expected = parse(type, text);
+                        if (!decoded.equals(expected)) {
+                            fail(type, text, "decoded " + decoded + " expected " + expected);
+                        }
+                    } catch (IOException | ArithmeticException | IllegalArgumentException ex) {
+                        fail(type, text, ex.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The fields of a single column binary COPY stream
+     *
+     * @param copy the stream
+     * @return the fields, one per row
+     * @throws IOException
+     */
+    private static List<byte[]> fields(byte[] copy) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(copy));
+        byte[] signature = new byte[11];
+        in.readFully(signature);
+        if (!Arrays.equals(signature, new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0})) {
+            throw new IOException("Bad signature");
+        }
+        in.readInt(); // flags
+        in.skipBytes(in.readInt()); // header extension
+        List<byte[]> fields = new ArrayList<>();
+        short count = in.readShort();
+        while (count != -1) {
+            if (count != 1) {
+                throw new IOException("Row of " + count + " fields");
+            }
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Unexpected null");
+            }
+            byte[] field = new byte[length];
+            in.readFully(field);
+            fields.add(field);
+            count = in.readShort();
+        }
+        if (in.available() != 0) {
+            throw new IOException(in.available() + " bytes after the trailer");
+        }
+        return fields;
+    }
+
+    /**
+     * Decode a field as the server's receive function for its type would
+     *
+     * @param type PostgreSQL type name
+     * @param in the field
+     * @param length length of the field
+     * @return the value
+     * @throws IOException
+     */
+    private static Object decode(String type, DataInputStream in, int length) throws IOException {
+        Object value;
+        switch (type) {
+            case "numeric": // numeric_recv
+                int ndigits = in.readShort();
+                int weight = in.readShort();
+                int sign = in.readShort() & 0xffff;
+                int dscale = in.readShort();
+                if (length != 8 + 2 * ndigits) {
+                    throw new IOException("numeric of " + ndigits + " digits in " + length + " bytes");
+                }
+                if (sign != 0 && sign != 0x4000) {
+                    throw new IOException("numeric sign " + Integer.toHexString(sign));
+                }
+                if (dscale < 0 || dscale > 0x3fff) {
+                    throw new IOException("numeric dscale " + dscale);
+                }
+                BigDecimal n = BigDecimal.ZERO;
+                for (int i = 0; i < ndigits; i++) {
+                    int digit = in.readShort();
+                    if (digit < 0 || digit > 9999) {
+                        throw new IOException("numeric digit " + digit);
+                    }
+                    n = n.add(new BigDecimal(BigInteger.valueOf(digit), 4 * (i - weight)));
+                }
+                // The server would silently drop digits the display scale hides
+                n = n.setScale(dscale, RoundingMode.UNNECESSARY);
+                value = sign == 0x4000 ? n.negate() : n;
+                break;
+            case "date": // date_recv
+                expectLength(type, length, 4);
+                value = PG_EPOCH.toLocalDate().plusDays(in.readInt());
+                break;
+            case "time": // time_recv
+                expectLength(type, length, 8);
+                value = LocalTime.ofNanoOfDay(in.readLong() * 1000);
+                break;
+            case "timetz": // timetz_recv, the zone in seconds west of UTC
+                expectLength(type, length, 12);
+                LocalTime time = LocalTime.ofNanoOfDay(in.readLong() * 1000);
+                value = time.atOffset(ZoneOffset.ofTotalSeconds(-in.readInt()));
+                break;
+            case "timestamp": // timestamp_recv
+                expectLength(type, length, 8);
+                value = PG_EPOCH.plus(in.readLong(), ChronoUnit.MICROS);
+                break;
+            default: // timestamptz_recv
+                expectLength(type, length, 8);
+                value = PG_EPOCH.toInstant(ZoneOffset.UTC).plus(in.readLong(), ChronoUnit.MICROS);
+        }
+        return value;
+    }
+
+    private static void expectLength(String type, int length, int expected) throws IOException {
+        if (length != expected) {
+            throw new IOException(type + " of " + length + " bytes");
+        }
+    }
+
+    /**
+     * Parse a case as the server would parse it as text
+     *
+     * @param type PostgreSQL type name
+     * @param text the case
+     * @return the value
+     */
+    private static Object parse(String type, String text) {
+        Object value;
+        switch (type) {
+            case "numeric":
+                BigDecimal n = new BigDecimal(text);
+                value = n.scale() < 0 ? n.setScale(0) : n;
+                break;
+            case "date":
+                value = LocalDate.parse(text);
+                break;
+            case "time":
+                value = LocalTime.parse(text);
+                break;
+            case "timetz":
+                value = OffsetTime.parse(text);
+                break;
+            case "timestamp":
+                value = Timestamp.valueOf(text).toLocalDateTime();
+                break;
+            default: // timestamptz, in the session's zone, which the driver sets to ours
+                value = Timestamp.valueOf(text).toInstant();
+        }
+        return value;
+    }
+
+    /**
+     * Load the cases by text and by binary COPY into temporary tables on a
+     * server and compare what each stored
+     *
+     * @param url the server's url
+     * @param user user
+     * @param password password
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void checkServer(String url, String user, String password) throws SQLException, IOException {
+        StringBuilder csv = new StringBuilder("id");
+        for (String column : COLUMNS) {
+            csv.append(',').append(column);
+        }
+        csv.append('\n');
+        int rows = 0;
+        for (String[] cases : CASES) {
+            rows = Math.max(rows, cases.length);
+        }
+        for (int row = 0; row < rows; row++) {
+            csv.append(row);
+            for (String[] cases : CASES) {
+                csv.append(',').append(row < cases.length ? cases[row] : "null");
+            }
+            csv.append('\n');
+        }
+        DbPostgres db = new DbPostgres();
+        db.setConnection(DriverManager.getConnection(url, user, password));
+        try {
+            String[] tables = {"ublu_roundtrip_text", "ublu_roundtrip_binary"};
+            PgCopyEncoder.FORMAT[] formats = {PgCopyEncoder.FORMAT.TEXT, PgCopyEncoder.FORMAT.BINARY};
+            for (int i = 0; i < tables.length; i++) {
+                try (Statement statement = db.getConnection().createStatement()) {
+                    statement.execute("CREATE TEMPORARY TABLE " + tables[i]
+                            + " (id int4, n numeric, d date, t time, tz timetz, ts timestamp, tstz timestamptz)");
+                }
+                TableLoader loader = new TableLoader(db, tables[i]);
+                loader.setCopyFormat(formats[i]);
+                loader.load(new BufferedReader(new StringReader(csv.toString())), TableLoader.SOURCEFORMAT.CSV);
+            }
+            List<String[]> byText = selectAsText(db.getConnection(), tables[0]);
+            List<String[]> byBinary = selectAsText(db.getConnection(), tables[1]);
+            if (byText.size() != rows || byBinary.size() != rows) {
+                fail("table", tables[1], byText.size() + " rows by text and " + byBinary.size() + " by binary of " + rows);
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < COLUMNS.length; column++) {
+                        String text = byText.get(row)[column];
+                        String binary = byBinary.get(row)[column];
+                        if (text == null ? binary != null : !text.equals(binary)) {
+                            fail(TYPE_NAMES[column], CASES[column][row], "stored " + binary + " by binary, " + text + " by text");
+                        }
+                    }
+                }
+            }
+        } finally {
+            db.getConnection().close();
+        }
+    }
+
+    private static List<String[]> selectAsText(Connection connection, String table) throws SQLException {
+        List<String[]> rows = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < COLUMNS.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(COLUMNS[i]).append("::text");
+        }
+        sql.append(" FROM ").append(table).append(" ORDER BY id");
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql.toString())) {
+            while (resultSet.next()) {
+                String[] row = new String[COLUMNS.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = resultSet.getString(i + 1);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ublu.Ublu;
+import ublu.command.CommandInterface.COMMANDRESULT;
+import ublu.util.CompiledBlock;
+import ublu.util.Interpreter;
+
+/**
+ * Accumulate a report of <code>lines</code> lines with
+ * <code>put -append</code>, either to a tuple holding a string or to a
+ * <code>strbuf</code>.
+ *
+ * @author jwoehr
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrBufBenchmark {
+
+    @Param({"1000", "10000"})
+    public int lines;
+
+    private Interpreter interpreter;
+    private CompiledBlock string;
+    private CompiledBlock strbuf;
+
+    @Setup
+    public void setup() {
+        new Ublu(new String[0]);
+        interpreter = Ublu.getMainInterpreter();
+        interpreter.setTuple("@n", Integer.toString(lines));
+        string = CompiledBlock.compile("put -to @r ${ }$ put -to @i 1 DO @i @n $[ put -to @r -append ${ a line of the report }$ ]$");
+        strbuf = CompiledBlock.compile("strbuf -to @r put -to @i 1 DO @i @n $[ put -to @r -append ${ a line of the report }$ ]$");
+    }
+
+    @Benchmark
+    public COMMANDRESULT string() {
+        return interpreter.executeBlock(string);
+    }
+
+    @Benchmark
+    public COMMANDRESULT strbuf() {
+        return interpreter.executeBlock(strbuf);
+    }
+}
@@ -35,6 +35,8 @@ import ublu.util.GetArgs;
 import ublu.util.Interpreter;
 import ublu.util.InterpreterLogger;
 import ublu.util.JVMHelper;
+import ublu.util.Profiler;
+import ublu.util.TaskExecutor;
 import ublu.win.UbluWin;
 
 /**
@@ -47,6 +49,9 @@ public class Ublu {
     private GetArgs myGetArgs;
     private StringArrayList originalArgs;
     private JVMHelper jVMHelper = null;
+    private TaskExecutor taskExecutor = null;
+    private Profiler profiler = null;
+    private volatile Profiler activeProfiler = null;
     private boolean goubluing = false;
     private UbluWin myUbluWin = null;
     private static boolean windowing = false;
@@ -106,6 +111,52 @@ public class Ublu {
         return jVMHelper;
     }
 
+    /**
+     * Get the executor for submitted tasks, creating it on first use
+     * configured from the properties of the main interpreter.
+     *
+     * @return singleton
+     */
+    public final synchronized TaskExecutor getTaskExecutor() {
+        if (taskExecutor == null) {
+            taskExecutor = getMainInterpreter() == null
+                    ? new TaskExecutor(TaskExecutor.defaultPoolSize(), true)
+                    : new TaskExecutor(getMainInterpreter());
+        }
+        return taskExecutor;
+    }
+
+    /**
+     * Get the profiler holding the data recorded, creating it on first use.
+     *
+     * @return singleton
+     */
+    public final synchronized Profiler getProfiler() {
+        if (profiler == null) {
+            profiler = new Profiler();
+        }
+        return profiler;
+    }
+
+    /**
+     * Get the profiler if profiling is on. Checked by the interpreter loop for
+     * every command, so cheap.
+     *
+     * @return the profiler or null if profiling is off
+     */
+    public final Profiler getActiveProfiler() {
+        return activeProfiler;
+    }
+
+    /**
+     * Turn profiling on or off
+     *
+     * @param on true to turn profiling on
+     */
+    public final void setProfiling(boolean on) {
+        activeProfiler = on ? getProfiler() : null;
+    }
+
     /**
      * Our special logging instance that no, does NOT conform to Java design
      * recommendations.
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import ublu.util.Generics.AS400MessageList;
+import ublu.util.Profiler;
 
 /**
  * Calls a host command on OS400.
@@ -112,7 +113,10 @@ public class CmdCommandCall extends Command {
                     try {
                         command = new CommandCall(getAs400());
                         // /* Debug */ getLogger().log(Level.INFO, "Command string is: {0}", commandString);
-                        if (command.run(commandString) != true) {
+                        long hostStart = Profiler.hostStart();
+                        boolean ran = command.run(commandString);
+                        Profiler.hostEnd(hostStart);
+                        if (ran != true) {
                             getLogger().log(Level.WARNING, "commandcall failed");
                         }
                         // Show the messages (returned whether or not there was an error.)
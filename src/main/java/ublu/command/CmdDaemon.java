@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import ublu.server.Daemon;
+import ublu.util.ArgArray;
+
+/**
+ * Command to manage a resident daemon serving launchers generated by
+ * <code>gensh -daemon</code>
+ *
+ * @author jwoehr
+ */
+public class CmdDaemon extends Command {
+
+    {
+        setNameAndDescription("daemon",
+                "/0 [-to datasink] [-- @daemon] [-port ~@{portnum}] [-keyfile ~@{keyfilepath}] [-wait] -getport | -start | -status | -stop : start, stop or monitor a resident daemon for gensh launchers");
+    }
+
+    /**
+     * Functions the daemon command knows
+     */
+    protected static enum FUNCTIONS {
+
+        /**
+         * Start the daemon
+         */
+        START,
+        /**
+         * Stop the daemon
+         */
+        STOP,
+        /**
+         * Report status
+         */
+        STATUS,
+        /**
+         * get port the daemon is on
+         */
+        GETPORT,
+        /**
+         * only wait for the daemon
+         */
+        WAIT
+    }
+
+    private FUNCTIONS function;
+
+    private FUNCTIONS getFunction() {
+        return function;
+    }
+
+    private void setFunction(FUNCTIONS function) {
+        this.function = function;
+    }
+
+    /**
+     * Arity-0 ctor
+     */
+    public CmdDaemon() {
+    }
+
+    /**
+     * Carry out the daemon command to start, stop or manage the daemon
+     *
+     * @param argArray passed-in args
+     * @return what's left of args
+     */
+    public ArgArray daemon(ArgArray argArray) {
+        Daemon daemon = null;
+        int port = 0;
+        File keyFile = Daemon.defaultKeyFile();
+        boolean wait = false;
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    setDataDestfromArgArray(argArray);
+                    break;
+                case "--":
+                    daemon = argArray.nextTupleOrPop().value(Daemon.class);
+                    break;
+                case "-getport":
+                    setFunction(FUNCTIONS.GETPORT);
+                    break;
+                case "-start":
+                    setFunction(FUNCTIONS.START);
+                    break;
+                case "-stop":
+                    setFunction(FUNCTIONS.STOP);
+                    break;
+                case "-status":
+                    setFunction(FUNCTIONS.STATUS);
+                    break;
+                case "-port":
+                    port = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
+                case "-keyfile":
+                    keyFile = new File(argArray.nextMaybeQuotationTuplePopStringTrim());
+                    break;
+                case "-wait":
+                    wait = true;
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (wait && getFunction() == FUNCTIONS.STATUS) {
+            setFunction(FUNCTIONS.WAIT);
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (daemon == null && getFunction() != FUNCTIONS.START) {
+            getLogger().log(Level.SEVERE, "No daemon provided in {0}", getNameAndDescription());
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else {
+            switch (getFunction()) {
+                case GETPORT:
+                    try {
+                        put(daemon.getPortnum());
+                    } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                        getLogger().log(Level.SEVERE, "Exception putting daemon portnum in " + getNameAndDescription(), ex);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+                case START:
+                    daemon = new Daemon(getUblu(), port, getInterpreter(), keyFile);
+                    daemon.start();
+                    try {
+                        put(daemon);
+                    } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                        getLogger().log(Level.SEVERE, "Exception putting daemon in " + getNameAndDescription(), ex);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+                case STATUS:
+                    getInterpreter().output(daemon.status() + "\n");
+                    break;
+                case STOP:
+                    daemon.shutdown();
+                    break;
+                case WAIT:
+                    break;
+            }
+            if (wait && getCommandResult() != COMMANDRESULT.FAILURE) {
+                try {
+                    daemon.join();
+                } catch (InterruptedException ex) {
+                    getLogger().log(Level.SEVERE, "Interrupted waiting for daemon in " + getNameAndDescription(), ex);
+                    setCommandResult(COMMANDRESULT.FAILURE);
+                }
+            }
+        }
+        return argArray;
+    }
+
+    @Override
+    public void reinit() {
+        super.reinit();
+        setFunction(FUNCTIONS.STATUS);
+    }
+
+    @Override
+    public ArgArray cmd(ArgArray args) {
+        reinit();
+        return daemon(args);
+    }
+
+    @Override
+    public COMMANDRESULT getResult() {
+        return getCommandResult();
+    }
+}
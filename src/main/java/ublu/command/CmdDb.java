@@ -33,17 +33,26 @@ import ublu.db.Db;
 import ublu.db.DbAS400;
 import ublu.db.DbHelper;
 import ublu.db.DbPostgres;
+import ublu.db.PgCopyEncoder;
 import ublu.db.ResultSetClosure;
+import ublu.db.TableCopier;
+import ublu.db.TableLoader;
 import ublu.db.TableReplicator;
 import ublu.util.Generics;
 import ublu.util.Generics.ConnectionProperties;
 import ublu.util.Generics.PrimaryKeyList;
+import ublu.util.Profiler;
+import com.ibm.as400.access.AS400;
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
 import com.ibm.as400.access.ObjectDoesNotExistException;
 import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -69,10 +78,11 @@ public class CmdDb extends Command {
                 + "[-qopt ~@{close|hold|ro|update|forward|insensitive|sensitive}] [-rdb ~@{rdbname}] "
                 + "[-destqopt ~@{close|hold|ro|update|forward|insensitive|sensitive}] "
                 + "[-catalog | -columnnames ~@{tablename} | -columntypes ~@{tablename} "
-                + "| -connect | -csv ~@{tablename} [-separator ~@{separator} ] |  -json ~@{tablename} | -disconnect | -metadata "
+                + "| -connect | -csv ~@{tablename} [-separator ~@{separator} ] |  -json ~@{tablename} | -jsonarray ~@{tablename} | -ndjson ~@{tablename} | -disconnect "
+                + "| -load ~@{tablename} ~@{csv|ndjson} [-from ~@datasink] [-separator ~@{separator}] | -metadata "
                 + "| -primarykeys ~@{tablename} | -query ~@{SQL string} | -query_nors ~@{SQL string} "
-                + "| -replicate ~@{tableName} ~@{destDbName} ~@{destDbType} ~@{destDatabaseName} ~@{destUser} ~@{destPassword} "
-                + "| -star ~@{tablename}] [-pklist ~@{ space separated primary keys }] "
+                + "| -replicate ~@{tableName} ~@{destDbName} ~@{destDbType} ~@{destDatabaseName} ~@{destUser} ~@{destPassword} [-copy [-batchsize ~@{rows}] [-commitinterval ~@{rows}] [-fetchsize ~@{rows}] [-partitions ~@{n} [-partitionby ~@{column|RRN}] [-retries ~@{n}]]] "
+                + "| -star ~@{tablename}] [-copyformat ~@{insert|text|binary}] [-pklist ~@{ space separated primary keys }] "
                 + "[-port ~@{portnum}] [-destport ~@{destportnum}] [-property ~@{key} ~@{value} [-property ~@{key} ~@{value}] ..] "
                 + "[-ssl @tf | -usessl] "
                 + "~@{system} ~@{schema} ~@{userid} ~@{password} : perform various operations on databases");
@@ -155,6 +165,10 @@ public class CmdDb extends Command {
          * Deliver metadata
          */
         METADATA,
+        /**
+         * Load a table from CSV or NDJSON
+         */
+        LOAD,
         /**
          * List the primary keys
          */
@@ -182,7 +196,15 @@ public class CmdDb extends Command {
         /**
          * Convert a table to JSON
          */
-        TABLEJSON
+        TABLEJSON,
+        /**
+         * Stream a table as a JSON array of row objects
+         */
+        TABLEJSONARRAY,
+        /**
+         * Stream a table as newline-delimited JSON row objects
+         */
+        TABLENDJSON
     }
     private FUNCTIONS function;
     private ConnectionProperties connectionProperties;
@@ -397,7 +419,7 @@ public class CmdDb extends Command {
      */
     public ArgArray db(ArgArray argArray) {
         String charsetName = null;
-        // This is for FUNCTIONS.STAR or FUNCTIONS.REPLICATE or FUNCTIONS.PRIMARYKEYS
+        // This is for FUNCTIONS.STAR or FUNCTIONS.REPLICATE or FUNCTIONS.PRIMARYKEYS or FUNCTIONS.LOAD
         String starTableName = "";
         // These are for FUNCTIONS.REPLICATE
         String destDbName = "";
@@ -406,6 +428,23 @@ public class CmdDb extends Command {
         String destUser = "";
         String destPassword = "";
         PrimaryKeyList primaryKeyList = new PrimaryKeyList(); // used by REPLICATE       
+        // These are for copying rows in FUNCTIONS.REPLICATE
+        boolean copyRows = false;
+        int batchSize = TableCopier.DEFAULT_BATCH_SIZE;
+        int commitInterval = TableCopier.DEFAULT_COMMIT_INTERVAL;
+        int fetchSize = TableCopier.DEFAULT_FETCH_SIZE;
+        int partitions = 1;
+        String partitionBy = null;
+        int retries = TableCopier.DEFAULT_RETRIES;
+        // For FUNCTIONS.REPLICATE and FUNCTIONS.LOAD into PostgreSQL
+        PgCopyEncoder.FORMAT copyFormat = PgCopyEncoder.FORMAT.TEXT;
+        // For FUNCTIONS.LOAD
+        String loadFormatName = "";
+        // Source connection parameters, kept for the connections of a partitioned copy
+        String system = null;
+        String schema = null;
+        String userid = null;
+        String password = null;
         while (argArray.hasDashCommand() && getCommandResult() != COMMANDRESULT.FAILURE) {
             String dashCommand = argArray.parseDashCommand();
             switch (dashCommand) {
@@ -438,6 +477,9 @@ public class CmdDb extends Command {
                 case "-dbconnected":
                     setDb(argArray.nextTupleOrPop().value(Db.class));
                     break;
+                case "-batchsize":
+                    batchSize = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
                 case "-catalog":
                     setFunction(FUNCTIONS.CATALOG);
                     break;
@@ -452,9 +494,32 @@ public class CmdDb extends Command {
                     setFunction(FUNCTIONS.COLUMNTYPES);
                     starTableName = argArray.nextMaybeQuotationTuplePopString();
                     break;
+                case "-commitinterval":
+                    commitInterval = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
                 case "-connect":
                     setFunction(FUNCTIONS.CONNECT);
                     break;
+                case "-copy":
+                    copyRows = true;
+                    break;
+                case "-copyformat":
+                    String copyFormatName = argArray.nextMaybeQuotationTuplePopStringTrim();
+                    switch (copyFormatName.toLowerCase()) {
+                        case "insert":
+                            copyFormat = null;
+                            break;
+                        case "text":
+                            copyFormat = PgCopyEncoder.FORMAT.TEXT;
+                            break;
+                        case "binary":
+                            copyFormat = PgCopyEncoder.FORMAT.BINARY;
+                            break;
+                        default:
+                            getLogger().log(Level.SEVERE, "Unknown copy format {0} in {1}", new Object[]{copyFormatName, getNameAndDescription()});
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
                 case "-csv":
                     setFunction(FUNCTIONS.TABLECSV);
                     setCsvTableName(argArray.nextMaybeQuotationTuplePopString());
@@ -463,9 +528,28 @@ public class CmdDb extends Command {
                     setFunction(FUNCTIONS.TABLEJSON);
                     setCsvTableName(argArray.nextMaybeQuotationTuplePopString());
                     break;
+                case "-jsonarray":
+                    setFunction(FUNCTIONS.TABLEJSONARRAY);
+                    setCsvTableName(argArray.nextMaybeQuotationTuplePopString());
+                    break;
+                case "-ndjson":
+                    setFunction(FUNCTIONS.TABLENDJSON);
+                    setCsvTableName(argArray.nextMaybeQuotationTuplePopString());
+                    break;
                 case "-disconnect":
                     setFunction(FUNCTIONS.DISCONNECT);
                     break;
+                case "-fetchsize":
+                    fetchSize = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
+                case "-from":
+                    setDataSrcfromArgArray(argArray);
+                    break;
+                case "-load":
+                    setFunction(FUNCTIONS.LOAD);
+                    starTableName = argArray.nextMaybeQuotationTuplePopString();
+                    loadFormatName = argArray.nextMaybeQuotationTuplePopStringTrim();
+                    break;
                 case "-metadata":
                     setFunction(FUNCTIONS.METADATA);
                     break;
@@ -473,6 +557,12 @@ public class CmdDb extends Command {
                     setFunction(FUNCTIONS.PRIMARYKEYS);
                     starTableName = argArray.nextMaybeQuotationTuplePopString();
                     break;
+                case "-partitionby":
+                    partitionBy = argArray.nextMaybeQuotationTuplePopString();
+                    break;
+                case "-partitions":
+                    partitions = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
                 case "-pklist":
                     primaryKeyList.splitIn(argArray.nextMaybeQuotationTuplePopString(), "\\p{Space}+");
                     break;
@@ -494,6 +584,9 @@ public class CmdDb extends Command {
                     destUser = argArray.nextMaybeQuotationTuplePopString();
                     destPassword = argArray.nextMaybeQuotationTuplePopString();
                     break;
+                case "-retries":
+                    retries = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
                 case "-separator":
                     setCsvSeparator(argArray.nextMaybeQuotationTuplePopString());
                     break;
@@ -544,10 +637,10 @@ public class CmdDb extends Command {
                         logArgArrayTooShortError(argArray);
                         setCommandResult(COMMANDRESULT.FAILURE);
                     } else {
-                        String system = argArray.nextMaybeQuotationTuplePopString();
-                        String schema = argArray.nextMaybeQuotationTuplePopString();
-                        String userid = argArray.nextMaybeQuotationTuplePopString();
-                        String password = argArray.nextMaybeQuotationTuplePopString();
+                        system = argArray.nextMaybeQuotationTuplePopString();
+                        schema = argArray.nextMaybeQuotationTuplePopString();
+                        userid = argArray.nextMaybeQuotationTuplePopString();
+                        password = argArray.nextMaybeQuotationTuplePopString();
                         if (getDb() == null || getFunction() == null) {
                             getLogger().log(Level.SEVERE, "-db dbtype and a choice of function required for {0}", getNameAndDescription());
                             setCommandResult(COMMANDRESULT.FAILURE);
@@ -568,6 +661,8 @@ public class CmdDb extends Command {
                 }
             }
             if (getDb().isConnected()) {
+                // Only an explicit charset name applies to an export written to a file or stream
+                String csvCharsetName = charsetName;
                 if (charsetName == null) {
                     charsetName = charsetNameFromDb();
                 }
@@ -601,6 +696,9 @@ public class CmdDb extends Command {
                             dbMetaData = getDb().getMetaData();
                             put(dbMetaData);
                             break;
+                        case LOAD:
+                            loadTable(starTableName, loadFormatName, csvCharsetName, batchSize, commitInterval, copyFormat);
+                            break;
                         case PRIMARYKEYS:
                             // String catalogName =  getDb().getDbType() == Db.DBTYPE.AS400 ? "SYSKEYCST" :  null;
                             ResultSet primaryKeys = getDb().getMetaData().getPrimaryKeys( /* catalogName */null, /* schema */ null, starTableName);
@@ -614,7 +712,9 @@ public class CmdDb extends Command {
                             } else {
                                 statement = getDb().createStatement(getResultSetType(), getResultSetConcurrency(), getResultSetHoldability());
                             }
+                            long hostStart = Profiler.hostStart();
                             rs = statement.executeQuery(getSqlQuery());
+                            Profiler.hostEnd(hostStart);
                             rsc = new ResultSetClosure(getDb(), rs, statement);
                             // put(rsc, charsetName == null ? charsetNameFromDb() : charsetName);
                             put(rsc, charsetName);
@@ -623,7 +723,9 @@ public class CmdDb extends Command {
                             // /* Debug */ getLogger().log(Level.INFO, "The query is {0}", getSqlQuery());
                             // CallableStatement cs = getDb().prepareCall(getSqlQuery());
                             Statement statement_nors = getDb().createStatement();
+                            long hostStartNors = Profiler.hostStart();
                             statement_nors.execute(getSqlQuery());
+                            Profiler.hostEnd(hostStartNors);
                             break;
                         case REPLICATE:
                             Db destDb = null;
@@ -638,12 +740,44 @@ public class CmdDb extends Command {
                                     getLogger().log(Level.SEVERE, "Unknown destination database type for replication: {0}", destDbType);
                                     setCommandResult(COMMANDRESULT.FAILURE);
                             }
+                            TableCopier.ConnectionPairFactory connectionPairFactory = null;
+                            if (destDb != null && copyRows && partitions > 1) {
+                                connectionPairFactory = newConnectionPairFactory(system, schema, userid, password,
+                                        destDb.getDbType(), destDbName, destDatabaseName, destUser, destPassword);
+                                if (connectionPairFactory == null) {
+                                    getLogger().log(Level.SEVERE, "A partitioned copy needs -as400 or the source system, schema, userid and password to open its own connections" + inNameAndDescription());
+                                    setCommandResult(COMMANDRESULT.FAILURE);
+                                    destDb = null;
+                                }
+                            }
                             if (destDb != null) {
-                                rs = getDb().selectStarFrom(starTableName);
-                                destDb.connect(destDbName, getDestPort(), destDatabaseName, getDestConnectionProperties(), destUser, destPassword);
-                                new TableReplicator(destDb, rs, rs.getMetaData(), destDb, starTableName, primaryKeyList, getDestResultSetType(), getDestResultSetConcurrency(),
-                                        getDestResultSetHoldability()).replicate();
-                                rs.close();
+                                // Only the metadata is wanted here, so don't have the source materialize the table
+                                rs = getDb().selectStarFromStreaming(starTableName, 1);
+                                try {
+                                    destDb.connect(destDbName, getDestPort(), destDatabaseName, getDestConnectionProperties(), destUser, destPassword);
+                                    new TableReplicator(destDb, rs, rs.getMetaData(), destDb, starTableName, primaryKeyList, getDestResultSetType(), getDestResultSetConcurrency(),
+                                            getDestResultSetHoldability()).replicate();
+                                } finally {
+                                    Statement rsStatement = rs.getStatement();
+                                    rs.close();
+                                    rsStatement.close();
+                                    getDb().endStreaming();
+                                }
+                                if (copyRows) {
+                                    TableCopier tableCopier = new TableCopier(getDb(), destDb, starTableName);
+                                    tableCopier.setBatchSize(batchSize);
+                                    tableCopier.setCommitInterval(commitInterval);
+                                    tableCopier.setFetchSize(fetchSize);
+                                    tableCopier.setCopyFormat(copyFormat);
+                                    if (connectionPairFactory == null) {
+                                        tableCopier.copy();
+                                    } else {
+                                        if (partitionBy == null && !primaryKeyList.isEmpty()) {
+                                            partitionBy = primaryKeyList.get(0);
+                                        }
+                                        tableCopier.copyPartitioned(partitions, partitionBy, retries, connectionPairFactory);
+                                    }
+                                }
                                 getDb().disconnect();
                                 destDb.disconnect();
                             }
@@ -654,9 +788,20 @@ public class CmdDb extends Command {
                             break;
                         case TABLECSV:
                             Csv cSV = getDb().newStarCsv(getCsvTableName(), csvSeparator);
-                            String csvTable = cSV.tableCSV();
-                            put(csvTable, charsetName);
-                            cSV.close();
+                            try {
+                                exportTable(cSV, csvCharsetName, charsetName);
+                            } finally {
+                                cSV.close();
+                            }
+                            break;
+                        case TABLEJSONARRAY:
+                        case TABLENDJSON:
+                            Json streamingJson = getDb().newStarJSON(getCsvTableName());
+                            try {
+                                exportTable(streamingJson, csvCharsetName, charsetName);
+                            } finally {
+                                streamingJson.close();
+                            }
                             break;
                         case TABLEJSON:
                             Json json = getDb().newStarJSON(getCsvTableName());
@@ -699,6 +844,168 @@ public class CmdDb extends Command {
         return argArray;
     }
 
+    /**
+     * Put a table as CSV or streaming JSON to the destination datasink. A file
+     * or the standard streams are written a row at a time in the named charset
+     * or the default charset. Other datasinks get the whole table as a string.
+     *
+     * @param helper the {@link Csv} or {@link Json} for the table
+     * @param outCharsetName charset to write in or null for the default
+     * @param charsetName charset name to put the string with
+     */
+    private void exportTable(DbHelper helper, String outCharsetName, String charsetName) throws SQLException, IOException, AS400SecurityException, ErrorCompletingRequestException, InterruptedException, ObjectDoesNotExistException, RequestNotSupportedException {
+        Charset charset = null;
+        try {
+            charset = outCharsetName == null ? Charset.defaultCharset() : Charset.forName(outCharsetName);
+        } catch (IllegalArgumentException ex) {
+            getLogger().log(Level.SEVERE, "Unknown charset name " + outCharsetName + " for export" + inNameAndDescription(), ex);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        }
+        if (charset != null) {
+            Writer writer = newDataDestWriter(charset);
+            if (writer == null) {
+                StringWriter sw = new StringWriter();
+                writeTable(helper, sw);
+                put(sw.toString(), charsetName);
+            } else {
+                try {
+                    writeTable(helper, writer);
+                } finally {
+                    closeDataDestWriter(writer);
+                }
+            }
+            getLogger().log(Level.INFO, "Exported {0} rows of {1} at {2} rows/s", new Object[]{helper.getRowCount(), getCsvTableName(), helper.getRowsPerSecond()});
+        }
+    }
+
+    private void writeTable(DbHelper helper, Writer writer) throws SQLException, IOException {
+        switch (getFunction()) {
+            case TABLECSV:
+                Csv.class.cast(helper).writeCSV(writer);
+                break;
+            case TABLEJSONARRAY:
+                Json.class.cast(helper).writeJSONArray(writer);
+                break;
+            case TABLENDJSON:
+                Json.class.cast(helper).writeNDJSON(writer);
+                break;
+        }
+    }
+
+    /**
+     * Load a table from CSV or NDJSON read from the data source
+     *
+     * @param tableName the table
+     * @param loadFormatName csv or ndjson
+     * @param inCharsetName charset to read in or null for the default
+     * @param batchSize rows per executeBatch if inserting
+     * @param commitInterval rows per commit
+     * @param copyFormat COPY format if the database is PostgreSQL, null to
+     * insert
+     */
+    private void loadTable(String tableName, String loadFormatName, String inCharsetName, int batchSize, int commitInterval, PgCopyEncoder.FORMAT copyFormat) throws SQLException, IOException {
+        TableLoader.SOURCEFORMAT loadFormat = null;
+        switch (loadFormatName.toLowerCase()) {
+            case "csv":
+                loadFormat = TableLoader.SOURCEFORMAT.CSV;
+                break;
+            case "ndjson":
+                loadFormat = TableLoader.SOURCEFORMAT.NDJSON;
+                break;
+            default:
+                getLogger().log(Level.SEVERE, "Unknown load format {0} in {1}", new Object[]{loadFormatName, getNameAndDescription()});
+                setCommandResult(COMMANDRESULT.FAILURE);
+        }
+        if (loadFormat == TableLoader.SOURCEFORMAT.CSV && getCsvSeparator().length() != 1) {
+            getLogger().log(Level.SEVERE, "The separator for loading CSV must be a single character in {0}", getNameAndDescription());
+            setCommandResult(COMMANDRESULT.FAILURE);
+        }
+        Charset charset = null;
+        if (getCommandResult() != COMMANDRESULT.FAILURE) {
+            try {
+                charset = inCharsetName == null ? Charset.defaultCharset() : Charset.forName(inCharsetName);
+            } catch (IllegalArgumentException ex) {
+                getLogger().log(Level.SEVERE, "Unknown charset name " + inCharsetName + " for load" + inNameAndDescription(), ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        }
+        if (charset != null) {
+            BufferedReader reader = newDataSrcReader(charset);
+            if (reader == null) {
+                getLogger().log(Level.SEVERE, "Nothing to load from {0} in {1}", new Object[]{getDataSrc().getName(), getNameAndDescription()});
+                setCommandResult(COMMANDRESULT.FAILURE);
+            } else {
+                TableLoader tableLoader = new TableLoader(getDb(), tableName);
+                tableLoader.setBatchSize(batchSize);
+                tableLoader.setCommitInterval(commitInterval);
+                tableLoader.setCopyFormat(copyFormat);
+                tableLoader.setSeparator(getCsvSeparator().charAt(0));
+                try {
+                    tableLoader.load(reader, loadFormat);
+                } finally {
+                    closeDataSrcReader(reader);
+                }
+                getLogger().log(Level.INFO, "Loaded {0} rows into {1} at {2} rows/s", new Object[]{tableLoader.getRowCount(), tableName, tableLoader.getRowsPerSecond()});
+            }
+        }
+    }
+
+    /**
+     * Factory for the connection pairs of a partitioned copy. The source is
+     * reconnected the way this command connected it.
+     *
+     * @return the factory or null if the source connection can't be repeated
+     */
+    private TableCopier.ConnectionPairFactory newConnectionPairFactory(final String system, final String schema, final String userid, final String password,
+            final Db.DBTYPE destDbType, final String destDbName, final String destDatabaseName, final String destUser, final String destPassword) {
+        TableCopier.ConnectionPairFactory factory = null;
+        final Db.DBTYPE srcDbType = getDb().getDbType();
+        final AS400 as400 = getDb() instanceof DbAS400 ? getAs400() : null;
+        final String port = getPort();
+        final boolean usessl = getUsessl();
+        final String rdbName = getRbdName();
+        final ConnectionProperties connectionProperties = getConnectionProperties();
+        final String destPort = getDestPort();
+        final ConnectionProperties destConnectionProperties = getDestConnectionProperties();
+        if (as400 != null || system != null) {
+            factory = new TableCopier.ConnectionPairFactory() {
+                @Override
+                public Db newSourceDb() throws ClassNotFoundException, SQLException {
+                    Db src = newDb(srcDbType);
+                    if (as400 != null) {
+                        src.connect(as400, port, usessl, rdbName, connectionProperties);
+                    } else {
+                        src.connect(system, port, schema, connectionProperties, userid, password);
+                    }
+                    return src;
+                }
+
+                @Override
+                public Db newDestDb() throws ClassNotFoundException, SQLException {
+                    Db dest = newDb(destDbType);
+                    dest.connect(destDbName, destPort, destDatabaseName, destConnectionProperties, destUser, destPassword);
+                    return dest;
+                }
+            };
+        }
+        return factory;
+    }
+
+    private static Db newDb(Db.DBTYPE dbType) {
+        Db newDb;
+        switch (dbType) {
+            case AS400:
+                newDb = new DbAS400();
+                break;
+            case PGSQL:
+                newDb = new DbPostgres();
+                break;
+            default:
+                newDb = new DbMSSQL();
+        }
+        return newDb;
+    }
+
     private String charsetNameFromDb() {
         String charsetName;
         switch (getDb().getDbType()) {
@@ -773,7 +1080,18 @@ public class CmdDb extends Command {
     protected void reinit() {
         super.reinit();
         setCsvSeparator(",");
+        setCsvTableName(null);
         setDb(null);
+        setDbType(null);
+        setDestPort(null);
+        setRbdName(null);
+        setUsessl(false);
+        setResultSetType(ResultSet.TYPE_SCROLL_SENSITIVE);
+        setResultSetConcurrency(ResultSet.CONCUR_UPDATABLE);
+        setResultSetHoldability(null);
+        setDestResultSetType(ResultSet.TYPE_SCROLL_SENSITIVE);
+        setDestResultSetConcurrency(ResultSet.CONCUR_UPDATABLE);
+        setDestResultSetHoldability(null);
         setFunction(FUNCTIONS.NULL);
         setPort(null);
         setConnectionProperties(new ConnectionProperties());
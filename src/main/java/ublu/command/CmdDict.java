@@ -27,6 +27,7 @@ package ublu.command;
 
 import ublu.util.ArgArray;
 import ublu.util.Generics.FunctorMap;
+import ublu.util.SysImage;
 import ublu.util.Tuple;
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
@@ -50,7 +51,7 @@ public class CmdDict extends Command {
 
     {
         setNameAndDescription("dict",
-                "/0 [-to datasink] [-from datasink] [-list | -save | -restore | -merge | -peek] : save and restore function dictionary");
+                "/0 [-to datasink] [-from datasink] [-serial] [-list | -save | -restore | -merge | -peek] : save and restore function dictionary");
     }
 
     enum OPERATIONS {
@@ -67,6 +68,7 @@ public class CmdDict extends Command {
     public ArgArray dict(ArgArray argArray) {
         OPERATIONS operation = OPERATIONS.LIST; // the default
         boolean isMerging = false;
+        boolean isSerial = false;
         while (argArray.hasDashCommand()) {
             String dashCommand = argArray.parseDashCommand();
             switch (dashCommand) {
@@ -86,6 +88,9 @@ public class CmdDict extends Command {
                 case "-peek":
                     operation = OPERATIONS.PEEK;
                     break;
+                case "-serial":
+                    isSerial = true;
+                    break;
                 case "-save":
                     operation = OPERATIONS.SAVE;
                     break;
@@ -177,9 +182,13 @@ public class CmdDict extends Command {
                 case SAVE:
                     ByteArrayOutputStream baos = new ByteArrayOutputStream();
                     try {
-                        ObjectOutputStream oos = new ObjectOutputStream(baos);
                         fm = getInterpreter().getFunctorMap();
-                        oos.writeObject(fm);
+                        if (isSerial) {
+                            ObjectOutputStream oos = new ObjectOutputStream(baos);
+                            oos.writeObject(fm);
+                        } else {
+                            SysImage.write(fm, null, baos);
+                        }
                         switch (getDataDest().getType()) {
                             case STD:
                                 put(baos.toByteArray());
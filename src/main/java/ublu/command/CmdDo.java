@@ -28,7 +28,7 @@
 package ublu.command;
 
 import ublu.util.ArgArray;
-import ublu.util.Parser;
+import ublu.util.CompiledBlock;
 import ublu.util.Tuple;
 import java.util.logging.Level;
 
@@ -82,14 +82,13 @@ public class CmdDo extends Command {
                 getLogger().log(Level.SEVERE, "Limit tuple does not exist in {0}", getNameAndDescription());
                 setCommandResult(COMMANDRESULT.FAILURE);
             } else {
-                Parser p = new Parser(getInterpreter(), block);
-                ArgArray aa = p.parseAnArgArray();
+                CompiledBlock compiledBlock = CompiledBlock.compile(block);
                 getInterpreter().pushFrame();
                 getInterpreter().setForBlock(true);
                 if (undo) {
-                    walkUnDo(startTuple, limitTuple, aa);
+                    walkUnDo(startTuple, limitTuple, compiledBlock);
                 } else {
-                    walkDo(startTuple, limitTuple, aa);
+                    walkDo(startTuple, limitTuple, compiledBlock);
                 }
                 if (getInterpreter().isBreakIssued()) {
                     // If a BREAK then the frame was already popped
@@ -102,14 +101,12 @@ public class CmdDo extends Command {
         return argArray;
     }
 
-    private void walkDo(Tuple startTuple, Tuple limitTuple, ArgArray argArray) {
-        ArgArray copy;
+    private void walkDo(Tuple startTuple, Tuple limitTuple, CompiledBlock compiledBlock) {
         int itStart = Integer.parseInt(startTuple.getValue().toString());
         int itLimit = Integer.parseInt(limitTuple.getValue().toString());
         for (; itStart < itLimit; itStart++) {
             startTuple.setValue(itStart);
-            copy = new ArgArray(getInterpreter(), argArray);
-            getInterpreter().setArgArray(copy);
+            getInterpreter().setArgArray(new ArgArray(getInterpreter(), compiledBlock));
             setCommandResult(getInterpreter().loop());
             if (getCommandResult() == COMMANDRESULT.FAILURE || getInterpreter().isBreakIssued()) {
                 getInterpreter().popFrame();
@@ -118,14 +115,12 @@ public class CmdDo extends Command {
         }
     }
 
-    private void walkUnDo(Tuple startTuple, Tuple limitTuple, ArgArray argArray) {
-        ArgArray copy;
+    private void walkUnDo(Tuple startTuple, Tuple limitTuple, CompiledBlock compiledBlock) {
         int itStart = Integer.parseInt(startTuple.getValue().toString());
         int itLimit = Integer.parseInt(limitTuple.getValue().toString());
         for (; itStart > itLimit; itStart--) {
             startTuple.setValue(itStart);
-            copy = new ArgArray(getInterpreter(), argArray);
-            getInterpreter().setArgArray(copy);
+            getInterpreter().setArgArray(new ArgArray(getInterpreter(), compiledBlock));
             setCommandResult(getInterpreter().loop());
             if (getCommandResult() == COMMANDRESULT.FAILURE || getInterpreter().isBreakIssued()) {
                 getInterpreter().popFrame();
@@ -57,7 +57,7 @@ public class CmdElse extends Command {
             getLogger().log(Level.SEVERE, "ELSE found without a $[ block ]$");
             setCommandResult(COMMANDRESULT.FAILURE);
         } else {
-            setCommandResult(getInterpreter().executeBlock(block));
+            setCommandResult(getInterpreter().executeBlockDeferred(block));
         }
         return argArray;
     }
@@ -25,7 +25,10 @@
  */
 package ublu.command;
 
+import ublu.Ublu;
 import ublu.util.ArgArray;
+import ublu.util.History;
+import ublu.util.Interpreter;
 
 /**
  * System.exit
@@ -59,12 +62,33 @@ public class CmdExit extends Command {
         }
         if (havingUnknownDashCommand()) {
             setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (getInterpreter().getExitHandler() != null) {
+            getInterpreter().getExitHandler().exit(exitCode);
+            getInterpreter().setGoodBye(true);
+            argArray = new ArgArray(getInterpreter()); // so we fall out of loop()
         } else {
+            getInterpreter().closeHistory();
+            flushMainHistory();
             System.exit(exitCode);
         }
         return argArray;
     }
 
+    /**
+     * History is written in the background, so when exit is run in some
+     * interpreter other than the main one, e.g., a thread's, wait for the
+     * main interpreter's queued lines to be written.
+     */
+    private void flushMainHistory() {
+        Interpreter main = Ublu.getMainInterpreter();
+        if (main != null && main != getInterpreter()) {
+            History history = main.getHistory();
+            if (history != null) {
+                history.flush();
+            }
+        }
+    }
+
     @Override
     public ArgArray cmd(ArgArray args) {
         reinit();
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import ublu.util.ArgArray;
+import ublu.util.Expression;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+/**
+ * Command to evaluate an infix expression. A literal expression is compiled
+ * once and kept at its place in the compiled block, so it is not parsed again
+ * each time the block runs.
+ *
+ * @author jwoehr
+ */
+public class CmdExpr extends Command {
+
+    {
+        setNameAndDescription("expr",
+                "/1 [-to datasink] ~@{ expression } : evaluate an infix expression over numbers, tuples and ~ with operators ?: || && | ^ & == != < <= > >= << >> + - * / % ! and functions abs() min() max()");
+    }
+
+    /**
+     * Arity-0 ctor
+     */
+    public CmdExpr() {
+    }
+
+    /**
+     * Evaluate an expression
+     *
+     * @param argArray the input arg array
+     * @return what's left of the arg array
+     */
+    public ArgArray expr(ArgArray argArray) {
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    setDataDestfromArgArray(argArray);
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (argArray.size() < 1) {
+            logArgArrayTooShortError(argArray);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else {
+            Expression expression = null;
+            Object cached = argArray.getNextCallSite();
+            boolean literal = !argArray.isNextTupleNameOrPop() && !argArray.isNextConstName();
+            String source = argArray.nextMaybeQuotationTuplePopString();
+            try {
+                if (cached instanceof Expression) {
+                    expression = (Expression) cached;
+                } else if (source == null) {
+                    getLogger().log(Level.SEVERE, "No expression found in {0}", getNameAndDescription());
+                    setCommandResult(COMMANDRESULT.FAILURE);
+                } else {
+                    expression = Expression.compile(source);
+                    if (literal) {
+                        argArray.setPreviousCallSite(expression);
+                    }
+                }
+                if (expression != null) {
+                    put(expression.evaluate(getInterpreter()));
+                }
+            } catch (Expression.ExpressionException ex) {
+                getLogger().log(Level.SEVERE, ex.getMessage());
+                setCommandResult(COMMANDRESULT.FAILURE);
+            } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                getLogger().log(Level.SEVERE, "Error putting result of " + getNameAndDescription(), ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        }
+        return argArray;
+    }
+
+    @Override
+    public ArgArray cmd(ArgArray args) {
+        reinit();
+        return expr(args);
+    }
+
+    @Override
+    public COMMANDRESULT getResult() {
+        return getCommandResult();
+    }
+}
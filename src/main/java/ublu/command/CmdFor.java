@@ -26,16 +26,31 @@
 package ublu.command;
 
 import ublu.util.ArgArray;
+import ublu.util.DataSink;
 import ublu.util.Generics.StringArrayList;
-import ublu.util.Parser;
+import ublu.util.Generics.ThingArrayList;
+import ublu.util.CompiledBlock;
+import ublu.util.Interpreter;
 import ublu.util.Tuple;
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
 import com.ibm.as400.access.JobList;
 import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 /**
@@ -47,9 +62,13 @@ import java.util.logging.Level;
 public class CmdFor extends Command {
 
     {
-        setNameAndDescription("FOR", "/5 @iteratorvar ~@valuevar $[ cmd .. ]$ : FOR enumerable @valuevar execute block instancing @iteratorvar");
+        setNameAndDescription("FOR", "/5 [-to datasink] [-parallel ~@{n} [-collect [-ordered]]] @iteratorvar ~@valuevar $[ cmd .. ]$ : FOR enumerable @valuevar execute block instancing @iteratorvar");
     }
 
+    private int parallelism;
+    private boolean collecting;
+    private boolean ordered;
+
     /* Parse and execute a FOR block
      *
      * @param argArray args to the interpreter
@@ -62,6 +81,40 @@ public class CmdFor extends Command {
      * @return remnant of the arg array
      */
     public ArgArray doCmdFor(ArgArray argArray) {
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    setDataDest(DataSink.fromSinkName(argArray.next()));
+                    break;
+                case "-parallel":
+                    parallelism = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
+                case "-collect":
+                    collecting = true;
+                    break;
+                case "-ordered":
+                    ordered = true;
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if ((collecting || ordered) && parallelism == 0) {
+            getLogger().log(Level.SEVERE, "-collect and -ordered require -parallel in {0}", getNameAndDescription());
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (parallelism < 0) {
+            getLogger().log(Level.SEVERE, "Invalid parallelism {0} in " + getNameAndDescription(), parallelism);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else {
+            doFor(argArray);
+        }
+        return argArray;
+    }
+
+    private void doFor(ArgArray argArray) {
         getInterpreter().pushLocal(); // local context for iterator
         Tuple iteratorTuple;
         if (!argArray.isNextTupleName()) {
@@ -84,42 +137,42 @@ public class CmdFor extends Command {
                     getLogger().log(Level.SEVERE, "FOR found without a $[ block ]$");
                     setCommandResult(COMMANDRESULT.FAILURE);
                 } else {
-                    Parser p = new Parser(getInterpreter(), block);
-                    ArgArray aa = p.parseAnArgArray();
-                    getInterpreter().pushFrame();
-                    getInterpreter().setForBlock(true);
-                    walkFor(iteratedTuple.getValue(), aa, iteratorTuple);
-                    if (getInterpreter().isBreakIssued()) {
-                        getInterpreter().setBreakIssued(false);
+                    CompiledBlock compiledBlock = CompiledBlock.compile(block);
+                    if (parallelism > 0) {
+                        walkParallel(iteratedTuple.getValue(), compiledBlock, iteratorTupleName);
+                    } else {
+                        getInterpreter().pushFrame();
+                        getInterpreter().setForBlock(true);
+                        walkFor(iteratedTuple.getValue(), compiledBlock, iteratorTuple);
+                        if (getInterpreter().isBreakIssued()) {
+                            getInterpreter().setBreakIssued(false);
+                        }
+                        getInterpreter().popFrame();
                     }
-                    getInterpreter().popFrame();
                 }
             }
         }
         getInterpreter().popLocal();
-        return argArray;
     }
 
-    private void walkFor(Object o, ArgArray argArray, Tuple iteratorTuple) {
+    private void walkFor(Object o, CompiledBlock compiledBlock, Tuple iteratorTuple) {
         if (o != null) {
             if (o instanceof JobList) {
-                walk(JobList.class.cast(o), argArray, iteratorTuple);
+                walk(JobList.class.cast(o), compiledBlock, iteratorTuple);
             }
             if (o instanceof Iterable) {
-                walk(Iterable.class.cast(o), argArray, iteratorTuple);
+                walk(Iterable.class.cast(o), compiledBlock, iteratorTuple);
             }
             if (o instanceof String) {
-                walk(String.class.cast(o), argArray, iteratorTuple);
+                walk(String.class.cast(o), compiledBlock, iteratorTuple);
             }
         }
     }
 
-    private void walk(Iterable it, ArgArray argArray, Tuple iteratorTuple) {
+    private void walk(Iterable it, CompiledBlock compiledBlock, Tuple iteratorTuple) {
         Iterator i = it.iterator();
-        ArgArray copy;
         while (i.hasNext() && !getInterpreter().isBreakIssued()) {
-            copy = new ArgArray(getInterpreter(), argArray);
-            getInterpreter().setArgArray(copy);
+            getInterpreter().setArgArray(new ArgArray(getInterpreter(), compiledBlock));
             iteratorTuple.setValue(i.next());
             setCommandResult(getInterpreter().loop());
             if (getCommandResult() == COMMANDRESULT.FAILURE) {
@@ -128,14 +181,13 @@ public class CmdFor extends Command {
         }
     }
 
-    private void walk(String s, ArgArray argArray, Tuple iteratorTuple) {
+    private void walk(String s, CompiledBlock compiledBlock, Tuple iteratorTuple) {
         StringArrayList sal = new StringArrayList(s);
-        walk(sal, argArray, iteratorTuple);
+        walk(sal, compiledBlock, iteratorTuple);
     }
 
-    private void walk(JobList jl, ArgArray argArray, Tuple iteratorTuple) {
+    private void walk(JobList jl, CompiledBlock compiledBlock, Tuple iteratorTuple) {
         Enumeration jobs = null;
-        ArgArray copy;
         try {
             jobs = jl.getJobs();
         } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException ex) {
@@ -146,8 +198,7 @@ public class CmdFor extends Command {
             while (jobs.hasMoreElements()
                     && getInterpreter().isForBlock()
                     && !getInterpreter().isBreakIssued()) {
-                copy = new ArgArray(getInterpreter(), argArray);
-                getInterpreter().setArgArray(copy);
+                getInterpreter().setArgArray(new ArgArray(getInterpreter(), compiledBlock));
                 iteratorTuple.setValue(jobs.nextElement());
                 setCommandResult(getInterpreter().loop());
                 if (getCommandResult() == COMMANDRESULT.FAILURE) {
@@ -157,6 +208,186 @@ public class CmdFor extends Command {
         }
     }
 
+    /**
+     * Get the elements a FOR walks as an iterator
+     *
+     * @param o the iterated object
+     * @return iterator of its elements or null if it cannot be iterated
+     */
+    private Iterator elements(Object o) {
+        Iterator result = null;
+        if (o instanceof JobList) {
+            try {
+                result = Collections.list(JobList.class.cast(o).getJobs()).iterator();
+            } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException ex) {
+                getLogger().log(Level.SEVERE, "Error fetching job list", ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        } else if (o instanceof Iterable) {
+            result = Iterable.class.cast(o).iterator();
+        } else if (o instanceof String) {
+            result = new StringArrayList(String.class.cast(o)).iterator();
+        }
+        return result;
+    }
+
+    /**
+     * Walk the elements on a bounded pool of child interpreters. Each child
+     * has its own local frame holding its own instance of the iterator tuple
+     * and takes the next element as soon as it finishes with the last. A
+     * failure or a BREAK in any child stops further elements being taken and
+     * cancels the iterations still running in the other children. If
+     * collecting, each iteration which runs to its end contributes the value
+     * it pushed onto its child's tuple stack, or null if it pushed nothing,
+     * to a list which is put, in order of completion or, if ordered, in order
+     * of iteration.
+     *
+     * @param o the iterated object
+     * @param compiledBlock the block to execute
+     * @param iteratorTupleName name of the iterator tuple
+     */
+    private void walkParallel(Object o, CompiledBlock compiledBlock, String iteratorTupleName) {
+        final Iterator elements = elements(o);
+        if (elements != null) {
+            runParallel(elements, compiledBlock, iteratorTupleName);
+        }
+    }
+
+    private void runParallel(final Iterator elements, final CompiledBlock compiledBlock, String iteratorTupleName) {
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<Object[]> results = Collections.synchronizedList(new ArrayList<Object[]>());
+        final long[] taken = new long[1];
+        final List<Interpreter> children = new ArrayList<>();
+        final List<Future<?>> futures = Collections.synchronizedList(new ArrayList<Future<?>>());
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                // children are spawned here on the owning thread of the tuple map
+                final Interpreter child = new Interpreter(getInterpreter());
+                child.pushLocal();
+                final Tuple childIterator = new Tuple(iteratorTupleName, null);
+                child.putTupleMostLocal(childIterator);
+                child.pushFrame();
+                child.setForBlock(true);
+                children.add(child);
+            }
+            for (final Interpreter child : children) {
+                final Tuple childIterator = child.getTuple(iteratorTupleName);
+                futures.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (!stopped.get()) {
+                            Object element;
+                            long index;
+                            synchronized (elements) {
+                                if (stopped.get() || !elements.hasNext()) {
+                                    break;
+                                }
+                                element = elements.next();
+                                index = taken[0]++;
+                            }
+                            child.setArgArray(new ArgArray(child, compiledBlock));
+                            childIterator.setValue(element);
+                            int depth = child.getTupleStack().size();
+                            COMMANDRESULT result;
+                            try {
+                                result = child.loop();
+                            } catch (RuntimeException ex) {
+                                getLogger().log(Level.SEVERE, "Exception in parallel iteration of " + getNameAndDescription(), ex);
+                                result = COMMANDRESULT.FAILURE;
+                            }
+                            if (child.isGoodBye()) { // cancelled by a sibling
+                                break;
+                            }
+                            if (result == COMMANDRESULT.FAILURE) {
+                                failed.set(true);
+                                stop(children, futures, stopped);
+                            } else {
+                                if (collecting) {
+                                    Object value = child.getTupleStack().size() > depth ? child.getTupleStack().pop().getValue() : null;
+                                    results.add(new Object[]{index, value});
+                                }
+                                if (child.isBreakIssued()) {
+                                    stop(children, futures, stopped);
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+            List<Future<?>> submitted;
+            synchronized (futures) {
+                submitted = new ArrayList<>(futures);
+            }
+            for (Future<?> future : submitted) {
+                try {
+                    future.get();
+                } catch (CancellationException ex) {
+                    // cancelled on the failure or BREAK of a sibling
+                }
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            getLogger().log(Level.SEVERE, "Parallel iteration interrupted in " + getNameAndDescription(), ex);
+            failed.set(true);
+            stop(children, futures, stopped);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failed.get()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (collecting) {
+            if (ordered) {
+                Collections.sort(results, new Comparator<Object[]>() {
+                    @Override
+                    public int compare(Object[] o1, Object[] o2) {
+                        return Long.compare((Long) o1[0], (Long) o2[0]);
+                    }
+                });
+            }
+            ThingArrayList collected = new ThingArrayList();
+            for (Object[] result : results) {
+                collected.add(result[1]);
+            }
+            try {
+                put(collected);
+            } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                getLogger().log(Level.SEVERE, "Couldn't put collected results in " + getNameAndDescription(), ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Stop a parallel walk: no further elements are taken, and each child is
+     * told to stop at its next command and its thread interrupted. Only the
+     * first call has any effect.
+     *
+     * @param children the child interpreters
+     * @param futures the futures of the children's runs
+     * @param stopped set once the walk is stopped
+     */
+    private static void stop(List<Interpreter> children, List<Future<?>> futures, AtomicBoolean stopped) {
+        if (stopped.compareAndSet(false, true)) {
+            for (Interpreter child : children) {
+                child.setGoodBye(true);
+            }
+            synchronized (futures) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reinit() {
+        super.reinit();
+        parallelism = 0;
+        collecting = false;
+        ordered = false;
+    }
+
     @Override
     public ArgArray cmd(ArgArray args) {
         reinit();
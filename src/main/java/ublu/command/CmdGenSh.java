@@ -50,7 +50,7 @@ public class CmdGenSh extends Command {
 
     {
         setNameAndDescription("gensh",
-                "/5+ [-to datasink] [-strictPosix] [ [-path ~@{fullyqualifiedjarpath}] [-includepath ~@{searchpath}] [-opt optchar assignment_name tuplename ${ description }$ ..] [-optr optchar assignment_name tuplename ${ description }$ ..] [-opts optchar assignment_name ${ description }$ ..] [-optx optchar multiple_assignment_name tuplename ${ description }$ ..] [-prelude ~@{prelude command string ..] ] ~@{scriptname} ~@{includename} ~@{ functionCall ( @a @b ... ) } : generate launcher shell script");
+                "/5+ [-to datasink] [-strictPosix] [-daemon [-keyfile ~@{keyfilepath}]] [ [-path ~@{fullyqualifiedjarpath}] [-includepath ~@{searchpath}] [-opt optchar assignment_name tuplename ${ description }$ ..] [-optr optchar assignment_name tuplename ${ description }$ ..] [-opts optchar assignment_name ${ description }$ ..] [-optx optchar multiple_assignment_name tuplename ${ description }$ ..] [-prelude ~@{prelude command string ..] ] ~@{scriptname} ~@{includename} ~@{ functionCall ( @a @b ... ) } : generate launcher shell script");
     }
 
     private static final String RESERVED = "[DXh]";
@@ -108,6 +108,13 @@ public class CmdGenSh extends Command {
                 case "-strictPosix":
                     strictPosix = true;
                     break;
+                case "-daemon":
+                    genSh.setDaemon(true);
+                    break;
+                case "-keyfile":
+                    genSh.setDaemonKeyFile(argArray.nextMaybeQuotationTuplePopStringTrim());
+                    genSh.accumulateCommand(genSh.getDaemonKeyFile());
+                    break;
                 case "-path":
                     genSh.setFqJarPath(argArray.nextMaybeQuotationTuplePopStringTrim());
                     genSh.accumulateCommand(genSh.getFqJarPath());
@@ -771,6 +771,17 @@ public class CmdIFS extends Command {
         return result;
     }
 
+    @Override
+    protected void reinit() {
+        super.reinit();
+        ifsFileTuple = null;
+        binOffset = null;
+        binLength = null;
+        translate = false;
+        binary = false;
+        pattern = null;
+    }
+
     @Override
     public ArgArray cmd(ArgArray args) {
         reinit();
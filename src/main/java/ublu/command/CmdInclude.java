@@ -28,10 +28,16 @@ package ublu.command;
 import ublu.util.ArgArray;
 import ublu.util.DataSink;
 import ublu.util.Generics.UbluProgram;
+import ublu.util.IncludeCache;
 import ublu.util.Tuple;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.logging.Level;
 
 /**
@@ -42,7 +48,7 @@ import java.util.logging.Level;
 public class CmdInclude extends Command {
 
     {
-        setNameAndDescription("include", "/1 [-from datasink] [-s,-silent] [-if ~@tf | -!if ~@tf] ~@{filepath} : include commands from a text file or from another datasink for interpretation");
+        setNameAndDescription("include", "/1? [-to datasink] [-from datasink] [-s,-silent] [-nocache] [-if ~@tf | -!if ~@tf] ~@{filepath} | -cachestats | -clearcache : include commands from a text file or from another datasink for interpretation");
     }
 
     /**
@@ -51,6 +57,7 @@ public class CmdInclude extends Command {
     public CmdInclude() {
     }
     private boolean wasSetFromDataSink;
+    private boolean useCache = true;
 
     /**
      * Include a file for interpretation
@@ -62,10 +69,24 @@ public class CmdInclude extends Command {
     public ArgArray include(ArgArray args) {
         boolean includeIf = true;
         boolean isSilent = false;
+        boolean cacheStats = false;
+        boolean clearCache = false;
         Path filepath;
         while (args.hasDashCommand()) {
             String dashCommand = args.parseDashCommand();
             switch (dashCommand) {
+                case "-to":
+                    setDataDest(DataSink.fromSinkName(args.next()));
+                    break;
+                case "-nocache":
+                    useCache = false;
+                    break;
+                case "-cachestats":
+                    cacheStats = true;
+                    break;
+                case "-clearcache":
+                    clearCache = true;
+                    break;
                 case "-from":
                     String srcName = args.next();
                     setDataSrc(DataSink.fromSinkName(srcName));
@@ -87,6 +108,18 @@ public class CmdInclude extends Command {
         }
         if (havingUnknownDashCommand()) {
             setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (cacheStats || clearCache) {
+            if (clearCache) {
+                IncludeCache.getInstance().clear();
+            }
+            if (cacheStats) {
+                try {
+                    put(IncludeCache.getInstance().toString());
+                } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                    getLogger().log(Level.SEVERE, "Exception putting include cache statistics in " + getNameAndDescription(), ex);
+                    setCommandResult(COMMANDRESULT.FAILURE);
+                }
+            }
         } else if (!includeIf) {
             args.nextMaybeQuotationTuplePopString(); // discard unused include name
         } else {
@@ -103,7 +136,7 @@ public class CmdInclude extends Command {
                         filepathspec = getDataSrc().getName();
                         try {
                             filepath = FileSystems.getDefault().getPath(filepathspec);
-                            setCommandResult(getInterpreter().include(filepath));
+                            setCommandResult(getInterpreter().include(filepath, useCache));
                         } catch (IOException ex) {
                             getLogger().log(Level.SEVERE, "Exception including " + filepathspec, ex);
                             setCommandResult(COMMANDRESULT.FAILURE);
@@ -140,7 +173,7 @@ public class CmdInclude extends Command {
                 filepathspec = args.nextMaybeQuotationTuplePopString();
                 try {
                     filepath = FileSystems.getDefault().getPath(filepathspec);
-                    setCommandResult(getInterpreter().include(filepath));
+                    setCommandResult(getInterpreter().include(filepath, useCache));
                 } catch (IOException ex) {
                     getLogger().log(Level.SEVERE, "Exception including " + filepathspec, ex);
                     setCommandResult(COMMANDRESULT.FAILURE);
@@ -158,6 +191,7 @@ public class CmdInclude extends Command {
     public void reinit() {
         super.reinit();
         wasSetFromDataSink = false;
+        useCache = true;
     }
 
     @Override
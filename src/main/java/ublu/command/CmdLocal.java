@@ -53,13 +53,12 @@ public class CmdLocal extends Command {
             getLogger().log(Level.SEVERE, "{0} is not a tuple name in {1}", new Object[]{tupleName, getNameAndDescription()});
             setCommandResult(COMMANDRESULT.FAILURE);
         } else {
-            TupleMap tm = getInterpreter().getTupleMap().getLocalMap();
-            if (tm == null) {
+            TupleMap tm = getInterpreter().getTupleMap();
+            if (!tm.hasLocal()) {
                 getLogger().log(Level.SEVERE, "No local context exists in {0}", new Object[]{tupleName, getNameAndDescription()});
                 setCommandResult(COMMANDRESULT.FAILURE);
             } else {
-                tm = tm.getMostLocalMap();
-                tm.setTuple(tupleName, null);
+                tm.setTupleMostLocal(tupleName, null);
             }
         }
         return argArray;
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import ublu.util.ArgArray;
+import ublu.util.DataSink;
+import ublu.util.Profiler;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import org.json.JSONException;
+
+/**
+ * Command to turn the script profiler on and off and report what it recorded
+ *
+ * @author jwoehr
+ */
+public class CmdProfile extends Command {
+
+    {
+        setNameAndDescription("profile", "/0 [-to datasink] [-on | -off | -reset | -report [-json] [-by count|total|self|host|alloc]] : profile commands and functions");
+    }
+
+    /**
+     * Manage the profiler
+     */
+    public CmdProfile() {
+    }
+
+    /**
+     * Our profile functions
+     */
+    protected enum FUNCTIONS {
+
+        /**
+         * turn profiling on
+         */
+        ON,
+        /**
+         * turn profiling off
+         */
+        OFF,
+        /**
+         * discard data
+         */
+        RESET,
+        /**
+         * report data
+         */
+        REPORT
+    }
+
+    /**
+     * Manage the profiler
+     *
+     * @param argArray the ArgArray currently under interpretation
+     * @return the remainder of the ArgArray
+     */
+    public ArgArray cmdProfile(ArgArray argArray) {
+        FUNCTIONS function = FUNCTIONS.REPORT; // default
+        boolean json = false;
+        Profiler.SORTBY sortBy = Profiler.SORTBY.SELF;
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    setDataDest(DataSink.fromSinkName(argArray.next()));
+                    break;
+                case "-on":
+                    function = FUNCTIONS.ON;
+                    break;
+                case "-off":
+                    function = FUNCTIONS.OFF;
+                    break;
+                case "-reset":
+                    function = FUNCTIONS.RESET;
+                    break;
+                case "-report":
+                    function = FUNCTIONS.REPORT;
+                    break;
+                case "-json":
+                    json = true;
+                    break;
+                case "-by":
+                    String field = argArray.next();
+                    try {
+                        sortBy = Profiler.SORTBY.valueOf(field.toUpperCase());
+                    } catch (IllegalArgumentException ex) {
+                        getLogger().log(Level.SEVERE, "Unknown sort field {0} in " + getNameAndDescription(), field);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (getCommandResult() != COMMANDRESULT.FAILURE) {
+            switch (function) {
+                case ON:
+                    getInterpreter().getMyUblu().setProfiling(true);
+                    break;
+                case OFF:
+                    getInterpreter().getMyUblu().setProfiling(false);
+                    break;
+                case RESET:
+                    getInterpreter().getMyUblu().getProfiler().reset();
+                    break;
+                case REPORT:
+                    Profiler profiler = getInterpreter().getMyUblu().getProfiler();
+                    try {
+                        if (json) {
+                            put(profiler.reportJSON(sortBy));
+                        } else {
+                            put(profiler.report(sortBy));
+                        }
+                    } catch (JSONException | SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                        getLogger().log(Level.SEVERE, "Error putting profile report in " + getNameAndDescription(), ex);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+            }
+        }
+        return argArray;
+    }
+
+    @Override
+    public void reinit() {
+        super.reinit();
+    }
+
+    @Override
+    public ArgArray cmd(ArgArray args) {
+        reinit();
+        return cmdProfile(args);
+    }
+
+    @Override
+    public COMMANDRESULT getResult() {
+        return getCommandResult();
+    }
+}
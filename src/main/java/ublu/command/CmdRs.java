@@ -41,7 +41,10 @@ import java.io.BufferedInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.sql.Blob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -59,7 +62,7 @@ public class CmdRs extends Command {
 
     {
         // setNameAndDescription("rs", "/0 [--,-rs ~@rs] [-to datasink] [-tofile ~@filepath] [-from datasink] [[-abs ~@{row}] | [-rel ~@{rows}] | [-autocommit 0|1] | [-bytes ~@{index}] | [-close{|db|st} [tuplename]] | [-commit ~@resultSet] | [-fetchsize numrows] | [-fileblob ~@{index} ~@{blobfilepath}] | [-get ~@{index}] | [-lget ~@{label}] | [-getblob ~@{index}] | [-lgetblob ~@{label}] | -insert | [-json ~@db ~@{tablename}] | [-next] | [-split split_specification] | [-toascii numindices index index ..] | [-metadata]] : operate on result sets)");
-        setNameAndDescription("rs", "/0 [--,-rs ~@rs] [-to datasink] [-tofile ~@filepath] [-from datasink] [[-abs ~@{row}] | [-rel ~@{rows}] | [-before] | [-after] | [-first] | [-last] | [-rownum] | [-rawrs] | [-autocommit 0|1] | [-bytes ~@{index}] | [-close{|db|st} [tuplename]] | [-commit ~@resultSet] | [-fetchsize numrows] | [-get ~@{index}] | [-lget ~@{label}] | [-getblob ~@{index}] | [-lgetblob ~@{label}] | -insert | [-json ~@db ~@{tablename}] | [-next] | [-split split_specification] | [-toascii numindices index index ..] | [-metadata]] : operate on result sets");
+        setNameAndDescription("rs", "/0 [--,-rs ~@rs] [-to datasink] [-tofile ~@filepath] [-from datasink] [[-abs ~@{row}] | [-rel ~@{rows}] | [-before] | [-after] | [-first] | [-last] | [-rownum] | [-rawrs] | [-autocommit 0|1] | [-bytes ~@{index}] | [-close{|db|st} [tuplename]] | [-commit ~@resultSet] | [-fetchsize numrows] | [-get ~@{index}] | [-lget ~@{label}] | [-getblob ~@{index}] | [-lgetblob ~@{label}] | -insert | [-json ~@db ~@{tablename}] | [-jsonarray ~@db] | [-ndjson ~@db] | [-next] | [-split split_specification] | [-toascii numindices index index ..] | [-metadata]] : operate on result sets");
     }
 
     /**
@@ -207,6 +210,14 @@ public class CmdRs extends Command {
          * Dump the result set as JSON
          */
         JSON,
+        /**
+         * Stream the result set as a JSON array
+         */
+        JSONARRAY,
+        /**
+         * Stream the result set as newline-delimited JSON
+         */
+        NDJSON,
         /**
          * Get the result set metadata
          */
@@ -349,6 +360,14 @@ public class CmdRs extends Command {
                     myDb = argArray.nextTupleOrPop().value(Db.class);
                     tableName = argArray.nextMaybeQuotationTuplePopString();
                     break;
+                case "-jsonarray":
+                    setFunction(FUNCTIONS.JSONARRAY);
+                    myDb = argArray.nextTupleOrPop().value(Db.class);
+                    break;
+                case "-ndjson":
+                    setFunction(FUNCTIONS.NDJSON);
+                    myDb = argArray.nextTupleOrPop().value(Db.class);
+                    break;
                 case "-metadata":
                     setFunction(FUNCTIONS.METADATA);
                     break;
@@ -736,6 +755,32 @@ public class CmdRs extends Command {
                     }
                     break;
 
+                case JSONARRAY:
+                case NDJSON:
+                    if (myRs == null || myDb == null) {
+                        getLogger().log(Level.SEVERE, "Missing result set or db for JSON in {0}", getNameAndDescription());
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    } else {
+                        try {
+                            Writer writer = newDataDestWriter(Charset.defaultCharset());
+                            if (writer == null) {
+                                StringWriter sw = new StringWriter();
+                                writeJSON(myRs, myDb, sw);
+                                put(sw.toString());
+                            } else {
+                                try {
+                                    writeJSON(myRs, myDb, writer);
+                                } finally {
+                                    closeDataDestWriter(writer);
+                                }
+                            }
+                        } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                            getLogger().log(Level.SEVERE, "Exception writing or putting JSON in " + getNameAndDescription(), ex);
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        }
+                    }
+                    break;
+
                 case SPLIT:
                     if (getDataDest() == null | getDataSrc() == null) {
                         getLogger().log(Level.SEVERE, "Missing data source or data dest in rs command");
@@ -877,6 +922,14 @@ public class CmdRs extends Command {
         }
     }
 
+    private void writeJSON(ResultSetClosure rsc, Db db, Writer writer) throws SQLException, IOException {
+        if (getFunction() == FUNCTIONS.JSONARRAY) {
+            rsc.writeJSONArray(db, writer);
+        } else {
+            rsc.writeNDJSON(db, writer);
+        }
+    }
+
     private byte[] arrayBlob(Blob b) {
         ByteArrayList bal = new ByteArrayList();
         try (BufferedInputStream bis = new BufferedInputStream(b.getBinaryStream())) {
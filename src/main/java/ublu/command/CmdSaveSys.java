@@ -29,6 +29,8 @@ package ublu.command;
 
 import ublu.util.ArgArray;
 import ublu.util.Generics.FunctorMap;
+import ublu.util.SysImage;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -49,7 +51,7 @@ public class CmdSaveSys extends Command {
 
     {
         setNameAndDescription("savesys",
-                "/0 [-to datasink] [-from datasink] [-merge] [-save | -restore] : save and restore compiled code");
+                "/0 [-to datasink] [-from datasink] [-merge] [-serial] [-save | -restore] : save and restore compiled code");
     }
 
     enum OPERATIONS {
@@ -66,6 +68,7 @@ public class CmdSaveSys extends Command {
     public ArgArray saveSys(ArgArray argArray) {
         OPERATIONS operation = OPERATIONS.NOOP; // the default
         boolean isMerging = false;
+        boolean isSerial = false;
         while (argArray.hasDashCommand()) {
             String dashCommand = argArray.parseDashCommand();
             switch (dashCommand) {
@@ -82,6 +85,9 @@ public class CmdSaveSys extends Command {
 //                case "-peek":
 //                    operation = OPERATIONS.PEEK;
 //                    break;
+                case "-serial":
+                    isSerial = true;
+                    break;
                 case "-save":
                     operation = OPERATIONS.SAVE;
                     break;
@@ -163,7 +169,11 @@ public class CmdSaveSys extends Command {
                     switch (getDataDest().getType()) {
                         case FILE:
                             try (FileOutputStream fo = new FileOutputStream(getDataDest().getName())) {
-                                writeSys(getInterpreter().getFunctorMap(), getInterpreter().getConstMap(), fo);
+                                if (isSerial) {
+                                    writeSys(getInterpreter().getFunctorMap(), getInterpreter().getConstMap(), fo);
+                                } else {
+                                    SysImage.write(getInterpreter().getFunctorMap(), getInterpreter().getConstMap(), fo);
+                                }
                             } catch (IOException ex) {
                                 getLogger().log(Level.SEVERE, "Error saving system in " + getNameAndDescription(), ex);
                                 setCommandResult(COMMANDRESULT.FAILURE);
@@ -177,8 +187,16 @@ public class CmdSaveSys extends Command {
                 case RESTORE:
                     switch (getDataSrc().getType()) {
                         case FILE:
-                            try (FileInputStream fis = new FileInputStream(getDataSrc().getName())) {
-                                readSys(fis, isMerging);
+                            File f = new File(getDataSrc().getName());
+                            try {
+                                if (SysImage.isImage(f)) {
+                                    SysImage image = SysImage.fromFile(f);
+                                    restoreSys(image.getFunctorMap(), image.getConstMap(), isMerging);
+                                } else {
+                                    try (FileInputStream fis = new FileInputStream(f)) {
+                                        readSys(fis, isMerging);
+                                    }
+                                }
                             } catch (IOException | ClassNotFoundException ex) {
                                 Logger.getLogger(CmdSaveSys.class.getName()).log(Level.SEVERE, "Couldn't reload class in " + getNameAndDescription(), ex);
                             }
@@ -203,15 +221,19 @@ public class CmdSaveSys extends Command {
         try (ObjectInputStream ois = new ObjectInputStream(is)) {
             FunctorMap fm = (FunctorMap) ois.readObject();
             ConstMap cm = (ConstMap) ois.readObject();
-            FunctorMap oldfm = getInterpreter().getFunctorMap();
-            ConstMap oldcm = getInterpreter().getConstMap();
-            if (merging) {
-                oldfm.putAll(fm);
-                oldcm.putAll(cm);
-            } else {
-                getInterpreter().setFunctorMap(fm);
-                getInterpreter().setConstMap(cm);
-            }
+            restoreSys(fm, cm, merging);
+        }
+    }
+
+    private void restoreSys(FunctorMap fm, ConstMap cm, boolean merging) {
+        FunctorMap oldfm = getInterpreter().getFunctorMap();
+        ConstMap oldcm = getInterpreter().getConstMap();
+        if (merging) {
+            oldfm.putAll(fm);
+            oldcm.putAll(cm);
+        } else {
+            getInterpreter().setFunctorMap(fm);
+            getInterpreter().setConstMap(cm);
         }
     }
 
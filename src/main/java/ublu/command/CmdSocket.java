@@ -313,6 +313,19 @@ public class CmdSocket extends Command {
         return b;
     }
 
+    @Override
+    protected void reinit() {
+        super.reinit();
+        host = null;
+        portnum = null;
+        localAddr = null;
+        localPort = null;
+        usessl = false;
+        sockTuple = null;
+        writeTuple = null;
+        readCount = 0;
+    }
+
     @Override
     public ArgArray cmd(ArgArray args) {
         reinit();
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import ublu.util.ArgArray;
+import ublu.util.DataSink;
+import ublu.util.Putter;
+import ublu.util.StrBuf;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+/**
+ * Create and manage string buffers which accumulate text in place
+ *
+ * @author jwoehr
+ */
+public class CmdStrBuf extends Command {
+
+    {
+        setNameAndDescription("strbuf",
+                "/0 [-to datasink] [--,-strbuf ~@strbuf] [[-new,-instance] | [-append ~@{ some text }] | [-appendln ~@{ some text }] | [-clear] | [-len,-size] | [-tostring] | [-flushto datasink]] : create and manage mutable string buffers");
+    }
+
+    /**
+     * Operations
+     */
+    protected enum OPERATIONS {
+
+        /**
+         * Append text
+         */
+        APPEND,
+        /**
+         * Append text and a line separator
+         */
+        APPENDLN,
+        /**
+         * Empty the buffer
+         */
+        CLEAR,
+        /**
+         * Write the buffer to a datasink and empty it
+         */
+        FLUSHTO,
+        /**
+         * Create buffer
+         */
+        INSTANCE,
+        /**
+         * Length of buffer
+         */
+        LEN,
+        /**
+         * Buffer as a string
+         */
+        TOSTRING
+    }
+
+    /**
+     * The strbuf command
+     *
+     * @param argArray
+     * @return remnant of argArray
+     */
+    public ArgArray doCmdStrBuf(ArgArray argArray) {
+        OPERATIONS operation = OPERATIONS.INSTANCE;
+        StrBuf myStrBuf = null;
+        String text = null;
+        DataSink flushSink = null;
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    String destName = argArray.next();
+                    setDataDest(DataSink.fromSinkName(destName));
+                    break;
+                case "--":
+                case "-strbuf":
+                    myStrBuf = argArray.nextTupleOrPop().value(StrBuf.class);
+                    break;
+                case "-new":
+                case "-instance":
+                    operation = OPERATIONS.INSTANCE;
+                    break;
+                case "-append":
+                    operation = OPERATIONS.APPEND;
+                    text = argArray.nextMaybeQuotationTuplePopString();
+                    break;
+                case "-appendln":
+                    operation = OPERATIONS.APPENDLN;
+                    text = argArray.nextMaybeQuotationTuplePopString();
+                    break;
+                case "-clear":
+                    operation = OPERATIONS.CLEAR;
+                    break;
+                case "-flushto":
+                    operation = OPERATIONS.FLUSHTO;
+                    flushSink = DataSink.fromSinkName(argArray.next());
+                    break;
+                case "-len":
+                case "-size":
+                    operation = OPERATIONS.LEN;
+                    break;
+                case "-tostring":
+                    operation = OPERATIONS.TOSTRING;
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (operation == OPERATIONS.INSTANCE) {
+            try {
+                put(new StrBuf());
+            } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                getLogger().log(Level.SEVERE, "Error putting StrBuf instance in " + getNameAndDescription(), ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        } else if (myStrBuf == null) {
+            getLogger().log(Level.SEVERE, "No StrBuf in {0}", getNameAndDescription());
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else {
+            switch (operation) {
+                case APPEND:
+                    myStrBuf.append(String.valueOf(text));
+                    break;
+                case APPENDLN:
+                    myStrBuf.appendln(String.valueOf(text));
+                    break;
+                case CLEAR:
+                    myStrBuf.clear();
+                    break;
+                case FLUSHTO:
+                    flush(myStrBuf, flushSink);
+                    break;
+                case LEN:
+                    try {
+                        put(myStrBuf.length());
+                    } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                        getLogger().log(Level.SEVERE, "Error putting StrBuf length in " + getNameAndDescription(), ex);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+                case TOSTRING:
+                    try {
+                        put(myStrBuf.toString());
+                    } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                        getLogger().log(Level.SEVERE, "Error putting StrBuf as String in " + getNameAndDescription(), ex);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    }
+                    break;
+                default:
+                    getLogger().log(Level.SEVERE, "Unknown operation unhandled in {0}", getNameAndDescription());
+                    setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        }
+        return argArray;
+    }
+
+    /**
+     * Append the buffer's text to a datasink and empty the buffer. Files and
+     * the standard streams are written chunk by chunk; other datasinks receive
+     * the text as one string.
+     *
+     * @param strBuf buffer to flush
+     * @param sink where to write it
+     */
+    private void flush(StrBuf strBuf, DataSink sink) {
+        synchronized (strBuf) {
+            try {
+                switch (sink.getType()) {
+                    case FILE:
+                    case STD:
+                    case ERR:
+                        new Putter(strBuf, getInterpreter()).put(sink, true, false, false);
+                        break;
+                    default:
+                        new Putter(strBuf.toString(), getInterpreter()).put(sink, true, false, false);
+                }
+                strBuf.clear();
+            } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                getLogger().log(Level.SEVERE, "Error flushing StrBuf to " + sink + " in " + getNameAndDescription(), ex);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public ArgArray cmd(ArgArray args) {
+        reinit();
+        return doCmdStrBuf(args);
+    }
+
+    @Override
+    public COMMANDRESULT getResult() {
+        return getCommandResult();
+    }
+}
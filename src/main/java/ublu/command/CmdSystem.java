@@ -164,6 +164,12 @@ public class CmdSystem extends Command {
         return argArray;
     }
 
+    @Override
+    protected void reinit() {
+        super.reinit();
+        silent = false;
+    }
+
     @Override
     public ArgArray cmd(ArgArray args
     ) {
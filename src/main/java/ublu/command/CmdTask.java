@@ -32,8 +32,10 @@ import static ublu.util.DataSink.SINKTYPE.FILE;
 import static ublu.util.DataSink.SINKTYPE.STD;
 import static ublu.util.DataSink.SINKTYPE.TUPLE;
 import static ublu.util.DataSink.SINKTYPE.URL;
+import ublu.util.Interpreter;
 import ublu.util.InterpreterThread;
 import ublu.util.Tuple;
+import ublu.util.UbluTask;
 import ublu.util.Utils;
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
@@ -52,7 +54,7 @@ import ublu.util.TupleMap;
 public class CmdTask extends Command {
 
     {
-        setNameAndDescription("TASK", "/1? [-from ~@datasink] [-to ~@datasink] [-local @tuplename ~@tuple [-local ..]] [-start] $[ BLOCK TO EXECUTE ]$ : create a background thread to execute a block, putting the thread and starting the thread if specified");
+        setNameAndDescription("TASK", "/1? [-from ~@datasink] [-to ~@datasink] [-local @tuplename ~@tuple [-local ..]] [-start | -submit] $[ BLOCK TO EXECUTE ]$ : create a background thread to execute a block, putting the thread and starting the thread if specified, or submit the block to the task pool, putting the task");
     }
 
     /**
@@ -72,6 +74,7 @@ public class CmdTask extends Command {
     public ArgArray cmdTask(ArgArray argArray) {
         boolean wasSetDataSource = false;
         boolean startNow = false;
+        boolean submitNow = false;
         while (argArray.hasDashCommand()) {
             String dashCommand = argArray.parseDashCommand();
             switch (dashCommand) {
@@ -88,12 +91,18 @@ public class CmdTask extends Command {
                 case "-start":
                     startNow = true;
                     break;
+                case "-submit":
+                    submitNow = true;
+                    break;
                 default:
                     unknownDashCommand(dashCommand);
             }
         }
         if (havingUnknownDashCommand()) {
             setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (startNow && submitNow) {
+            getLogger().log(Level.SEVERE, "Cannot both -start and -submit a task in {0}", getNameAndDescription());
+            setCommandResult(COMMANDRESULT.FAILURE);
         } else {
             String block = null;
             if (wasSetDataSource) {
@@ -137,6 +146,19 @@ public class CmdTask extends Command {
             if (block == null) {
                 getLogger().log(Level.SEVERE, "TASK found with neither a $[ block ]$ nor a data source containing a program in {0}", getNameAndDescription());
                 setCommandResult(COMMANDRESULT.FAILURE);
+            } else if (submitNow) {
+                Interpreter taskInterpreter = new Interpreter(getInterpreter(), block);
+                taskInterpreter.pushFrame().pushLocal();
+                for (String k : tm.keySet()) {
+                    taskInterpreter.getTupleMap().setTupleMostLocal(k, tm.getTuple(k).getValue());
+                }
+                UbluTask task = getInterpreter().getMyUblu().getTaskExecutor().submit(taskInterpreter);
+                try {
+                    put(task);
+                } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+                    getLogger().log(Level.SEVERE, "Error putting task in " + getNameAndDescription(), ex);
+                    setCommandResult(COMMANDRESULT.FAILURE);
+                }
             } else {
                 InterpreterThread interpreterThread = new InterpreterThread(getInterpreter(), block);
                 for (String k : tm.keySet()) {
@@ -159,6 +181,7 @@ public class CmdTask extends Command {
     @Override
     public void reinit() {
         super.reinit();
+        tm = new TupleMap();
     }
 
     @Override
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import ublu.util.ArgArray;
+import ublu.util.DataSink;
+import ublu.util.Generics.ThingArrayList;
+import ublu.util.TaskExecutor;
+import ublu.util.Tuple;
+import ublu.util.UbluTask;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+/**
+ * Command to await, cancel and monitor tasks submitted by
+ * <code>TASK -submit</code>
+ *
+ * @author jwoehr
+ */
+public class CmdTaskControl extends Command {
+
+    {
+        setNameAndDescription("taskpool", "/0 [-to datasink] [--,-task ~@task] [-timeout ~@{ms}] [-await | -awaitall ~@tasklist | -cancel | -status | -stats | -pool ~@{n}] : await, cancel or query submitted tasks or the task pool");
+    }
+
+    /**
+     * Manage submitted tasks
+     */
+    public CmdTaskControl() {
+    }
+
+    /**
+     * Our task functions
+     */
+    protected enum FUNCTIONS {
+
+        /**
+         * Wait for a task and put its result
+         */
+        AWAIT,
+        /**
+         * Wait for a collection of tasks and put a list of their results
+         */
+        AWAITALL,
+        /**
+         * Cancel a task
+         */
+        CANCEL,
+        /**
+         * Put status of a task
+         */
+        STATUS,
+        /**
+         * Put task pool statistics
+         */
+        STATS,
+        /**
+         * Resize the task pool
+         */
+        POOL
+    }
+
+    /**
+     * Manage submitted tasks
+     *
+     * @param argArray the ArgArray currently under interpretation
+     * @return the remainder of the ArgArray
+     */
+    public ArgArray cmdTaskControl(ArgArray argArray) {
+        FUNCTIONS function = FUNCTIONS.STATUS; // default
+        Tuple taskTuple = null;
+        Tuple taskListTuple = null;
+        long timeoutMillis = 0;
+        int poolSize = 0;
+        while (argArray.hasDashCommand()) {
+            String dashCommand = argArray.parseDashCommand();
+            switch (dashCommand) {
+                case "-to":
+                    setDataDest(DataSink.fromSinkName(argArray.next()));
+                    break;
+                case "--":
+                case "-task":
+                    taskTuple = argArray.nextTupleOrPop();
+                    break;
+                case "-timeout":
+                    timeoutMillis = argArray.nextLongMaybeQuotationTuplePopString();
+                    break;
+                case "-await":
+                    function = FUNCTIONS.AWAIT;
+                    break;
+                case "-awaitall":
+                    function = FUNCTIONS.AWAITALL;
+                    taskListTuple = argArray.nextTupleOrPop();
+                    break;
+                case "-cancel":
+                    function = FUNCTIONS.CANCEL;
+                    break;
+                case "-status":
+                    function = FUNCTIONS.STATUS;
+                    break;
+                case "-stats":
+                    function = FUNCTIONS.STATS;
+                    break;
+                case "-pool":
+                    function = FUNCTIONS.POOL;
+                    poolSize = argArray.nextIntMaybeQuotationTuplePopString();
+                    break;
+                default:
+                    unknownDashCommand(dashCommand);
+            }
+        }
+        if (havingUnknownDashCommand()) {
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } else {
+            TaskExecutor taskExecutor = getInterpreter().getMyUblu().getTaskExecutor();
+            UbluTask task = null;
+            if (taskTuple != null) {
+                Object o = taskTuple.getValue();
+                if (o instanceof UbluTask) {
+                    task = UbluTask.class.cast(o);
+                } else {
+                    getLogger().log(Level.SEVERE, "Tuple value is not a task in {0}", getNameAndDescription());
+                    setCommandResult(COMMANDRESULT.FAILURE);
+                }
+            }
+            if (getCommandResult() != COMMANDRESULT.FAILURE) {
+                switch (function) {
+                    case AWAIT:
+                        if (task == null) {
+                            noTaskError();
+                        } else {
+                            Object result = awaitTask(task, timeoutMillis);
+                            if (getCommandResult() != COMMANDRESULT.FAILURE) {
+                                putResult(result);
+                            }
+                        }
+                        break;
+                    case AWAITALL:
+                        Object o = taskListTuple == null ? null : taskListTuple.getValue();
+                        if (o instanceof Collection) {
+                            ThingArrayList results = new ThingArrayList();
+                            long deadline = System.currentTimeMillis() + timeoutMillis;
+                            for (Object element : Collection.class.cast(o)) {
+                                if (element instanceof UbluTask) {
+                                    long remaining = timeoutMillis > 0 ? Math.max(1, deadline - System.currentTimeMillis()) : 0;
+                                    results.add(awaitTask(UbluTask.class.cast(element), remaining));
+                                } else {
+                                    getLogger().log(Level.SEVERE, "List element {0} is not a task in " + getNameAndDescription(), element);
+                                    setCommandResult(COMMANDRESULT.FAILURE);
+                                }
+                                if (getCommandResult() == COMMANDRESULT.FAILURE) {
+                                    break;
+                                }
+                            }
+                            if (getCommandResult() != COMMANDRESULT.FAILURE) {
+                                putResult(results);
+                            }
+                        } else {
+                            getLogger().log(Level.SEVERE, "No list of tasks provided to -awaitall in {0}", getNameAndDescription());
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        }
+                        break;
+                    case CANCEL:
+                        if (task == null) {
+                            noTaskError();
+                        } else {
+                            putResult(task.cancel());
+                        }
+                        break;
+                    case STATUS:
+                        if (task == null) {
+                            noTaskError();
+                        } else {
+                            putResult(task.getStatus().name());
+                        }
+                        break;
+                    case STATS:
+                        putResult(taskExecutor.toString());
+                        break;
+                    case POOL:
+                        if (poolSize < 1) {
+                            getLogger().log(Level.SEVERE, "Invalid task pool size {0} in " + getNameAndDescription(), poolSize);
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        } else {
+                            taskExecutor.setPoolSize(poolSize);
+                        }
+                        break;
+                }
+            }
+        }
+        return argArray;
+    }
+
+    private Object awaitTask(UbluTask task, long timeoutMillis) {
+        Object result = null;
+        try {
+            result = task.await(timeoutMillis);
+            if (task.isFailed()) {
+                getLogger().log(Level.SEVERE, "{0} failed in " + getNameAndDescription(), task);
+                setCommandResult(COMMANDRESULT.FAILURE);
+            }
+        } catch (CancellationException ex) {
+            getLogger().log(Level.SEVERE, "{0} was cancelled in " + getNameAndDescription(), task);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } catch (TimeoutException ex) {
+            getLogger().log(Level.SEVERE, "Timed out awaiting {0} in " + getNameAndDescription(), task);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        } catch (InterruptedException | ExecutionException ex) {
+            getLogger().log(Level.SEVERE, "Error awaiting " + task + " in " + getNameAndDescription(), ex);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        }
+        return result;
+    }
+
+    private void putResult(Object o) {
+        try {
+            put(o);
+        } catch (SQLException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException | RequestNotSupportedException ex) {
+            getLogger().log(Level.SEVERE, "Error putting task result in " + getNameAndDescription(), ex);
+            setCommandResult(COMMANDRESULT.FAILURE);
+        }
+    }
+
+    private void noTaskError() {
+        getLogger().log(Level.SEVERE, "No task provided in {0}", getNameAndDescription());
+        setCommandResult(COMMANDRESULT.FAILURE);
+    }
+
+    @Override
+    public void reinit() {
+        super.reinit();
+    }
+
+    @Override
+    public ArgArray cmd(ArgArray args) {
+        reinit();
+        return cmdTaskControl(args);
+    }
+
+    @Override
+    public COMMANDRESULT getResult() {
+        return getCommandResult();
+    }
+}
@@ -56,15 +56,12 @@ public class CmdThen extends Command {
         if (block == null) {
             getLogger().log(Level.SEVERE, "THEN found without a $[ block ]$");
             setCommandResult(COMMANDRESULT.FAILURE);
+        } else if (argArray.isEmpty() || removeElse(argArray)) {
+            setCommandResult(getInterpreter().executeBlockDeferred(block));
         } else {
-            setCommandResult(getInterpreter().executeBlock(block));
-            if (!argArray.isEmpty()) {
-                boolean safelyRemoved = removeElse(argArray);
-                if (!safelyRemoved) {
-                    getLogger().log(Level.SEVERE, "ELSE found without a $[ block ]$");
-                    setCommandResult(COMMANDRESULT.FAILURE);
-                }
-            }
+            getInterpreter().executeBlock(block);
+            getLogger().log(Level.SEVERE, "ELSE found without a $[ block ]$");
+            setCommandResult(COMMANDRESULT.FAILURE);
         }
         return argArray;
     }
@@ -48,7 +48,7 @@ import ublu.util.Autonome;
 public class CmdTuple extends Command {
 
     {
-        setNameAndDescription("tuple", "/0 [-assign ~@targetname ~@valuesource | -delete @tuplename | -exists @tuplename | -istuplename @tuplename | -null @tuplename | -true @tuplename | -false @tuplename | -name @tuplename | -realname @tuplename | -value ~@tuplename | -sub @subname ~@tuple |  -type ~@tuple | -typename ~@tuple | -map | -autonome ~@tuple | -autonomic ~@tuple | -autonomes ] : operations on tuple variables");
+        setNameAndDescription("tuple", "/0 [-assign ~@targetname ~@valuesource | -cas @tuplename ~@expected ~@newvalue | -inc @tuplename ~@{delta} | -append @tuplename ~@item | -delete @tuplename | -exists @tuplename | -istuplename @tuplename | -null @tuplename | -true @tuplename | -false @tuplename | -name @tuplename | -realname @tuplename | -value ~@tuplename | -sub @subname ~@tuple |  -type ~@tuple | -typename ~@tuple | -map | -autonome ~@tuple | -autonomic ~@tuple | -autonomes ] : operations on tuple variables");
     }
 
     /**
@@ -131,7 +131,19 @@ public class CmdTuple extends Command {
         /**
          * Delivers autonomes info
          */
-        AUTONOMES
+        AUTONOMES,
+        /**
+         * Atomic compare-and-set of a tuple's value
+         */
+        CAS,
+        /**
+         * Atomic increment of a tuple's value
+         */
+        INC,
+        /**
+         * Atomic append to a tuple's value
+         */
+        APPEND
     }
     /**
      * The function we're executing
@@ -165,7 +177,9 @@ public class CmdTuple extends Command {
     public ArgArray tuple(ArgArray argArray) {
         setFunction(FUNCTIONS.MAP); // the default with no dash-command
         Tuple someTuple = null;
+        Tuple otherTuple = null;
         String someName = null;
+        Long delta = null;
         while (argArray.hasDashCommand()) {
             String dashCommand = argArray.parseDashCommand();
             String destName;
@@ -183,6 +197,22 @@ public class CmdTuple extends Command {
                     someName = argArray.next();
                     someTuple = argArray.nextTupleOrPop();
                     break;
+                case "-cas":
+                    setFunction(FUNCTIONS.CAS);
+                    someName = argArray.next();
+                    someTuple = argArray.nextTupleOrPop();
+                    otherTuple = argArray.nextTupleOrPop();
+                    break;
+                case "-inc":
+                    setFunction(FUNCTIONS.INC);
+                    someName = argArray.next();
+                    delta = argArray.nextLongMaybeQuotationTuplePopString();
+                    break;
+                case "-append":
+                    setFunction(FUNCTIONS.APPEND);
+                    someName = argArray.next();
+                    someTuple = argArray.nextTupleOrPop();
+                    break;
                 case "-delete":
                     setFunction(FUNCTIONS.DELETE);
                     someName = argArray.next();
@@ -268,6 +298,47 @@ public class CmdTuple extends Command {
                     }
                     break;
 
+                case CAS:
+                    t = sharedTuple(someName);
+                    if (t == null) {
+                        getLogger().log(Level.SEVERE, "Name {0} is not a tuple name.", someName);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    } else {
+                        try {
+                            put(t.compareAndSetValue(someTuple == null ? null : someTuple.getValue(),
+                                    otherTuple == null ? null : otherTuple.getValue()));
+                        } catch (SQLException | RequestNotSupportedException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException ex) {
+                            getLogger().log(Level.SEVERE, "Exception encountered in putting tuple compare-and-set result", ex);
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        }
+                    }
+                    break;
+                case INC:
+                    t = sharedTuple(someName);
+                    if (t == null) {
+                        getLogger().log(Level.SEVERE, "Name {0} is not a tuple name.", someName);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    } else {
+                        try {
+                            put(t.incrementValue(delta));
+                        } catch (NumberFormatException ex) {
+                            getLogger().log(Level.SEVERE, "Value of " + someName + " is not numeric in " + getNameAndDescription(), ex);
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        } catch (SQLException | RequestNotSupportedException | IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException ex) {
+                            getLogger().log(Level.SEVERE, "Exception encountered in putting tuple increment result", ex);
+                            setCommandResult(COMMANDRESULT.FAILURE);
+                        }
+                    }
+                    break;
+                case APPEND:
+                    t = sharedTuple(someName);
+                    if (t == null) {
+                        getLogger().log(Level.SEVERE, "Name {0} is not a tuple name.", someName);
+                        setCommandResult(COMMANDRESULT.FAILURE);
+                    } else {
+                        t.appendValue(someTuple == null ? null : someTuple.getValue());
+                    }
+                    break;
                 case DELETE:
                     theTupleName = someName;
                     t = getTuple(theTupleName);
@@ -511,6 +582,25 @@ public class CmdTuple extends Command {
         return argArray;
     }
 
+    /**
+     * Get the tuple named, creating it null if it does not yet exist. A
+     * global tuple so created is created atomically, so interpreters on other
+     * threads racing to create it all get the same tuple.
+     *
+     * @param name tuple name
+     * @return the tuple or null if name is not a tuple name
+     */
+    private Tuple sharedTuple(String name) {
+        Tuple t = null;
+        if (Tuple.isTupleName(name)) {
+            t = getTuple(name);
+            if (t == null) {
+                t = getInterpreter().getTupleMap().getOrCreateTuple(name);
+            }
+        }
+        return t;
+    }
+
     @Override
     public void reinit() {
         super.reinit();
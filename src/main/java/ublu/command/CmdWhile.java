@@ -28,7 +28,7 @@
 package ublu.command;
 
 import ublu.util.ArgArray;
-import ublu.util.Parser;
+import ublu.util.CompiledBlock;
 import ublu.util.Tuple;
 import java.util.logging.Level;
 
@@ -76,11 +76,10 @@ public class CmdWhile extends Command {
                     getLogger().log(Level.SEVERE, "WHILE found without a $[ block ]$");
                     setCommandResult(COMMANDRESULT.FAILURE);
                 } else {
-                    Parser p = new Parser(getInterpreter(), block);
-                    ArgArray aa = p.parseAnArgArray();
+                    CompiledBlock compiledBlock = CompiledBlock.compile(block);
                     getInterpreter().pushFrame();
                     getInterpreter().setForBlock(true);
-                    walkWhile(whileTuple, aa);
+                    walkWhile(whileTuple, compiledBlock);
                     if (getInterpreter().isBreakIssued()) {
                         // If a BREAK then the frame was already popped
                         getInterpreter().setBreakIssued(false);
@@ -93,11 +92,9 @@ public class CmdWhile extends Command {
         return argArray;
     }
 
-    private void walkWhile(Tuple whileTuple, ArgArray argArray) {
-        ArgArray copy;
+    private void walkWhile(Tuple whileTuple, CompiledBlock compiledBlock) {
         while (whileTuple == null ? getTupleStack().pop().value(Boolean.class) : whileTuple.value(Boolean.class)) /* while (whileTuple.getValue().equals(true)) */ {
-            copy = new ArgArray(getInterpreter(), argArray);
-            getInterpreter().setArgArray(copy);
+            getInterpreter().setArgArray(new ArgArray(getInterpreter(), compiledBlock));
             setCommandResult(getInterpreter().loop());
             if (getCommandResult() == COMMANDRESULT.FAILURE || getInterpreter().isBreakIssued()) {
                 getInterpreter().popFrame();
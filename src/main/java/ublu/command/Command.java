@@ -42,10 +42,18 @@ import com.ibm.as400.access.ObjectDoesNotExistException;
 import com.ibm.as400.access.RequestNotSupportedException;
 import java.beans.PropertyVetoException;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -377,10 +385,10 @@ public abstract class Command implements CommandInterface {
     /**
      * Set up the Command's instance data for command instance use.
      * <p>
-     * Originally in the code the instances were re-used. So {@code reinit()} is
-     * a mixture of inits that need to be done one time and some that don't
-     * really need to be done unless the instance is used, which doesn't happen
-     * anymore.</p>.
+     * Command instances are re-used by the interpreter's
+     * {@link CommandPool}, so {@code reinit()}, which every {@code cmd()} calls
+     * first, must reset all instance state a previous invocation may have
+     * left behind.</p>
      */
     protected void reinit() {
         setAs400(null);
@@ -492,6 +500,91 @@ public abstract class Command implements CommandInterface {
         new Putter(o, getInterpreter(), charsetName).put(getDataDest());
     }
 
+    /**
+     * Open a buffered writer onto the data destination for output too large
+     * to put as one object. A file is created or truncated. The standard
+     * streams are written through and not closed by
+     * {@link #closeDataDestWriter(Writer)}.
+     *
+     * @param charset charset to write in
+     * @return the writer, or null if the data destination is not a file or a
+     * standard stream
+     * @throws IOException
+     */
+    protected Writer newDataDestWriter(Charset charset) throws IOException {
+        Writer writer = null;
+        switch (getDataDest().getType()) {
+            case FILE:
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getDataDest().getName()), charset));
+                break;
+            case ERR:
+                writer = new BufferedWriter(new OutputStreamWriter(getInterpreter().getErroutStream(), charset));
+                break;
+            case STD:
+                writer = new BufferedWriter(new OutputStreamWriter(getInterpreter().getOutputStream(), charset));
+                break;
+        }
+        return writer;
+    }
+
+    /**
+     * Close a writer from {@link #newDataDestWriter(Charset)}, merely flushing
+     * it if it writes to a standard stream.
+     *
+     * @param writer the writer
+     * @throws IOException
+     */
+    protected void closeDataDestWriter(Writer writer) throws IOException {
+        if (getDataDest().getType() == DataSink.SINKTYPE.FILE) {
+            writer.close();
+        } else {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Open a buffered reader onto the data source for input too large to
+     * take as one object: a file, the string value of a tuple, or standard
+     * input, which is read through and not closed by
+     * {@link #closeDataSrcReader(BufferedReader)}.
+     *
+     * @param charset charset to read a file or standard input in
+     * @return the reader, or null if the data source is none of those or is a
+     * tuple which does not exist
+     * @throws IOException
+     */
+    protected BufferedReader newDataSrcReader(Charset charset) throws IOException {
+        BufferedReader reader = null;
+        switch (getDataSrc().getType()) {
+            case FILE:
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(getDataSrc().getName()), charset));
+                break;
+            case STD:
+                reader = new BufferedReader(new InputStreamReader(getInterpreter().getInputStream(), charset));
+                break;
+            case TUPLE:
+                Tuple t = getTuple(getDataSrc().getName());
+                if (t != null && t.getValue() != null) {
+                    reader = new BufferedReader(new StringReader(t.getValue().toString()));
+                }
+                break;
+        }
+        return reader;
+    }
+
+    /**
+     * Close a reader from {@link #newDataSrcReader(Charset)} unless it reads
+     * standard input.
+     *
+     * @param reader the reader
+     * @throws IOException
+     */
+    protected void closeDataSrcReader(BufferedReader reader) throws IOException {
+        if (getDataSrc().getType() != DataSink.SINKTYPE.STD) {
+            reader.close();
+        }
+    }
+
     /**
      * Log an error when there are insufficient arguments left in the
      * interpreter argument array to satisfy the command.
@@ -715,15 +808,15 @@ public abstract class Command implements CommandInterface {
     }
 
     /**
-     * Set locale for the singleton Ublu locale helper
+     * Set locale for the interpreter. The interpreter gets a new locale helper
+     * since the one it has may be shared with interpreters spawned from it.
      *
      * @param language e.g "en"
      * @param country e.g., "US"
      */
     public void setLocale(String language, String country) {
         LocaleHelper lh = getLocaleHelper();
-        lh.setLocale(language, country);
-        lh.resetMessageBundle();
+        getInterpreter().setLocaleHelper(new LocaleHelper(language, country, lh.getMessageResourcePath()));
     }
 
     /**
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Instances a command class through a constructor method handle looked up
+ * once per class instead of reflectively on every invocation. There is one
+ * factory per command class for the whole process, each with a small integer
+ * index which a {@link CommandPool} uses to keep its free instances.
+ *
+ * @author jwoehr
+ */
+public final class CommandFactory {
+
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+    private static final ClassValue<CommandFactory> FACTORIES = new ClassValue<CommandFactory>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected CommandFactory computeValue(Class<?> type) {
+            return new CommandFactory((Class<? extends CommandInterface>) type);
+        }
+    };
+
+    private final Class<? extends CommandInterface> commandClass;
+    private final MethodHandle constructor;
+    private final ReflectiveOperationException lookupException;
+    private final int index;
+
+    private CommandFactory(Class<? extends CommandInterface> commandClass) {
+        this.commandClass = commandClass;
+        MethodHandle mh = null;
+        ReflectiveOperationException rox = null;
+        try {
+            mh = MethodHandles.publicLookup()
+                    .findConstructor(commandClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(CommandInterface.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            rox = ex;
+        }
+        constructor = mh;
+        lookupException = rox;
+        index = NEXT_INDEX.getAndIncrement();
+    }
+
+    /**
+     * Get the factory for a command class
+     *
+     * @param commandClass the command class
+     * @return the factory for the command class
+     */
+    public static CommandFactory of(Class<? extends CommandInterface> commandClass) {
+        return FACTORIES.get(commandClass);
+    }
+
+    /**
+     * Get the command class this factory instances
+     *
+     * @return the command class this factory instances
+     */
+    public Class<? extends CommandInterface> getCommandClass() {
+        return commandClass;
+    }
+
+    /**
+     * Get the process-wide index of this factory
+     *
+     * @return the process-wide index of this factory
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Instance a new command
+     *
+     * @return a new instance of the command class
+     * @throws InstantiationException if the command class cannot be instanced
+     */
+    public CommandInterface newInstance() throws InstantiationException {
+        if (constructor == null) {
+            InstantiationException ix = new InstantiationException(commandClass.getName());
+            ix.initCause(lookupException);
+            throw ix;
+        }
+        CommandInterface command;
+        try {
+            command = (CommandInterface) constructor.invokeExact();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable t) {
+            InstantiationException ix = new InstantiationException(commandClass.getName());
+            ix.initCause(t);
+            throw ix;
+        }
+        return command;
+    }
+
+    @Override
+    public String toString() {
+        return commandClass.getName();
+    }
+}
@@ -29,123 +29,229 @@ package ublu.command;
 
 import ublu.util.Interpreter;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Defines a dictionary of commands for the interpreter in
  * {@link ublu.util.Interpreter}.
+ * <p>
+ * The dictionary maps each command name to the name of its command class. A
+ * command class is only loaded the first time its command is looked up, so
+ * starting Ublu loads neither the command classes nor the classes of the
+ * libraries they use until a command needs them.</p>
+ * <p>
+ * Interpreters normally all use the one {@link #getDefault()} command map,
+ * which is sealed against change so it can be shared by any number of
+ * interpreters on any number of threads, and so that a command name resolved
+ * by one interpreter stays resolved for all of them.</p>
  *
  * @author jwoehr
  */
-public class CommandMap extends LinkedHashMap<String, Class<? extends CommandInterface>> {
+public class CommandMap extends LinkedHashMap<String, String> {
+
+    /**
+     * Package of the command classes registered by simple name
+     */
+    public static final String COMMAND_PACKAGE = "ublu.command.";
+
+    private boolean sealed = false;
+    private final ConcurrentHashMap<String, CommandFactory> factories = new ConcurrentHashMap<>();
+
+    private static final class DefaultHolder {
+
+        private static final CommandMap DEFAULT = new CommandMap().seal();
+    }
+
+    /**
+     * Get the sealed command map of all commands shared by interpreters
+     *
+     * @return the shared command map
+     */
+    public static CommandMap getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Seal this map against further change
+     *
+     * @return this
+     */
+    public CommandMap seal() {
+        sealed = true;
+        return this;
+    }
+
+    /**
+     * True if this map is sealed against change
+     *
+     * @return true if sealed
+     */
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    private void checkSealed() {
+        if (sealed) {
+            throw new UnsupportedOperationException("Command map is sealed");
+        }
+    }
+
+    @Override
+    public final String put(String key, String value) {
+        checkSealed();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> m) {
+        checkSealed();
+        super.putAll(m);
+    }
+
+    @Override
+    public String putIfAbsent(String key, String value) {
+        checkSealed();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        checkSealed();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        checkSealed();
+        super.clear();
+    }
+
+    /**
+     * Register a command by the simple name of its class in
+     * {@link #COMMAND_PACKAGE} without loading the class
+     *
+     * @param name command name
+     * @param simpleClassName simple name of the command class
+     */
+    protected final void register(String name, String simpleClassName) {
+        put(name, COMMAND_PACKAGE + simpleClassName);
+    }
 
     /**
      * Instance a command map of all commands available
      *
      */
     public CommandMap() {
-        put("as400", CmdAS400.class);
-        put("ask", CmdAsk.class);
-        put("BREAK", CmdBreak.class);
-        put("bye", CmdBye.class);
-        put("CALL", CmdCall.class);
-        put("calljava", CmdCallJava.class);
-        put("cim", CmdCim.class);
-        put("cimi", CmdCimi.class);
-        put("collection", CmdCollection.class);
-        put("commandcall", CmdCommandCall.class);
-        put("const", CmdConst.class);
-        put("cs", CmdCs.class);
-        put("db", CmdDb.class);
-        put("dbug", CmdDbug.class);
-        put("defun", CmdDefun.class);
-        put("desktop", CmdDesktop.class);
-        put("dict", CmdDict.class);
-        put("DO", CmdDo.class);
-        put("dpoint", CmdDPoint.class);
-        put("dq", CmdDq.class);
-        put("dta", CmdDataArea.class);
-        put("ELSE", CmdElse.class);
-        put("eval", CmdEval.class);
-        put("exit", CmdExit.class);
-        put("file", CmdFile.class);
-        put("FOR", CmdFor.class);
-        put("oldftp", CmdFTP.class);
-        put("ftp", CmdFTPNu.class);
-        put("FUN", CmdFun.class);
-        put("FUNC", CmdFunc.class);
-        put("gensh", CmdGenSh.class);
-        put("help", CmdUsage.class);
-        put("histlog", CmdHistoryLog.class);
-        put("h", CmdHistory.class);
-        put("host", CmdHost.class);
-        put("history", CmdHistory.class);
-        put("IF", CmdIf.class);
-        put("ifs", CmdIFS.class);
-        put("include", CmdInclude.class);
-        put("interpret", CmdInterpret.class);
-        put("interpreter", CmdInterpreter.class);
-        put("jmx", CmdJMX.class);
-        put("job", CmdJob.class);
-        put("joblist", CmdJobList.class);
-        put("joblog", CmdJobLog.class);
-        put("json", CmdJson.class);
-        put("jvm", CmdJVM.class);
-        put("LOCAL", CmdLocal.class);
-        put("license", CmdLicense.class);
-        put("lifo", CmdLifo.class);
-        put("list", CmdList.class);
-        put("map", CmdMap.class);
-        put("monitor", CmdMonitor.class);
-        put("msg", CmdMsg.class);
-        put("msgq", CmdMsgQ.class);
-        put("num", CmdNumber.class);
-        put("objlist", CmdObjList.class);
-        put("objdesc", CmdObjDesc.class);
-        put("outq", CmdOutQ.class);
-        put("ppl", CmdPpl.class);
-        put("printer", CmdPrinter.class);
-        put("programcall", CmdProgramCall.class);
-        put("props", CmdProps.class);
-        put("put", CmdPut.class);
-        put("record", CmdRecord.class);
-        put("rs", CmdRs.class);
-        put("savf", CmdSavF.class);
-        put("savef", CmdSaveF.class);
-        put("savesys", CmdSaveSys.class);
-        put("server", CmdServer.class);
-        put("sess", CmdSession.class);
-        put("session", CmdSession.class);
-        put("sleep", CmdSleep.class);
-        put("smapi", CmdSmapi.class);
-        put("sock", CmdSocket.class);
-        put("splfol", CmdSpoolFOpenList.class);
-        put("spoolf", CmdSpoolF.class);
-        put("spoolflist", CmdSpoolFList.class);
-        put("streamf", CmdStreamFile.class);
-        put("string", CmdString.class);
-        put("subsys", CmdSubSystem.class);
-        put("SWITCH", CmdSwitch.class);
-        put("system", CmdSystem.class);
-        put("sysval", CmdSysVal.class);
-        put("TASK", CmdTask.class);
-        put("test", CmdTest.class);
-        put("thread", CmdThread.class);
-        put("THEN", CmdThen.class);
-        put("THROW", CmdThrow.class);
-        put("tn5250", CmdTN5250.class);
-        put("trace", CmdTrace.class);
-        put("TRY", CmdTry.class);
-        put("tuple", CmdTuple.class);
-        put("usage", CmdUsage.class);
-        put("user", CmdUser.class);
-        put("userlist", CmdUserList.class);
-        put("watson", CmdWatson.class);
-        put("WHILE", CmdWhile.class);
-        put("!", CmdBang.class);
-        put("#", CmdComment.class);
-        put("#!", CmdComment.class);
-        put("\\\\", CmdCommentQuote.class);
+        register("as400", "CmdAS400");
+        register("ask", "CmdAsk");
+        register("BREAK", "CmdBreak");
+        register("bye", "CmdBye");
+        register("CALL", "CmdCall");
+        register("calljava", "CmdCallJava");
+        register("cim", "CmdCim");
+        register("cimi", "CmdCimi");
+        register("collection", "CmdCollection");
+        register("commandcall", "CmdCommandCall");
+        register("const", "CmdConst");
+        register("cs", "CmdCs");
+        register("daemon", "CmdDaemon");
+        register("db", "CmdDb");
+        register("dbug", "CmdDbug");
+        register("defun", "CmdDefun");
+        register("desktop", "CmdDesktop");
+        register("dict", "CmdDict");
+        register("DO", "CmdDo");
+        register("dpoint", "CmdDPoint");
+        register("dq", "CmdDq");
+        register("dta", "CmdDataArea");
+        register("ELSE", "CmdElse");
+        register("eval", "CmdEval");
+        register("exit", "CmdExit");
+        register("expr", "CmdExpr");
+        register("file", "CmdFile");
+        register("FOR", "CmdFor");
+        register("oldftp", "CmdFTP");
+        register("ftp", "CmdFTPNu");
+        register("FUN", "CmdFun");
+        register("FUNC", "CmdFunc");
+        register("gensh", "CmdGenSh");
+        register("help", "CmdUsage");
+        register("histlog", "CmdHistoryLog");
+        register("h", "CmdHistory");
+        register("host", "CmdHost");
+        register("history", "CmdHistory");
+        register("IF", "CmdIf");
+        register("ifs", "CmdIFS");
+        register("include", "CmdInclude");
+        register("interpret", "CmdInterpret");
+        register("interpreter", "CmdInterpreter");
+        register("jmx", "CmdJMX");
+        register("job", "CmdJob");
+        register("joblist", "CmdJobList");
+        register("joblog", "CmdJobLog");
+        register("json", "CmdJson");
+        register("jvm", "CmdJVM");
+        register("LOCAL", "CmdLocal");
+        register("license", "CmdLicense");
+        register("lifo", "CmdLifo");
+        register("list", "CmdList");
+        register("map", "CmdMap");
+        register("monitor", "CmdMonitor");
+        register("msg", "CmdMsg");
+        register("msgq", "CmdMsgQ");
+        register("num", "CmdNumber");
+        register("objlist", "CmdObjList");
+        register("objdesc", "CmdObjDesc");
+        register("outq", "CmdOutQ");
+        register("ppl", "CmdPpl");
+        register("printer", "CmdPrinter");
+        register("profile", "CmdProfile");
+        register("programcall", "CmdProgramCall");
+        register("props", "CmdProps");
+        register("put", "CmdPut");
+        register("record", "CmdRecord");
+        register("rs", "CmdRs");
+        register("savf", "CmdSavF");
+        register("savef", "CmdSaveF");
+        register("savesys", "CmdSaveSys");
+        register("server", "CmdServer");
+        register("sess", "CmdSession");
+        register("session", "CmdSession");
+        register("sleep", "CmdSleep");
+        register("smapi", "CmdSmapi");
+        register("sock", "CmdSocket");
+        register("splfol", "CmdSpoolFOpenList");
+        register("spoolf", "CmdSpoolF");
+        register("spoolflist", "CmdSpoolFList");
+        register("streamf", "CmdStreamFile");
+        register("strbuf", "CmdStrBuf");
+        register("string", "CmdString");
+        register("subsys", "CmdSubSystem");
+        register("SWITCH", "CmdSwitch");
+        register("system", "CmdSystem");
+        register("sysval", "CmdSysVal");
+        register("TASK", "CmdTask");
+        register("taskpool", "CmdTaskControl");
+        register("test", "CmdTest");
+        register("thread", "CmdThread");
+        register("THEN", "CmdThen");
+        register("THROW", "CmdThrow");
+        register("tn5250", "CmdTN5250");
+        register("trace", "CmdTrace");
+        register("TRY", "CmdTry");
+        register("tuple", "CmdTuple");
+        register("usage", "CmdUsage");
+        register("user", "CmdUser");
+        register("userlist", "CmdUserList");
+        register("watson", "CmdWatson");
+        register("WHILE", "CmdWhile");
+        register("!", "CmdBang");
+        register("#", "CmdComment");
+        register("#!", "CmdComment");
+        register("\\\\", "CmdCommentQuote");
     }
 
     /**
@@ -156,17 +262,101 @@ public class CommandMap extends LinkedHashMap<String, Class<? extends CommandInt
      * @return instance of the class or null
      */
     public CommandInterface getCmd(Interpreter i, String name) {
-        Class<? extends CommandInterface> c = get(name);
-        /* Debug */ // System.out.println("Command interface object is " + c);
-        Command command = null;
-        if (c != null) {
+        CommandFactory factory = getFactory(name);
+        /* Debug */ // System.out.println("Command factory is " + factory);
+        CommandInterface command = null;
+        if (factory != null) {
             try {
-                command = Command.class.cast(c.newInstance());
+                command = factory.newInstance();
                 command.setInterpreter(i);
-            } catch (IllegalArgumentException | InstantiationException | IllegalAccessException | SecurityException ex) {
+            } catch (InstantiationException ex) {
                 i.getLogger().log(Level.SEVERE, "Exception instancing command", ex);
             }
         }
         return command;
     }
+
+    /**
+     * Get the factory for a command by name
+     *
+     * @param name the command name
+     * @return the factory for the command class or null if no such command
+     */
+    public CommandFactory getFactory(String name) {
+        CommandFactory factory = factories.get(name);
+        if (factory == null) {
+            Class<? extends CommandInterface> c = getCommandClass(name);
+            if (c != null) {
+                factory = CommandFactory.of(c);
+                factories.put(name, factory);
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Get the command class for a command by name, loading it if this is the
+     * first time it is looked up
+     *
+     * @param name the command name
+     * @return the command class or null if no such command or the class
+     * cannot be loaded
+     */
+    public Class<? extends CommandInterface> getCommandClass(String name) {
+        Class<? extends CommandInterface> c = null;
+        String className = get(name);
+        if (className != null) {
+            try {
+                c = Class.forName(className, false, CommandMap.class.getClassLoader()).asSubclass(CommandInterface.class);
+            } catch (ClassNotFoundException | ClassCastException | LinkageError ex) {
+                Logger.getLogger(CommandMap.class.getName()).log(Level.SEVERE, "Cannot load command class " + className + " for " + name, ex);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Resolve a command name to a call site which can be cached where the
+     * name occurs in a compiled block.
+     *
+     * @param name the command name
+     * @return the call site or null if no such command
+     */
+    public CallSite getCallSite(String name) {
+        CommandFactory factory = getFactory(name);
+        return factory == null ? null : new CallSite(this, factory);
+    }
+
+    /**
+     * A command name resolved in a particular command map
+     */
+    public static final class CallSite {
+
+        private final CommandMap commandMap;
+        private final CommandFactory factory;
+
+        private CallSite(CommandMap commandMap, CommandFactory factory) {
+            this.commandMap = commandMap;
+            this.factory = factory;
+        }
+
+        /**
+         * True if resolved in the given command map
+         *
+         * @param cm a command map
+         * @return true if resolved in the given command map
+         */
+        public boolean isResolvedIn(CommandMap cm) {
+            return commandMap == cm;
+        }
+
+        /**
+         * Get the factory for the resolved command
+         *
+         * @return the factory for the resolved command
+         */
+        public CommandFactory getFactory() {
+            return factory;
+        }
+    }
 }
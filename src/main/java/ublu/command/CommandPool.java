@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.command;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import ublu.util.Interpreter;
+
+/**
+ * A per-interpreter pool of command instances for reuse. A command is
+ * acquired from the pool for the duration of one invocation and released
+ * afterwards. A command which is still executing (e.g., a <code>FOR</code>
+ * whose block invokes <code>FOR</code> again) is not in the pool, so nested
+ * invocations get instances of their own.
+ *
+ * <p>
+ * No reset is done on release: every command's
+ * {@link CommandInterface#cmd(ublu.util.ArgArray)} starts by calling
+ * {@link Command#reinit()}, which resets the instance for its next use.</p>
+ *
+ * <p>
+ * A pool is confined to its interpreter's thread and is not thread-safe.</p>
+ *
+ * @author jwoehr
+ */
+public class CommandPool {
+
+    /**
+     * Most free instances kept for any one command
+     */
+    public static final int MAX_FREE_PER_COMMAND = 4;
+
+    private CommandInterface[][] free = new CommandInterface[128][];
+    private int[] freeCounts = new int[128];
+
+    /**
+     * Acquire an instance of a command for an invocation, reusing a free
+     * instance if one is pooled.
+     *
+     * @param factory the factory for the command class
+     * @param interpreter the interpreter invoking the command
+     * @return command instance or null if the command could not be instanced
+     */
+    public CommandInterface acquire(CommandFactory factory, Interpreter interpreter) {
+        CommandInterface command = null;
+        int index = factory.getIndex();
+        if (index < freeCounts.length && freeCounts[index] > 0) {
+            command = free[index][--freeCounts[index]];
+            free[index][freeCounts[index]] = null;
+        } else {
+            try {
+                command = factory.newInstance();
+            } catch (InstantiationException ex) {
+                interpreter.getLogger().log(Level.SEVERE, "Exception instancing command", ex);
+            }
+        }
+        if (command != null) {
+            command.setInterpreter(interpreter);
+        }
+        return command;
+    }
+
+    /**
+     * Return an instance to the pool after its invocation.
+     *
+     * @param factory the factory for the command class
+     * @param command the command instance
+     */
+    public void release(CommandFactory factory, CommandInterface command) {
+        if (command != null) {
+            pool(factory.getIndex(), command);
+        }
+    }
+
+    private void pool(int index, CommandInterface command) {
+        if (index >= freeCounts.length) {
+            int newLength = Math.max(index + 1, freeCounts.length * 2);
+            free = Arrays.copyOf(free, newLength);
+            freeCounts = Arrays.copyOf(freeCounts, newLength);
+        }
+        if (free[index] == null) {
+            free[index] = new CommandInterface[MAX_FREE_PER_COMMAND];
+        }
+        if (freeCounts[index] < MAX_FREE_PER_COMMAND) {
+            free[index][freeCounts[index]++] = command;
+        }
+    }
+}
@@ -27,9 +27,10 @@
  */
 package ublu.db;
 
-import ublu.util.Generics.StringArrayList;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -123,38 +124,75 @@ public class Csv extends DbHelper {
      * @throws IOException
      */
     public String tableCSV() throws SQLException, UnsupportedEncodingException, IOException {
-        StringBuilder sb = new StringBuilder();
-        String temp;
+        StringWriter sw = new StringWriter();
+        writeCSV(sw);
+        return sw.toString();
+    }
+
+    /**
+     * Write a table as CSV with configurable separator a row at a time, so
+     * that memory use does not grow with the size of the table. Assumes a
+     * valid connection exists already.
+     * <p>
+     * The first three lines are the column names, the column type names and
+     * the jdbc types. A field containing the separator, a double quote or a
+     * line break is quoted per RFC 4180. SQL null is written as an unquoted
+     * <code>null</code> and the string <code>null</code> quoted, so that
+     * {@link TableLoader} reads each back as it was.</p>
+     *
+     * @param out where to write the CSV, not closed
+     * @return number of rows written
+     * @throws SQLException
+     * @throws UnsupportedEncodingException
+     * @throws IOException
+     */
+    public long writeCSV(Writer out) throws SQLException, UnsupportedEncodingException, IOException {
+        long start = System.nanoTime();
+        long rowCount = 0;
         setColumnNameList(generateColumnNameList());
         if (getColumnNameList() != null) {
-            for (String columnName : getColumnNameList()) {
-                sb.append(columnName).append(getColumnSeparator());
+            int columnCount = getResultSetMetaData().getColumnCount();
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                types[i] = getResultSetMetaData().getColumnType(i + 1); // one's-based
+            }
+            for (int i = 0; i < columnCount; i++) {
+                writeField(out, i, getColumnNameList().get(i));
             }
-            temp = sb.substring(0, sb.lastIndexOf(columnSeparator));
-            sb = new StringBuilder(temp);
-            sb.append("\n");
-            for (int i = 1; i <= getResultSetMetaData().getColumnCount(); i++) {
-                sb.append(getResultSetMetaData().getColumnTypeName(i)).append(getColumnSeparator());
+            out.write('\n');
+            for (int i = 0; i < columnCount; i++) {
+                writeField(out, i, getResultSetMetaData().getColumnTypeName(i + 1));
             }
-            temp = sb.substring(0, sb.lastIndexOf(columnSeparator));
-            sb = new StringBuilder(temp);
-            sb.append("\n");
-            for (int i = 1; i <= getResultSetMetaData().getColumnCount(); i++) {
-                sb.append("jdbc type ").append(getResultSetMetaData().getColumnType(i)).append(getColumnSeparator());
+            out.write('\n');
+            for (int i = 0; i < columnCount; i++) {
+                writeField(out, i, "jdbc type " + types[i]);
             }
-            temp = sb.substring(0, sb.lastIndexOf(columnSeparator));
-            sb = new StringBuilder(temp);
-            sb.append("\n");
+            out.write('\n');
             while (getResultSet().next()) {
-                StringArrayList rowArrayList = rowToStringArrayList(getColumnNameList());
-                for (String datum : rowArrayList) {
-                    sb.append(datum).append(getColumnSeparator());
+                for (int i = 0; i < columnCount; i++) {
+                    writeField(out, i, getColumnDataAsString(getDb(), getResultSet(), i + 1, types[i]));
                 }
-                temp = sb.substring(0, sb.lastIndexOf(columnSeparator));
-                sb = new StringBuilder(temp);
-                sb.append("\n");
+                out.write('\n');
+                rowCount++;
             }
         }
-        return sb.toString();
+        out.flush();
+        setRowStatistics(rowCount, start);
+        return rowCount;
+    }
+
+    private void writeField(Writer out, int index, String datum) throws IOException {
+        if (index > 0) {
+            out.write(getColumnSeparator());
+        }
+        String s = String.valueOf(datum);
+        if (s.contains(getColumnSeparator()) || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0
+                || datum != null && datum.equals("null")) {
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        } else {
+            out.write(s);
+        }
     }
 }
@@ -85,6 +85,10 @@ public abstract class Db {
      * href="http://www.iana.org/assignments/character-sets/character-sets.xhtml">ebcdic-cp-us</a>
      */
     public static String cpEBCDIC = "CP037";
+    /**
+     * Number of rows fetched from the server at a time when streaming a table
+     */
+    public static final int STREAMING_FETCH_SIZE = 1000;
 
     /**
      * Instance a database with driver, type and connection not yet set
@@ -140,6 +144,10 @@ public abstract class Db {
      * Our connection if connected
      */
     protected Connection connection;
+    /**
+     * True while a streaming select has turned autocommit off
+     */
+    private boolean autoCommitSuspended = false;
 
     /**
      * Return our connection
@@ -638,6 +646,62 @@ public abstract class Db {
         return executeSQL(query.toString());
     }
 
+    /**
+     * SELECT * FROM a table on this Db to be read once from start to end,
+     * fetching rows from the server a batch at a time so that the whole table
+     * is never held in memory.
+     * <p>
+     * The PostgreSQL driver only fetches in batches inside a transaction, so
+     * if the connection is in autocommit mode autocommit is suspended until
+     * {@link #endStreaming()} is called.</p>
+     *
+     * @param tableName name of table
+     * @param fetchSize number of rows to fetch at a time
+     * @return a forward-only, read-only result set
+     * @throws SQLException
+     */
+    public ResultSet selectStarFromStreaming(String tableName, int fetchSize) throws SQLException {
+        return selectStarFromStreaming(tableName, null, fetchSize);
+    }
+
+    /**
+     * SELECT * FROM a table on this Db WHERE a predicate holds, streamed as
+     * by {@link #selectStarFromStreaming(String, int)}.
+     *
+     * @param tableName name of table
+     * @param where predicate or null for all rows
+     * @param fetchSize number of rows to fetch at a time
+     * @return a forward-only, read-only result set
+     * @throws SQLException
+     */
+    public ResultSet selectStarFromStreaming(String tableName, String where, int fetchSize) throws SQLException {
+        if (getDbType() == DBTYPE.PGSQL && getConnection().getAutoCommit()) {
+            getConnection().setAutoCommit(false);
+            autoCommitSuspended = true;
+        }
+        StringBuilder query = new StringBuilder("SELECT * FROM \"");
+        query.append(tableName).append("\"");
+        if (where != null) {
+            query.append(" WHERE ").append(where);
+        }
+        Statement statement = createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement.executeQuery(query.toString());
+    }
+
+    /**
+     * Restore autocommit if {@link #selectStarFromStreaming(String, int)}
+     * suspended it.
+     *
+     * @throws SQLException
+     */
+    public void endStreaming() throws SQLException {
+        if (autoCommitSuspended) {
+            autoCommitSuspended = false;
+            getConnection().setAutoCommit(true);
+        }
+    }
+
     /**
      * Selects * from a table on this Db with a customized result set
      *
@@ -665,7 +729,8 @@ public abstract class Db {
     }
 
     /**
-     * Return a new Csv based on a SELECT * FROM statement
+     * Return a new Csv based on a streaming SELECT * FROM statement. The Csv
+     * must be closed when done with.
      *
      * @param tableName
      * @param columnSeparator
@@ -675,22 +740,23 @@ public abstract class Db {
      * @throws IOException
      */
     public Csv newStarCsv(String tableName, String columnSeparator) throws SQLException, UnsupportedEncodingException, IOException {
-        ResultSet rsStarFrom = selectStarFrom(tableName);
+        ResultSet rsStarFrom = selectStarFromStreaming(tableName, STREAMING_FETCH_SIZE);
         ResultSetMetaData rsmd = rsStarFrom.getMetaData();
         return new Csv(this, rsStarFrom, rsmd, tableName, columnSeparator);
     }
 
     /**
-     * Return a new JSONObject based on a SELECT * FROM statement
+     * Return a new Json based on a streaming SELECT * FROM statement. The Json
+     * must be closed when done with.
      *
      * @param tableName
-     * @return the JSON object
+     * @return the Json object
      * @throws SQLException
      * @throws UnsupportedEncodingException
      * @throws IOException
      */
     public Json newStarJSON(String tableName) throws SQLException, UnsupportedEncodingException, IOException {
-        ResultSet rsStarFrom = selectStarFrom(tableName);
+        ResultSet rsStarFrom = selectStarFromStreaming(tableName, STREAMING_FETCH_SIZE);
         ResultSetMetaData rsmd = rsStarFrom.getMetaData();
         return new Json(this, rsStarFrom, rsmd, tableName);
     }
@@ -215,6 +215,38 @@ public class DbHelper {
         this.columnNameList = columnNameList;
     }
 
+    private long rowCount;
+    private long elapsedNanos;
+
+    /**
+     * Number of rows written by the last export of the result set
+     *
+     * @return number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Rate at which the last export of the result set wrote rows
+     *
+     * @return rows per second
+     */
+    public long getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowCount * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Record the outcome of an export of the result set
+     *
+     * @param rowCount number of rows written
+     * @param startNanos {@link System#nanoTime()} when the export started
+     */
+    protected void setRowStatistics(long rowCount, long startNanos) {
+        this.rowCount = rowCount;
+        this.elapsedNanos = System.nanoTime() - startNanos;
+    }
+
     /**
      * Instance simply, not used.
      */
@@ -536,11 +568,17 @@ public class DbHelper {
     }
 
     /**
-     * Close everything associated with this instance
+     * Close everything associated with this instance, ending the streaming
+     * select the result set may have come from.
+     *
+     * @see Db#selectStarFromStreaming(String, int)
      */
     public void close() {
         try {
             closeResultSet();
+            if (getDb() != null) {
+                getDb().endStreaming();
+            }
         } catch (SQLException ex) {
             LOG.log(Level.WARNING, "Exception closing DbHelper instance", ex);
         }
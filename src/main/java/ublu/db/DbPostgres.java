@@ -25,6 +25,10 @@
  */
 package ublu.db;
 
+import java.sql.SQLException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
 /**
  * Represents a Postgresql database
  * @author jwoehr
@@ -38,4 +42,15 @@ public class DbPostgres extends Db {
         super();
         this.dbType = DBTYPE.PGSQL;
     }
+
+    /**
+     * Begin a <code>COPY ... FROM STDIN</code> on our connection
+     *
+     * @param sql the COPY statement
+     * @return the operation to write the data to
+     * @throws SQLException
+     */
+    public CopyIn copyIn(String sql) throws SQLException {
+        return getConnection().unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+    }
 }
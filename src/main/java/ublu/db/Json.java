@@ -30,9 +30,12 @@ package ublu.db;
 import ublu.util.Generics.StringArrayList;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -135,4 +138,143 @@ public class Json extends DbHelper {
         jSONObject.put("rows", jsonRowsObject);
         return jSONObject;
     }
+
+    /**
+     * Write the result set as newline-delimited JSON, one object per row keyed
+     * by column name, a row at a time so that memory use does not grow with
+     * the size of the result set.
+     *
+     * @param out where to write, not closed
+     * @return number of rows written
+     * @throws SQLException
+     * @throws UnsupportedEncodingException
+     * @throws IOException
+     */
+    public long writeNDJSON(Writer out) throws SQLException, UnsupportedEncodingException, IOException {
+        return writeRows(out, false);
+    }
+
+    /**
+     * Write the result set as a JSON array of objects, one per row keyed by
+     * column name, a row at a time so that memory use does not grow with the
+     * size of the result set.
+     *
+     * @param out where to write, not closed
+     * @return number of rows written
+     * @throws SQLException
+     * @throws UnsupportedEncodingException
+     * @throws IOException
+     */
+    public long writeJSONArray(Writer out) throws SQLException, UnsupportedEncodingException, IOException {
+        return writeRows(out, true);
+    }
+
+    private long writeRows(Writer out, boolean array) throws SQLException, UnsupportedEncodingException, IOException {
+        long start = System.nanoTime();
+        long rowCount = 0;
+        int columnCount = getResultSetMetaData().getColumnCount();
+        String[] keys = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            keys[i] = JSONObject.quote(getResultSetMetaData().getColumnName(i + 1)) + ":"; // one's-based
+            types[i] = getResultSetMetaData().getColumnType(i + 1);
+        }
+        while (getResultSet().next()) {
+            if (array) {
+                out.write(rowCount == 0 ? "[\n" : ",\n");
+            }
+            out.write('{');
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(keys[i]);
+                writeValue(out, i + 1, types[i]);
+            }
+            out.write('}');
+            if (!array) {
+                out.write('\n');
+            }
+            rowCount++;
+        }
+        if (array) {
+            out.write(rowCount == 0 ? "[]\n" : "\n]\n");
+        }
+        out.flush();
+        setRowStatistics(rowCount, start);
+        return rowCount;
+    }
+
+    /**
+     * Write one column of the current row as a JSON number, boolean, string
+     * or null according to its jdbc type.
+     */
+    private void writeValue(Writer out, int index, int type) throws SQLException, UnsupportedEncodingException, IOException {
+        ResultSet rs = getResultSet();
+        String value;
+        switch (type) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                long l = rs.getLong(index);
+                value = rs.wasNull() ? "null" : Long.toString(l);
+                break;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                BigDecimal bd = rs.getBigDecimal(index);
+                value = bd == null ? "null" : bd.toString();
+                break;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                double d = rs.getDouble(index);
+                value = rs.wasNull() || Double.isNaN(d) || Double.isInfinite(d) ? "null" : Double.toString(d);
+                break;
+            case Types.REAL:
+                float f = rs.getFloat(index);
+                value = rs.wasNull() || Float.isNaN(f) || Float.isInfinite(f) ? "null" : Float.toString(f);
+                break;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                boolean b = rs.getBoolean(index);
+                value = rs.wasNull() ? "null" : Boolean.toString(b);
+                break;
+            case Types.CHAR:
+                if (getDb().getDbType().equals(Db.DBTYPE.AS400)) {
+                    byte[] data = rs.getBytes(index);
+                    value = data == null ? "null" : JSONObject.quote(new String(data, Db.cpEBCDIC));
+                } else {
+                    value = quoteOrNull(rs.getString(index));
+                }
+                break;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                byte[] bytes = rs.getBytes(index);
+                value = bytes == null ? "null" : JSONObject.quote(hex(bytes));
+                break;
+            case Types.NULL:
+                value = "null";
+                break;
+            default:
+                Object o = rs.getObject(index);
+                value = o == null ? "null" : JSONObject.quote(o.toString());
+        }
+        out.write(value);
+    }
+
+    private static String quoteOrNull(String s) {
+        return s == null ? "null" : JSONObject.quote(s);
+    }
+
+    private static final char[] HEXDIGITS = "0123456789abcdef".toCharArray();
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEXDIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEXDIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
 }
@@ -0,0 +1,1000 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.db;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Encodes rows for PostgreSQL's <code>COPY ... FROM STDIN</code> in its text
+ * or binary format.
+ * <p>
+ * Rows are written a column at a time in the order of the COPY column list by
+ * the typed write methods, each row between {@link #startRow()} and
+ * {@link #endRow()}, and the stream ended by {@link #finish()}. The text
+ * format leaves it to the server to parse each value for its column. The
+ * binary format sends each value already in the representation of its
+ * destination column's type, which is why the encoder is given the PostgreSQL
+ * type names of the columns, e.g., as
+ * {@link ublu.util.Generics.ColumnTypeList#getColumnPostgresqlType(int)}
+ * names them or as the server reports them. A value of another type than its
+ * column's is converted to it, going through its text if need be.</p>
+ *
+ * @author jwoehr
+ */
+public abstract class PgCopyEncoder {
+
+    /**
+     * The COPY formats
+     */
+    public static enum FORMAT {
+        /**
+         * Tab-separated text
+         */
+        TEXT,
+        /**
+         * PostgreSQL binary representation of each type
+         */
+        BINARY
+    }
+
+    private static final int UNSUPPORTED = 0;
+    private static final int INT2 = 1;
+    private static final int INT4 = 2;
+    private static final int INT8 = 3;
+    private static final int FLOAT4 = 4;
+    private static final int FLOAT8 = 5;
+    private static final int NUMERIC = 6;
+    private static final int BOOL = 7;
+    private static final int TEXT = 8;
+    private static final int BYTEA = 9;
+    private static final int DATE = 10;
+    private static final int TIME = 11;
+    private static final int TIMETZ = 12;
+    private static final int TIMESTAMP = 13;
+    private static final int TIMESTAMPTZ = 14;
+
+    /**
+     * Seconds from the Unix epoch to the PostgreSQL epoch of 2000-01-01
+     */
+    private static final long PG_EPOCH_SECONDS = 946684800L;
+    /**
+     * Days from the Unix epoch to the PostgreSQL epoch of 2000-01-01
+     */
+    private static final long PG_EPOCH_DAYS = 10957L;
+    private static final int BUFFER_SIZE = 65536;
+    private static final char[] HEXDIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Kind of each column by its PostgreSQL type
+     */
+    protected final int[] kinds;
+    /**
+     * PostgreSQL type name of each column
+     */
+    protected final String[] typeNames;
+    /**
+     * Zero-based index of the column to be written next
+     */
+    protected int column;
+
+    /**
+     * Encoder for columns of these PostgreSQL types
+     *
+     * @param typeNames PostgreSQL type name of each column
+     */
+    protected PgCopyEncoder(String[] typeNames) {
+        this.typeNames = typeNames;
+        kinds = new int[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++) {
+            kinds[i] = kindOf(typeNames[i]);
+        }
+    }
+
+    /**
+     * Create an encoder writing to a COPY stream
+     *
+     * @param format text or binary
+     * @param out the COPY stream
+     * @param typeNames PostgreSQL type name of each column
+     * @return the encoder, the binary header if any already written
+     * @throws IOException
+     */
+    public static PgCopyEncoder newEncoder(FORMAT format, OutputStream out, String[] typeNames) throws IOException {
+        PgCopyEncoder encoder;
+        switch (format) {
+            case BINARY:
+                encoder = new Binary(out, typeNames);
+                break;
+            default:
+                encoder = new Text(out, typeNames);
+        }
+        return encoder;
+    }
+
+    /**
+     * The COPY statement for these columns of a table
+     *
+     * @param tableName the table, quoted as elsewhere in {@link Db}
+     * @param columnNames the columns, as they are to appear in the column
+     * list
+     * @param format text or binary
+     * @return SQL
+     */
+    public static String copySQL(String tableName, String[] columnNames, FORMAT format) {
+        StringBuilder sb = new StringBuilder("COPY \"").append(tableName).append("\" (");
+        for (int i = 0; i < columnNames.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(columnNames[i]);
+        }
+        sb.append(") FROM STDIN");
+        if (format == FORMAT.BINARY) {
+            sb.append(" WITH (FORMAT binary)");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * First of these PostgreSQL types the binary format can't encode
+     *
+     * @param typeNames PostgreSQL type names
+     * @return the type name or null if the binary format can encode them all
+     */
+    public static String unsupportedBinaryType(String[] typeNames) {
+        String unsupported = null;
+        for (String typeName : typeNames) {
+            if (kindOf(typeName) == UNSUPPORTED) {
+                unsupported = typeName;
+                break;
+            }
+        }
+        return unsupported;
+    }
+
+    private static int kindOf(String typeName) {
+        String name = typeName.toLowerCase(Locale.ROOT);
+        int paren = name.indexOf('(');
+        if (paren >= 0) { // drop any precision, e.g., char(10)
+            name = name.substring(0, paren);
+        }
+        int kind;
+        switch (name.trim()) {
+            case "int2":
+            case "smallint":
+                kind = INT2;
+                break;
+            case "int4":
+            case "int":
+            case "integer":
+            case "serial":
+                kind = INT4;
+                break;
+            case "int8":
+            case "bigint":
+            case "bigserial":
+                kind = INT8;
+                break;
+            case "float4":
+            case "real":
+                kind = FLOAT4;
+                break;
+            case "float8":
+            case "float":
+            case "double precision":
+                kind = FLOAT8;
+                break;
+            case "numeric":
+            case "decimal":
+                kind = NUMERIC;
+                break;
+            case "bool":
+            case "boolean":
+                kind = BOOL;
+                break;
+            case "text":
+            case "varchar":
+            case "character varying":
+            case "bpchar":
+            case "char":
+            case "character":
+            case "name":
+                kind = TEXT;
+                break;
+            case "bytea":
+                kind = BYTEA;
+                break;
+            case "date":
+                kind = DATE;
+                break;
+            case "time":
+            case "time without time zone":
+                kind = TIME;
+                break;
+            case "timetz":
+            case "time with time zone":
+                kind = TIMETZ;
+                break;
+            case "timestamp":
+            case "timestamp without time zone":
+                kind = TIMESTAMP;
+                break;
+            case "timestamptz":
+            case "timestamp with time zone":
+                kind = TIMESTAMPTZ;
+                break;
+            default:
+                kind = UNSUPPORTED;
+        }
+        return kind;
+    }
+
+    /**
+     * Begin a row
+     *
+     * @throws IOException
+     */
+    public abstract void startRow() throws IOException;
+
+    /**
+     * End a row
+     *
+     * @throws IOException
+     */
+    public abstract void endRow() throws IOException;
+
+    /**
+     * Write a null
+     *
+     * @throws IOException
+     */
+    public abstract void writeNull() throws IOException;
+
+    /**
+     * Write an integer
+     *
+     * @param value the value
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeLong(long value) throws IOException, SQLException;
+
+    /**
+     * Write a floating point number
+     *
+     * @param value the value
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeDouble(double value) throws IOException, SQLException;
+
+    /**
+     * Write a decimal number
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeDecimal(BigDecimal value) throws IOException, SQLException;
+
+    /**
+     * Write a boolean
+     *
+     * @param value the value
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeBoolean(boolean value) throws IOException, SQLException;
+
+    /**
+     * Write a string, which for a column not of a character type is the text
+     * of its value
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeString(String value) throws IOException, SQLException;
+
+    /**
+     * Write binary data
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeBytes(byte[] value) throws IOException, SQLException;
+
+    /**
+     * Write a date
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeDate(Date value) throws IOException, SQLException;
+
+    /**
+     * Write a time of day
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeTime(Time value) throws IOException, SQLException;
+
+    /**
+     * Write a timestamp
+     *
+     * @param value the value or null
+     * @throws IOException
+     * @throws SQLException if the value can't be converted to the column's
+     * type
+     */
+    public abstract void writeTimestamp(Timestamp value) throws IOException, SQLException;
+
+    /**
+     * Write the end of the COPY data, if any, and flush
+     *
+     * @throws IOException
+     */
+    public abstract void finish() throws IOException;
+
+    /**
+     * Text of a double as PostgreSQL reads it
+     *
+     * @param value the value
+     * @return text
+     */
+    protected static String doubleText(double value) {
+        String text;
+        if (Double.isNaN(value)) {
+            text = "NaN";
+        } else if (Double.isInfinite(value)) {
+            text = value > 0 ? "Infinity" : "-Infinity";
+        } else {
+            text = Double.toString(value);
+        }
+        return text;
+    }
+
+    /**
+     * Hex digits of binary data
+     *
+     * @param bytes the data
+     * @return hex digits
+     */
+    protected static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEXDIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEXDIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Binary data from text: <code>\x</code> and hex digits as PostgreSQL
+     * writes bytea, plain hex digits as ublu exports binary data, else the
+     * text itself
+     *
+     * @param text the text
+     * @return the data
+     */
+    protected static byte[] unhex(String text) {
+        String digits = text.startsWith("\\x") ? text.substring(2) : text;
+        byte[] bytes = null;
+        if (digits.length() % 2 == 0) {
+            bytes = new byte[digits.length() / 2];
+            for (int i = 0; bytes != null && i < bytes.length; i++) {
+                int high = Character.digit(digits.charAt(i * 2), 16);
+                int low = Character.digit(digits.charAt(i * 2 + 1), 16);
+                if (high < 0 || low < 0) {
+                    bytes = null;
+                } else {
+                    bytes[i] = (byte) (high << 4 | low);
+                }
+            }
+        }
+        return bytes == null ? text.getBytes(StandardCharsets.UTF_8) : bytes;
+    }
+
+    /**
+     * The exception for a value which can't be converted to its column's type
+     *
+     * @param value the value
+     * @param cause what went wrong or null
+     * @return the exception
+     */
+    protected SQLDataException cannotConvert(Object value, Throwable cause) {
+        return new SQLDataException("Cannot convert " + value + " to " + typeNames[column] + " for column " + (column + 1), cause);
+    }
+
+    /**
+     * Tab-separated text, the values escaped as COPY requires
+     */
+    private static class Text extends PgCopyEncoder {
+
+        private final Writer out;
+
+        Text(OutputStream out, String[] typeNames) {
+            super(typeNames);
+            // The PostgreSQL driver always sets client_encoding to UTF8
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        private void field(String text) throws IOException {
+            if (column++ > 0) {
+                out.write('\t');
+            }
+            out.write(text);
+        }
+
+        @Override
+        public void startRow() {
+            column = 0;
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            out.write('\n');
+        }
+
+        @Override
+        public void writeNull() throws IOException {
+            field("\\N");
+        }
+
+        @Override
+        public void writeLong(long value) throws IOException {
+            field(Long.toString(value));
+        }
+
+        @Override
+        public void writeDouble(double value) throws IOException {
+            field(doubleText(value));
+        }
+
+        @Override
+        public void writeDecimal(BigDecimal value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                field(value.toPlainString());
+            }
+        }
+
+        @Override
+        public void writeBoolean(boolean value) throws IOException {
+            field(value ? "t" : "f");
+        }
+
+        @Override
+        public void writeString(String value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                switch (kinds[column]) {
+                    case INT2:
+                    case INT4:
+                    case INT8:
+                        field(integerText(value));
+                        break;
+                    case BYTEA:
+                        field("\\\\x" + hex(unhex(value)));
+                        break;
+                    default:
+                        field(escape(value));
+                }
+            }
+        }
+
+        /**
+         * ublu's CSV writes some integer columns as floating point, which
+         * the server won't read as an integer
+         */
+        private String integerText(String value) throws SQLException {
+            String text = value.trim();
+            for (int i = text.startsWith("-") ? 1 : 0; i < text.length(); i++) {
+                if (!Character.isDigit(text.charAt(i))) {
+                    try {
+                        text = new BigDecimal(text).toBigIntegerExact().toString();
+                    } catch (NumberFormatException | ArithmeticException ex) {
+                        throw cannotConvert(value, ex);
+                    }
+                    break;
+                }
+            }
+            return text;
+        }
+
+        private static String escape(String value) {
+            StringBuilder sb = null;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                String escaped;
+                switch (c) {
+                    case '\\':
+                        escaped = "\\\\";
+                        break;
+                    case '\t':
+                        escaped = "\\t";
+                        break;
+                    case '\n':
+                        escaped = "\\n";
+                        break;
+                    case '\r':
+                        escaped = "\\r";
+                        break;
+                    default:
+                        escaped = null;
+                }
+                if (escaped != null && sb == null) {
+                    sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                if (sb != null) {
+                    if (escaped == null) {
+                        sb.append(c);
+                    } else {
+                        sb.append(escaped);
+                    }
+                }
+            }
+            return sb == null ? value : sb.toString();
+        }
+
+        @Override
+        public void writeBytes(byte[] value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                field("\\\\x" + hex(value));
+            }
+        }
+
+        @Override
+        public void writeDate(Date value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                field(value.toString());
+            }
+        }
+
+        @Override
+        public void writeTime(Time value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                field(value.toString());
+            }
+        }
+
+        @Override
+        public void writeTimestamp(Timestamp value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                field(value.toString());
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Each value a length and the binary representation of its column's
+     * type, each row its count of fields, between a signature header and a
+     * trailer.
+     */
+    private static class Binary extends PgCopyEncoder {
+
+        private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+        private final DataOutputStream out;
+
+        Binary(OutputStream out, String[] typeNames) throws IOException {
+            super(typeNames);
+            this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            this.out.write(SIGNATURE);
+            this.out.writeInt(0); // flags
+            this.out.writeInt(0); // header extension length
+        }
+
+        @Override
+        public void startRow() throws IOException {
+            column = 0;
+            out.writeShort(kinds.length);
+        }
+
+        @Override
+        public void endRow() {
+        }
+
+        @Override
+        public void writeNull() throws IOException {
+            out.writeInt(-1);
+            column++;
+        }
+
+        @Override
+        public void writeLong(long value) throws IOException, SQLException {
+            switch (kinds[column]) {
+                case INT2:
+                    if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                        throw cannotConvert(value, null);
+                    }
+                    out.writeInt(2);
+                    out.writeShort((int) value);
+                    column++;
+                    break;
+                case INT4:
+                    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                        throw cannotConvert(value, null);
+                    }
+                    out.writeInt(4);
+                    out.writeInt((int) value);
+                    column++;
+                    break;
+                case INT8:
+                    out.writeInt(8);
+                    out.writeLong(value);
+                    column++;
+                    break;
+                case FLOAT4:
+                case FLOAT8:
+                    writeDouble(value);
+                    break;
+                case NUMERIC:
+                    writeDecimal(BigDecimal.valueOf(value));
+                    break;
+                default:
+                    writeString(Long.toString(value));
+            }
+        }
+
+        @Override
+        public void writeDouble(double value) throws IOException, SQLException {
+            switch (kinds[column]) {
+                case FLOAT4:
+                    out.writeInt(4);
+                    out.writeFloat((float) value);
+                    column++;
+                    break;
+                case FLOAT8:
+                    out.writeInt(8);
+                    out.writeDouble(value);
+                    column++;
+                    break;
+                default:
+                    writeString(doubleText(value));
+            }
+        }
+
+        @Override
+        public void writeDecimal(BigDecimal value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                switch (kinds[column]) {
+                    case NUMERIC:
+                        writeNumeric(value);
+                        column++;
+                        break;
+                    case INT2:
+                    case INT4:
+                    case INT8:
+                        long l;
+                        try {
+                            l = value.longValueExact();
+                        } catch (ArithmeticException ex) {
+                            throw cannotConvert(value, ex);
+                        }
+                        writeLong(l);
+                        break;
+                    case FLOAT4:
+                    case FLOAT8:
+                        writeDouble(value.doubleValue());
+                        break;
+                    default:
+                        writeString(value.toPlainString());
+                }
+            }
+        }
+
+        /**
+         * Numeric as base 10000 digits: count of digits, weight of the first
+         * digit, sign, display scale, then the digits
+         */
+        private void writeNumeric(BigDecimal value) throws IOException {
+            BigDecimal v = value.scale() < 0 ? value.setScale(0) : value;
+            int dscale = v.scale();
+            String digits = v.unscaledValue().abs().toString();
+            int intLength = digits.length() - dscale;
+            StringBuilder intPart = new StringBuilder(intLength > 0 ? digits.substring(0, intLength) : "");
+            StringBuilder fracPart = new StringBuilder(intLength >= 0 ? digits.substring(intLength) : digits);
+            for (int i = intLength; i < 0; i++) {
+                fracPart.insert(0, '0');
+            }
+            while (intPart.length() % 4 != 0) {
+                intPart.insert(0, '0');
+            }
+            while (fracPart.length() % 4 != 0) {
+                fracPart.append('0');
+            }
+            int weight = intPart.length() / 4 - 1;
+            String all = intPart.append(fracPart).toString();
+            int first = 0;
+            int last = all.length() / 4;
+            while (first < last && all.regionMatches(first * 4, "0000", 0, 4)) {
+                first++;
+                weight--;
+            }
+            while (last > first && all.regionMatches((last - 1) * 4, "0000", 0, 4)) {
+                last--;
+            }
+            int ndigits = last - first;
+            out.writeInt(8 + 2 * ndigits);
+            out.writeShort(ndigits);
+            out.writeShort(ndigits == 0 ? 0 : weight);
+            out.writeShort(v.signum() < 0 ? 0x4000 : 0);
+            out.writeShort(dscale);
+            for (int i = first; i < last; i++) {
+                out.writeShort(Integer.parseInt(all.substring(i * 4, i * 4 + 4)));
+            }
+        }
+
+        @Override
+        public void writeBoolean(boolean value) throws IOException, SQLException {
+            if (kinds[column] == BOOL) {
+                out.writeInt(1);
+                out.writeByte(value ? 1 : 0);
+                column++;
+            } else {
+                writeString(value ? "true" : "false");
+            }
+        }
+
+        @Override
+        public void writeString(String value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                String text = value.trim();
+                try {
+                    switch (kinds[column]) {
+                        case INT2:
+                        case INT4:
+                        case INT8:
+                            long l;
+                            try {
+                                l = Long.parseLong(text);
+                            } catch (NumberFormatException ex) { // e.g., ublu's CSV of a BIGINT
+                                l = new BigDecimal(text).longValueExact();
+                            }
+                            writeLong(l);
+                            break;
+                        case FLOAT4:
+                        case FLOAT8:
+                            writeDouble(Double.parseDouble(text));
+                            break;
+                        case NUMERIC:
+                            writeDecimal(new BigDecimal(text));
+                            break;
+                        case BOOL:
+                            writeBoolean(parseBoolean(text));
+                            break;
+                        case BYTEA:
+                            writeBytes(unhex(value));
+                            break;
+                        case DATE:
+                            writeDate(Date.valueOf(text));
+                            break;
+                        case TIME:
+                            writeLocalTime(LocalTime.parse(text));
+                            break;
+                        case TIMETZ:
+                            writeOffsetTime(text.indexOf('+') > 0 || text.indexOf('-') > 0 || text.endsWith("Z")
+                                    ? OffsetTime.parse(text) : LocalTime.parse(text).atOffset(currentOffset()));
+                            break;
+                        case TIMESTAMP:
+                        case TIMESTAMPTZ:
+                            writeTimestamp(Timestamp.valueOf(text));
+                            break;
+                        default:
+                            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                            out.writeInt(bytes.length);
+                            out.write(bytes);
+                            column++;
+                    }
+                } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException ex) {
+                    throw cannotConvert(value, ex);
+                }
+            }
+        }
+
+        private boolean parseBoolean(String text) {
+            boolean b;
+            switch (text.toLowerCase(Locale.ROOT)) {
+                case "t":
+                case "true":
+                case "y":
+                case "yes":
+                case "on":
+                case "1":
+                    b = true;
+                    break;
+                case "f":
+                case "false":
+                case "n":
+                case "no":
+                case "off":
+                case "0":
+                    b = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a boolean: " + text);
+            }
+            return b;
+        }
+
+        @Override
+        public void writeBytes(byte[] value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else if (kinds[column] == BYTEA) {
+                out.writeInt(value.length);
+                out.write(value);
+                column++;
+            } else {
+                writeString("\\x" + hex(value));
+            }
+        }
+
+        @Override
+        public void writeDate(Date value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                switch (kinds[column]) {
+                    case DATE:
+                        out.writeInt(4);
+                        out.writeInt((int) (value.toLocalDate().toEpochDay() - PG_EPOCH_DAYS));
+                        column++;
+                        break;
+                    case TIMESTAMP:
+                    case TIMESTAMPTZ:
+                        writeTimestamp(Timestamp.valueOf(value.toLocalDate().atStartOfDay()));
+                        break;
+                    default:
+                        writeString(value.toString());
+                }
+            }
+        }
+
+        @Override
+        public void writeTime(Time value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                switch (kinds[column]) {
+                    case TIME:
+                        writeLocalTime(value.toLocalTime());
+                        break;
+                    case TIMETZ:
+                        // As the server reads a time without a zone in the session's zone, which the driver sets to ours
+                        writeOffsetTime(value.toLocalTime().atOffset(currentOffset()));
+                        break;
+                    default:
+                        writeString(value.toString());
+                }
+            }
+        }
+
+        private static ZoneOffset currentOffset() {
+            return ZoneId.systemDefault().getRules().getOffset(Instant.now());
+        }
+
+        private void writeLocalTime(LocalTime time) throws IOException {
+            out.writeInt(8);
+            out.writeLong(time.toNanoOfDay() / 1000);
+            column++;
+        }
+
+        private void writeOffsetTime(OffsetTime time) throws IOException {
+            out.writeInt(12);
+            out.writeLong(time.toLocalTime().toNanoOfDay() / 1000);
+            out.writeInt(-time.getOffset().getTotalSeconds()); // seconds west of UTC
+            column++;
+        }
+
+        @Override
+        public void writeTimestamp(Timestamp value) throws IOException, SQLException {
+            if (value == null) {
+                writeNull();
+            } else {
+                switch (kinds[column]) {
+                    case TIMESTAMP:
+                        LocalDateTime ldt = value.toLocalDateTime();
+                        out.writeInt(8);
+                        out.writeLong(micros(ldt.toEpochSecond(ZoneOffset.UTC), ldt.getNano()));
+                        column++;
+                        break;
+                    case TIMESTAMPTZ:
+                        Instant instant = value.toInstant();
+                        out.writeInt(8);
+                        out.writeLong(micros(instant.getEpochSecond(), instant.getNano()));
+                        column++;
+                        break;
+                    case DATE:
+                        writeDate(Date.valueOf(value.toLocalDateTime().toLocalDate()));
+                        break;
+                    default:
+                        writeString(value.toString());
+                }
+            }
+        }
+
+        private static long micros(long epochSeconds, int nanos) {
+            return (epochSeconds - PG_EPOCH_SECONDS) * 1000000L + nanos / 1000;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.writeShort(-1);
+            out.flush();
+        }
+    }
+}
@@ -27,6 +27,7 @@ package ublu.db;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -216,6 +217,35 @@ public class ResultSetClosure implements AutoCloseable {
         return new Json(db, getResultSet(), getResultSet().getMetaData(), tableName).tableJSON();
     }
 
+    /**
+     * Write the rest of the result set as newline-delimited JSON a row at a
+     * time
+     *
+     * @param db source db
+     * @param out where to write, not closed
+     * @return number of rows written
+     * @throws SQLException
+     * @throws IOException
+     * @throws UnsupportedEncodingException
+     */
+    public long writeNDJSON(Db db, Writer out) throws SQLException, IOException, UnsupportedEncodingException {
+        return new Json(db, getResultSet(), getResultSet().getMetaData(), null).writeNDJSON(out);
+    }
+
+    /**
+     * Write the rest of the result set as a JSON array a row at a time
+     *
+     * @param db source db
+     * @param out where to write, not closed
+     * @return number of rows written
+     * @throws SQLException
+     * @throws IOException
+     * @throws UnsupportedEncodingException
+     */
+    public long writeJSONArray(Db db, Writer out) throws SQLException, IOException, UnsupportedEncodingException {
+        return new Json(db, getResultSet(), getResultSet().getMetaData(), null).writeJSONArray(out);
+    }
+
     /**
      * Closes the result set, the statement, and disconnects the db, nulling all
      * instance variables.
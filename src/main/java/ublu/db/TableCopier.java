@@ -0,0 +1,1192 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.db;
+
+import ublu.Ublu;
+import ublu.util.Generics.ColumnTypeList;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Copies the rows of a table from one database to a table of the same name and
+ * columns on another, as created by {@link TableReplicator}.
+ * <p>
+ * The source is read through a forward-only cursor with a large fetch size.
+ * Rows are written through one prepared INSERT in batches, committing every so
+ * many rows, so that the copy costs a network round trip per batch rather than
+ * per row. How each column is read and bound is worked out once from the
+ * source metadata as a {@link ColumnPlan} rather than for every value.</p>
+ * <p>
+ * Into a PostgreSQL destination the rows are instead streamed through
+ * <code>COPY ... FROM STDIN</code>, by default in its text format, see
+ * {@link #setCopyFormat(PgCopyEncoder.FORMAT)}.</p>
+ * <p>
+ * A large table may instead be copied in partitions, each a range of a numeric
+ * key column (or of the relative record number on DB400), copied at the same
+ * time on connection pairs of its own. See
+ * {@link #copyPartitioned(int, String, int, ConnectionPairFactory)}.</p>
+ *
+ * @author jwoehr
+ */
+public class TableCopier {
+
+    private static Logger getLogger() {
+        return Ublu.getMainInterpreter().getLogger();
+    }
+
+    /**
+     * Default number of rows per executeBatch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * Default number of rows per commit
+     */
+    public static final int DEFAULT_COMMIT_INTERVAL = 50000;
+    /**
+     * Default number of rows fetched from the source at a time
+     */
+    public static final int DEFAULT_FETCH_SIZE = 10000;
+    /**
+     * Default number of times a failed partition is tried again
+     */
+    public static final int DEFAULT_RETRIES = 2;
+    /**
+     * Partition key meaning the DB400 relative record number
+     */
+    public static final String RRN = "RRN";
+    private static final long PROGRESS_INTERVAL_NANOS = 10000000000L;
+
+    private final Db srcDb;
+    private final Db destDb;
+    private final String tableName;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private PgCopyEncoder.FORMAT copyFormat = PgCopyEncoder.FORMAT.TEXT;
+    private long rowCount;
+    private long elapsedNanos;
+
+    /**
+     * Instance to copy a table
+     *
+     * @param srcDb connected source database
+     * @param destDb connected destination database
+     * @param tableName name of the table on both
+     */
+    public TableCopier(Db srcDb, Db destDb, String tableName) {
+        this.srcDb = srcDb;
+        this.destDb = destDb;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Get the destination database
+     *
+     * @return destination database
+     */
+    protected Db getDestDb() {
+        return destDb;
+    }
+
+    /**
+     * Get the name of the table on both databases
+     *
+     * @return table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get number of rows per executeBatch
+     *
+     * @return number of rows per executeBatch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set number of rows per executeBatch
+     *
+     * @param batchSize number of rows per executeBatch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Get number of rows per commit
+     *
+     * @return number of rows per commit, 0 meaning commit only at the end
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * Set number of rows per commit. The commit happens after the batch which
+     * reaches the interval.
+     *
+     * @param commitInterval number of rows per commit, 0 meaning commit only
+     * at the end
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = Math.max(0, commitInterval);
+    }
+
+    /**
+     * Get number of rows fetched from the source at a time
+     *
+     * @return number of rows fetched from the source at a time
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Set number of rows fetched from the source at a time
+     *
+     * @param fetchSize number of rows fetched from the source at a time
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * Get the COPY format used for a PostgreSQL destination
+     *
+     * @return the format, null meaning batched inserts
+     */
+    public PgCopyEncoder.FORMAT getCopyFormat() {
+        return copyFormat;
+    }
+
+    /**
+     * Set the COPY format used for a PostgreSQL destination. The binary
+     * format is given up for text if a column's type isn't one it encodes.
+     *
+     * @param copyFormat the format, null meaning batched inserts as for other
+     * destinations
+     */
+    public void setCopyFormat(PgCopyEncoder.FORMAT copyFormat) {
+        this.copyFormat = copyFormat;
+    }
+
+    /**
+     * Number of rows copied by the last copy
+     *
+     * @return number of rows copied
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Rate of the last copy
+     *
+     * @return rows per second
+     */
+    public long getRowsPerSecond() {
+        return rate(rowCount, elapsedNanos);
+    }
+
+    /**
+     * Record the size and duration of a copy for the rate
+     *
+     * @param rows number of rows copied
+     * @param startNanos {@link System#nanoTime()} when the copy started
+     */
+    protected void setRowStatistics(long rows, long startNanos) {
+        rowCount = rows;
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    private static long rate(long rows, long nanos) {
+        return nanos == 0 ? 0 : rows * 1000000000L / nanos;
+    }
+
+    /**
+     * Source of fresh connection pairs for the partitions of a partitioned
+     * copy, each partition (and each retry of a partition) getting its own.
+     */
+    public interface ConnectionPairFactory {
+
+        /**
+         * Connect a new instance of the source database
+         *
+         * @return connected source database
+         * @throws ClassNotFoundException
+         * @throws SQLException
+         */
+        Db newSourceDb() throws ClassNotFoundException, SQLException;
+
+        /**
+         * Connect a new instance of the destination database
+         *
+         * @return connected destination database
+         * @throws ClassNotFoundException
+         * @throws SQLException
+         */
+        Db newDestDb() throws ClassNotFoundException, SQLException;
+    }
+
+    /**
+     * Copy all the rows of the table
+     *
+     * @return number of rows copied
+     * @throws SQLException
+     * @throws IOException
+     */
+    public long copy() throws SQLException, IOException {
+        long start = System.nanoTime();
+        long expected = countRows(srcDb, tableName, null);
+        ResultSet rs = srcDb.selectStarFromStreaming(tableName, getFetchSize());
+        long rows;
+        try {
+            rows = copy(rs, new ColumnPlan(rs.getMetaData()), destDb, getCommitInterval(), expected, tableName);
+        } finally {
+            Statement statement = rs.getStatement();
+            rs.close();
+            statement.close();
+            srcDb.endStreaming();
+        }
+        setRowStatistics(rows, start);
+        return rows;
+    }
+
+    /**
+     * Copy all the rows of the table in partitions at the same time.
+     * <p>
+     * The source is split into ranges of equal width between the least and
+     * greatest values of the key column, rows with a null key going to the
+     * first. Each partition is copied on a connection pair of its own from
+     * the factory and committed only when it is complete, so a partition
+     * which fails is rolled back and tried again on new connections without
+     * disturbing the others. At the end each partition's count of rows
+     * copied is checked against the count the source gave for it.</p>
+     *
+     * @param partitions number of partitions and of connection pairs
+     * @param keyColumn numeric column to partition by, {@link #RRN} for the
+     * relative record number on DB400, or null to use the source's primary
+     * key or, on DB400 if there is none, the relative record number
+     * @param retries number of times to try a failed partition again
+     * @param factory source of the connection pairs
+     * @return number of rows copied
+     * @throws SQLException if there is no key to partition by or if any
+     * partition failed or did not verify
+     */
+    public long copyPartitioned(int partitions, String keyColumn, int retries, ConnectionPairFactory factory) throws SQLException {
+        long start = System.nanoTime();
+        String key = keyColumn == null ? defaultPartitionKey() : keyColumn;
+        if (key == null) {
+            throw new SQLException("No primary key to partition " + tableName + " by and the source is not DB400, a key column must be given");
+        }
+        String keyExpression = key.equalsIgnoreCase(RRN) ? "RRN(\"" + tableName + "\")" : key;
+        final List<String> predicates = partitionPredicates(keyExpression, partitions);
+        final ColumnPlan plan;
+        ResultSet rs = srcDb.selectStarFromStreaming(tableName, "1=0", 1);
+        try {
+            plan = new ColumnPlan(rs.getMetaData());
+        } finally {
+            Statement statement = rs.getStatement();
+            rs.close();
+            statement.close();
+            srcDb.endStreaming();
+        }
+        getLogger().log(Level.INFO, "Copying {0} in {1} partitions by {2}", new Object[]{tableName, predicates.size(), keyExpression});
+        final PartitionCopy[] copies = new PartitionCopy[predicates.size()];
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(copies.length);
+        try {
+            for (int i = 0; i < copies.length; i++) {
+                final PartitionCopy partitionCopy = new PartitionCopy(i + 1, copies.length, predicates.get(i), plan, retries, factory);
+                copies[i] = partitionCopy;
+                futures.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            partitionCopy.run();
+                        } catch (RuntimeException ex) {
+                            getLogger().log(Level.SEVERE, "Exception in partitioned copy of " + tableName, ex);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            getLogger().log(Level.SEVERE, "Partitioned copy of " + tableName + " interrupted", ex);
+            pool.shutdownNow();
+        } finally {
+            pool.shutdown();
+        }
+        long rows = 0;
+        int bad = 0;
+        for (PartitionCopy partitionCopy : copies) {
+            rows += partitionCopy.copied;
+            if (!partitionCopy.verify()) {
+                bad++;
+            }
+        }
+        setRowStatistics(rows, start);
+        if (bad > 0) {
+            throw new SQLException(bad + " of " + copies.length + " partitions of " + tableName + " failed or did not verify");
+        }
+        getLogger().log(Level.INFO, "Copied and verified {0} rows of {1} in {2} partitions at {3} rows/s", new Object[]{rows, tableName, copies.length, getRowsPerSecond()});
+        return rows;
+    }
+
+    /**
+     * The key to partition by when none is given: the first column of the
+     * source's primary key, else on DB400 the relative record number.
+     *
+     * @return key column or {@link #RRN} or null if there is none
+     * @throws SQLException
+     */
+    protected String defaultPartitionKey() throws SQLException {
+        String key = null;
+        try (ResultSet pk = srcDb.getMetaData().getPrimaryKeys(null, null, tableName)) {
+            while (pk.next()) {
+                if (pk.getShort("KEY_SEQ") == 1) {
+                    key = pk.getString("COLUMN_NAME");
+                }
+            }
+        }
+        if (key == null && srcDb.getDbType() == Db.DBTYPE.AS400) {
+            key = RRN;
+        }
+        return key;
+    }
+
+    /**
+     * Split the range of a numeric key on the source into predicates
+     *
+     * @param keyExpression column or expression to partition by
+     * @param partitions number of partitions wanted
+     * @return one predicate per partition, fewer than wanted if the range of
+     * the key is narrower than that
+     * @throws SQLException
+     */
+    protected List<String> partitionPredicates(String keyExpression, int partitions) throws SQLException {
+        List<String> predicates = new ArrayList<>();
+        BigInteger min = null;
+        BigInteger max = null;
+        try (Statement statement = srcDb.getConnection().createStatement();
+                ResultSet rs = statement.executeQuery("SELECT MIN(" + keyExpression + "), MAX(" + keyExpression + ") FROM \"" + tableName + "\"")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                min = BigInteger.valueOf(rs.getLong(1));
+                max = BigInteger.valueOf(rs.getLong(2));
+            }
+        }
+        if (min == null || partitions < 2) {
+            predicates.add(null); // empty or unpartitioned, one partition of the whole table
+        } else {
+            BigInteger span = max.subtract(min).add(BigInteger.ONE);
+            int count = span.compareTo(BigInteger.valueOf(partitions)) < 0 ? span.intValue() : partitions;
+            BigInteger previous = null;
+            for (int i = 1; i <= count; i++) {
+                BigInteger bound = min.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count)));
+                if (previous == null) {
+                    predicates.add(count == 1 ? null : "(" + keyExpression + " < " + bound + " OR " + keyExpression + " IS NULL)");
+                } else if (i == count) {
+                    predicates.add(keyExpression + " >= " + previous);
+                } else {
+                    predicates.add(keyExpression + " >= " + previous + " AND " + keyExpression + " < " + bound);
+                }
+                previous = bound;
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * One partition of a partitioned copy with its retries
+     */
+    private class PartitionCopy {
+
+        private final String what;
+        private final String where;
+        private final ColumnPlan plan;
+        private final int retries;
+        private final ConnectionPairFactory factory;
+        private long expected = -1;
+        private long copied;
+        private boolean done;
+
+        PartitionCopy(int number, int of, String where, ColumnPlan plan, int retries, ConnectionPairFactory factory) {
+            this.what = tableName + " partition " + number + " of " + of + (where == null ? "" : " (" + where + ")");
+            this.where = where;
+            this.plan = plan;
+            this.retries = retries;
+            this.factory = factory;
+        }
+
+        void run() {
+            for (int attempt = 0; !done && attempt <= retries; attempt++) {
+                Db src = null;
+                Db dest = null;
+                try {
+                    src = factory.newSourceDb();
+                    dest = factory.newDestDb();
+                    expected = countRows(src, tableName, where);
+                    ResultSet rs = src.selectStarFromStreaming(tableName, where, getFetchSize());
+                    try {
+                        // Committed only when complete so that a retry starts clean
+                        copied = copy(rs, plan, dest, 0, expected, what);
+                        done = true;
+                    } finally {
+                        Statement statement = rs.getStatement();
+                        rs.close();
+                        statement.close();
+                        src.endStreaming();
+                    }
+                } catch (ClassNotFoundException | SQLException | IOException ex) {
+                    getLogger().log(Level.WARNING, "Attempt " + (attempt + 1) + " of " + (retries + 1) + " to copy " + what + " failed", ex);
+                } finally {
+                    disconnect(src);
+                    disconnect(dest);
+                }
+            }
+        }
+
+        boolean verify() {
+            boolean verified = false;
+            if (!done) {
+                getLogger().log(Level.SEVERE, "Copying {0} failed after {1} attempts", new Object[]{what, retries + 1});
+            } else if (expected != copied) {
+                getLogger().log(Level.SEVERE, "Copied {0} rows of {1} but the source counted {2}", new Object[]{copied, what, expected});
+            } else {
+                verified = true;
+            }
+            return verified;
+        }
+    }
+
+    private static void disconnect(Db db) {
+        if (db != null) {
+            try {
+                db.disconnect();
+            } catch (SQLException ex) {
+                getLogger().log(Level.WARNING, "Could not disconnect after partitioned copy", ex);
+            }
+        }
+    }
+
+    /**
+     * Count the rows of a table for progress reporting
+     *
+     * @param db database
+     * @param tableName table
+     * @param where predicate or null for all rows
+     * @return number of rows or -1 if they could not be counted
+     */
+    protected static long countRows(Db db, String tableName, String where) {
+        long count = -1;
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM \"").append(tableName).append("\"");
+        if (where != null) {
+            sql.append(" WHERE ").append(where);
+        }
+        try (Statement statement = db.getConnection().createStatement();
+                ResultSet rs = statement.executeQuery(sql.toString())) {
+            if (rs.next()) {
+                count = rs.getLong(1);
+            }
+        } catch (SQLException ex) {
+            getLogger().log(Level.WARNING, "Could not count rows of " + tableName + ", no ETA will be given", ex);
+        }
+        return count;
+    }
+
+    /**
+     * Copy the rest of a result set into the table on a destination database,
+     * through COPY if the destination is PostgreSQL and a COPY format is set,
+     * else through batched inserts.
+     *
+     * @param rs source rows
+     * @param plan plan made from the metadata of the source rows
+     * @param dest destination database
+     * @param commitEvery number of rows per commit, 0 meaning commit only at
+     * the end
+     * @param expected number of rows expected or -1 if unknown
+     * @param what name of what is being copied for progress messages
+     * @return number of rows copied
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected long copy(ResultSet rs, ColumnPlan plan, Db dest, int commitEvery, long expected, String what) throws SQLException, IOException {
+        return copy(new ResultSetRows(rs, plan, tableName), dest, commitEvery, expected, what);
+    }
+
+    /**
+     * Copy rows into the table on a destination database, through COPY if
+     * the destination is PostgreSQL and a COPY format is set, else through
+     * batched inserts.
+     *
+     * @param rows source rows
+     * @param dest destination database
+     * @param commitEvery number of rows per commit, 0 meaning commit only at
+     * the end
+     * @param expected number of rows expected or -1 if unknown
+     * @param what name of what is being copied for progress messages
+     * @return number of rows copied
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected long copy(Rows rows, Db dest, int commitEvery, long expected, String what) throws SQLException, IOException {
+        long count;
+        if (getCopyFormat() != null && dest instanceof DbPostgres) {
+            count = copyIn(rows, DbPostgres.class.cast(dest), commitEvery, expected, what);
+        } else {
+            count = insert(rows, dest, commitEvery, expected, what);
+        }
+        return count;
+    }
+
+    /**
+     * Copy rows into the table on a destination database through batched
+     * inserts.
+     *
+     * @param source source rows
+     * @param dest destination database
+     * @param commitEvery number of rows per commit, 0 meaning commit only at
+     * the end
+     * @param expected number of rows expected or -1 if unknown
+     * @param what name of what is being copied for progress messages
+     * @return number of rows copied
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected long insert(Rows source, Db dest, int commitEvery, long expected, String what) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long rows = 0;
+        long committed = 0;
+        int inBatch = 0;
+        Connection connection = dest.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(source.insertSQL())) {
+            while (source.next()) {
+                source.bind(ps);
+                ps.addBatch();
+                rows++;
+                if (++inBatch == getBatchSize()) {
+                    executeBatch(ps);
+                    inBatch = 0;
+                    if (commitEvery > 0 && rows - committed >= commitEvery) {
+                        connection.commit();
+                        committed = rows;
+                    }
+                    long now = System.nanoTime();
+                    if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                        logProgress(what, rows, expected, now - start);
+                        lastProgress = now;
+                    }
+                }
+            }
+            if (inBatch > 0) {
+                executeBatch(ps);
+            }
+            connection.commit();
+        } catch (SQLException | IOException ex) {
+            getLogger().log(Level.SEVERE, "Copying {0} failed after {1} rows, rolling back to the {2} rows committed", new Object[]{what, rows, committed});
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        getLogger().log(Level.INFO, "Copied {0} rows of {1} at {2} rows/s", new Object[]{rows, what, rate(rows, System.nanoTime() - start)});
+        return rows;
+    }
+
+    /**
+     * Copy rows into the table on a PostgreSQL destination through COPY, one
+     * COPY per commit.
+     *
+     * @param source source rows
+     * @param dest destination database
+     * @param commitEvery number of rows per commit, 0 meaning commit only at
+     * the end
+     * @param expected number of rows expected or -1 if unknown
+     * @param what name of what is being copied for progress messages
+     * @return number of rows copied
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected long copyIn(Rows source, DbPostgres dest, int commitEvery, long expected, String what) throws SQLException, IOException {
+        PgCopyEncoder.FORMAT format = getCopyFormat();
+        String[] typeNames = source.getPostgresqlTypeNames();
+        String unsupported = PgCopyEncoder.unsupportedBinaryType(typeNames);
+        if (format == PgCopyEncoder.FORMAT.BINARY && unsupported != null) {
+            getLogger().log(Level.INFO, "Copying {0} in text format since the binary format does not encode {1}", new Object[]{what, unsupported});
+            format = PgCopyEncoder.FORMAT.TEXT;
+        }
+        String sql = source.copySQL(format);
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long rows = 0;
+        long committed = 0;
+        Connection connection = dest.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            boolean done = false;
+            while (!done) {
+                long segmentEnd = commitEvery > 0 ? rows + commitEvery : Long.MAX_VALUE;
+                PGCopyOutputStream copyStream = new PGCopyOutputStream(dest.copyIn(sql));
+                try {
+                    PgCopyEncoder encoder = PgCopyEncoder.newEncoder(format, copyStream, typeNames);
+                    while (rows < segmentEnd && !(done = !source.next())) {
+                        encoder.startRow();
+                        source.copyRow(encoder);
+                        encoder.endRow();
+                        if (++rows % 1024 == 0) {
+                            long now = System.nanoTime();
+                            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                                logProgress(what, rows, expected, now - start);
+                                lastProgress = now;
+                            }
+                        }
+                    }
+                    encoder.finish();
+                    copyStream.endCopy();
+                } finally {
+                    cancelCopy(copyStream);
+                }
+                connection.commit();
+                committed = rows;
+            }
+        } catch (SQLException | IOException ex) {
+            getLogger().log(Level.SEVERE, "Copying {0} failed after {1} rows, rolling back to the {2} rows committed", new Object[]{what, rows, committed});
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        getLogger().log(Level.INFO, "Copied {0} rows of {1} at {2} rows/s", new Object[]{rows, what, rate(rows, System.nanoTime() - start)});
+        return rows;
+    }
+
+    private static void cancelCopy(PGCopyOutputStream copyStream) {
+        if (copyStream.isActive()) {
+            try {
+                copyStream.cancelCopy();
+            } catch (SQLException ex) {
+                getLogger().log(Level.WARNING, "Could not cancel COPY", ex);
+            }
+        }
+    }
+
+    private static void executeBatch(PreparedStatement ps) throws SQLException {
+        try {
+            ps.executeBatch();
+        } catch (BatchUpdateException ex) {
+            // Drivers such as PostgreSQL's put the actual cause in the next exception
+            if (ex.getNextException() != null) {
+                getLogger().log(Level.SEVERE, "Batch insert failed", ex.getNextException());
+            }
+            throw ex;
+        }
+    }
+
+    private static void logProgress(String what, long rows, long expected, long elapsed) {
+        long rate = rate(rows, elapsed);
+        if (expected > rows && rate > 0) {
+            getLogger().log(Level.INFO, "Copied {0} of {1} rows of {2} at {3} rows/s, ETA {4} s", new Object[]{rows, expected, what, rate, (expected - rows) / rate});
+        } else {
+            getLogger().log(Level.INFO, "Copied {0} rows of {1} at {2} rows/s", new Object[]{rows, what, rate});
+        }
+    }
+
+    /**
+     * Source of the rows of a copy, read a row at a time and written either
+     * to the insert or to the COPY
+     */
+    protected interface Rows {
+
+        /**
+         * Advance to the next row
+         *
+         * @return false if there are no more rows
+         * @throws SQLException
+         * @throws IOException
+         */
+        boolean next() throws SQLException, IOException;
+
+        /**
+         * The INSERT statement with a parameter per column
+         *
+         * @return SQL
+         */
+        String insertSQL();
+
+        /**
+         * Bind the current row to the insert
+         *
+         * @param ps the insert
+         * @throws SQLException
+         */
+        void bind(PreparedStatement ps) throws SQLException;
+
+        /**
+         * The COPY statement for the columns
+         *
+         * @param format text or binary
+         * @return SQL
+         */
+        String copySQL(PgCopyEncoder.FORMAT format);
+
+        /**
+         * The PostgreSQL types of the destination columns
+         *
+         * @return PostgreSQL type name of each column
+         */
+        String[] getPostgresqlTypeNames();
+
+        /**
+         * Encode the current row for COPY
+         *
+         * @param encoder the COPY encoder
+         * @throws SQLException
+         * @throws IOException
+         */
+        void copyRow(PgCopyEncoder encoder) throws SQLException, IOException;
+    }
+
+    /**
+     * The rows of a source result set
+     */
+    private static class ResultSetRows implements Rows {
+
+        private final ResultSet rs;
+        private final ColumnPlan plan;
+        private final String tableName;
+
+        ResultSetRows(ResultSet rs, ColumnPlan plan, String tableName) {
+            this.rs = rs;
+            this.plan = plan;
+            this.tableName = tableName;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            return rs.next();
+        }
+
+        @Override
+        public String insertSQL() {
+            return plan.insertSQL(tableName);
+        }
+
+        @Override
+        public void bind(PreparedStatement ps) throws SQLException {
+            plan.bind(rs, ps);
+        }
+
+        @Override
+        public String copySQL(PgCopyEncoder.FORMAT format) {
+            return plan.copySQL(tableName, format);
+        }
+
+        @Override
+        public String[] getPostgresqlTypeNames() {
+            return plan.getPostgresqlTypeNames();
+        }
+
+        @Override
+        public void copyRow(PgCopyEncoder encoder) throws SQLException, IOException {
+            plan.copyRow(rs, encoder);
+        }
+    }
+
+    /**
+     * How to read each column of a source row and bind it to the insert,
+     * worked out once from the source metadata.
+     */
+    public static class ColumnPlan {
+
+        private static final int INT = 0;
+        private static final int LONG = 1;
+        private static final int DECIMAL = 2;
+        private static final int DOUBLE = 3;
+        private static final int FLOAT = 4;
+        private static final int BOOLEAN = 5;
+        private static final int CHAR = 6;
+        private static final int STRING = 7;
+        private static final int BYTES = 8;
+        private static final int DATE = 9;
+        private static final int TIME = 10;
+        private static final int TIMESTAMP = 11;
+        private static final int NULL = 12;
+        private static final int OBJECT = 13;
+
+        private final String[] columnNames;
+        private final String[] postgresqlTypeNames;
+        private final int[] types;
+        private final int[] kinds;
+
+        /**
+         * Work out the plan for rows with this metadata
+         *
+         * @param rsmd source metadata
+         * @throws SQLException
+         */
+        public ColumnPlan(ResultSetMetaData rsmd) throws SQLException {
+            int count = rsmd.getColumnCount();
+            columnNames = new String[count];
+            postgresqlTypeNames = new String[count];
+            types = new int[count];
+            kinds = new int[count];
+            ColumnTypeList columnTypeList = new ColumnTypeList();
+            for (int i = 0; i < count; i++) {
+                // Same column names as TableReplicator gives the destination
+                columnNames[i] = rsmd.getColumnName(i + 1).replace('#', '_');
+                types[i] = rsmd.getColumnType(i + 1);
+                kinds[i] = kindOf(types[i]);
+                columnTypeList.add(types[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                // Same column types as TableReplicator gives a PostgreSQL destination
+                postgresqlTypeNames[i] = TableReplicator.postgresqlTypeName(columnTypeList, rsmd, i + 1);
+            }
+        }
+
+        private static int kindOf(int type) {
+            int kind;
+            switch (type) {
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    kind = INT;
+                    break;
+                case Types.BIGINT:
+                    kind = LONG;
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    kind = DECIMAL;
+                    break;
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                    kind = DOUBLE;
+                    break;
+                case Types.REAL:
+                    kind = FLOAT;
+                    break;
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    kind = BOOLEAN;
+                    break;
+                case Types.CHAR:
+                    kind = CHAR;
+                    break;
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                case Types.CLOB:
+                case Types.NCLOB:
+                    kind = STRING;
+                    break;
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    kind = BYTES;
+                    break;
+                case Types.DATE:
+                    kind = DATE;
+                    break;
+                case Types.TIME:
+                    kind = TIME;
+                    break;
+                case Types.TIMESTAMP:
+                    kind = TIMESTAMP;
+                    break;
+                case Types.NULL:
+                    kind = NULL;
+                    break;
+                default:
+                    kind = OBJECT;
+            }
+            return kind;
+        }
+
+        /**
+         * Number of columns
+         *
+         * @return number of columns
+         */
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        /**
+         * The PostgreSQL types {@link TableReplicator} gives the columns
+         *
+         * @return PostgreSQL type name of each column
+         */
+        public String[] getPostgresqlTypeNames() {
+            return postgresqlTypeNames.clone();
+        }
+
+        /**
+         * The COPY statement for the columns
+         *
+         * @param tableName destination table
+         * @param format text or binary
+         * @return SQL
+         */
+        public String copySQL(String tableName, PgCopyEncoder.FORMAT format) {
+            return PgCopyEncoder.copySQL(tableName, columnNames, format);
+        }
+
+        /**
+         * The INSERT statement with a parameter per column
+         *
+         * @param tableName destination table
+         * @return SQL
+         */
+        public String insertSQL(String tableName) {
+            StringBuilder sb = new StringBuilder("INSERT INTO \"").append(tableName).append("\" (");
+            for (int i = 0; i < columnNames.length; i++) {
+                sb.append(i == 0 ? "" : ", ").append(columnNames[i]);
+            }
+            sb.append(") VALUES (");
+            for (int i = 0; i < columnNames.length; i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            return sb.append(")").toString();
+        }
+
+        /**
+         * Bind the current source row to the insert
+         *
+         * @param rs source positioned on a row
+         * @param ps the insert
+         * @throws SQLException
+         */
+        public void bind(ResultSet rs, PreparedStatement ps) throws SQLException {
+            for (int i = 0; i < kinds.length; i++) {
+                int index = i + 1; // one's-based
+                switch (kinds[i]) {
+                    case INT:
+                        int n = rs.getInt(index);
+                        if (rs.wasNull()) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setInt(index, n);
+                        }
+                        break;
+                    case LONG:
+                        long l = rs.getLong(index);
+                        if (rs.wasNull()) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setLong(index, l);
+                        }
+                        break;
+                    case DECIMAL:
+                        BigDecimal bd;
+                        try {
+                            bd = rs.getBigDecimal(index);
+                        } catch (NumberFormatException ex) { // DB400 packed decimal with bad data, as in ResultSetHelper
+                            bd = BigDecimal.ZERO;
+                        }
+                        ps.setBigDecimal(index, bd);
+                        break;
+                    case DOUBLE:
+                        double d = rs.getDouble(index);
+                        if (rs.wasNull()) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setDouble(index, d);
+                        }
+                        break;
+                    case FLOAT:
+                        float f = rs.getFloat(index);
+                        if (rs.wasNull()) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setFloat(index, f);
+                        }
+                        break;
+                    case BOOLEAN:
+                        boolean b = rs.getBoolean(index);
+                        if (rs.wasNull()) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setBoolean(index, b);
+                        }
+                        break;
+                    case CHAR:
+                        String c = rs.getString(index);
+                        // DB400 CHAR may hold NULs, which PostgreSQL rejects in text
+                        ps.setString(index, c == null ? null : c.replace('\000', ' '));
+                        break;
+                    case STRING:
+                        ps.setString(index, rs.getString(index));
+                        break;
+                    case BYTES:
+                        ps.setBytes(index, rs.getBytes(index));
+                        break;
+                    case DATE:
+                        ps.setDate(index, rs.getDate(index));
+                        break;
+                    case TIME:
+                        ps.setTime(index, rs.getTime(index));
+                        break;
+                    case TIMESTAMP:
+                        ps.setTimestamp(index, rs.getTimestamp(index));
+                        break;
+                    case NULL:
+                        ps.setNull(index, types[i]);
+                        break;
+                    default:
+                        Object o = rs.getObject(index);
+                        if (o == null) {
+                            ps.setNull(index, types[i]);
+                        } else {
+                            ps.setObject(index, o);
+                        }
+                }
+            }
+        }
+
+        /**
+         * Encode the current source row for COPY
+         *
+         * @param rs source positioned on a row
+         * @param encoder the COPY encoder
+         * @throws SQLException
+         * @throws IOException
+         */
+        public void copyRow(ResultSet rs, PgCopyEncoder encoder) throws SQLException, IOException {
+            for (int i = 0; i < kinds.length; i++) {
+                int index = i + 1; // one's-based
+                switch (kinds[i]) {
+                    case INT:
+                        int n = rs.getInt(index);
+                        if (rs.wasNull()) {
+                            encoder.writeNull();
+                        } else {
+                            encoder.writeLong(n);
+                        }
+                        break;
+                    case LONG:
+                        long l = rs.getLong(index);
+                        if (rs.wasNull()) {
+                            encoder.writeNull();
+                        } else {
+                            encoder.writeLong(l);
+                        }
+                        break;
+                    case DECIMAL:
+                        BigDecimal bd;
+                        try {
+                            bd = rs.getBigDecimal(index);
+                        } catch (NumberFormatException ex) { // DB400 packed decimal with bad data, as in ResultSetHelper
+                            bd = BigDecimal.ZERO;
+                        }
+                        encoder.writeDecimal(bd);
+                        break;
+                    case DOUBLE:
+                        double d = rs.getDouble(index);
+                        if (rs.wasNull()) {
+                            encoder.writeNull();
+                        } else {
+                            encoder.writeDouble(d);
+                        }
+                        break;
+                    case FLOAT:
+                        float f = rs.getFloat(index);
+                        if (rs.wasNull()) {
+                            encoder.writeNull();
+                        } else {
+                            encoder.writeDouble(f);
+                        }
+                        break;
+                    case BOOLEAN:
+                        boolean b = rs.getBoolean(index);
+                        if (rs.wasNull()) {
+                            encoder.writeNull();
+                        } else {
+                            encoder.writeBoolean(b);
+                        }
+                        break;
+                    case CHAR:
+                        String c = rs.getString(index);
+                        // DB400 CHAR may hold NULs, which PostgreSQL rejects in text
+                        encoder.writeString(c == null ? null : c.replace('\000', ' '));
+                        break;
+                    case STRING:
+                        encoder.writeString(rs.getString(index));
+                        break;
+                    case BYTES:
+                        encoder.writeBytes(rs.getBytes(index));
+                        break;
+                    case DATE:
+                        encoder.writeDate(rs.getDate(index));
+                        break;
+                    case TIME:
+                        encoder.writeTime(rs.getTime(index));
+                        break;
+                    case TIMESTAMP:
+                        encoder.writeTimestamp(rs.getTimestamp(index));
+                        break;
+                    case NULL:
+                        encoder.writeNull();
+                        break;
+                    default:
+                        Object o = rs.getObject(index);
+                        encoder.writeString(o == null ? null : o.toString());
+                }
+            }
+        }
+    }
+}
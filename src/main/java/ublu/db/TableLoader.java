@@ -0,0 +1,473 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Loads rows from CSV or NDJSON into an existing table, for instance one
+ * created by {@link TableReplicator}, writing them as {@link TableCopier}
+ * does: through COPY into PostgreSQL, else in batched inserts.
+ * <p>
+ * CSV is read as {@link Csv} writes it: a line of column names, then, if
+ * present, ublu's lines of type names and JDBC types, which are skipped, then
+ * a line per row. Fields may be quoted as RFC 4180 has it and an unquoted
+ * <code>null</code> is a null. NDJSON is read as {@link Json} writes it: an
+ * object per line keyed by column name, the columns those of the first
+ * object. Numbers are read exactly rather than as doubles. Source column
+ * names match the destination's ignoring case and with <code>#</code> as
+ * <code>_</code>, as {@link TableReplicator} names them.</p>
+ * <p>
+ * The rows are not read from another database, so {@link #copy()} does not
+ * apply.</p>
+ *
+ * @author jwoehr
+ */
+public class TableLoader extends TableCopier {
+
+    /**
+     * The formats rows are loaded from
+     */
+    public static enum SOURCEFORMAT {
+        /**
+         * Comma (or other separator) separated values
+         */
+        CSV,
+        /**
+         * A JSON object per line
+         */
+        NDJSON
+    }
+
+    private char separator = ',';
+
+    /**
+     * Instance to load a table
+     *
+     * @param destDb connected destination database
+     * @param tableName name of the table
+     */
+    public TableLoader(Db destDb, String tableName) {
+        super(null, destDb, tableName);
+    }
+
+    /**
+     * Get the CSV field separator
+     *
+     * @return the CSV field separator
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Set the CSV field separator
+     *
+     * @param separator the CSV field separator
+     */
+    public void setSeparator(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * Load all the rows of a source into the table
+     *
+     * @param reader the source
+     * @param format CSV or NDJSON
+     * @return number of rows loaded
+     * @throws SQLException
+     * @throws IOException
+     */
+    public long load(BufferedReader reader, SOURCEFORMAT format) throws SQLException, IOException {
+        long start = System.nanoTime();
+        LoadRows rows;
+        switch (format) {
+            case NDJSON:
+                rows = new NdjsonRows(reader);
+                break;
+            default:
+                rows = new CsvRows(reader);
+        }
+        long count = copy(rows, getDestDb(), getCommitInterval(), -1, getTableName());
+        setRowStatistics(count, start);
+        return count;
+    }
+
+    private static String normalize(String columnName) {
+        return columnName.replace('#', '_').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Rows of a source whose columns are matched by name to the destination
+     * table's. Each row's values are null, a string, or for NDJSON a
+     * BigDecimal or Boolean.
+     */
+    private abstract class LoadRows implements Rows {
+
+        private final String[] destNames;
+        private final int[] destTypes;
+        private final String[] destTypeNames;
+        private String[] columnNames;
+        private int[] types;
+        private String[] typeNames;
+        /**
+         * Values of the current row in the order of the source columns
+         */
+        protected Object[] values;
+
+        LoadRows() throws SQLException {
+            try (Statement statement = getDestDb().getConnection().createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT * FROM \"" + getTableName() + "\" WHERE 1=0")) {
+                ResultSetMetaData rsmd = rs.getMetaData();
+                int count = rsmd.getColumnCount();
+                destNames = new String[count];
+                destTypes = new int[count];
+                destTypeNames = new String[count];
+                for (int i = 0; i < count; i++) {
+                    destNames[i] = rsmd.getColumnName(i + 1);
+                    destTypes[i] = rsmd.getColumnType(i + 1);
+                    destTypeNames[i] = rsmd.getColumnTypeName(i + 1);
+                }
+            }
+        }
+
+        /**
+         * Match the source columns to the destination's
+         *
+         * @param sourceNames names of the source columns in order
+         * @throws SQLException if a source column isn't in the destination
+         */
+        protected void setSourceColumns(List<String> sourceNames) throws SQLException {
+            int count = sourceNames.size();
+            columnNames = new String[count];
+            types = new int[count];
+            typeNames = new String[count];
+            for (int i = 0; i < count; i++) {
+                String name = normalize(sourceNames.get(i));
+                int dest = -1;
+                for (int j = 0; dest < 0 && j < destNames.length; j++) {
+                    if (normalize(destNames[j]).equals(name)) {
+                        dest = j;
+                    }
+                }
+                if (dest < 0) {
+                    throw new SQLException("No column " + sourceNames.get(i) + " in " + getTableName());
+                }
+                columnNames[i] = "\"" + destNames[dest] + "\"";
+                types[i] = destTypes[dest];
+                typeNames[i] = destTypeNames[dest];
+            }
+        }
+
+        /**
+         * Number of source columns
+         *
+         * @return number of source columns
+         */
+        protected int getColumnCount() {
+            return columnNames.length;
+        }
+
+        /**
+         * Names of all the destination columns
+         *
+         * @return names of the destination columns
+         */
+        protected List<String> getDestColumnNames() {
+            List<String> names = new ArrayList<>();
+            for (String name : destNames) {
+                names.add(name);
+            }
+            return names;
+        }
+
+        @Override
+        public String insertSQL() {
+            StringBuilder sb = new StringBuilder("INSERT INTO \"").append(getTableName()).append("\" (");
+            for (int i = 0; i < columnNames.length; i++) {
+                sb.append(i == 0 ? "" : ", ").append(columnNames[i]);
+            }
+            sb.append(") VALUES (");
+            for (int i = 0; i < columnNames.length; i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            return sb.append(")").toString();
+        }
+
+        @Override
+        public void bind(PreparedStatement ps) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    ps.setNull(i + 1, types[i]);
+                } else {
+                    // The driver converts the value to the column's type
+                    ps.setObject(i + 1, values[i], types[i]);
+                }
+            }
+        }
+
+        @Override
+        public String copySQL(PgCopyEncoder.FORMAT format) {
+            return PgCopyEncoder.copySQL(getTableName(), columnNames, format);
+        }
+
+        @Override
+        public String[] getPostgresqlTypeNames() {
+            return typeNames.clone();
+        }
+
+        @Override
+        public void copyRow(PgCopyEncoder encoder) throws SQLException, IOException {
+            for (Object value : values) {
+                if (value == null) {
+                    encoder.writeNull();
+                } else if (value instanceof BigDecimal) {
+                    encoder.writeDecimal(BigDecimal.class.cast(value));
+                } else if (value instanceof Boolean) {
+                    encoder.writeBoolean(Boolean.class.cast(value));
+                } else {
+                    encoder.writeString(value.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows of CSV
+     */
+    private class CsvRows extends LoadRows {
+
+        private static final String JDBC_TYPE = "jdbc type ";
+        private final BufferedReader reader;
+        private final Deque<List<String>> pending = new ArrayDeque<>();
+        private long record;
+
+        CsvRows(BufferedReader reader) throws SQLException, IOException {
+            super();
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header == null || header.isEmpty()) {
+                throw new IOException("No CSV header of column names to load " + getTableName() + " from");
+            }
+            setSourceColumns(header);
+            // ublu's own CSV follows the names with lines of type names and JDBC types
+            List<String> second = readRecord();
+            List<String> third = second == null ? null : readRecord();
+            if (!isJdbcTypes(third)) {
+                if (second != null) {
+                    pending.add(second);
+                }
+                if (third != null) {
+                    pending.add(third);
+                }
+            }
+        }
+
+        private boolean isJdbcTypes(List<String> fields) {
+            boolean jdbcTypes = fields != null && !fields.isEmpty();
+            for (int i = 0; jdbcTypes && i < fields.size(); i++) {
+                jdbcTypes = fields.get(i) != null && fields.get(i).startsWith(JDBC_TYPE);
+            }
+            return jdbcTypes;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            List<String> fields = pending.isEmpty() ? readRecord() : pending.remove();
+            while (fields != null && fields.isEmpty()) { // blank line
+                fields = pending.isEmpty() ? readRecord() : pending.remove();
+            }
+            if (fields != null) {
+                if (fields.size() != getColumnCount()) {
+                    throw new IOException("CSV record " + record + " has " + fields.size() + " fields but the header names " + getColumnCount());
+                }
+                values = fields.toArray();
+            }
+            return fields != null;
+        }
+
+        /**
+         * Read a record, which may span lines within quotes
+         *
+         * @return the fields, an unquoted <code>null</code> as null, no fields
+         * for a blank line, or null at the end of the source
+         * @throws IOException
+         */
+        private List<String> readRecord() throws IOException {
+            List<String> fields = null;
+            int c = reader.read();
+            if (c != -1) {
+                record++;
+                fields = new ArrayList<>();
+                StringBuilder sb = new StringBuilder();
+                boolean quoted = false;
+                boolean inQuotes = false;
+                boolean done = false;
+                while (!done) {
+                    if (inQuotes) {
+                        if (c == -1) {
+                            throw new IOException("Unterminated quoted field in CSV record " + record);
+                        } else if (c == '"') {
+                            c = reader.read();
+                            if (c == '"') {
+                                sb.append('"');
+                            } else {
+                                inQuotes = false;
+                                continue; // c is the character after the field
+                            }
+                        } else {
+                            sb.append((char) c);
+                        }
+                    } else if (c == '"' && sb.length() == 0 && !quoted) {
+                        inQuotes = true;
+                        quoted = true;
+                    } else if (c == getSeparator() || c == '\n' || c == -1) {
+                        String field = sb.toString();
+                        done = c != getSeparator();
+                        if (!(done && fields.isEmpty() && !quoted && field.isEmpty())) { // a blank line has no fields
+                            fields.add(!quoted && field.equals("null") ? null : field);
+                        }
+                        sb.setLength(0);
+                        quoted = false;
+                    } else if (c != '\r') {
+                        sb.append((char) c);
+                    }
+                    if (!done) {
+                        c = reader.read();
+                    }
+                }
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * Rows of NDJSON
+     */
+    private class NdjsonRows extends LoadRows {
+
+        private final BufferedReader reader;
+        private String[] keys;
+        private JSONObject first;
+        private long line;
+
+        NdjsonRows(BufferedReader reader) throws SQLException, IOException {
+            super();
+            this.reader = reader;
+            first = readObject();
+            List<String> keyList = new ArrayList<>();
+            if (first != null) {
+                Iterator it = first.keys();
+                while (it.hasNext()) {
+                    keyList.add(it.next().toString());
+                }
+            }
+            if (first == null) { // nothing to load, but COPY wants columns
+                keyList = getDestColumnNames();
+            }
+            keys = keyList.toArray(new String[keyList.size()]);
+            setSourceColumns(keyList);
+        }
+
+        private JSONObject readObject() throws IOException {
+            JSONObject object = null;
+            String text = reader.readLine();
+            while (text != null && text.trim().isEmpty()) {
+                line++;
+                text = reader.readLine();
+            }
+            if (text != null) {
+                line++;
+                try {
+                    object = new JSONObject(new DecimalTokener(text));
+                } catch (JSONException ex) {
+                    throw new IOException("Bad NDJSON at line " + line, ex);
+                }
+            }
+            return object;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            JSONObject object = first == null ? readObject() : first;
+            first = null;
+            if (object != null) {
+                values = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    Object value = object.opt(keys[i]);
+                    values[i] = value == JSONObject.NULL ? null : value;
+                }
+            }
+            return object != null;
+        }
+    }
+
+    /**
+     * Reads JSON numbers as BigDecimal, which the old org.json would
+     * otherwise make doubles of, losing the digits of large decimals
+     */
+    private static class DecimalTokener extends JSONTokener {
+
+        DecimalTokener(String s) {
+            super(s);
+        }
+
+        @Override
+        public Object nextValue() throws JSONException {
+            Object value;
+            char c = nextClean();
+            back();
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                String text = nextTo(",}] \t\r\n");
+                try {
+                    value = new BigDecimal(text);
+                } catch (NumberFormatException ex) {
+                    throw syntaxError("Bad number " + text);
+                }
+            } else {
+                value = super.nextValue();
+            }
+            return value;
+        }
+    }
+}
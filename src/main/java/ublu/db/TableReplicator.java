@@ -301,6 +301,23 @@ public class TableReplicator extends DbHelper {
         return sb.toString();
     }
 
+    /**
+     * The PostgreSQL type a replicated column is given, less any precision
+     *
+     * @param columnTypeList JDBC types of the source columns
+     * @param rsmd source metadata
+     * @param i one's-based column index
+     * @return PostgreSQL type name
+     * @throws SQLException
+     */
+    public static String postgresqlTypeName(ColumnTypeList columnTypeList, ResultSetMetaData rsmd, int i) throws SQLException {
+        String pgDataTypeName = columnTypeList.getColumnPostgresqlType(i - 1); // but this list is zeroes-based!
+        if (pgDataTypeName.equals("integer") && rsmd.getPrecision(i) > 0) {
+            pgDataTypeName = "bigint";
+        }
+        return pgDataTypeName;
+    }
+
     /**
      * Generate the columns portion of the table creation SQL.
      * <p>
@@ -323,11 +340,7 @@ public class TableReplicator extends DbHelper {
                     sb.append(getSrcColumnTypeList().getColumnSQLType(i - 1)); // but this list is zeroes-based!
                     break;
                 case PGSQL:
-                    String pgDataTypeName = getSrcColumnTypeList().getColumnPostgresqlType(i - 1); // but this list is zeroes-based!
-                    if (pgDataTypeName.equals("integer") && rsmd.getPrecision(i) > 0) {
-                        pgDataTypeName = "bigint";
-                    }
-                    sb.append(pgDataTypeName);
+                    sb.append(postgresqlTypeName(getSrcColumnTypeList(), rsmd, i));
                     break;
                 case MSSQL:
                     sb.append(getSrcColumnTypeList().getColumnSQLType(i - 1)); // but this list is zeroes-based!
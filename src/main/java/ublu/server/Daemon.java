@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.logging.Level;
+import ublu.Ublu;
+import ublu.util.Interpreter;
+
+/**
+ * A resident interpreter for shell launchers. The daemon listens on the
+ * loopback interface only and writes its port and a random token to a key
+ * file readable only by its owner. A launcher generated by
+ * <code>gensh -daemon</code> reads the key file, connects, presents the token
+ * and its arguments, environment and standard input, and receives standard
+ * output, standard error and the exit code back, so the JVM, the compiled
+ * includes and any host connections held in global tuples stay warm between
+ * invocations.
+ *
+ * <p>
+ * The protocol is line oriented UTF-8. The client sends
+ * <code>UBLUD 1 <em>token</em></code> then any number of
+ * <code>ARG</code>, <code>PROP <em>name=value</em></code>,
+ * <code>ENV <em>name=value</em></code>, <code>CWD</code> and
+ * <code>IN</code> lines, then <code>END</code>, or <code>STOP</code> to stop
+ * the daemon. The daemon answers with <code>O</code> and <code>E</code>
+ * lines of output and error text, <code>o</code> and <code>e</code> for text
+ * not ending in a newline, and a final <code>X <em>exitcode</em></code>.</p>
+ *
+ * @see DaemonServer
+ * @author jwoehr
+ */
+public class Daemon extends Listener {
+
+    /**
+     * Protocol version spoken
+     */
+    public static final int PROTOCOL_VERSION = 1;
+    private static final int TOKEN_BYTES = 16;
+    private File keyFile;
+    private byte[] token;
+
+    /**
+     * Default key file <code>~/.ublud</code>
+     *
+     * @return default key file
+     */
+    public static File defaultKeyFile() {
+        return new File(System.getProperty("user.home"), ".ublud");
+    }
+
+    /**
+     * Create a daemon on the loopback interface
+     *
+     * @param ublu application controller
+     * @param portnum port to listen on, 0 for any free port
+     * @param parentInterpreter Interpreter to spawn request interpreters from
+     * @param keyFile file to write the port and token to
+     */
+    public Daemon(Ublu ublu, int portnum, Interpreter parentInterpreter, File keyFile) {
+        super(ublu, InetAddress.getLoopbackAddress(), portnum, 50, parentInterpreter, false);
+        this.keyFile = keyFile;
+        setName("Ublu Daemon");
+    }
+
+    /**
+     * Get the key file the port and token are written to
+     *
+     * @return the key file
+     */
+    public File getKeyFile() {
+        return keyFile;
+    }
+
+    /**
+     * Test a token presented by a client
+     *
+     * @param presented the token the client presented
+     * @return true if it is this daemon's token
+     */
+    protected boolean isToken(String presented) {
+        return token != null && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Stop accepting requests. Requests in progress run to completion.
+     */
+    public void shutdown() {
+        setListening(false);
+    }
+
+    @Override
+    protected ServerSocket createServerSocket() throws IOException {
+        ServerSocket serverSocket = super.createServerSocket();
+        setPortnum(serverSocket.getLocalPort());
+        return serverSocket;
+    }
+
+    @Override
+    protected Server newServer(Socket socket) {
+        return new DaemonServer(getUblu(), socket, getParentInterpreter(), this);
+    }
+
+    @Override
+    protected void opened() throws IOException {
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        String tokenString = sb.toString();
+        token = tokenString.getBytes(StandardCharsets.US_ASCII);
+        writeKeyFile(getPortnum() + " " + tokenString + "\n");
+    }
+
+    @Override
+    protected void closing() {
+        if (!keyFile.delete() && keyFile.exists()) {
+            getLogger().log(Level.WARNING, "Could not delete daemon key file {0}", keyFile);
+        }
+    }
+
+    private void writeKeyFile(String contents) throws IOException {
+        Path path = keyFile.toPath();
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException ex) {
+            Files.createFile(path);
+        } catch (FileAlreadyExistsException ex) {
+            throw new IOException("Daemon key file " + keyFile + " created by another process", ex);
+        }
+        try (OutputStream os = Files.newOutputStream(path)) {
+            os.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Override
+    public String status() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Daemon ");
+        sb.append(this);
+        if (isListening()) {
+            sb.append(" is listening on port ").append(getPortnum())
+                    .append(" with key file ").append(keyFile).append(".\n");
+            sb.append("Total ").append(getSpawns()).append(" requests have been made.");
+        } else {
+            sb.append(" is not active.");
+        }
+        return sb.toString();
+    }
+}
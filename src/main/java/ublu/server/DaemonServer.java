@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.util.logging.Level;
+import ublu.Ublu;
+import ublu.util.ArgArray;
+import ublu.util.Generics.StringArrayList;
+import ublu.util.Interpreter;
+import ublu.util.InterpreterLogger;
+
+/**
+ * Serves one launcher request to a {@link Daemon}: reads the request, runs
+ * the arguments in an interpreter spawned from the daemon's, and frames the
+ * interpreter's output, error output and exit code back to the launcher.
+ * What the request logs goes to the launcher with the error output.
+ *
+ * @author jwoehr
+ */
+public class DaemonServer extends Server {
+
+    /**
+     * How long a connection may take to present its hello line before it is
+     * dropped
+     */
+    public static final int HELLO_TIMEOUT_MILLIS = 10000;
+
+    private final Daemon daemon;
+    private final StringArrayList args = new StringArrayList();
+    private final StringArrayList props = new StringArrayList();
+    private final StringArrayList env = new StringArrayList();
+    private final ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    private String cwd;
+    private Integer exitCode;
+
+    /**
+     * Ctor/4 sets associated Ublu, socket, parent interpreter and the daemon
+     * serving the request
+     *
+     * @param ublu application controller
+     * @param socket the socket
+     * @param parentInterpreter Interpreter to spawn this interpreter from
+     * @param daemon the daemon serving the request
+     */
+    public DaemonServer(Ublu ublu, Socket socket, Interpreter parentInterpreter, Daemon daemon) {
+        super(ublu, socket, parentInterpreter);
+        setName("Ublu Daemon Server");
+        this.daemon = daemon;
+    }
+
+    /**
+     * Read the request up to <code>END</code> or <code>STOP</code>. The hello
+     * line must arrive within {@link #HELLO_TIMEOUT_MILLIS}. Once the token is
+     * accepted there is no timeout, as the launcher may be relaying a slow
+     * standard input.
+     *
+     * @param reader reader on the socket
+     * @return the verb ending the request, or null if it is not valid
+     * @throws IOException
+     */
+    protected String readRequest(BufferedReader reader) throws IOException {
+        String verb = null;
+        getSocket().setSoTimeout(HELLO_TIMEOUT_MILLIS);
+        String hello = reader.readLine();
+        String expected = "UBLUD " + Daemon.PROTOCOL_VERSION + " ";
+        if (hello != null && hello.startsWith(expected) && daemon.isToken(hello.substring(expected.length()))) {
+            getSocket().setSoTimeout(0);
+            String line = reader.readLine();
+            while (line != null && verb == null) {
+                int space = line.indexOf(' ');
+                String kind = space < 0 ? line : line.substring(0, space);
+                String value = space < 0 ? "" : line.substring(space + 1);
+                switch (kind) {
+                    case "ARG":
+                        args.add(value);
+                        break;
+                    case "PROP":
+                        props.add(value);
+                        break;
+                    case "ENV":
+                        if (isVariable(value) || env.isEmpty()) {
+                            env.add(value);
+                        } else { // continuation of a multiline value
+                            env.set(env.size() - 1, env.get(env.size() - 1) + '\n' + value);
+                        }
+                        break;
+                    case "CWD":
+                        cwd = value;
+                        break;
+                    case "IN":
+                        stdin.write(value.getBytes(StandardCharsets.UTF_8));
+                        stdin.write('\n');
+                        break;
+                    case "END":
+                    case "STOP":
+                        verb = kind;
+                        break;
+                    default:
+                        getLogger().log(Level.WARNING, "Daemon ignoring request line {0}", kind);
+                }
+                if (verb == null) {
+                    line = reader.readLine();
+                }
+            }
+        } else {
+            getLogger().log(Level.WARNING, "Daemon refused connection from {0}", getSocket().getRemoteSocketAddress());
+        }
+        return verb;
+    }
+
+    private static boolean isVariable(String assignment) {
+        int equals = assignment.indexOf('=');
+        return equals > 0 && assignment.substring(0, equals).matches("[A-Za-z_][A-Za-z0-9_]*");
+    }
+
+    /**
+     * Spawn and set up the interpreter for the request.
+     *
+     * @param out framed output stream
+     * @param err framed error stream
+     * @return the interpreter
+     */
+    protected Interpreter requestInterpreter(PrintStream out, PrintStream err) {
+        Interpreter i = getParentInterpreter() == null ? new Interpreter(getUblu()) : new Interpreter(getParentInterpreter());
+        i.privatizeProps();
+        String includepath = "";
+        for (String prop : props) {
+            int equals = prop.indexOf('=');
+            if (equals > 0) {
+                String name = prop.substring(0, equals);
+                String value = prop.substring(equals + 1);
+                if (name.equals("ublu.includepath")) {
+                    includepath = value;
+                } else {
+                    i.setProperty(name, value);
+                }
+            }
+        }
+        for (String assignment : env) {
+            int equals = assignment.indexOf('=');
+            String name = assignment.substring(0, equals);
+            String value = assignment.substring(equals + 1);
+            i.setProperty("env." + name, value);
+            if (name.equals("UBLU_INCLUDEPATH") && !value.isEmpty()) {
+                includepath = includepath.isEmpty() ? value : includepath + ':' + value;
+            }
+        }
+        // As the Props ctor does for an invocation
+        i.setProperty("ublu.includepath", includepath.replace(";", ":"));
+        if (cwd != null) {
+            i.setIncludePath(FileSystems.getDefault().getPath(cwd));
+        }
+        i.setOutputStream(out);
+        i.setErroutStream(err);
+        i.setInputStream(new ByteArrayInputStream(stdin.toByteArray()));
+        i.setInputStreamBufferedReader(new BufferedReader(new InputStreamReader(i.getInputStream(), StandardCharsets.UTF_8)));
+        i.setExitHandler(new Interpreter.ExitHandler() {
+            @Override
+            public void exit(int code) {
+                exitCode = code;
+            }
+        });
+        return i;
+    }
+
+    /**
+     * Log what this thread logs while running the request to the request's
+     * error stream rather than to the daemon's log.
+     *
+     * @param err framed error stream, or null to log to the daemon's log again
+     */
+    protected void setRequestLogStream(PrintStream err) {
+        if (getLogger() instanceof InterpreterLogger) {
+            InterpreterLogger.class.cast(getLogger()).setThreadErrOutStream(err);
+        }
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = getSocket()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String verb = readRequest(reader);
+            if (verb != null) {
+                OutputStream sink = socket.getOutputStream();
+                int rc = 0;
+                if (verb.equals("STOP")) {
+                    daemon.shutdown();
+                } else {
+                    PrintStream out = new PrintStream(new FramedOutputStream(sink, 'O'), false, "UTF-8");
+                    PrintStream err = new PrintStream(new FramedOutputStream(sink, 'E'), false, "UTF-8");
+                    setRequestLogStream(err);
+                    try {
+                        Interpreter i = requestInterpreter(out, err);
+                        i.setArgArray(new ArgArray(i, args.toArray(new String[args.size()])));
+                        i.loop();
+                        rc = exitCode == null ? i.getGlobal_ret_val() : exitCode;
+                    } finally {
+                        setRequestLogStream(null);
+                    }
+                    out.flush();
+                    err.flush();
+                }
+                synchronized (sink) {
+                    sink.write(("X " + rc + "\n").getBytes(StandardCharsets.US_ASCII));
+                    sink.flush();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            getLogger().log(Level.WARNING, "Daemon dropped connection from {0} which sent no hello", getSocket().getRemoteSocketAddress());
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "I/O exception serving daemon request", e);
+        }
+    }
+
+    /**
+     * Frames bytes written into lines tagged with the stream they belong to.
+     * A line ending in a newline is tagged with the upper case channel letter;
+     * text flushed without one is tagged with the lower case letter so the
+     * client does not add a newline.
+     */
+    protected static class FramedOutputStream extends OutputStream {
+
+        private final OutputStream sink;
+        private final byte full;
+        private final byte partial;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        /**
+         * Frame onto a sink
+         *
+         * @param sink the socket stream, shared by all channels and used as
+         * the lock
+         * @param channel upper case channel letter
+         */
+        public FramedOutputStream(OutputStream sink, char channel) {
+            this.sink = sink;
+            full = (byte) Character.toUpperCase(channel);
+            partial = (byte) Character.toLowerCase(channel);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                emit(full);
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int start = off;
+            for (int n = off; n < off + len; n++) {
+                if (b[n] == '\n') {
+                    line.write(b, start, n - start);
+                    emit(full);
+                    start = n + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (line.size() > 0) {
+                emit(partial);
+            }
+            synchronized (sink) {
+                sink.flush();
+            }
+        }
+
+        private void emit(byte tag) throws IOException {
+            byte[] framed = new byte[line.size() + 3];
+            framed[0] = tag;
+            framed[1] = ' ';
+            System.arraycopy(line.toByteArray(), 0, framed, 2, line.size());
+            framed[framed.length - 1] = '\n';
+            line.reset();
+            synchronized (sink) {
+                sink.write(framed); // one write per line
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@ import ublu.Ublu;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,7 +62,7 @@ public class Listener extends Thread {
     private int portnum;
     private int backlog;
     private ServerSocket serverSocket;
-    private boolean listening;
+    private volatile boolean listening;
     private String executionBlock;
 
     /**
@@ -97,19 +98,26 @@ public class Listener extends Thread {
     }
 
     /**
+     * Get the snapshot of the parent interpreter which server interpreters are
+     * spawned from
      *
-     * @return the parent Interpreter
+     * @return the snapshot of the parent Interpreter, or null
      */
     public Interpreter getParentInterpreter() {
         return parentInterpreter;
     }
 
     /**
+     * Set the parent interpreter. Server interpreters are spawned on the
+     * listener's threads while the parent may still be running, so they are
+     * spawned not from the parent itself but from a snapshot of it taken here,
+     * which must be on the parent's own thread.
      *
-     * @param parentInterpreter the parent Interpreter
+     * @param parentInterpreter the parent Interpreter, or null
+     * @see Interpreter#snapshot()
      */
-    public void setParentInterpreter(Interpreter parentInterpreter) {
-        this.parentInterpreter = parentInterpreter;
+    public final void setParentInterpreter(Interpreter parentInterpreter) {
+        this.parentInterpreter = parentInterpreter == null ? null : parentInterpreter.snapshot();
     }
 
     /**
@@ -397,7 +405,7 @@ public class Listener extends Thread {
         this();
         this.ublu = ublu;
         this.portnum = portnum;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -415,7 +423,7 @@ public class Listener extends Thread {
         setUseSSL(useSSL);
         this.ublu = ublu;
         this.portnum = portnum;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -437,7 +445,7 @@ public class Listener extends Thread {
         this.inetAddress = inetAddress;
         this.portnum = portnum;
         this.backlog = backlog;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -469,7 +477,7 @@ public class Listener extends Thread {
         this.ublu = ublu;
         this.portnum = portnum;
         this.executionBlock = executionBlock;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -489,7 +497,7 @@ public class Listener extends Thread {
         this.ublu = ublu;
         this.portnum = portnum;
         this.executionBlock = executionBlock;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -513,7 +521,7 @@ public class Listener extends Thread {
         this.portnum = portnum;
         this.backlog = backlog;
         this.executionBlock = executionBlock;
-        this.parentInterpreter = parentInterpreter;
+        setParentInterpreter(parentInterpreter);
     }
 
     /**
@@ -525,6 +533,48 @@ public class Listener extends Thread {
         return getUblu().getLogger();
     }
 
+    /**
+     * Create the socket {@link #listen()} accepts on.
+     *
+     * @return the server socket, bound
+     * @throws IOException
+     */
+    protected ServerSocket createServerSocket() throws IOException {
+        return isUseSSL()
+                ? SSLServerSocketFactory.getDefault().createServerSocket(getPortnum(), getBacklog(), getInetAddress())
+                : new ServerSocket(getPortnum(), getBacklog(), getInetAddress());
+    }
+
+    /**
+     * Create the {@link Server} thread for an accepted connection.
+     *
+     * @param socket the accepted connection
+     * @return the server thread, not yet started
+     */
+    protected Server newServer(Socket socket) {
+        Server s;
+        if (getExecutionBlock() != null) {
+            s = new Server(getUblu(), socket, getExecutionBlock(), getParentInterpreter());
+        } else {
+            s = new Server(getUblu(), socket, getParentInterpreter());
+        }
+        return s;
+    }
+
+    /**
+     * Called once the server socket is bound, before the first accept().
+     *
+     * @throws IOException
+     */
+    protected void opened() throws IOException {
+    }
+
+    /**
+     * Called when listening ends, before the server socket is closed.
+     */
+    protected void closing() {
+    }
+
     /**
      * Port listening loop, spawns {@link Server} threads which interpret
      * commands.
@@ -532,20 +582,13 @@ public class Listener extends Thread {
     protected void listen() {
         setListening(true);
         try {
-            setServerSocket(isUseSSL()
-                    ? SSLServerSocketFactory.getDefault().createServerSocket(getPortnum(), getBacklog(), getInetAddress())
-                    : new ServerSocket(getPortnum(), getBacklog(), getInetAddress())
-            );
+            setServerSocket(createServerSocket());
             getServerSocket().setSoTimeout(getAcceptTimeoutMS());
             try {
+                opened();
                 while (listening) {
                     try {
-                        Server s;
-                        if (getExecutionBlock() != null) {
-                            s = new Server(getUblu(), getServerSocket().accept(), getExecutionBlock(), getParentInterpreter());
-                        } else {
-                            s = new Server(getUblu(), getServerSocket().accept(), getParentInterpreter());
-                        }
+                        Server s = newServer(getServerSocket().accept());
                         s.start();
                         incSpawns(); // If we get here without timeout exception there has been a spawn
                     } catch (SocketTimeoutException ex) {
@@ -555,6 +598,7 @@ public class Listener extends Thread {
             } catch (IOException ex) {
                 getLogger().log(Level.SEVERE, "Error spawning Server", ex);
             } finally {
+                closing();
                 try {
                     getServerSocket().close();
                 } catch (IOException ex) {
@@ -99,6 +99,15 @@ public class Server extends Thread {
         this.ublu = ublu;
     }
 
+    /**
+     * Interpreter this server's interpreter is spawned from
+     *
+     * @return Interpreter to spawn this interpreter from, or null
+     */
+    protected final Interpreter getParentInterpreter() {
+        return parentInterpreter;
+    }
+
     /**
      * Associated logger
      *
@@ -27,8 +27,7 @@
  */
 package ublu.util;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.AbstractList;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -36,12 +35,45 @@ import java.util.Iterator;
  * The command line space-delimited args lexed into string array elements to be
  * passed into {@link ublu.util.Interpreter#loop()}
  *
+ * <p>
+ * The lexes are held in an array walked by a cursor. An arg array instanced
+ * from a {@link CompiledBlock} shares the compiled block's lexes and only
+ * copies them if the arg array is modified other than by consuming lexes from
+ * the front. Packed quotations and blocks from the compiled block read as
+ * their opener until assimilated, at which point they read as the packed
+ * quotation or block, just as if the assimilation had been done the long
+ * way.</p>
+ *
  * @author jwoehr
  */
-public class ArgArray extends ArrayList<String> {
+public class ArgArray extends AbstractList<String> {
 
     private Interpreter myInterpreter;
 
+    /**
+     * Room left at the front of a private array so prepending is cheap
+     */
+    private static final int FRONT_ROOM = 4;
+    private static final String[] NO_LEXES = new String[0];
+    private static final byte[] NO_KINDS = new byte[0];
+
+    private String[] lexes;
+    private byte[] kinds;
+    private int head;
+    private int tail;
+    /**
+     * True if the arrays belong to a compiled block or another arg array
+     */
+    private boolean shared;
+    /**
+     * True if the packed lex at head has been assimilated
+     */
+    private boolean headAssimilated;
+    /**
+     * The compiled block whose arrays are being walked, if unmodified
+     */
+    private CompiledBlock compiledBlock;
+
     /**
      * Get associated Interpreter instance
      *
@@ -63,14 +95,14 @@ public class ArgArray extends ArrayList<String> {
      * The char string introducing a quoted string in our application-specific
      * language.
      */
-    private static final String OPENQUOTE = "${";
+    private static final String OPENQUOTE = CompiledBlock.OPENQUOTE;
     /**
      * The char string closing a quoted string in our application-specific
      * language
      */
-    private static final String CLOSEQUOTE = "}$";
-    private static final String OPENBLOCK = "$[";
-    private static final String CLOSEBLOCK = "]$";
+    private static final String CLOSEQUOTE = CompiledBlock.CLOSEQUOTE;
+    private static final String OPENBLOCK = CompiledBlock.OPENBLOCK;
+    private static final String CLOSEBLOCK = CompiledBlock.CLOSEBLOCK;
 
     private static final String SLASHEDOPENQUOTE = "\\$\\{";
     private static final String SLASHEDCLOSEQUOTE = "\\}\\$";
@@ -100,17 +132,34 @@ public class ArgArray extends ArrayList<String> {
      */
     public ArgArray(Interpreter i) {
         setInterpreter(i);
+        lexes = NO_LEXES;
+        kinds = NO_KINDS;
     }
 
     /**
-     * Instance from a string collection
+     * Instance from a string collection. If the collection is itself an
+     * ArgArray the lexes are shared until either arg array is modified.
      *
      * @param i associated Interpreter
      * @param c a string collection
      */
     public ArgArray(Interpreter i, Collection<? extends String> c) {
-        super(c);
         setInterpreter(i);
+        if (c instanceof ArgArray) {
+            ArgArray other = (ArgArray) c;
+            lexes = other.lexes;
+            kinds = other.kinds;
+            head = other.head;
+            tail = other.tail;
+            headAssimilated = other.headAssimilated;
+            compiledBlock = other.compiledBlock;
+            shared = true;
+            other.shared = true;
+        } else {
+            lexes = c.toArray(new String[c.size()]);
+            kinds = new byte[lexes.length];
+            tail = lexes.length;
+        }
     }
 
     /**
@@ -121,9 +170,216 @@ public class ArgArray extends ArrayList<String> {
      * commands to execute)
      */
     public ArgArray(Interpreter i, String[] args) {
-        super();
-        addAll(Arrays.asList(args));
         setInterpreter(i);
+        lexes = args.clone();
+        kinds = new byte[lexes.length];
+        tail = lexes.length;
+    }
+
+    /**
+     * Instance walking a compiled block. Nothing is copied unless the arg
+     * array is modified.
+     *
+     * @param i associated Interpreter
+     * @param compiledBlock the compiled block
+     */
+    public ArgArray(Interpreter i, CompiledBlock compiledBlock) {
+        setInterpreter(i);
+        lexes = compiledBlock.lexes();
+        kinds = compiledBlock.kinds();
+        tail = lexes.length;
+        shared = true;
+        this.compiledBlock = compiledBlock;
+    }
+
+    /* True if the lex at array index is a packed quotation or block as yet unassimilated */
+    private boolean isPackedAt(int index) {
+        return kinds[index] != CompiledBlock.LEX && !(index == head && headAssimilated);
+    }
+
+    /* The lex at array index as the List interface sees it */
+    private String lexAt(int index) {
+        return isPackedAt(index) ? CompiledBlock.opener(kinds[index]) : lexes[index];
+    }
+
+    /* Append the lex at array index as it was originally written */
+    private StringBuilder appendOriginal(StringBuilder sb, int index) {
+        if (isPackedAt(index)) {
+            sb.append(CompiledBlock.opener(kinds[index])).append(' ')
+                    .append(lexes[index])
+                    .append(CompiledBlock.closer(kinds[index]));
+        } else {
+            sb.append(lexes[index]);
+        }
+        return sb;
+    }
+
+    /* Make the arrays our own before modifying them, leaving room for growth */
+    private void ensurePrivate(int extra) {
+        if (shared || tail + extra > lexes.length) {
+            int size = tail - head;
+            int capacity = FRONT_ROOM + size + Math.max(extra, size / 2 + 8);
+            String[] newLexes = new String[capacity];
+            byte[] newKinds = new byte[capacity];
+            System.arraycopy(lexes, head, newLexes, FRONT_ROOM, size);
+            System.arraycopy(kinds, head, newKinds, FRONT_ROOM, size);
+            lexes = newLexes;
+            kinds = newKinds;
+            head = FRONT_ROOM;
+            tail = head + size;
+            shared = false;
+            compiledBlock = null;
+        }
+        if (headAssimilated) {
+            kinds[head] = CompiledBlock.LEX;
+            headAssimilated = false;
+        }
+    }
+
+    /* Turn the unassimilated packed lex at head back into the lexes it was packed from */
+    private void unpackHead() {
+        byte kind = kinds[head];
+        String body = lexes[head].trim();
+        String[] inner = body.isEmpty() ? NO_LEXES : Lexer.split(body);
+        int rest = tail - head - 1;
+        int size = inner.length + 2 + rest;
+        String[] newLexes = new String[FRONT_ROOM + size];
+        byte[] newKinds = new byte[FRONT_ROOM + size];
+        int index = FRONT_ROOM;
+        newLexes[index++] = CompiledBlock.opener(kind);
+        for (String s : inner) {
+            newLexes[index++] = s;
+        }
+        newLexes[index++] = CompiledBlock.closer(kind);
+        System.arraycopy(lexes, head + 1, newLexes, index, rest);
+        System.arraycopy(kinds, head + 1, newKinds, index, rest);
+        lexes = newLexes;
+        kinds = newKinds;
+        head = FRONT_ROOM;
+        tail = head + size;
+        shared = false;
+        compiledBlock = null;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= tail - head) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (tail - head));
+        }
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        return lexAt(head + index);
+    }
+
+    @Override
+    public int size() {
+        return tail - head;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail == head;
+    }
+
+    @Override
+    public String set(int index, String element) {
+        checkIndex(index);
+        ensurePrivate(0);
+        String old = lexAt(head + index);
+        lexes[head + index] = element;
+        kinds[head + index] = CompiledBlock.LEX;
+        return old;
+    }
+
+    @Override
+    public void add(int index, String element) {
+        if (index < 0 || index > tail - head) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (tail - head));
+        }
+        ensurePrivate(0);
+        if (index == 0 && head > 0) {
+            head--;
+        } else {
+            ensurePrivate(1);
+            System.arraycopy(lexes, head + index, lexes, head + index + 1, tail - head - index);
+            System.arraycopy(kinds, head + index, kinds, head + index + 1, tail - head - index);
+            tail++;
+        }
+        lexes[head + index] = element;
+        kinds[head + index] = CompiledBlock.LEX;
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        String result;
+        if (index == 0) {
+            result = next();
+        } else {
+            checkIndex(index);
+            ensurePrivate(0);
+            result = lexAt(head + index);
+            System.arraycopy(lexes, head + index + 1, lexes, head + index, tail - head - index - 1);
+            System.arraycopy(kinds, head + index + 1, kinds, head + index, tail - head - index - 1);
+            lexes[--tail] = null;
+            modCount++;
+        }
+        return result;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex == 0) {
+            head += toIndex;
+            headAssimilated = false;
+        } else if (toIndex > fromIndex) {
+            ensurePrivate(0);
+            System.arraycopy(lexes, head + toIndex, lexes, head + fromIndex, tail - head - toIndex);
+            System.arraycopy(kinds, head + toIndex, kinds, head + fromIndex, tail - head - toIndex);
+            int newTail = tail - (toIndex - fromIndex);
+            for (int i = newTail; i < tail; i++) {
+                lexes[i] = null;
+            }
+            tail = newTail;
+        }
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        head = tail;
+        headAssimilated = false;
+        modCount++;
+    }
+
+    /**
+     * Append a collection of lexes. Appending another ArgArray appends its
+     * packed quotations and blocks intact.
+     *
+     * @param c the lexes to append
+     * @return true if anything was appended
+     */
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+        boolean result;
+        if (c instanceof ArgArray) {
+            ArgArray other = (ArgArray) c;
+            int n = other.size();
+            ensurePrivate(n);
+            System.arraycopy(other.lexes, other.head, lexes, tail, n);
+            System.arraycopy(other.kinds, other.head, kinds, tail, n);
+            if (n > 0 && other.headAssimilated) {
+                kinds[tail] = CompiledBlock.LEX;
+            }
+            tail += n;
+            modCount++;
+            result = n > 0;
+        } else {
+            result = super.addAll(c);
+        }
+        return result;
     }
 
     /**
@@ -133,7 +389,57 @@ public class ArgArray extends ArrayList<String> {
      * @return the next lex in the arg array as a string
      */
     public String next() {
-        return this.remove(0);
+        if (head == tail) {
+            throw new IndexOutOfBoundsException("Index: 0, Size: 0");
+        }
+        if (isPackedAt(head)) {
+            unpackHead();
+        }
+        String result = lexes[head];
+        if (!shared) {
+            lexes[head] = null;
+        }
+        head++;
+        headAssimilated = false;
+        modCount++;
+        return result;
+    }
+
+    /**
+     * Get what the interpreter cached as resolved at the next lex when this
+     * arg array is walking an unmodified compiled block.
+     *
+     * @return what was cached or null if nothing or not walking a compiled
+     * block
+     */
+    public Object getNextCallSite() {
+        return compiledBlock == null || head == tail ? null : compiledBlock.callSiteAt(head);
+    }
+
+    /**
+     * Cache what the next lex resolved to, if this arg array is walking an
+     * unmodified compiled block, so that the next time the block is walked
+     * the lex need not be resolved again.
+     *
+     * @param callSite what the next lex resolved to
+     */
+    public void setNextCallSite(Object callSite) {
+        if (compiledBlock != null && head < tail) {
+            compiledBlock.setCallSiteAt(head, callSite);
+        }
+    }
+
+    /**
+     * Cache what the lex just taken resolved to, if this arg array is still
+     * walking an unmodified compiled block, so that the next time the block
+     * is walked {@link #getNextCallSite()} finds it before the lex is taken.
+     *
+     * @param callSite what the lex just taken resolved to
+     */
+    public void setPreviousCallSite(Object callSite) {
+        if (compiledBlock != null && head > 0) {
+            compiledBlock.setCallSiteAt(head - 1, callSite);
+        }
     }
 
     /**
@@ -303,7 +609,7 @@ public class ArgArray extends ArrayList<String> {
      * @return true if the next lex in the ArgArray is an openquote
      */
     public boolean isOpenQuoteNext() {
-        return findOpenQuote() == 0;
+        return !isEmpty() && OPENQUOTE.equals(get(0));
     }
 
     /**
@@ -312,13 +618,13 @@ public class ArgArray extends ArrayList<String> {
      * @return true if the next lex in the ArgArray is an openblock
      */
     public boolean isOpenBlockNext() {
-        return findOpenBlock() == 0;
+        return !isEmpty() && OPENBLOCK.equals(get(0));
     }
 
     private int findCloser(int startIndex, String closer) {
         int index = -1;
         for (int i = startIndex; i < size(); i++) {
-            if (closer.equals(get(i))) {
+            if (closer.equals(lexAt(head + i))) {
                 index = i;
                 break;
             }
@@ -347,12 +653,15 @@ public class ArgArray extends ArrayList<String> {
     public int findCloseBlock(int startIndex) {
         int index = -1;
         for (int i = startIndex; i < size(); i++) {
-            if (OPENBLOCK.equals(get(i).trim())) {
+            if (isPackedAt(head + i)) {
+                continue; // already packed and balanced
+            }
+            if (OPENBLOCK.equals(lexes[head + i].trim())) {
                 // increment count of nested blocks
                 // /* Debug */ System.err.println("Found OPENBLOCK at " + i);
                 getInterpreter().setParsingBlock(true);
             }
-            if (CLOSEBLOCK.equals(get(i).trim())) {
+            if (CLOSEBLOCK.equals(lexes[head + i].trim())) {
                 // decrement count of nested blocks
                 // /* Debug */ System.err.println("Found CLOSEBLOCK at " + i);
                 getInterpreter().setParsingBlock(false);
@@ -375,13 +684,7 @@ public class ArgArray extends ArrayList<String> {
      * @param closeQuoteIndex index in the ArgArray of the closequote
      */
     public void packQuotation(int openQuoteIndex, int closeQuoteIndex) {
-        StringBuilder sb = new StringBuilder();
-        ArgArray theQuote = new ArgArray(getInterpreter(), subList(openQuoteIndex + 1, closeQuoteIndex));
-        removeRange(openQuoteIndex, closeQuoteIndex);
-        for (String s : theQuote) {
-            sb.append(s).append(" ");
-        }
-        set(openQuoteIndex, sb.toString());
+        pack(openQuoteIndex, closeQuoteIndex);
     }
 
     /**
@@ -393,13 +696,27 @@ public class ArgArray extends ArrayList<String> {
      * @param closeBlockIndex index in the ArgArray of the closequote
      */
     public void packBlock(int openBlockIndex, int closeBlockIndex) {
+        pack(openBlockIndex, closeBlockIndex);
+    }
+
+    /* Pack the lexes between opener and closer into the opener's place */
+    private void pack(int openIndex, int closeIndex) {
         StringBuilder sb = new StringBuilder();
-        ArgArray theBlock = new ArgArray(getInterpreter(), subList(openBlockIndex + 1, closeBlockIndex));
-        removeRange(openBlockIndex, closeBlockIndex);
-        for (String s : theBlock) {
-            sb.append(s).append(" ");
+        for (int i = openIndex + 1; i < closeIndex; i++) {
+            appendOriginal(sb, head + i).append(" ");
+        }
+        if (openIndex == 0) {
+            // The closer's slot becomes the packed lex, nothing is shifted.
+            head += closeIndex;
+            headAssimilated = false;
+            ensurePrivate(0);
+            lexes[head] = sb.toString();
+            kinds[head] = CompiledBlock.LEX;
+            modCount++;
+        } else {
+            removeRange(openIndex, closeIndex);
+            set(openIndex, sb.toString());
         }
-        set(openBlockIndex, sb.toString());
     }
 
     /**
@@ -409,16 +726,23 @@ public class ArgArray extends ArrayList<String> {
      *
      */
     public void assimilateFullQuotation() {
-        while (findCloseQuote(0) == -1) {
-            if (getInterpreter().isWindowing() && !getInterpreter().isIncluding()) {
-                throw new Error("Multiline quotations not supported on windowing input line");
+        if (head < tail && kinds[head] == CompiledBlock.QUOTATION) {
+            headAssimilated = true; // already packed when compiled
+        } else {
+            int searchStartIndex = 0;
+            int closeQuoteIndex;
+            while ((closeQuoteIndex = findCloseQuote(searchStartIndex)) == -1) {
+                if (getInterpreter().isWindowing() && !getInterpreter().isIncluding()) {
+                    throw new Error("Multiline quotations not supported on windowing input line");
+                }
+                searchStartIndex = size();
+                getInterpreter().setParsingString(true);
+                getInterpreter().prompt();
+                addAll(getInterpreter().readAndParse());
+                getInterpreter().setParsingString(false);
             }
-            getInterpreter().setParsingString(true);
-            getInterpreter().prompt();
-            addAll(getInterpreter().readAndParse());
-            getInterpreter().setParsingString(false);
+            packQuotation(0, closeQuoteIndex);
         }
-        packQuotation(0, findCloseQuote(0));
     }
 
     /**
@@ -428,21 +752,26 @@ public class ArgArray extends ArrayList<String> {
      *
      */
     public void assimilateFullBlock() {
-        int searchStartIndex = 0;
-        // /* Debug */ System.err.println("block depth before " + getInterpreter().getParsingBlockDepth());
-        while (findCloseBlock(searchStartIndex) == -1) {
-            if (getInterpreter().isWindowing() && !getInterpreter().isIncluding()) {
-                getInterpreter().setParsingBlock(false);
-                throw new Error("Multiline blocks not supported on windowing input line");
+        if (head < tail && kinds[head] == CompiledBlock.BLOCK) {
+            headAssimilated = true; // already packed when compiled
+        } else {
+            int searchStartIndex = 0;
+            int closeBlockIndex;
+            // /* Debug */ System.err.println("block depth before " + getInterpreter().getParsingBlockDepth());
+            while ((closeBlockIndex = findCloseBlock(searchStartIndex)) == -1) {
+                if (getInterpreter().isWindowing() && !getInterpreter().isIncluding()) {
+                    getInterpreter().setParsingBlock(false);
+                    throw new Error("Multiline blocks not supported on windowing input line");
+                }
+                searchStartIndex = size();
+                // /* Debug */ System.err.println("block depth at begin loop " + getInterpreter().getParsingBlockDepth());
+                getInterpreter().prompt();
+                addAll(getInterpreter().readAndParse());
+                // /* Debug */ System.err.println("block depth at end " + getInterpreter().getParsingBlockDepth());
             }
-            searchStartIndex = size();
-            // /* Debug */ System.err.println("block depth at begin loop " + getInterpreter().getParsingBlockDepth());
-            getInterpreter().prompt();
-            addAll(getInterpreter().readAndParse());
-            // /* Debug */ System.err.println("block depth at end " + getInterpreter().getParsingBlockDepth());
+            // /* Debug */ System.err.println("block depth after " + getInterpreter().getParsingBlockDepth());
+            packBlock(0, closeBlockIndex);
         }
-        // /* Debug */ System.err.println("block depth after " + getInterpreter().getParsingBlockDepth());
-        packBlock(0, findCloseBlock(0));
     }
 
     /**
@@ -818,8 +1147,8 @@ public class ArgArray extends ArrayList<String> {
      */
     public String toHistoryLine() {
         StringBuilder sb = new StringBuilder();
-        for (String s : this) {
-            sb.append(s).append(" ");
+        for (int i = head; i < tail; i++) {
+            appendOriginal(sb, i).append(" ");
         }
         return sb.toString();
     }
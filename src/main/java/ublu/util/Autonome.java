@@ -27,48 +27,7 @@
  */
 package ublu.util;
 
-import com.ibm.as400.access.AS400;
-import com.ibm.as400.access.AS400FTP;
-import com.ibm.as400.access.AS400File;
-import com.ibm.as400.access.DataArea;
-import com.ibm.as400.access.DataQueue;
-import com.ibm.as400.access.FTP;
-import com.ibm.as400.access.HistoryLog;
-import com.ibm.as400.access.IFSFile;
-import com.ibm.as400.access.Job;
-import com.ibm.as400.access.JobList;
-import com.ibm.as400.access.JobLog;
-import com.ibm.as400.access.KeyedDataQueue;
-import com.ibm.as400.access.MessageQueue;
-import com.ibm.as400.access.ObjectDescription;
-import com.ibm.as400.access.ObjectList;
-import com.ibm.as400.access.OutputQueue;
-import com.ibm.as400.access.PrintParameterList;
-import com.ibm.as400.access.Printer;
-import com.ibm.as400.access.QueuedMessage;
-import com.ibm.as400.access.Record;
-import com.ibm.as400.access.SaveFile;
-import com.ibm.as400.access.SecureAS400;
-import com.ibm.as400.access.SpooledFile;
-import com.ibm.as400.access.SpooledFileList;
-import com.ibm.as400.access.Subsystem;
-import com.ibm.as400.access.User;
-import com.ibm.as400.access.UserList;
-import com.ibm.as400.access.list.SpooledFileOpenList;
-import java.net.Socket;
-import java.sql.CallableStatement;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Set;
-import javax.cim.CIMInstance;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import ublu.db.Db;
-import ublu.db.ResultSetClosure;
-import ublu.server.Listener;
-import ublu.smapi.Host;
-import ublu.util.Generics.ThingArrayList;
-import ublu.util.Generics.UserTupleMap;
+import java.util.Map;
 
 /**
  * Class to provide autonomization of tuple variables, that is, providing Ublu
@@ -80,60 +39,75 @@ import ublu.util.Generics.UserTupleMap;
 public class Autonome {
 
     /**
-     * The map of class types and their relevant Ublu commands
+     * The registry of class types and their relevant Ublu commands. A class
+     * not registered itself resolves to the command of the last registered
+     * type it is assignable to. Types are registered by name so that the
+     * libraries they come from are not loaded until a value of one of them
+     * turns up.
      */
-    public static final LinkedHashMap<Class, String> AUTONOMY;
+    public static final TypeDispatch<String> AUTONOMY;
 
     static {
-        AUTONOMY = new LinkedHashMap<>();
-        AUTONOMY.put(AS400.class, "as400");
-        AUTONOMY.put(SecureAS400.class, "as400");
-        AUTONOMY.put(CallableStatement.class, "cs");
-        AUTONOMY.put(CimUbluHelper.class, "cim");
-        AUTONOMY.put(CIMInstance.class, "cimi");
-        AUTONOMY.put(Db.class, "db");
-        AUTONOMY.put(SysShepHelper.class, "dpoint");
-        AUTONOMY.put(DataQueue.class, "dq");
-        AUTONOMY.put(KeyedDataQueue.class, "dq");
-        AUTONOMY.put(DataArea.class, "dta");
-        AUTONOMY.put(AS400File.class, "file");
-        AUTONOMY.put(FTP.class, "ftp");
-        AUTONOMY.put(AS400FTP.class, "ftp");
-        AUTONOMY.put(HistoryLog.class, "histlog");
-        AUTONOMY.put(Host.class, "host");
-        AUTONOMY.put(IFSFile.class, "ifs");
-        AUTONOMY.put(JMXHelper.class, "jmx");
-        AUTONOMY.put(Job.class, "job");
-        AUTONOMY.put(JobList.class, "joblist");
-        AUTONOMY.put(JobLog.class, "joblog");
-        AUTONOMY.put(JSONObject.class, "json");
-        AUTONOMY.put(JSONArray.class, "json");
-        AUTONOMY.put(ThingArrayList.class, "list");
-        AUTONOMY.put(QueuedMessage.class, "msg");
-        AUTONOMY.put(MessageQueue.class, "msgq");
-        AUTONOMY.put(ObjectList.class, "objlist");
-        AUTONOMY.put(ObjectDescription.class, "objdesc");
-        AUTONOMY.put(OutputQueue.class, "outq");
-        AUTONOMY.put(PrintParameterList.class, "ppl");
-        AUTONOMY.put(Printer.class, "printer");
-        AUTONOMY.put(Record.class, "record");
-        AUTONOMY.put(ResultSetClosure.class, "rs");
-        AUTONOMY.put(SaveFile.class, "savef");
-        AUTONOMY.put(Listener.class, "server");
-        AUTONOMY.put(Sess5250.class, "sess");
-        AUTONOMY.put(Socket.class, "sock");
-        AUTONOMY.put(SpooledFileOpenList.class, "splfol");
-        AUTONOMY.put(SpooledFile.class, "spoolf");
-        AUTONOMY.put(SpooledFileList.class, "spoolflist");
-        AUTONOMY.put(StreamFileHelper.class, "streamf");
-        AUTONOMY.put(String.class, "string");
-        AUTONOMY.put(Subsystem.class, "subsys");
-        AUTONOMY.put(SysValHelper.class, "sysval");
-        AUTONOMY.put(InterpreterThread.class, "thread");
-        AUTONOMY.put(TN5250Helper.class, "tn5250");
-        AUTONOMY.put(User.class, "user");
-        AUTONOMY.put(UserList.class, "userlist");
-        AUTONOMY.put(UserTupleMap.class, "map");
+        AUTONOMY = new TypeDispatch<>(TypeDispatch.PRECEDENCE.LAST);
+        AUTONOMY.register("com.ibm.as400.access.AS400", "as400");
+        AUTONOMY.register("com.ibm.as400.access.SecureAS400", "as400");
+        AUTONOMY.register("java.sql.CallableStatement", "cs");
+        AUTONOMY.register("ublu.util.CimUbluHelper", "cim");
+        AUTONOMY.register("javax.cim.CIMInstance", "cimi");
+        AUTONOMY.register("ublu.db.Db", "db");
+        AUTONOMY.register("ublu.util.SysShepHelper", "dpoint");
+        AUTONOMY.register("com.ibm.as400.access.DataQueue", "dq");
+        AUTONOMY.register("com.ibm.as400.access.KeyedDataQueue", "dq");
+        AUTONOMY.register("com.ibm.as400.access.DataArea", "dta");
+        AUTONOMY.register("com.ibm.as400.access.AS400File", "file");
+        AUTONOMY.register("com.ibm.as400.access.FTP", "ftp");
+        AUTONOMY.register("com.ibm.as400.access.AS400FTP", "ftp");
+        AUTONOMY.register("com.ibm.as400.access.HistoryLog", "histlog");
+        AUTONOMY.register("ublu.smapi.Host", "host");
+        AUTONOMY.register("com.ibm.as400.access.IFSFile", "ifs");
+        AUTONOMY.register("ublu.util.JMXHelper", "jmx");
+        AUTONOMY.register("com.ibm.as400.access.Job", "job");
+        AUTONOMY.register("com.ibm.as400.access.JobList", "joblist");
+        AUTONOMY.register("com.ibm.as400.access.JobLog", "joblog");
+        AUTONOMY.register("org.json.JSONObject", "json");
+        AUTONOMY.register("org.json.JSONArray", "json");
+        AUTONOMY.register("ublu.util.Generics$ThingArrayList", "list");
+        AUTONOMY.register("com.ibm.as400.access.QueuedMessage", "msg");
+        AUTONOMY.register("com.ibm.as400.access.MessageQueue", "msgq");
+        AUTONOMY.register("com.ibm.as400.access.ObjectList", "objlist");
+        AUTONOMY.register("com.ibm.as400.access.ObjectDescription", "objdesc");
+        AUTONOMY.register("com.ibm.as400.access.OutputQueue", "outq");
+        AUTONOMY.register("com.ibm.as400.access.PrintParameterList", "ppl");
+        AUTONOMY.register("com.ibm.as400.access.Printer", "printer");
+        AUTONOMY.register("com.ibm.as400.access.Record", "record");
+        AUTONOMY.register("ublu.db.ResultSetClosure", "rs");
+        AUTONOMY.register("com.ibm.as400.access.SaveFile", "savef");
+        AUTONOMY.register("ublu.server.Listener", "server");
+        AUTONOMY.register("ublu.util.Sess5250", "sess");
+        AUTONOMY.register("java.net.Socket", "sock");
+        AUTONOMY.register("com.ibm.as400.access.list.SpooledFileOpenList", "splfol");
+        AUTONOMY.register("com.ibm.as400.access.SpooledFile", "spoolf");
+        AUTONOMY.register("com.ibm.as400.access.SpooledFileList", "spoolflist");
+        AUTONOMY.register("ublu.util.StreamFileHelper", "streamf");
+        AUTONOMY.register("java.lang.String", "string");
+        AUTONOMY.register("com.ibm.as400.access.Subsystem", "subsys");
+        AUTONOMY.register("ublu.util.SysValHelper", "sysval");
+        AUTONOMY.register("ublu.util.InterpreterThread", "thread");
+        AUTONOMY.register("ublu.util.TN5250Helper", "tn5250");
+        AUTONOMY.register("com.ibm.as400.access.User", "user");
+        AUTONOMY.register("com.ibm.as400.access.UserList", "userlist");
+        AUTONOMY.register("ublu.util.Generics$UserTupleMap", "map");
+    }
+
+    /**
+     * Register a class type as autonomic, e.g., by an extension which adds a
+     * command for a class of its own
+     *
+     * @param c the class type
+     * @param command the Ublu command string values of the type invoke
+     */
+    public static void register(Class c, String command) {
+        AUTONOMY.register(c, command);
     }
 
     /**
@@ -153,18 +127,25 @@ public class Autonome {
      */
     public static String displayAll() {
         StringBuilder sb = new StringBuilder();
-        Set s = AUTONOMY.keySet();
-        Iterator i = s.iterator();
-        while (i.hasNext()) {
-            Class c = Class.class.cast(i.next());
-            sb.append(get(c))
+        for (Map.Entry<String, String> e : AUTONOMY.entries()) {
+            sb.append(e.getValue())
                     .append(" : ")
-                    .append(c.toString())
+                    .append(describeType(e.getKey()))
                     .append('\n');
         }
         return sb.toString();
     }
 
+    private static String describeType(String className) {
+        String description;
+        try {
+            description = Class.forName(className, false, Autonome.class.getClassLoader()).toString();
+        } catch (ClassNotFoundException | LinkageError ex) {
+            description = className;
+        }
+        return description;
+    }
+
     /**
      * Return description indicating command if the class of the object is
      * autonomic
@@ -204,22 +185,11 @@ public class Autonome {
     public static boolean autonomize(Tuple t, ArgArray aa) {
         boolean result = false;
         if (t != null) {
-            Object o = t.getValue();
-            if (o != null) {
-                Class c = o.getClass();
-                String s = AUTONOMY.get(c);
-                if (s == null) {
-                    for (Class sup : AUTONOMY.keySet()) {
-                        if (sup.isAssignableFrom(c)) {
-                            s = AUTONOMY.get(sup);
-                        }
-                    }
-                }
-                if (s != null) {
-                    aa.add(0, "--");
-                    aa.add(0, s);
-                    result = true;
-                }
+            String s = AUTONOMY.getFor(t.getValue());
+            if (s != null) {
+                aa.add(0, "--");
+                aa.add(0, s);
+                result = true;
             }
         }
         return result;
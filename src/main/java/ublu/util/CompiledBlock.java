@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An execution block lexed once into an immutable program of lexes in which
+ * quotations and nested blocks have already been found and packed. An
+ * {@link ArgArray} walks a compiled block with a cursor, so a block which is
+ * executed over and over, e.g., by FOR, WHILE, DO or a function, is neither
+ * re-lexed nor copied on each pass.
+ *
+ * @author jwoehr
+ */
+public final class CompiledBlock {
+
+    /**
+     * Kind of a plain lex
+     */
+    static final byte LEX = 0;
+    /**
+     * Kind of a lex which is the packed body of a <code>${ quotation }$</code>
+     */
+    static final byte QUOTATION = 1;
+    /**
+     * Kind of a lex which is the packed body of a <code>$[ block ]$</code>
+     */
+    static final byte BLOCK = 2;
+
+    static final String OPENQUOTE = "${";
+    static final String CLOSEQUOTE = "}$";
+    static final String OPENBLOCK = "$[";
+    static final String CLOSEBLOCK = "]$";
+
+    /**
+     * Most compiled blocks we keep around before starting the cache afresh
+     */
+    private static final int MAX_CACHED = 4096;
+    private static final ConcurrentHashMap<String, CompiledBlock> CACHE = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final String[] lexes;
+    private final byte[] kinds;
+    /**
+     * Whatever the interpreter resolved at each lex, e.g., the command a
+     * command name resolved to. Racy but harmless: a slot only ever holds
+     * null or an immutable resolution.
+     */
+    private final Object[] callSites;
+
+    private CompiledBlock(String source, String[] lexes, byte[] kinds) {
+        this.source = source;
+        this.lexes = lexes;
+        this.kinds = kinds;
+        this.callSites = new Object[lexes.length];
+    }
+
+    /**
+     * Get the compiled program for a block, compiling it on first use. Blocks
+     * are keyed by their text, so the same block text executed again and
+     * again, whether by a loop or by a nested block inside a loop, is only
+     * lexed the first time.
+     *
+     * @param block text of the execution block
+     * @return the compiled block
+     */
+    public static CompiledBlock compile(String block) {
+        CompiledBlock compiledBlock = CACHE.get(block);
+        if (compiledBlock == null) {
+            compiledBlock = Lexer.lex(block, block);
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            CACHE.put(block, compiledBlock);
+        }
+        return compiledBlock;
+    }
+
+    /**
+     * Pack a line already split into lexes without caching it. Quotations and
+     * blocks whose closers are found in the line are packed into a single lex.
+     * Once an opener is found without its closer, the opener and everything
+     * after it are left as plain lexes so that the {@link ArgArray} can
+     * assimilate the rest from further lines of input.
+     *
+     * @param source the text the lexes were split from
+     * @param rawLexes the lexes
+     * @return the compiled block
+     */
+    public static CompiledBlock fromLexes(String source, String[] rawLexes) {
+        int n = rawLexes.length;
+        String[] lexes = new String[n];
+        byte[] kinds = new byte[n];
+        int count = 0;
+        boolean packing = true;
+        int i = 0;
+        while (i < n) {
+            String lex = rawLexes[i];
+            int close = -1;
+            byte kind = LEX;
+            if (packing && OPENQUOTE.equals(lex)) {
+                kind = QUOTATION;
+                close = findCloseQuote(rawLexes, i + 1);
+            } else if (packing && OPENBLOCK.equals(lex)) {
+                kind = BLOCK;
+                close = findCloseBlock(rawLexes, i);
+            }
+            if (kind == LEX) {
+                lexes[count] = lex;
+                kinds[count++] = LEX;
+                i++;
+            } else if (close == -1) {
+                // Unclosed on this line, leave it to the ArgArray to assimilate
+                packing = false;
+                lexes[count] = lex;
+                kinds[count++] = LEX;
+                i++;
+            } else {
+                lexes[count] = join(rawLexes, i + 1, close);
+                kinds[count++] = kind;
+                i = close + 1;
+            }
+        }
+        if (count < n) {
+            String[] packedLexes = new String[count];
+            byte[] packedKinds = new byte[count];
+            System.arraycopy(lexes, 0, packedLexes, 0, count);
+            System.arraycopy(kinds, 0, packedKinds, 0, count);
+            lexes = packedLexes;
+            kinds = packedKinds;
+        }
+        return new CompiledBlock(source, lexes, kinds);
+    }
+
+    /**
+     * Instance from lexes already packed, e.g., as saved in a
+     * {@link SysImage}.
+     *
+     * @param source the text the lexes were packed from
+     * @param lexes the packed lexes
+     * @param kinds the kind of each lex
+     * @return the compiled block
+     */
+    static CompiledBlock fromPacked(String source, String[] lexes, byte[] kinds) {
+        return new CompiledBlock(source, lexes, kinds);
+    }
+
+    private static int findCloseQuote(String[] rawLexes, int startIndex) {
+        int index = -1;
+        for (int i = startIndex; i < rawLexes.length; i++) {
+            if (CLOSEQUOTE.equals(rawLexes[i])) {
+                index = i;
+                break;
+            }
+        }
+        return index;
+    }
+
+    private static int findCloseBlock(String[] rawLexes, int startIndex) {
+        int index = -1;
+        int depth = 0;
+        for (int i = startIndex; i < rawLexes.length; i++) {
+            String lex = rawLexes[i].trim();
+            if (OPENBLOCK.equals(lex)) {
+                depth++;
+            } else if (CLOSEBLOCK.equals(lex)) {
+                depth--;
+            }
+            if (depth == 0) {
+                index = i;
+                break;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Join lexes the same way {@link ArgArray#packQuotation(int, int)} always
+     * has, each lex followed by a single space.
+     */
+    private static String join(String[] rawLexes, int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append(rawLexes[i]).append(' ');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The opener a packed lex of this kind stood for
+     *
+     * @param kind kind of lex
+     * @return the opener
+     */
+    static String opener(byte kind) {
+        return kind == QUOTATION ? OPENQUOTE : OPENBLOCK;
+    }
+
+    /**
+     * The closer a packed lex of this kind stood for
+     *
+     * @param kind kind of lex
+     * @return the closer
+     */
+    static String closer(byte kind) {
+        return kind == QUOTATION ? CLOSEQUOTE : CLOSEBLOCK;
+    }
+
+    /**
+     * The shared lexes. Not to be modified.
+     *
+     * @return the shared lexes
+     */
+    String[] lexes() {
+        return lexes;
+    }
+
+    /**
+     * The shared kinds of the lexes. Not to be modified.
+     *
+     * @return the shared kinds of the lexes
+     */
+    byte[] kinds() {
+        return kinds;
+    }
+
+    /**
+     * Get what was cached as resolved at a lex
+     *
+     * @param index index of the lex
+     * @return what was cached or null
+     */
+    Object callSiteAt(int index) {
+        return callSites[index];
+    }
+
+    /**
+     * Cache what a lex resolved to
+     *
+     * @param index index of the lex
+     * @param callSite the resolution
+     */
+    void setCallSiteAt(int index, Object callSite) {
+        callSites[index] = callSite;
+    }
+
+    /**
+     * Get the text this block was compiled from
+     *
+     * @return the text this block was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Number of lexes in the program counting each packed quotation or block
+     * as one.
+     *
+     * @return number of lexes in the program
+     */
+    public int size() {
+        return lexes.length;
+    }
+
+    /**
+     * Drop all cached compiled blocks.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
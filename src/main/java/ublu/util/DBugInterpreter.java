@@ -28,7 +28,9 @@
 package ublu.util;
 
 import ublu.Ublu;
+import ublu.command.CommandFactory;
 import ublu.command.CommandInterface;
+import ublu.command.CommandMap;
 import java.io.IOException;
 import java.util.logging.Level;
 import ublu.command.CommandInterface.COMMANDRESULT;
@@ -106,6 +108,7 @@ public class DBugInterpreter extends Interpreter {
                     break;
                 }
             }
+            CommandMap.CallSite callSite = resolveNextCommand();
             String commandName = getArgArray().next().trim();
 //            dbug()
 //                    .dbugMessage(
@@ -121,8 +124,9 @@ public class DBugInterpreter extends Interpreter {
             if (commandName.equals("")) {
                 continue; // cr or some sort of whitespace got parsed, skip to next
             }
-            if (getCmdMap().containsKey(commandName)) {
-                CommandInterface command = getCmd(this, commandName);
+            if (callSite != null) {
+                CommandFactory factory = callSite.getFactory();
+                CommandInterface command = getCommandPool().acquire(factory, this);
                 try {
                     setArgArray(command.cmd(getArgArray()));
                     lastCommandResult = command.getResult();
@@ -139,6 +143,8 @@ public class DBugInterpreter extends Interpreter {
                     getLogger().log(Level.SEVERE, "Command \"" + commandName + "\" threw exception", ex);
                     lastCommandResult = COMMANDRESULT.FAILURE;
                     break;
+                } finally {
+                    getCommandPool().release(factory, command);
                 }
             } else if (getFunctorMap().containsKey(commandName)) {
                 try {
@@ -0,0 +1,1062 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An infix expression over tuples and numbers, compiled once into a small
+ * stack program and evaluated on primitive <code>long</code> and
+ * <code>double</code>, or on <code>BigDecimal</code>, without boxing any
+ * intermediate result.
+ *
+ * <p>
+ * Operands are integers (decimal or <code>0x</code> hex), decimal fractions
+ * with optional exponent, <code>true</code>, <code>false</code>, strings in
+ * single or double quotes, tuple names and <code>~</code> to pop the tuple
+ * stack. A tuple name ends at whitespace or at an operator character. A tuple whose value is a
+ * <code>Number</code> or <code>Boolean</code> is used as such, otherwise its
+ * value as a string is read as a number or boolean, failing which it is a
+ * string that may only be compared with <code>==</code> and
+ * <code>!=</code>.</p>
+ *
+ * <p>
+ * Integers are <code>long</code> and integer division truncates. A
+ * <code>long</code> result which would overflow becomes a
+ * <code>BigDecimal</code>. A fraction is a <code>double</code>. An operator
+ * on a <code>long</code> and a <code>BigDecimal</code> gives a
+ * <code>BigDecimal</code>, and on a <code>double</code> and anything else a
+ * <code>double</code>.</p>
+ *
+ * <p>
+ * The operators, loosest binding first, are <code>? :</code>,
+ * <code>||</code>, <code>&amp;&amp;</code>, <code>|</code>, <code>^</code>,
+ * <code>&amp;</code>, <code>== !=</code>, <code>&lt; &lt;= &gt; &gt;=</code>,
+ * <code>&lt;&lt; &gt;&gt;</code>, <code>+ -</code>, <code>* / %</code> and
+ * the unary <code>- + !</code>, along with the functions
+ * <code>abs(x)</code>, <code>min(x,y)</code> and <code>max(x,y)</code>.
+ * <code>? :</code>, <code>||</code> and <code>&amp;&amp;</code> evaluate
+ * their right-hand operands only if needed.</p>
+ *
+ * @author jwoehr
+ */
+public final class Expression {
+
+    /**
+     * Most compiled expressions we keep around before starting the cache
+     * afresh
+     */
+    private static final int MAX_CACHED = 1024;
+    private static final ConcurrentHashMap<String, Expression> CACHE = new ConcurrentHashMap<>();
+
+    /* Kinds of value, the numeric kinds in order of promotion */
+    private static final byte LONG = 0;
+    private static final byte DECIMAL = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+
+    /* Characters which end a tuple name within an expression */
+    private static final String OPERATOR_CHARS = "()+-*/%<>=!&|^?:,~";
+
+    /* Opcodes, those marked * being followed by an operand */
+    private static final int PUSH_LONG = 0; // * index of constant
+    private static final int PUSH_DOUBLE = 1; // * index of constant bits
+    private static final int PUSH_OBJECT = 2; // * index of BigDecimal or Boolean
+    private static final int PUSH_TUPLE = 3; // * index of tuple name
+    private static final int PUSH_POP = 4;
+    private static final int NEG = 5;
+    private static final int NOT = 6;
+    private static final int ADD = 7;
+    private static final int SUB = 8;
+    private static final int MUL = 9;
+    private static final int DIV = 10;
+    private static final int MOD = 11;
+    private static final int SHL = 12;
+    private static final int SHR = 13;
+    private static final int AND = 14;
+    private static final int OR = 15;
+    private static final int XOR = 16;
+    private static final int EQ = 17;
+    private static final int NE = 18;
+    private static final int LT = 19;
+    private static final int LE = 20;
+    private static final int GT = 21;
+    private static final int GE = 22;
+    private static final int MIN = 23;
+    private static final int MAX = 24;
+    private static final int ABS = 25;
+    private static final int TEST = 26; // fail unless boolean
+    private static final int JUMP = 27; // * target
+    private static final int JUMP_IF_FALSE = 28; // * target, pops
+    private static final int JUMP_IF_FALSE_ELSE_POP = 29; // * target
+    private static final int JUMP_IF_TRUE_ELSE_POP = 30; // * target
+    private static final int PUSH_STRING = 31; // * index of string
+
+    private final String source;
+    private final int[] code;
+    private final long[] numbers;
+    private final Object[] objects;
+    private final int maxDepth;
+
+    private Expression(String source, int[] code, long[] numbers, Object[] objects, int maxDepth) {
+        this.source = source;
+        this.code = code;
+        this.numbers = numbers;
+        this.objects = objects;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Get the compiled expression for a text, compiling it if it is not
+     * cached.
+     *
+     * @param source the text of the expression
+     * @return the compiled expression
+     * @throws ExpressionException if the text is not an expression
+     */
+    public static Expression compile(String source) throws ExpressionException {
+        Expression expression = CACHE.get(source);
+        if (expression == null) {
+            expression = new Compiler(source).compile();
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            CACHE.put(source, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Get the text this expression was compiled from
+     *
+     * @return the text this expression was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Evaluate the expression
+     *
+     * @param interpreter the interpreter whose tuples the expression names
+     * @return a <code>Long</code>, <code>Double</code>,
+     * <code>BigDecimal</code>, <code>Boolean</code> or <code>String</code>
+     * @throws ExpressionException on a missing tuple, an operand of the wrong
+     * kind or division by zero
+     */
+    public Object evaluate(Interpreter interpreter) throws ExpressionException {
+        Values v = new Values(maxDepth);
+        int pc = 0;
+        try {
+            while (pc < code.length) {
+                int op = code[pc++];
+                switch (op) {
+                    case PUSH_LONG:
+                        v.pushLong(numbers[code[pc++]]);
+                        break;
+                    case PUSH_DOUBLE:
+                        v.pushDouble(Double.longBitsToDouble(numbers[code[pc++]]));
+                        break;
+                    case PUSH_OBJECT:
+                        v.pushValue(objects[code[pc++]]);
+                        break;
+                    case PUSH_STRING:
+                        v.pushString((String) objects[code[pc++]]);
+                        break;
+                    case PUSH_TUPLE:
+                        String name = (String) objects[code[pc++]];
+                        Tuple t = interpreter.getTuple(name);
+                        if (t == null) {
+                            throw new ExpressionException("Tuple " + name + " does not exist");
+                        }
+                        Object value = t.getValue();
+                        if (value == null) {
+                            throw new ExpressionException("Tuple " + name + " has no value");
+                        }
+                        v.pushValue(value);
+                        break;
+                    case PUSH_POP:
+                        Tuple popped = interpreter.getTupleStack().isEmpty() ? null : interpreter.getTupleStack().pop();
+                        if (popped == null || popped.getValue() == null) {
+                            throw new ExpressionException("Nothing to pop for ~");
+                        }
+                        v.pushValue(popped.getValue());
+                        break;
+                    case JUMP:
+                        pc = code[pc];
+                        break;
+                    case JUMP_IF_FALSE:
+                        pc = v.popBoolean() ? pc + 1 : code[pc];
+                        break;
+                    case JUMP_IF_FALSE_ELSE_POP:
+                        if (v.peekBoolean()) {
+                            v.sp--;
+                            pc++;
+                        } else {
+                            pc = code[pc];
+                        }
+                        break;
+                    case JUMP_IF_TRUE_ELSE_POP:
+                        if (v.peekBoolean()) {
+                            pc = code[pc];
+                        } else {
+                            v.sp--;
+                            pc++;
+                        }
+                        break;
+                    case TEST:
+                        v.peekBoolean();
+                        break;
+                    case NOT:
+                        v.setBoolean(v.sp, !v.peekBoolean());
+                        break;
+                    case NEG:
+                        v.negate();
+                        break;
+                    case ABS:
+                        v.abs();
+                        break;
+                    default:
+                        v.binary(op);
+                }
+            }
+        } catch (ArithmeticException ex) {
+            throw new ExpressionException(ex.getMessage() + " in expression " + source.trim());
+        }
+        return v.box(v.sp);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Exception for an expression which can't be compiled or evaluated
+     */
+    public static class ExpressionException extends Exception {
+
+        /**
+         * Instance on a message
+         *
+         * @param message the message
+         */
+        public ExpressionException(String message) {
+            super(message);
+        }
+    }
+
+    /* Read the number written in a text as a Long, Double or BigDecimal, null if it is not all number */
+    private static Object number(String text) {
+        Values v = new Values(1);
+        return v.pushNumber(text) ? v.box(0) : null;
+    }
+
+    /* The end of the number written in text from start on, or start if no number is written there */
+    private static int numberEnd(String text, int start) {
+        int end = start;
+        int n = text.length();
+        if (start + 1 < n && text.charAt(start) == '0' && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X')) {
+            int i = start + 2;
+            while (i < n && Character.digit(text.charAt(i), 16) >= 0) {
+                i++;
+            }
+            if (i > start + 2) {
+                end = i;
+            }
+        } else {
+            int i = start;
+            int digits = 0;
+            while (i < n && isDigit(text.charAt(i))) {
+                i++;
+                digits++;
+            }
+            if (i < n && text.charAt(i) == '.') {
+                i++;
+                while (i < n && isDigit(text.charAt(i))) {
+                    i++;
+                    digits++;
+                }
+            }
+            if (digits > 0) {
+                if (i < n && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                    int j = i + 1;
+                    if (j < n && (text.charAt(j) == '+' || text.charAt(j) == '-')) {
+                        j++;
+                    }
+                    int k = j;
+                    while (k < n && isDigit(text.charAt(k))) {
+                        k++;
+                    }
+                    if (k > j) {
+                        i = k;
+                    }
+                }
+                end = i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The stack of values an evaluation works on, each slot holding a kind
+     * and a primitive or object value.
+     */
+    private static final class Values {
+
+        private final byte[] kinds;
+        private final long[] longs;
+        private final double[] doubles;
+        private final Object[] objects;
+        private int sp = -1;
+
+        Values(int depth) {
+            kinds = new byte[depth];
+            longs = new long[depth];
+            doubles = new double[depth];
+            objects = new Object[depth];
+        }
+
+        void setLong(int i, long value) {
+            kinds[i] = LONG;
+            longs[i] = value;
+        }
+
+        void setDouble(int i, double value) {
+            kinds[i] = DOUBLE;
+            doubles[i] = value;
+        }
+
+        void setDecimal(int i, BigDecimal value) {
+            kinds[i] = DECIMAL;
+            objects[i] = value;
+        }
+
+        void setBoolean(int i, boolean value) {
+            kinds[i] = BOOLEAN;
+            longs[i] = value ? 1 : 0;
+        }
+
+        void pushLong(long value) {
+            setLong(++sp, value);
+        }
+
+        void pushDouble(double value) {
+            setDouble(++sp, value);
+        }
+
+        /* Push a value as found in a tuple or the constants */
+        void pushValue(Object value) throws ExpressionException {
+            if (value instanceof Number) {
+                if (value instanceof Double || value instanceof Float) {
+                    pushDouble(((Number) value).doubleValue());
+                } else if (value instanceof BigDecimal) {
+                    setDecimal(++sp, (BigDecimal) value);
+                } else if (value instanceof BigInteger) {
+                    setDecimal(++sp, new BigDecimal((BigInteger) value));
+                } else {
+                    pushLong(((Number) value).longValue());
+                }
+            } else if (value instanceof Boolean) {
+                setBoolean(++sp, (Boolean) value);
+            } else {
+                String text = value.toString().trim();
+                if (text.equals("true") || text.equals("false")) {
+                    setBoolean(++sp, text.equals("true"));
+                } else if (!pushNumber(text)) {
+                    pushString(text);
+                }
+            }
+        }
+
+        void pushString(String value) {
+            kinds[++sp] = STRING;
+            objects[sp] = value;
+        }
+
+        /* Push the number a whole text is, optionally signed, returning false if it is not a number */
+        boolean pushNumber(String text) {
+            boolean result = false;
+            int start = text.startsWith("-") || text.startsWith("+") ? 1 : 0;
+            int end = numberEnd(text, start);
+            if (end > start && end == text.length()) {
+                result = true;
+                String digits = text.substring(start);
+                boolean negative = start == 1 && text.charAt(0) == '-';
+                if (digits.length() > 1 && (digits.charAt(1) == 'x' || digits.charAt(1) == 'X')) {
+                    BigInteger big = new BigInteger(digits.substring(2), 16);
+                    if (negative) {
+                        big = big.negate();
+                    }
+                    if (big.bitLength() < 64) {
+                        pushLong(big.longValue());
+                    } else {
+                        setDecimal(++sp, new BigDecimal(big));
+                    }
+                } else if (digits.indexOf('.') >= 0 || digits.indexOf('e') >= 0 || digits.indexOf('E') >= 0) {
+                    pushDouble(Double.parseDouble(text));
+                } else if (digits.length() < 19) {
+                    pushLong(Long.parseLong(text));
+                } else {
+                    BigDecimal big = new BigDecimal(text);
+                    if (big.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0 && big.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0) {
+                        pushLong(big.longValue());
+                    } else {
+                        setDecimal(++sp, big);
+                    }
+                }
+            }
+            return result;
+        }
+
+        boolean peekBoolean() throws ExpressionException {
+            if (kinds[sp] != BOOLEAN) {
+                throw new ExpressionException("Not true or false: " + box(sp));
+            }
+            return longs[sp] != 0;
+        }
+
+        boolean popBoolean() throws ExpressionException {
+            boolean result = peekBoolean();
+            sp--;
+            return result;
+        }
+
+        long longAt(int i) throws ExpressionException {
+            if (kinds[i] != LONG) {
+                throw new ExpressionException("Not an integer: " + box(i));
+            }
+            return longs[i];
+        }
+
+        double doubleAt(int i) {
+            double result;
+            switch (kinds[i]) {
+                case LONG:
+                    result = longs[i];
+                    break;
+                case DECIMAL:
+                    result = ((BigDecimal) objects[i]).doubleValue();
+                    break;
+                default:
+                    result = doubles[i];
+            }
+            return result;
+        }
+
+        BigDecimal decimalAt(int i) {
+            return kinds[i] == LONG ? BigDecimal.valueOf(longs[i]) : (BigDecimal) objects[i];
+        }
+
+        /* The kind two numbers are promoted to for an operator */
+        int numericKind(int a, int b) throws ExpressionException {
+            if (kinds[a] > DOUBLE) {
+                throw new ExpressionException("Not a number: " + box(a));
+            }
+            if (kinds[b] > DOUBLE) {
+                throw new ExpressionException("Not a number: " + box(b));
+            }
+            return Math.max(kinds[a], kinds[b]);
+        }
+
+        void negate() throws ExpressionException {
+            switch (numericKind(sp, sp)) {
+                case LONG:
+                    if (longs[sp] == Long.MIN_VALUE) {
+                        setDecimal(sp, decimalAt(sp).negate());
+                    } else {
+                        longs[sp] = -longs[sp];
+                    }
+                    break;
+                case DECIMAL:
+                    objects[sp] = ((BigDecimal) objects[sp]).negate();
+                    break;
+                default:
+                    doubles[sp] = -doubles[sp];
+            }
+        }
+
+        void abs() throws ExpressionException {
+            switch (numericKind(sp, sp)) {
+                case LONG:
+                    if (longs[sp] < 0) {
+                        negate();
+                    }
+                    break;
+                case DECIMAL:
+                    objects[sp] = ((BigDecimal) objects[sp]).abs();
+                    break;
+                default:
+                    doubles[sp] = Math.abs(doubles[sp]);
+            }
+        }
+
+        /* Apply a binary operator to the top two values, leaving the result in their stead */
+        void binary(int op) throws ExpressionException {
+            int b = sp--;
+            int a = sp;
+            switch (op) {
+                case EQ:
+                    setBoolean(a, isEqual(a, b));
+                    break;
+                case NE:
+                    setBoolean(a, !isEqual(a, b));
+                    break;
+                case AND:
+                case OR:
+                case XOR:
+                    if (kinds[a] == BOOLEAN && kinds[b] == BOOLEAN) {
+                        boolean l = longs[a] != 0;
+                        boolean r = longs[b] != 0;
+                        setBoolean(a, op == AND ? l & r : op == OR ? l | r : l ^ r);
+                    } else {
+                        long l = longAt(a);
+                        long r = longAt(b);
+                        setLong(a, op == AND ? l & r : op == OR ? l | r : l ^ r);
+                    }
+                    break;
+                case SHL:
+                    setLong(a, longAt(a) << longAt(b));
+                    break;
+                case SHR:
+                    setLong(a, longAt(a) >> longAt(b));
+                    break;
+                case LT:
+                case LE:
+                case GT:
+                case GE:
+                    int c = compare(a, b);
+                    setBoolean(a, op == LT ? c < 0 : op == LE ? c <= 0 : op == GT ? c > 0 : c >= 0);
+                    break;
+                default:
+                    arithmetic(op, a, b);
+            }
+        }
+
+        private boolean isEqual(int a, int b) throws ExpressionException {
+            boolean result;
+            if (kinds[a] <= DOUBLE && kinds[b] <= DOUBLE) {
+                result = compare(a, b) == 0;
+            } else {
+                result = String.valueOf(box(a)).equals(String.valueOf(box(b)));
+            }
+            return result;
+        }
+
+        /* Compare two numbers, NaN comparing unordered as with the Java operators */
+        private int compare(int a, int b) throws ExpressionException {
+            int result;
+            switch (numericKind(a, b)) {
+                case LONG:
+                    result = Long.compare(longs[a], longs[b]);
+                    break;
+                case DECIMAL:
+                    result = decimalAt(a).compareTo(decimalAt(b));
+                    break;
+                default:
+                    double l = doubleAt(a);
+                    double r = doubleAt(b);
+                    result = l < r ? -1 : l > r ? 1 : l == r ? 0 : 2;
+            }
+            return result;
+        }
+
+        private void arithmetic(int op, int a, int b) throws ExpressionException {
+            int kind = numericKind(a, b);
+            if (kind == LONG) {
+                long l = longs[a];
+                long r = longs[b];
+                try {
+                    switch (op) {
+                        case ADD:
+                            longs[a] = Math.addExact(l, r);
+                            break;
+                        case SUB:
+                            longs[a] = Math.subtractExact(l, r);
+                            break;
+                        case MUL:
+                            longs[a] = Math.multiplyExact(l, r);
+                            break;
+                        case DIV:
+                            if (l == Long.MIN_VALUE && r == -1) {
+                                throw new ArithmeticException("long overflow");
+                            }
+                            longs[a] = l / r;
+                            break;
+                        case MOD:
+                            longs[a] = l % r;
+                            break;
+                        case MIN:
+                            longs[a] = Math.min(l, r);
+                            break;
+                        default:
+                            longs[a] = Math.max(l, r);
+                    }
+                } catch (ArithmeticException ex) {
+                    if (r == 0) {
+                        throw ex;
+                    }
+                    kind = DECIMAL;
+                }
+            }
+            if (kind == DECIMAL) {
+                BigDecimal l = decimalAt(a);
+                BigDecimal r = decimalAt(b);
+                switch (op) {
+                    case ADD:
+                        setDecimal(a, l.add(r));
+                        break;
+                    case SUB:
+                        setDecimal(a, l.subtract(r));
+                        break;
+                    case MUL:
+                        setDecimal(a, l.multiply(r));
+                        break;
+                    case DIV:
+                        setDecimal(a, l.divide(r, MathContext.DECIMAL128));
+                        break;
+                    case MOD:
+                        setDecimal(a, l.remainder(r));
+                        break;
+                    case MIN:
+                        setDecimal(a, l.min(r));
+                        break;
+                    default:
+                        setDecimal(a, l.max(r));
+                }
+            } else if (kind == DOUBLE) {
+                double l = doubleAt(a);
+                double r = doubleAt(b);
+                switch (op) {
+                    case ADD:
+                        setDouble(a, l + r);
+                        break;
+                    case SUB:
+                        setDouble(a, l - r);
+                        break;
+                    case MUL:
+                        setDouble(a, l * r);
+                        break;
+                    case DIV:
+                        setDouble(a, l / r);
+                        break;
+                    case MOD:
+                        setDouble(a, l % r);
+                        break;
+                    case MIN:
+                        setDouble(a, Math.min(l, r));
+                        break;
+                    default:
+                        setDouble(a, Math.max(l, r));
+                }
+            }
+        }
+
+        Object box(int i) {
+            Object result;
+            switch (kinds[i]) {
+                case LONG:
+                    result = longs[i];
+                    break;
+                case DOUBLE:
+                    result = doubles[i];
+                    break;
+                case BOOLEAN:
+                    result = longs[i] != 0;
+                    break;
+                default:
+                    result = objects[i];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Recursive descent compiler from the text of an expression to the stack
+     * program.
+     */
+    private static final class Compiler {
+
+        private final String text;
+        private int pos;
+        private int[] code = new int[32];
+        private int size;
+        private long[] numbers = new long[8];
+        private int numberCount;
+        private Object[] objects = new Object[8];
+        private int objectCount;
+        private int depth;
+        private int maxDepth;
+
+        Compiler(String text) {
+            this.text = text;
+        }
+
+        Expression compile() throws ExpressionException {
+            skipSpace();
+            if (pos == text.length()) {
+                throw error("Empty expression");
+            }
+            ternary();
+            skipSpace();
+            if (pos < text.length()) {
+                throw error("Unexpected " + text.substring(pos));
+            }
+            return new Expression(text, Arrays.copyOf(code, size), Arrays.copyOf(numbers, numberCount),
+                    Arrays.copyOf(objects, objectCount), Math.max(maxDepth, 1));
+        }
+
+        private ExpressionException error(String message) {
+            return new ExpressionException(message + " in expression " + text.trim());
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /* Accept an operator unless it is the start of a longer operator */
+        private boolean accept(String op) {
+            skipSpace();
+            boolean result = text.startsWith(op, pos);
+            if (result && op.length() == 1 && pos + 1 < text.length()) {
+                char next = text.charAt(pos + 1);
+                switch (op.charAt(0)) {
+                    case '|':
+                    case '&':
+                        result = next != op.charAt(0);
+                        break;
+                    case '<':
+                    case '>':
+                        result = next != op.charAt(0) && next != '=';
+                        break;
+                    case '!':
+                        result = next != '=';
+                        break;
+                    default:
+                }
+            }
+            if (result) {
+                pos += op.length();
+            }
+            return result;
+        }
+
+        private void expect(String op) throws ExpressionException {
+            if (!accept(op)) {
+                throw error("Expected " + op);
+            }
+        }
+
+        private void emit(int op, int stackEffect) {
+            if (size + 2 > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[size++] = op;
+            depth += stackEffect;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void emit(int op, int operand, int stackEffect) {
+            emit(op, stackEffect);
+            code[size++] = operand;
+        }
+
+        /* Emit a jump whose target is patched later, returning where to patch */
+        private int emitJump(int op, int stackEffect) {
+            emit(op, 0, stackEffect);
+            return size - 1;
+        }
+
+        private void patch(int at) {
+            code[at] = size;
+        }
+
+        private int constant(long value) {
+            if (numberCount == numbers.length) {
+                numbers = Arrays.copyOf(numbers, numberCount * 2);
+            }
+            numbers[numberCount] = value;
+            return numberCount++;
+        }
+
+        private int constant(Object value) {
+            if (objectCount == objects.length) {
+                objects = Arrays.copyOf(objects, objectCount * 2);
+            }
+            objects[objectCount] = value;
+            return objectCount++;
+        }
+
+        private void ternary() throws ExpressionException {
+            or();
+            if (accept("?")) {
+                int toElse = emitJump(JUMP_IF_FALSE, -1);
+                ternary();
+                int toEnd = emitJump(JUMP, -1);
+                patch(toElse);
+                expect(":");
+                ternary();
+                patch(toEnd);
+            }
+        }
+
+        private void or() throws ExpressionException {
+            and();
+            while (accept("||")) {
+                int toEnd = emitJump(JUMP_IF_TRUE_ELSE_POP, -1);
+                and();
+                emit(TEST, 0);
+                patch(toEnd);
+            }
+        }
+
+        private void and() throws ExpressionException {
+            bitOr();
+            while (accept("&&")) {
+                int toEnd = emitJump(JUMP_IF_FALSE_ELSE_POP, -1);
+                bitOr();
+                emit(TEST, 0);
+                patch(toEnd);
+            }
+        }
+
+        private void bitOr() throws ExpressionException {
+            bitXor();
+            while (accept("|")) {
+                bitXor();
+                emit(OR, -1);
+            }
+        }
+
+        private void bitXor() throws ExpressionException {
+            bitAnd();
+            while (accept("^")) {
+                bitAnd();
+                emit(XOR, -1);
+            }
+        }
+
+        private void bitAnd() throws ExpressionException {
+            equality();
+            while (accept("&")) {
+                equality();
+                emit(AND, -1);
+            }
+        }
+
+        private void equality() throws ExpressionException {
+            relational();
+            boolean more = true;
+            while (more) {
+                if (accept("==")) {
+                    relational();
+                    emit(EQ, -1);
+                } else if (accept("!=")) {
+                    relational();
+                    emit(NE, -1);
+                } else {
+                    more = false;
+                }
+            }
+        }
+
+        private void relational() throws ExpressionException {
+            shift();
+            boolean more = true;
+            while (more) {
+                if (accept("<=")) {
+                    shift();
+                    emit(LE, -1);
+                } else if (accept(">=")) {
+                    shift();
+                    emit(GE, -1);
+                } else if (accept("<")) {
+                    shift();
+                    emit(LT, -1);
+                } else if (accept(">")) {
+                    shift();
+                    emit(GT, -1);
+                } else {
+                    more = false;
+                }
+            }
+        }
+
+        private void shift() throws ExpressionException {
+            additive();
+            boolean more = true;
+            while (more) {
+                if (accept("<<")) {
+                    additive();
+                    emit(SHL, -1);
+                } else if (accept(">>")) {
+                    additive();
+                    emit(SHR, -1);
+                } else {
+                    more = false;
+                }
+            }
+        }
+
+        private void additive() throws ExpressionException {
+            term();
+            boolean more = true;
+            while (more) {
+                if (accept("+")) {
+                    term();
+                    emit(ADD, -1);
+                } else if (accept("-")) {
+                    term();
+                    emit(SUB, -1);
+                } else {
+                    more = false;
+                }
+            }
+        }
+
+        private void term() throws ExpressionException {
+            unary();
+            boolean more = true;
+            while (more) {
+                if (accept("*")) {
+                    unary();
+                    emit(MUL, -1);
+                } else if (accept("/")) {
+                    unary();
+                    emit(DIV, -1);
+                } else if (accept("%")) {
+                    unary();
+                    emit(MOD, -1);
+                } else {
+                    more = false;
+                }
+            }
+        }
+
+        private void unary() throws ExpressionException {
+            if (accept("-")) {
+                unary();
+                emit(NEG, 0);
+            } else if (accept("+")) {
+                unary();
+            } else if (accept("!")) {
+                unary();
+                emit(NOT, 0);
+            } else {
+                primary();
+            }
+        }
+
+        private void primary() throws ExpressionException {
+            skipSpace();
+            if (pos == text.length()) {
+                throw error("Missing operand");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                ternary();
+                expect(")");
+            } else if (c == '@') {
+                int start = pos++;
+                while (pos < text.length() && (text.charAt(pos) == '@' || text.charAt(pos) == '/')) {
+                    pos++;
+                }
+                while (pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && OPERATOR_CHARS.indexOf(text.charAt(pos)) < 0) {
+                    pos++;
+                }
+                emit(PUSH_TUPLE, constant(text.substring(start, pos)), 1);
+            } else if (c == '\'' || c == '"') {
+                int end = text.indexOf(c, pos + 1);
+                if (end == -1) {
+                    throw error("Unterminated string");
+                }
+                emit(PUSH_STRING, constant(text.substring(pos + 1, end)), 1);
+                pos = end + 1;
+            } else if (c == '~') {
+                pos++;
+                emit(PUSH_POP, 1);
+            } else if (isDigit(c) || c == '.') {
+                int end = numberEnd(text, pos);
+                if (end == pos) {
+                    throw error("Unexpected " + text.substring(pos));
+                }
+                Object value = Expression.number(text.substring(pos, end));
+                pos = end;
+                if (value instanceof Long) {
+                    emit(PUSH_LONG, constant((long) (Long) value), 1);
+                } else if (value instanceof Double) {
+                    emit(PUSH_DOUBLE, constant(Double.doubleToRawLongBits((Double) value)), 1);
+                } else {
+                    emit(PUSH_OBJECT, constant(value), 1);
+                }
+            } else if (Character.isLetter(c)) {
+                int start = pos;
+                while (pos < text.length() && Character.isLetterOrDigit(text.charAt(pos))) {
+                    pos++;
+                }
+                String word = text.substring(start, pos);
+                switch (word) {
+                    case "true":
+                    case "false":
+                        emit(PUSH_OBJECT, constant(Boolean.valueOf(word)), 1);
+                        break;
+                    case "abs":
+                        expect("(");
+                        ternary();
+                        expect(")");
+                        emit(ABS, 0);
+                        break;
+                    case "min":
+                    case "max":
+                        expect("(");
+                        ternary();
+                        expect(",");
+                        ternary();
+                        expect(")");
+                        emit(word.equals("min") ? MIN : MAX, -1);
+                        break;
+                    default:
+                        throw error("Unknown word " + word);
+                }
+            } else {
+                throw error("Unexpected " + text.substring(pos));
+            }
+        }
+    }
+}
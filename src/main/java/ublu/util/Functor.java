@@ -38,6 +38,12 @@ import java.io.Serializable;
  */
 public class Functor implements Serializable {
 
+    /**
+     * Pinned to the value computed before functors were compiled into
+     * templates so that functions saved by earlier versions still load.
+     */
+    private static final long serialVersionUID = -337598488971159089L;
+
     private void writeObject(java.io.ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
     }
@@ -64,8 +70,40 @@ public class Functor implements Serializable {
     public Functor(String block, FunctorParamList fpl) {
         setBlock(block);
         setFunctorParamList(fpl);
+        getTemplate();
+    }
+
+    /**
+     * Instance with a template already compiled, e.g., as restored from a
+     * {@link SysImage}
+     *
+     * @param block execution block
+     * @param fpl list of parameter names (without decoration)
+     * @param template the block compiled for the parameter list
+     */
+    Functor(String block, FunctorParamList fpl, FunctorTemplate template) {
+        setBlock(block);
+        setFunctorParamList(fpl);
+        this.template = template;
     }
     private String block;
+    private transient volatile FunctorTemplate template;
+
+    /**
+     * Get the execution block compiled into a template of parameter slots,
+     * compiling it if it hasn't been compiled since the functor was created,
+     * modified or deserialized.
+     *
+     * @return the compiled template
+     */
+    public FunctorTemplate getTemplate() {
+        FunctorTemplate t = template;
+        if (t == null) {
+            t = new FunctorTemplate(getBlock(), getFunctorParamList());
+            template = t;
+        }
+        return t;
+    }
 
     /**
      * Return the execution block
@@ -83,6 +121,7 @@ public class Functor implements Serializable {
      */
     public final void setBlock(String block) {
         this.block = block;
+        template = null;
     }
     FunctorParamList functorParamList;
 
@@ -93,6 +132,7 @@ public class Functor implements Serializable {
      */
     public final void setFunctorParamList(FunctorParamList functorParamList) {
         this.functorParamList = functorParamList;
+        template = null;
     }
 
     /**
@@ -103,6 +143,7 @@ public class Functor implements Serializable {
      */
     public Functor addParam(String paramName) {
         functorParamList.add(paramName);
+        template = null;
         return this;
     }
 
@@ -135,68 +176,107 @@ public class Functor implements Serializable {
     }
 
     /**
-     * Resolve all decorated occurrences of decorated param names in the block
-     * to ParamSubstitutionTuple names from the substitution list
+     * Bind the tuple name list to the parameter slots of the compiled template.
+     * Every tuple argument is bound by a substitute tuple put to the most local
+     * map under its slot's name, so that func block LOCALs can't hide the
+     * params to a function. All arguments are resolved before any substitute
+     * is put, so an argument which is itself a substitute in the calling
+     * function is not hidden by the substitutes of this call.
      *
-     * @param interpreter
-     * @param tnl substitution list of tuple names
+     * <p>
+     * If every argument is a tuple, the template compiled once is returned.
+     * Otherwise the literal arguments are spliced into the template text.</p>
+     *
+     * @param interpreter the interpreter which has pushed the frame for the
+     * call
+     * @param tnl list of the tuple names and literals passed to the function
      * @return the bound block
      */
-    public String bindWithSubstitutes(Interpreter interpreter, TupleNameList tnl) {
-        tnl = subTupleNameList(interpreter, tnl);
-        // /* debug */ System.err.println("Tuple name list is " + tnl);
-        FunctorParamList fpl = getFunctorParamList();
-        String s = getBlock();
-        String y;
-        for (int i = 0; i < fpl.size(); i++) {
-            String rgx = "@@" + fpl.get(i) + "\\s";
-            y = s.replaceAll(rgx, tnl.get(i) + " ");
-            s = y;
-            // /* Debug */ System.err.println("block after ParamSubstitutionTuple replacement " + s);
-        }
-        return s;
+    public CompiledBlock bindToTemplate(Interpreter interpreter, TupleNameList tnl) {
+        return bindToTemplate(interpreter, tnl, resolveArguments(interpreter, tnl));
     }
 
     /**
-     * Replace the tuple names in the tuple name list passed to function with
-     * substitute temporary tuples
+     * Resolve the tuple arguments of a call in the scope of the caller.
      *
-     * @param interpreter
-     * @param tnl
-     * @return the list with all tuple names replaced with the names of the
-     * substitute temporaries
-     */
-    public TupleNameList subTupleNameList(Interpreter interpreter, TupleNameList tnl) {
-        String tupleName;
-        Tuple substituteTuple;
-        for (int i = 0; i < tnl.size(); i++) {
-            tupleName = tnl.get(i);
+     * @param interpreter the calling interpreter
+     * @param tnl list of the tuple names and literals passed to the function
+     * @return the tuple for each argument, null for each literal
+     */
+    public Tuple[] resolveArguments(Interpreter interpreter, TupleNameList tnl) {
+        Tuple[] boundTuples = new Tuple[tnl.size()];
+        for (int i = 0; i < boundTuples.length; i++) {
+            String tupleName = tnl.get(i);
             if (Tuple.isTupleName(tupleName)) {
-                substituteTuple = createSubstitute(interpreter, tupleName, interpreter.getParamSubIndex());
-                tnl.set(i, substituteTuple.getKey());
+                boundTuples[i] = resolveForSubstitute(interpreter, tupleName);
             }
         }
-        return tnl;
+        return boundTuples;
     }
 
     /**
-     * Create a substitute tuple so that func block LOCALs can't hide the params
-     * to a function
+     * Bind arguments already resolved by
+     * {@link #resolveArguments(Interpreter, TupleNameList)} to the parameter
+     * slots of the compiled template. The substitutes are put to the most local
+     * map, which by now belongs to the call.
+     *
+     * @param interpreter the interpreter which has pushed the frame for the
+     * call
+     * @param tnl list of the tuple names and literals passed to the function
+     * @param boundTuples the resolved tuple arguments
+     * @return the bound block
+     */
+    public CompiledBlock bindToTemplate(Interpreter interpreter, TupleNameList tnl, Tuple[] boundTuples) {
+        FunctorTemplate t = getTemplate();
+        boolean literals = false;
+        for (Tuple boundTuple : boundTuples) {
+            if (boundTuple == null) {
+                literals = true;
+            }
+        }
+        String[] values = literals ? new String[boundTuples.length] : null;
+        for (int i = 0; i < boundTuples.length; i++) {
+            if (boundTuples[i] != null) {
+                createSubstitute(interpreter, t.getSlotName(i), boundTuples[i], tnl.get(i));
+            }
+            if (literals) {
+                values[i] = boundTuples[i] != null ? t.getSlotName(i) : FunctorTemplate.literalArg(tnl.get(i));
+            }
+        }
+        return literals ? CompiledBlock.compile(t.splice(values)) : t.getCompiledBlock();
+    }
+
+    /**
+     * Find the tuple a function argument names, creating it if it doesn't
+     * exist.
      *
      * @param interpreter
      * @param tupleName the real tuple name
-     * @param index
-     * @return a new tuple in the local map created by
-     * Interpreter.executeFunctor
+     * @return the tuple
      */
-    public Tuple createSubstitute(Interpreter interpreter, String tupleName, long index) {
+    public Tuple resolveForSubstitute(Interpreter interpreter, String tupleName) {
         Tuple t = interpreter.getTuple(tupleName);
         interpreter.dbug().dbugTuple("FUNCTOR create sub for: ", t);
         if (t == null) {
             t = interpreter.setTuple(tupleName, null);
             interpreter.dbug().dbugTuple("FUNCTOR Tuple sprang into existence: ", t);
         }
-        ParamSubTuple pst = new ParamSubTuple("@///" + index, t, tupleName);
+        return t;
+    }
+
+    /**
+     * Create a substitute tuple so that func block LOCALs can't hide the params
+     * to a function
+     *
+     * @param interpreter
+     * @param slotName name of the substitute
+     * @param t the tuple bound to the param
+     * @param tupleName the real tuple name
+     * @return a new tuple in the local map created by
+     * Interpreter.executeFunctor
+     */
+    public Tuple createSubstitute(Interpreter interpreter, String slotName, Tuple t, String tupleName) {
+        ParamSubTuple pst = new ParamSubTuple(slotName, t, tupleName);
         interpreter.dbug().dbugTuple("FUNCTOR New PST: ", pst);
         interpreter.getTupleMap().putTupleMostLocal(pst);
         interpreter.dbug().dbugTupleMap("FUNCTOR Map after new PST: ", interpreter.getTupleMap());
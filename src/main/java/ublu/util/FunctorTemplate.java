@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import ublu.util.Generics.FunctorParamList;
+
+/**
+ * A functor's execution block compiled once into a template of parameter
+ * slots. Every decorated occurrence <code>@@param</code> of a parameter in the
+ * block is a slot. Binding by slot index replaces the
+ * <code>replaceAll()</code> of each parameter on every call.
+ *
+ * <p>
+ * Each slot has a fixed substitute tuple name of the form
+ * <code>@///7.0</code> (template number and slot index) so that the template
+ * with all slots bound to substitute tuples is compiled only once. A literal
+ * argument (a plain word, a quotation, a block, a const name or the
+ * <code>~</code> pop sign) is spliced into the template text in its slot's
+ * stead, as the textual substitution always did.</p>
+ *
+ * @author jwoehr
+ */
+public final class FunctorTemplate {
+
+    private static final AtomicLong NEXT_TEMPLATE_NUMBER = new AtomicLong();
+
+    private final String[] slotNames;
+    /**
+     * The block text between slots, one more than there are occurrences
+     */
+    private final String[] texts;
+    /**
+     * Slot index of each occurrence
+     */
+    private final int[] occurrences;
+    private final CompiledBlock compiledBlock;
+
+    /**
+     * Compile a template from a functor's block and parameter list
+     *
+     * @param block the execution block
+     * @param fpl the list of parameter names (without decoration)
+     */
+    public FunctorTemplate(String block, FunctorParamList fpl) {
+        long number = NEXT_TEMPLATE_NUMBER.getAndIncrement();
+        slotNames = new String[fpl.size()];
+        for (int i = 0; i < slotNames.length; i++) {
+            slotNames[i] = Tuple.PARAMSUBTUPLECHARS + number + "." + i;
+        }
+        List<String> textList = new ArrayList<>();
+        List<Integer> occurrenceList = new ArrayList<>();
+        int textStart = 0;
+        int i = block.indexOf("@@");
+        while (i != -1) {
+            int nameEnd = i + 2;
+            while (nameEnd < block.length() && !Character.isWhitespace(block.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            int slot = nameEnd < block.length() ? fpl.indexOf(block.substring(i + 2, nameEnd)) : -1;
+            if (slot == -1) {
+                i = block.indexOf("@@", i + 1);
+            } else {
+                textList.add(block.substring(textStart, i));
+                occurrenceList.add(slot);
+                textStart = nameEnd;
+                i = block.indexOf("@@", nameEnd);
+            }
+        }
+        textList.add(block.substring(textStart));
+        texts = textList.toArray(new String[textList.size()]);
+        occurrences = new int[occurrenceList.size()];
+        for (int j = 0; j < occurrences.length; j++) {
+            occurrences[j] = occurrenceList.get(j);
+        }
+        compiledBlock = CompiledBlock.compile(splice(slotNames));
+    }
+
+    /**
+     * Rebuild a template saved in a {@link SysImage} without scanning or
+     * lexing its block again. The template gets slot names of its own and
+     * each lex of its compiled block is rebuilt by splicing those names into
+     * the pieces of the lex saved from between slots.
+     *
+     * @param numSlots number of parameter slots
+     * @param texts the block text between slots
+     * @param occurrences slot index of each occurrence
+     * @param kinds kind of each lex of the compiled block
+     * @param lexPieces text of each lex between its slots
+     * @param lexSlots slot index of each slot in each lex
+     */
+    FunctorTemplate(int numSlots, String[] texts, int[] occurrences, byte[] kinds, String[][] lexPieces, int[][] lexSlots) {
+        long number = NEXT_TEMPLATE_NUMBER.getAndIncrement();
+        slotNames = new String[numSlots];
+        for (int i = 0; i < slotNames.length; i++) {
+            slotNames[i] = Tuple.PARAMSUBTUPLECHARS + number + "." + i;
+        }
+        this.texts = texts;
+        this.occurrences = occurrences;
+        String[] lexes = new String[kinds.length];
+        for (int i = 0; i < lexes.length; i++) {
+            StringBuilder sb = new StringBuilder(lexPieces[i][0]);
+            for (int j = 0; j < lexSlots[i].length; j++) {
+                sb.append(slotNames[lexSlots[i][j]]).append(lexPieces[i][j + 1]);
+            }
+            lexes[i] = sb.toString();
+        }
+        compiledBlock = CompiledBlock.fromPacked(splice(slotNames), lexes, kinds);
+    }
+
+    /**
+     * The block text between slots. Not to be modified.
+     *
+     * @return the block text between slots
+     */
+    String[] texts() {
+        return texts;
+    }
+
+    /**
+     * Slot index of each occurrence. Not to be modified.
+     *
+     * @return slot index of each occurrence
+     */
+    int[] occurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Get the number of parameter slots
+     *
+     * @return the number of parameter slots
+     */
+    public int numSlots() {
+        return slotNames.length;
+    }
+
+    /**
+     * Get the substitute tuple name for a slot
+     *
+     * @param slot slot index
+     * @return the substitute tuple name for the slot
+     */
+    public String getSlotName(int slot) {
+        return slotNames[slot];
+    }
+
+    /**
+     * Get the template compiled with every slot bound to its substitute tuple
+     *
+     * @return the template compiled with every slot bound to its substitute
+     * tuple
+     */
+    public CompiledBlock getCompiledBlock() {
+        return compiledBlock;
+    }
+
+    /**
+     * Splice text for each slot into the template
+     *
+     * @param values text for each slot
+     * @return the block text with the slots filled in
+     */
+    public String splice(String[] values) {
+        StringBuilder sb = new StringBuilder(texts[0]);
+        for (int i = 0; i < occurrences.length; i++) {
+            sb.append(values[occurrences[i]]).append(texts[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Turn an argument as passed to a function back into its literal text.
+     * Quotations and blocks are passed with their delimiters backslashed, as
+     * required when they were substituted by <code>replaceAll()</code>, so a
+     * backslash quotes the character following it.
+     *
+     * @param arg the argument as passed to the function
+     * @return its literal text
+     * @see ArgArray#nextAssimilableElement()
+     */
+    public static String literalArg(String arg) {
+        String result = arg;
+        if (arg.indexOf('\\') != -1) {
+            StringBuilder sb = new StringBuilder(arg.length());
+            for (int i = 0; i < arg.length(); i++) {
+                char c = arg.charAt(i);
+                if (c == '\\' && i + 1 < arg.length()) {
+                    c = arg.charAt(++i);
+                }
+                sb.append(c);
+            }
+            result = sb.toString();
+        }
+        return result;
+    }
+}
@@ -44,6 +44,10 @@ public class GenSh {
      * underneath in the ./lib dir.
      */
     public final static String DEFAULT_FQJARPATH = "./ublu.jar";
+    /**
+     * Default key file of the resident daemon, as written by the shell.
+     */
+    public final static String DEFAULT_DAEMON_KEYFILE = "${HOME}/.ublud";
     private OptionArrayList optionArrayList;
     private String fqJarPath;
     private String functionInvocation;
@@ -54,6 +58,8 @@ public class GenSh {
     private String dateGenerated = Calendar.getInstance().getTime().toString();
     private String generatingUser = Ublu.getUser();
     private boolean strictPosix;
+    private boolean daemon;
+    private String daemonKeyFile;
     private StringArrayList preludeCommandList;
 
     /**
@@ -83,6 +89,42 @@ public class GenSh {
         this.strictPosix = strictPosix;
     }
 
+    /**
+     * True if the script tries a resident daemon before starting a JVM
+     *
+     * @return true if the script tries a resident daemon first
+     */
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    /**
+     * Set whether the script tries a resident daemon before starting a JVM
+     *
+     * @param daemon true if the script tries a resident daemon first
+     */
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    /**
+     * Get the key file the script reads the daemon's port and token from
+     *
+     * @return the daemon key file path as the shell will see it
+     */
+    public String getDaemonKeyFile() {
+        return daemonKeyFile;
+    }
+
+    /**
+     * Set the key file the script reads the daemon's port and token from
+     *
+     * @param daemonKeyFile the daemon key file path as the shell will see it
+     */
+    public void setDaemonKeyFile(String daemonKeyFile) {
+        this.daemonKeyFile = daemonKeyFile;
+    }
+
     /**
      * Accumulate an option during interpretation so we can document for other
      * users the (complicated) command lines put to gensh.
@@ -152,6 +194,7 @@ public class GenSh {
         this.preludeCommandList = new StringArrayList();
         fqJarPath = DEFAULT_FQJARPATH;
         includePath = "";
+        daemonKeyFile = DEFAULT_DAEMON_KEYFILE;
     }
 
     /**
@@ -431,8 +474,83 @@ public class GenSh {
         return sb.toString();
     }
 
+    private String genDaemonClient() {
+        // The client speaks the protocol described in ublu.server.Daemon over
+        // a /dev/tcp redirection so that no process is started to connect.
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Run the invocation in the resident daemon named by the key file\n")
+                .append("# (see the Ublu daemon command), returning its exit code. UBLUD_ANSWERED\n")
+                .append("# is set only if the daemon reported an exit code, i.e., ran the invocation\n")
+                .append("function ublud_client");
+        if (isStrictPosix()) {
+            sb.append("()");
+        }
+        sb.append(" {\n")
+                .append("\ttypeset ublud_port ublud_token ublud_line ublud_arg ublud_rc\n")
+                .append("\tUBLUD_ANSWERED=\n")
+                .append("\t[ -r \"${UBLUD_KEYFILE}\" ] || return 1\n")
+                .append("\tread ublud_port ublud_token < \"${UBLUD_KEYFILE}\" || return 1\n")
+                .append("\t{ exec 3<>/dev/tcp/127.0.0.1/${ublud_port}; } 2>/dev/null || return 1\n")
+                .append("\t{\n")
+                .append("\t\tprintf 'UBLUD 1 %s\\n' \"${ublud_token}\"\n")
+                .append("\t\tprintf 'CWD %s\\n' \"${PWD}\"\n")
+                .append("\t\tprintf 'PROP ublu.includepath=%s\\n' \"").append(includePath).append("\"\n")
+                .append("\t\tfor ublud_arg in ${JVMPROPS}\n")
+                .append("\t\tdo\n")
+                .append("\t\t\tprintf 'PROP %s\\n' \"${ublud_arg#-D}\"\n")
+                .append("\t\tdone\n")
+                .append("\t\tenv | sed 's/^/ENV /'\n")
+                .append("\t\tfor ublud_arg in \"$@\"\n")
+                .append("\t\tdo\n")
+                .append("\t\t\tprintf 'ARG %s\\n' \"${ublud_arg//$'\\n'/ }\"\n")
+                .append("\t\tdone\n")
+                .append("\t\tif [ ! -t 0 ] && [ \"${UBLUD_NOSTDIN}\" == \"\" ]\n")
+                .append("\t\tthen\n")
+                .append("\t\t\twhile IFS= read -r ublud_line || [ -n \"${ublud_line}\" ]\n")
+                .append("\t\t\tdo\n")
+                .append("\t\t\t\tprintf 'IN %s\\n' \"${ublud_line}\"\n")
+                .append("\t\t\tdone\n")
+                .append("\t\tfi\n")
+                .append("\t\tprintf 'END\\n'\n")
+                .append("\t} >&3\n")
+                .append("\tublud_rc=1\n")
+                .append("\twhile IFS= read -r ublud_line\n")
+                .append("\tdo\n")
+                .append("\t\tcase \"${ublud_line}\" in\n")
+                .append("\t\t\t\"O \"*)\tprintf '%s\\n' \"${ublud_line#O }\";;\n")
+                .append("\t\t\t\"o \"*)\tprintf '%s' \"${ublud_line#o }\";;\n")
+                .append("\t\t\t\"E \"*)\tprintf '%s\\n' \"${ublud_line#E }\" >&2;;\n")
+                .append("\t\t\t\"e \"*)\tprintf '%s' \"${ublud_line#e }\" >&2;;\n")
+                .append("\t\t\t\"X \"*)\tublud_rc=\"${ublud_line#X }\"; UBLUD_ANSWERED=1;;\n")
+                .append("\t\tesac\n")
+                .append("\tdone <&3\n")
+                .append("\texec 3<&-\n")
+                .append("\treturn ${ublud_rc}\n")
+                .append("}\n");
+        return sb.toString();
+    }
+
+    private String genDaemonInvocation() {
+        StringBuilder sb = new StringBuilder("# Try the resident daemon, falling back to a new JVM only if none ran the invocation\n");
+        sb.append("UBLUD_KEYFILE=\"${UBLUD_KEYFILE:-").append(getDaemonKeyFile()).append("}\"\n")
+                .append("ublud_client ")
+                .append("${gensh_runtime_opts} ")
+                .append("include ").append("${SILENT}").append(includeName).append(" ")
+                .append(getFunctionInvocation().replace("(", "\\(").replace(")", "\\)"))
+                .append('\n')
+                .append("UBLUD_RC=$?\n")
+                .append("if [ -n \"${UBLUD_ANSWERED}\" ]\n")
+                .append("then\n")
+                .append("\texit ${UBLUD_RC}\n")
+                .append("fi\n");
+        return sb.toString();
+    }
+
     private String genInvocation() {
         StringBuilder sb = new StringBuilder("# Invocation\n");
+        if (isDaemon()) {
+            sb.append(genDaemonInvocation());
+        }
         sb.append("java${JVMOPTS}${JVMPROPS} ")
                 .append("-Dublu.includepath=\"")
                 .append(includePath)
@@ -470,6 +588,7 @@ public class GenSh {
                 .append(genOptionsString()).append("\n")
                 .append(genScriptDir()).append("\n")
                 .append(genPreludeCommands()).append('\n')
+                .append(isDaemon() ? genDaemonClient() + "\n" : "")
                 .append(genInvocation())
                 .append("\nexit $?\n");
         return sb.toString();
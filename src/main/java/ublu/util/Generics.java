@@ -937,7 +937,8 @@ public class Generics {
         }
 
         /**
-         * Restore a functor map from a frozen file
+         * Restore a functor map from a frozen file holding either a
+         * {@link SysImage} or a serialized map
          *
          * @param f the file
          * @return the functor map
@@ -946,22 +947,29 @@ public class Generics {
          * @throws ClassNotFoundException
          */
         public static FunctorMap fromFile(File f) throws FileNotFoundException, IOException, ClassNotFoundException {
-            FileInputStream fis = new FileInputStream(f);
-            BufferedInputStream bis = new BufferedInputStream(fis);
-            ByteArrayList bal = new ByteArrayList();
-            byte[] buff = new byte[1024];
-            int numread;
-            while (bis.available() > 0) {
-                numread = bis.read(buff);
-                for (int i = 0; i < numread; i++) {
-                    bal.add(buff[i]);
+            FunctorMap result;
+            if (SysImage.isImage(f)) {
+                result = SysImage.fromFile(f).getFunctorMap();
+            } else {
+                FileInputStream fis = new FileInputStream(f);
+                BufferedInputStream bis = new BufferedInputStream(fis);
+                ByteArrayList bal = new ByteArrayList();
+                byte[] buff = new byte[1024];
+                int numread;
+                while (bis.available() > 0) {
+                    numread = bis.read(buff);
+                    for (int i = 0; i < numread; i++) {
+                        bal.add(buff[i]);
+                    }
                 }
+                result = fromByteArray(bal.byteArray());
             }
-            return fromByteArray(bal.byteArray());
+            return result;
         }
 
         /**
-         * Restore a functor map from a byte array
+         * Restore a functor map from a byte array holding either a
+         * {@link SysImage} or a serialized map
          *
          * @param byteArray the byte array
          * @return the functor map
@@ -970,11 +978,15 @@ public class Generics {
          */
         public static FunctorMap fromByteArray(byte[] byteArray) throws IOException, ClassNotFoundException {
             FunctorMap fm = null;
-            ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            Object restoredObject = ois.readObject();
-            if (restoredObject instanceof FunctorMap) {
-                fm = FunctorMap.class.cast(restoredObject);
+            if (SysImage.isImage(byteArray)) {
+                fm = SysImage.fromByteArray(byteArray).getFunctorMap();
+            } else {
+                ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
+                ObjectInputStream ois = new ObjectInputStream(bais);
+                Object restoredObject = ois.readObject();
+                if (restoredObject instanceof FunctorMap) {
+                    fm = FunctorMap.class.cast(restoredObject);
+                }
             }
             return fm;
         }
@@ -1017,7 +1029,8 @@ public class Generics {
         }
 
         /**
-         * Restore a const map from a frozen file
+         * Restore a const map from a frozen file holding either a
+         * {@link SysImage} or a serialized map
          *
          * @param f the file
          * @return the const map
@@ -1026,22 +1039,29 @@ public class Generics {
          * @throws ClassNotFoundException
          */
         public static ConstMap fromFile(File f) throws FileNotFoundException, IOException, ClassNotFoundException {
-            FileInputStream fis = new FileInputStream(f);
-            BufferedInputStream bis = new BufferedInputStream(fis);
-            ByteArrayList bal = new ByteArrayList();
-            byte[] buff = new byte[1024];
-            int numread;
-            while (bis.available() > 0) {
-                numread = bis.read(buff);
-                for (int i = 0; i < numread; i++) {
-                    bal.add(buff[i]);
+            ConstMap result;
+            if (SysImage.isImage(f)) {
+                result = SysImage.fromFile(f).getConstMap();
+            } else {
+                FileInputStream fis = new FileInputStream(f);
+                BufferedInputStream bis = new BufferedInputStream(fis);
+                ByteArrayList bal = new ByteArrayList();
+                byte[] buff = new byte[1024];
+                int numread;
+                while (bis.available() > 0) {
+                    numread = bis.read(buff);
+                    for (int i = 0; i < numread; i++) {
+                        bal.add(buff[i]);
+                    }
                 }
+                result = fromByteArray(bal.byteArray());
             }
-            return fromByteArray(bal.byteArray());
+            return result;
         }
 
         /**
-         * Restore a const map from a byte array
+         * Restore a const map from a byte array holding either a
+         * {@link SysImage} or a serialized map
          *
          * @param byteArray the byte array
          * @return the const map
@@ -1050,11 +1070,15 @@ public class Generics {
          */
         public static ConstMap fromByteArray(byte[] byteArray) throws IOException, ClassNotFoundException {
             ConstMap fm = null;
-            ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            Object restoredObject = ois.readObject();
-            if (restoredObject instanceof ConstMap) {
-                fm = ConstMap.class.cast(restoredObject);
+            if (SysImage.isImage(byteArray)) {
+                fm = SysImage.fromByteArray(byteArray).getConstMap();
+            } else {
+                ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
+                ObjectInputStream ois = new ObjectInputStream(bais);
+                Object restoredObject = ois.readObject();
+                if (restoredObject instanceof ConstMap) {
+                    fm = ConstMap.class.cast(restoredObject);
+                }
             }
             return fm;
         }
@@ -25,19 +25,29 @@
  */
 package ublu.util;
 
-import ublu.util.Generics.StringArrayList;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Create and maintain a history file
+ * <p>
+ * Lines are queued by {@link #writeLine(String)} and appended by a background
+ * writer thread which writes all the lines queued since its last write at
+ * once. Alongside the history file an index file holds the offset of the start
+ * of each line, so that reading particular lines seeks directly to them. If
+ * the history file has grown since the index was last written, e.g., by
+ * another Ublu or an older Ublu without an index, the index catches up by
+ * scanning only what was added. Lines are written and read as UTF-8.</p>
  *
  * @author jwoehr
  */
@@ -49,33 +59,26 @@ public class History implements Closeable {
      */
     public static final String DEFAULT_HISTORY_FILENAME = "history.ublu";
     /**
-     * current history File Name
+     * Suffix appended to the history file name to name its index file
      */
-    protected String historyFileName = DEFAULT_HISTORY_FILENAME;
+    public static final String INDEX_SUFFIX = ".idx";
     /**
-     * Writes the lines
+     * current history File Name
      */
-    protected BufferedWriter writer;
-    
-    private final Interpreter myInterpreter;
+    protected String historyFileName = DEFAULT_HISTORY_FILENAME;
 
-    /**
-     * Get the writer of lines
-     *
-     * @return writer of lines or null
-     */
-    public BufferedWriter getWriter() {
-        return writer;
-    }
+    private static final int OFFSET_SIZE = 8;
+    private static final int SCAN_BUFFER_SIZE = 65536;
 
-    /**
-     * Set the writer of lines
-     *
-     * @param writer the writer of lines or null
-     */
-    protected final void setWriter(BufferedWriter writer) {
-        this.writer = writer;
-    }
+    private final Interpreter myInterpreter;
+    private RandomAccessFile data;
+    private RandomAccessFile index;
+    private long lineCount;
+    private long dataLength;
+    private final LinkedBlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private long enqueued;
+    private long written;
+    private Thread writerThread;
 
     /**
      * Get history file name
@@ -102,9 +105,7 @@ public class History implements Closeable {
      * @throws IOException
      */
     public History(Interpreter interpreter) throws IOException {
-        this.myInterpreter=interpreter;
-        setHistoryFileName(DEFAULT_HISTORY_FILENAME);
-        fetchWriter();
+        this(interpreter, DEFAULT_HISTORY_FILENAME);
     }
 
     /**
@@ -115,101 +116,350 @@ public class History implements Closeable {
      * @throws IOException
      */
     public History(Interpreter interpreter, String filename) throws IOException {
-        this.myInterpreter=interpreter;
+        this.myInterpreter = interpreter;
         setHistoryFileName(filename);
-        fetchWriter();
+        openFiles();
+        startWriter();
     }
 
     /**
-     * close the file and discard the writer
+     * Open the history file and its index, validating the index against the
+     * history file and bringing it up to date.
      *
      * @throws IOException
      */
-    protected final void closeWriter() throws IOException {
-        if (getWriter() != null) {
-            getWriter().flush();
-            getWriter().close();
-            setWriter(null);
+    private synchronized void openFiles() throws IOException {
+        data = new RandomAccessFile(historyFileName, "rw");
+        index = new RandomAccessFile(historyFileName + INDEX_SUFFIX, "rw");
+        long indexed = index.length() / OFFSET_SIZE;
+        lineCount = 0;
+        dataLength = 0;
+        if (indexed > 0 && isIndexValid(indexed)) {
+            // Trust the index through its last entry if that entry is the start of a line
+            long lastStart = offsetOf(indexed - 1);
+            if (lastStart < data.length() && (lastStart == 0 || byteAt(lastStart - 1) == '\n')) {
+                lineCount = indexed - 1;
+                dataLength = lastStart;
+            }
         }
+        index.setLength(lineCount * OFFSET_SIZE);
+        catchUp();
     }
 
     /**
-     * instance the writer from the history filename
+     * Close the history file and its index
      *
      * @throws IOException
      */
-    protected final void fetchWriter() throws IOException {
-        closeWriter();
-        setWriter(Files.newBufferedWriter(FileSystems.getDefault().getPath(historyFileName), StandardCharsets.US_ASCII, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.CREATE));
+    private synchronized void closeFiles() throws IOException {
+        if (data != null) {
+            data.close();
+            data = null;
+        }
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+    }
+
+    private void startWriter() {
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeQueued();
+            }
+        }, "Ublu History Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void stopWriter() {
+        if (writerThread != null) {
+            sync();
+            writerThread.interrupt();
+            try {
+                writerThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            writerThread = null;
+        }
+    }
+
+    /**
+     * Body of the writer thread: wait for lines, then append every line queued
+     * with a single write.
+     */
+    private void writeQueued() {
+        List<String> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                synchronized (this) {
+                    try {
+                        appendLines(batch);
+                    } catch (IOException ex) {
+                        LOG.log(Level.SEVERE, "Couldn't write to history file " + historyFileName, ex);
+                    }
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            // closing
+        }
+    }
+
+    /**
+     * Wait until every line queued so far has been written, e.g., before
+     * {@link System#exit(int)}, as the writer thread does not hold up exit.
+     */
+    public void flush() {
+        sync();
     }
 
     /**
-     * Write a line of history to the history file
+     * Wait until every line queued so far has been written
+     */
+    private synchronized void sync() {
+        long target = enqueued;
+        while (written < target && writerThread != null && writerThread.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write a line of history to the history file. The line is queued and
+     * written by the writer thread.
      *
      * @param line line of history
      * @throws IOException
      */
-    public void writeLine(String line) throws IOException {
-        if (getWriter() != null) {
-            getWriter().write(line + "\n");
-            writer.flush();
+    public synchronized void writeLine(String line) throws IOException {
+        if (data != null) {
+            enqueued++;
+            pending.add(line);
+        }
+    }
+
+    /**
+     * Append lines to the history file and index them. Caller holds the
+     * monitor.
+     *
+     * @param lines the lines
+     * @throws IOException
+     */
+    private void appendLines(List<String> lines) throws IOException {
+        if (data != null) {
+            catchUp();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (String line : lines) {
+                byte[] b = line.getBytes(StandardCharsets.UTF_8);
+                bytes.write(b, 0, b.length);
+                bytes.write('\n');
+            }
+            byte[] b = bytes.toByteArray();
+            boolean atLineStart = dataLength == 0 || byteAt(dataLength - 1) == '\n';
+            data.seek(dataLength);
+            data.write(b);
+            indexBytes(b, b.length, atLineStart);
+        }
+    }
+
+    /**
+     * Index newly added bytes of the history file, appending the offset of
+     * each line start found to the index.
+     *
+     * @param b the bytes, which start at the current data length
+     * @param length number of bytes
+     * @param atLineStart true if the first byte starts a line
+     * @throws IOException
+     */
+    private void indexBytes(byte[] b, int length, boolean atLineStart) throws IOException {
+        ByteBuffer offsets = ByteBuffer.allocate(OFFSET_SIZE * (length + 1));
+        boolean lineStart = atLineStart;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (lineStart) {
+                offsets.putLong(dataLength + i);
+                count++;
+            }
+            lineStart = b[i] == '\n';
+        }
+        if (count > 0) {
+            index.seek(lineCount * OFFSET_SIZE);
+            index.write(offsets.array(), 0, count * OFFSET_SIZE);
+            lineCount += count;
+        }
+        dataLength += length;
+    }
+
+    /**
+     * Index anything appended to the history file since we last looked,
+     * starting over if it has shrunk. Caller holds the monitor.
+     *
+     * @throws IOException
+     */
+    private void catchUp() throws IOException {
+        long length = data.length();
+        if (length < dataLength) {
+            lineCount = 0;
+            dataLength = 0;
+            index.setLength(0);
+        }
+        if (length > dataLength) {
+            boolean atLineStart = dataLength == 0 || byteAt(dataLength - 1) == '\n';
+            byte[] b = new byte[SCAN_BUFFER_SIZE];
+            while (dataLength < length) {
+                int n = (int) Math.min(b.length, length - dataLength);
+                data.seek(dataLength);
+                data.readFully(b, 0, n);
+                boolean nextAtLineStart = b[n - 1] == '\n';
+                indexBytes(b, n, atLineStart);
+                atLineStart = nextAtLineStart;
+            }
         }
     }
 
     /**
-     * Close old writer and start again with a new filename
+     * Check that the offsets in the index start at zero, increase and lie
+     * within the history file. If they do not the index is rebuilt.
+     *
+     * @param entries number of offsets in the index
+     * @return true if the offsets are plausible
+     * @throws IOException
+     */
+    private boolean isIndexValid(long entries) throws IOException {
+        boolean valid = true;
+        long length = data.length();
+        long previous = -1;
+        long remaining = entries * OFFSET_SIZE;
+        byte[] b = new byte[SCAN_BUFFER_SIZE];
+        index.seek(0);
+        while (valid && remaining > 0) {
+            int n = (int) Math.min(b.length, remaining);
+            index.readFully(b, 0, n);
+            ByteBuffer offsets = ByteBuffer.wrap(b, 0, n);
+            while (valid && offsets.hasRemaining()) {
+                long offset = offsets.getLong();
+                valid = (previous < 0 ? offset == 0 : offset > previous) && offset < length;
+                previous = offset;
+            }
+            remaining -= n;
+        }
+        return valid;
+    }
+
+    private long offsetOf(long line) throws IOException {
+        index.seek(line * OFFSET_SIZE);
+        return index.readLong();
+    }
+
+    private int byteAt(long offset) throws IOException {
+        data.seek(offset);
+        return data.read();
+    }
+
+    /**
+     * Close old files and start again with a new filename
      *
      * @param newfilename new filename
      * @throws IOException
      */
     public void reinstance(String newfilename) throws IOException {
-        closeWriter();
-        setHistoryFileName(newfilename);
-        fetchWriter();
+        sync();
+        synchronized (this) {
+            closeFiles();
+            setHistoryFileName(newfilename);
+            openFiles();
+        }
     }
 
     @Override
     public void close() throws IOException {
-        closeWriter();
+        stopWriter();
+        closeFiles();
     }
 
     /**
-     * Read the history file into a string array list
+     * Read lines of history by number, seeking directly to the first
      *
-     * @return list of history lines unnumbered
+     * @param first zero-based index of first line
+     * @param last zero-based index of last line
+     * @return the lines
      * @throws IOException
+     * @throws IndexOutOfBoundsException if a line does not exist
      */
-    protected StringArrayList readHistory() throws IOException {
-        StringArrayList sal = new StringArrayList();
-        try (BufferedReader br = Files.newBufferedReader(FileSystems.getDefault().getPath(historyFileName), StandardCharsets.US_ASCII)) {
-            while (br.ready()) {
-                sal.add(br.readLine());
+    private synchronized List<String> readLines(long first, long last) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (first <= last) {
+            if (first < 0 || last >= lineCount) {
+                throw new IndexOutOfBoundsException("Index: " + (first < 0 ? first : last) + ", Size: " + lineCount);
+            }
+            long start = offsetOf(first);
+            long end = last + 1 < lineCount ? offsetOf(last + 1) : dataLength;
+            byte[] b = new byte[(int) (end - start)];
+            data.seek(start);
+            data.readFully(b);
+            int lineStart = 0;
+            for (int i = 0; i <= b.length; i++) {
+                if (i == b.length ? lineStart < b.length : b[i] == '\n') {
+                    int lineEnd = i > lineStart && b[i - 1] == '\r' ? i - 1 : i;
+                    lines.add(new String(b, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+                    lineStart = i + 1;
+                }
             }
         }
-        return sal;
+        return lines;
     }
 
     /**
-     * Build a string containing the first n lines of history
+     * Bring the index up to date with every line written so far
      *
-     * @param numlines number of history lines starting at top including first
-     * @param numbered true if lines should appear numbered
-     * @return String representing the history lines
      * @throws IOException
      */
-    public String head(int numlines, boolean numbered) throws IOException {
-        StringArrayList sal = readHistory();
-        int numActualLines = Math.min(numlines, sal.size());
+    private synchronized void refresh() throws IOException {
+        sync();
+        if (data == null) {
+            throw new IOException("History file " + historyFileName + " is closed");
+        }
+        catchUp();
+    }
+
+    private String format(List<String> lines, long firstLineNumber, boolean numbered) {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < numActualLines; i++) {
+        long lineNumber = firstLineNumber;
+        for (String line : lines) {
             if (numbered) {
-                sb.append(i + 1).append(" ");
+                sb.append(lineNumber).append(" ");
             }
-            sb.append(sal.get(i)).append("\n");
+            sb.append(line).append("\n");
+            lineNumber++;
         }
         return sb.toString();
     }
 
+    /**
+     * Build a string containing the first n lines of history
+     *
+     * @param numlines number of history lines starting at top including first
+     * @param numbered true if lines should appear numbered
+     * @return String representing the history lines
+     * @throws IOException
+     */
+    public synchronized String head(int numlines, boolean numbered) throws IOException {
+        refresh();
+        long numActualLines = Math.min(numlines, lineCount);
+        return format(readLines(0, numActualLines - 1), 1, numbered);
+    }
+
     /**
      * Build a string containing the last n lines of history
      *
@@ -218,17 +468,10 @@ public class History implements Closeable {
      * @return String representing the history lines
      * @throws IOException
      */
-    public String tail(int numlines, boolean numbered) throws IOException {
-        StringArrayList sal = readHistory();
-        int numActualLines = Math.min(numlines, sal.size());
-        StringBuilder sb = new StringBuilder();
-        for (int i = sal.size() - numActualLines; i < sal.size(); i++) {
-            if (numbered) {
-                sb.append(i + 1).append(" ");
-            }
-            sb.append(sal.get(i)).append("\n");
-        }
-        return sb.toString();
+    public synchronized String tail(int numlines, boolean numbered) throws IOException {
+        refresh();
+        long numActualLines = Math.min(numlines, lineCount);
+        return format(readLines(lineCount - numActualLines, lineCount - 1), lineCount - numActualLines + 1, numbered);
     }
 
     /**
@@ -238,16 +481,9 @@ public class History implements Closeable {
      * @return String representing the history lines
      * @throws IOException
      */
-    public String show(boolean numbered) throws IOException {
-        StringArrayList sal = readHistory();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < sal.size(); i++) {
-            if (numbered) {
-                sb.append(i + 1).append(" ");
-            }
-            sb.append(sal.get(i)).append("\n");
-        }
-        return sb.toString();
+    public synchronized String show(boolean numbered) throws IOException {
+        refresh();
+        return format(readLines(0, lineCount - 1), 1, numbered);
     }
 
     /**
@@ -257,11 +493,11 @@ public class History implements Closeable {
      * @return the string representing the line of history
      * @throws IOException
      */
-    public String nth(int n) throws IOException {
+    public synchronized String nth(int n) throws IOException {
         String result = null;
-        StringArrayList sal = readHistory();
-        if (sal.size() > n) {
-            result = sal.get(n);
+        refresh();
+        if (n >= 0 && lineCount > n) {
+            result = readLines(n, n).get(0);
         }
         return result;
     }
@@ -272,9 +508,9 @@ public class History implements Closeable {
      * @return number of history lines
      * @throws IOException
      */
-    public int lines() throws IOException {
-        StringArrayList sal = readHistory();
-        return sal.size();
+    public synchronized int lines() throws IOException {
+        refresh();
+        return (int) lineCount;
     }
 
     /**
@@ -287,17 +523,12 @@ public class History implements Closeable {
      * @return range of history as a String of lines
      * @throws IOException
      */
-    public String range(int first, int last, boolean numbered) throws IOException {
-        StringArrayList sal = readHistory();
-        StringBuilder sb = new StringBuilder();
+    public synchronized String range(int first, int last, boolean numbered) throws IOException {
+        String result = "";
+        refresh();
         if (first >= 0 && last >= 0 && first <= last) {
-            for (int i = first; i <= last; i++) {
-                if (numbered) {
-                    sb.append(i + 1).append(" ");
-                }
-                sb.append(sal.get(i)).append("\n");
-            }
+            result = format(readLines(first, last), first + 1, numbered);
         }
-        return sb.toString();
+        return result;
     }
 }
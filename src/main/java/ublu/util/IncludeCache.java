@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process-wide cache of included files. The cache remembers where an
+ * include file name was found on <code>ublu.includepath</code> and holds the
+ * lines of each file read along with each line lexed into a
+ * {@link CompiledBlock}, so including the same file again, in any
+ * interpreter, costs a look at the file's modification time and a map lookup.
+ * A file whose modification time or size has changed since it was read is read
+ * afresh.
+ *
+ * @author jwoehr
+ */
+public class IncludeCache {
+
+    /**
+     * Most files or resolved names we keep around before starting the cache
+     * afresh
+     */
+    public static final int MAX_CACHED = 1024;
+
+    private static final IncludeCache INSTANCE = new IncludeCache();
+
+    private final ConcurrentHashMap<String, Path> resolved = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Program> programs = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    /**
+     * Get the process-wide include cache
+     *
+     * @return the process-wide include cache
+     */
+    public static IncludeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private IncludeCache() {
+    }
+
+    /**
+     * Resolve an include file name, searching the include path for relative
+     * paths and otherwise resolving against the path of the including file.
+     *
+     * @param filepath the include file name
+     * @param includePath the <code>ublu.includepath</code> property, a
+     * colon-separated list of directories
+     * @param currentIncludePath path of the file which is including or null
+     * @return the resolved path, which may not exist
+     */
+    public static Path resolvePath(Path filepath, String includePath, Path currentIncludePath) {
+        boolean foundPath = false;
+        // First order of business is to search the search paths
+        if (!filepath.isAbsolute()) {
+            for (String searchPart : includePath.split(":")) {
+                Path searchPath = FileSystems.getDefault().getPath(searchPart).resolve(filepath);
+                if (searchPath.toFile().exists()) {
+                    foundPath = true;
+                    filepath = searchPath.normalize();
+                    break;
+                }
+            }
+        }
+        // If the path wasn't found or is absolute, try the current path as is
+        // (allowing failure to raise an exception)
+        if (!foundPath) {
+            if (currentIncludePath != null) {
+                filepath = currentIncludePath.resolve(filepath.normalize());
+            }
+        }
+        return filepath;
+    }
+
+    /**
+     * Resolve an include file name as {@link #resolvePath} does, remembering
+     * the resolution. A remembered resolution is used as long as the file it
+     * names exists.
+     *
+     * @param filepath the include file name
+     * @param includePath the <code>ublu.includepath</code> property
+     * @param currentIncludePath path of the file which is including or null
+     * @return the resolved path, which may not exist
+     */
+    public Path resolve(Path filepath, String includePath, Path currentIncludePath) {
+        String key = new StringBuilder(filepath.toString())
+                .append('\u0000').append(includePath)
+                .append('\u0000').append(currentIncludePath)
+                .toString();
+        Path result = resolved.get(key);
+        if (result == null || !result.toFile().exists()) {
+            result = resolvePath(filepath, includePath, currentIncludePath);
+            if (resolved.size() >= MAX_CACHED) {
+                resolved.clear();
+            }
+            resolved.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the program of a resolved include file, reading it if it is not
+     * cached or has changed since it was cached.
+     *
+     * @param filepath the resolved include file path
+     * @return the program or null if the file cannot be examined, in which
+     * case the caller should open the file itself to raise the appropriate
+     * exception
+     * @throws IOException
+     */
+    public Program getProgram(Path filepath) throws IOException {
+        Program program = null;
+        Path key = filepath.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = null;
+        try {
+            attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            // Let the caller raise the usual exception opening the file
+        }
+        if (attrs != null && attrs.isRegularFile()) {
+            Program cached = programs.get(key);
+            if (cached != null && cached.isCurrent(attrs)) {
+                hits.incrementAndGet();
+                program = cached;
+            } else {
+                if (cached == null) {
+                    misses.incrementAndGet();
+                } else {
+                    reloads.incrementAndGet();
+                }
+                program = new Program(readLines(key.toFile()), attrs.lastModifiedTime(), attrs.size());
+                if (programs.size() >= MAX_CACHED) {
+                    programs.clear();
+                }
+                programs.put(key, program);
+            }
+        }
+        return program;
+    }
+
+    private static String[] readLines(File file) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        try (FileReader fileReader = new FileReader(file); BufferedReader bufferedReader = new BufferedReader(fileReader)) {
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                lines.add(line);
+                line = bufferedReader.readLine();
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Empty the cache. Statistics are not reset.
+     */
+    public void clear() {
+        resolved.clear();
+        programs.clear();
+    }
+
+    /**
+     * Number of includes served from the cache
+     *
+     * @return number of includes served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of includes of a file not in the cache
+     *
+     * @return number of includes of a file not in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of includes of a cached file which had changed
+     *
+     * @return number of includes of a cached file which had changed
+     */
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("files cached : ").append(programs.size()).append('\n')
+                .append("names resolved : ").append(resolved.size()).append('\n')
+                .append("hits : ").append(getHits()).append('\n')
+                .append("misses : ").append(getMisses()).append('\n')
+                .append("reloads : ").append(getReloads()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * The lines of an include file as read at a given modification time, each
+     * line lexed on first use. Immutable but for the lazily lexed lines, which
+     * any thread may lex harmlessly.
+     */
+    public static final class Program {
+
+        private final String[] lines;
+        private final CompiledBlock[] compiled;
+        private final FileTime lastModified;
+        private final long size;
+
+        private Program(String[] lines, FileTime lastModified, long size) {
+            this.lines = lines;
+            this.compiled = new CompiledBlock[lines.length];
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        private boolean isCurrent(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified.equals(attrs.lastModifiedTime());
+        }
+
+        /**
+         * Number of lines in the program
+         *
+         * @return number of lines in the program
+         */
+        public int size() {
+            return lines.length;
+        }
+
+        /**
+         * Get a line of the program
+         *
+         * @param index zero-based line number
+         * @return the line
+         */
+        public String line(int index) {
+            return lines[index];
+        }
+
+        /**
+         * Get a line of the program lexed into a compiled block
+         *
+         * @param index zero-based line number
+         * @return the line as a compiled block
+         */
+        public CompiledBlock compiled(int index) {
+            CompiledBlock result = compiled[index];
+            if (result == null) {
+                result = new Parser(null, lines[index]).parseACompiledBlock();
+                compiled[index] = result;
+            }
+            return result;
+        }
+
+        /**
+         * Get a reader positioned at the start of the program
+         *
+         * @return a reader positioned at the start of the program
+         */
+        public ProgramReader reader() {
+            return new ProgramReader(this);
+        }
+    }
+
+    /**
+     * Reads the lines of a cached program for the interpreter in place of a
+     * reader on the include file, so that a quotation or block continued over
+     * several lines is read just as it is from the file itself. Only
+     * {@link #readLine()} and {@link #ready()} are meaningful.
+     */
+    public static final class ProgramReader extends BufferedReader {
+
+        private final Program program;
+        private int next = 0;
+
+        private ProgramReader(Program program) {
+            super(new StringReader(""), 1);
+            this.program = program;
+        }
+
+        /**
+         * Zero-based number of the line the next {@link #readLine()} returns
+         *
+         * @return number of the next line
+         */
+        public int getNextLineNumber() {
+            return next;
+        }
+
+        @Override
+        public String readLine() {
+            return next < program.size() ? program.line(next++) : null;
+        }
+
+        @Override
+        public boolean ready() {
+            return next < program.size();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -28,22 +28,24 @@
 package ublu.util;
 
 import java.io.BufferedReader;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import ublu.Ublu;
 import ublu.command.CommandInterface.COMMANDRESULT;
 import ublu.command.CommandInterface;
+import ublu.command.CommandFactory;
 import ublu.command.CommandMap;
+import ublu.command.CommandPool;
 import ublu.util.Generics.ConstMap;
 import ublu.util.Generics.FunctorMap;
 import ublu.util.Generics.InterpreterFrameStack;
@@ -58,24 +60,78 @@ import ublu.util.Generics.UbluProgram;
  */
 public class Interpreter {
 
+    /**
+     * Property naming the maximum depth of nested function calls
+     */
+    public static final String MAX_FUNCTION_DEPTH_PROPERTY = "ublu.func.maxdepth";
+    /**
+     * Maximum depth of nested function calls if the property is not set
+     */
+    public static final int DEFAULT_MAX_FUNCTION_DEPTH = 10000;
+
     private Ublu myUblu;
     private DBug myDBug;
     private History history;
     private String historyFileName;
     private ConstMap constMap;
+    private volatile boolean constMapShared;
     private TupleMap tupleMap;
     private CommandMap cmdMap;
+    private CommandPool commandPool;
     private FunctorMap functorMap;
-    private boolean good_bye;
+    private volatile boolean good_bye; // set from other threads to cancel a task
     private int global_ret_val;
     private InterpreterFrame interpreterFrame;
     private InterpreterFrameStack interpreterFrameStack;
     private TupleStack tupleStack;
     private boolean break_issued;
     private Props props;
+    private ExitHandler exitHandler;
     private long paramSubIndex = 0;
     private int instanceDepth = 0;
     private LocaleHelper localeHelper;
+    private final ArrayDeque<Activation> callStack = new ArrayDeque<>();
+    private int functionDepth = 0;
+    private boolean trampolining = false;
+    private CompiledBlock deferredBlock;
+
+    /**
+     * A function call or a deferred block running on the call stack of
+     * {@link #loop()} rather than on the Java stack.
+     */
+    private static class Activation {
+
+        private final Functor functor;
+        private final String name;
+        private final InterpreterFrame frame;
+        private final int frameDepth;
+        private final Profiler profiler;
+        private Profiler.Frame profilerFrame;
+
+        Activation(Functor functor, String name, InterpreterFrame frame, int frameDepth, Profiler profiler) {
+            this.functor = functor;
+            this.name = name;
+            this.frame = frame;
+            this.frameDepth = frameDepth;
+            this.profiler = profiler;
+            profilerFrame = profiler == null ? null : profiler.enter();
+        }
+
+        boolean isFunction() {
+            return functor != null;
+        }
+
+        boolean isFinished() {
+            return frame.getArgArray().isEmpty();
+        }
+
+        void exitProfiler() {
+            if (profilerFrame != null) {
+                profiler.exit(profilerFrame, Profiler.KIND.FUNC, name);
+                profilerFrame = null;
+            }
+        }
+    }
 
     /**
      *
@@ -94,11 +150,18 @@ public class Interpreter {
     }
 
     /**
-     * Get the const map
+     * Get the const map. The map returned belongs to this interpreter alone
+     * and may be modified: if it is still shared with the interpreter this
+     * one was spawned from or with an interpreter spawned from this one, a
+     * private copy is taken first.
      *
      * @return the const map
      */
     public ConstMap getConstMap() {
+        if (constMapShared) {
+            constMap = new ConstMap(constMap);
+            constMapShared = false;
+        }
         return constMap;
     }
 
@@ -109,6 +172,20 @@ public class Interpreter {
      */
     public void setConstMap(ConstMap constMap) {
         this.constMap = constMap;
+        constMapShared = false;
+    }
+
+    /**
+     * Hand out the const map to an interpreter being spawned from this one.
+     * Both then treat the map as read-only until they copy it on write.
+     *
+     * @return the const map
+     */
+    private ConstMap shareConstMap() {
+        if (!constMapShared) { // a snapshot is already shared and is never written
+            constMapShared = true;
+        }
+        return constMap;
     }
 
     /**
@@ -142,7 +219,7 @@ public class Interpreter {
     public boolean setConst(String name, String value) {
         boolean result = false;
         if (Const.isConstName(name) && value != null) {
-            constMap.put(name, new Const(name, value));
+            getConstMap().put(name, new Const(name, value));
             result = true;
         }
         return result;
@@ -160,7 +237,7 @@ public class Interpreter {
         boolean result = false;
         if (Const.isConstName(name)) {
             if (constMap.containsKey(name)) {
-                constMap.remove(name);
+                getConstMap().remove(name);
                 result = true;
             }
         }
@@ -171,7 +248,7 @@ public class Interpreter {
      * Remove all constants from the map.
      */
     public void clearConstMap() {
-        constMap.clear();
+        setConstMap(new ConstMap());
     }
 
     /**
@@ -201,6 +278,14 @@ public class Interpreter {
         this.props = props;
     }
 
+    /**
+     * Give this interpreter its own copy of its properties so that properties
+     * it sets are not seen by the interpreter it was spawned from.
+     */
+    public void privatizeProps() {
+        setProps(new Props(getProps()));
+    }
+
     /**
      * Test for a property's being set to string <code>true</code>
      *
@@ -610,6 +695,41 @@ public class Interpreter {
         this.global_ret_val = global_ret_val;
     }
 
+    /**
+     * Receives the exit code of the <code>exit</code> command in place of
+     * {@link System#exit(int)} when the interpreter is not the whole process,
+     * e.g., when it serves a request to a resident daemon.
+     */
+    public interface ExitHandler {
+
+        /**
+         * Note that the interpreter exited.
+         *
+         * @param exitCode the code passed to <code>exit</code>
+         */
+        void exit(int exitCode);
+    }
+
+    /**
+     * Get the handler for the <code>exit</code> command
+     *
+     * @return the exit handler, or null if <code>exit</code> ends the process
+     */
+    public ExitHandler getExitHandler() {
+        return exitHandler;
+    }
+
+    /**
+     * Set the handler for the <code>exit</code> command. Interpreters spawned
+     * from this one inherit it.
+     *
+     * @param exitHandler the exit handler, or null if <code>exit</code> ends
+     * the process
+     */
+    public void setExitHandler(ExitHandler exitHandler) {
+        this.exitHandler = exitHandler;
+    }
+
     /**
      * Signals the interpret to exit
      *
@@ -751,6 +871,36 @@ public class Interpreter {
         this.cmdMap = cmdMap;
     }
 
+    /**
+     * Get the pool of command instances reused by this interpreter
+     *
+     * @return the pool of command instances reused by this interpreter
+     */
+    public final CommandPool getCommandPool() {
+        return commandPool;
+    }
+
+    /**
+     * Resolve the next lex in the arg array as a command without removing it.
+     * The resolution is cached at the lex if the arg array is walking a
+     * compiled block, so a command in a loop body is only looked up once.
+     *
+     * @return the resolved command or null if the next lex is not a command
+     */
+    protected CommandMap.CallSite resolveNextCommand() {
+        CommandMap.CallSite callSite = null;
+        Object cached = getArgArray().getNextCallSite();
+        if (cached instanceof CommandMap.CallSite && ((CommandMap.CallSite) cached).isResolvedIn(getCmdMap())) {
+            callSite = (CommandMap.CallSite) cached;
+        } else {
+            callSite = getCmdMap().getCallSite(getArgArray().peekNext().trim());
+            if (callSite != null) {
+                getArgArray().setNextCallSite(callSite);
+            }
+        }
+        return callSite;
+    }
+
     /**
      * Get the command object matching the name
      *
@@ -874,25 +1024,50 @@ public class Interpreter {
     }
 
     /**
-     * Copy ctor creates Interpreter with same maps i/o.
+     * Copy ctor creates Interpreter with same maps i/o. The global tuples are
+     * shared but the new instance gets local scopes of its own.
+     * <p>
+     * Spawning is cheap: the command table, functor map and properties are
+     * shared, and the const map and locale are shared until one of the
+     * interpreters changes its own, when it takes a private copy first.</p>
      *
      * @param i interpreter to be copied
      */
     public Interpreter(Interpreter i) {
-        this();
+        initFrames();
         instanceDepth = i.instanceDepth + 1;
         setInputStream(i.getInputStream());
         setInputStreamBufferedReader(i.getInputStreamBufferedReader());
         setErroutStream(i.getErroutStream());
         setOutputStream(i.getOutputStream());
-        setTupleMap(i.getTupleMap());
+        setTupleMap(i.getTupleMap().spawn());
         setCmdMap(i.getCmdMap());
+        commandPool = new CommandPool();
         setFunctorMap(i.getFunctorMap());
+        initState();
         setHistoryFileName(i.getHistoryFileName());
         setMyUblu(i.getMyUblu());
         setProps(i.getProps());
-        constMap = new ConstMap(i.constMap);
-        setLocaleHelper(new LocaleHelper(i.localeHelper));
+        setExitHandler(i.getExitHandler());
+        myDBug = new DBug(this);
+        constMap = i.shareConstMap();
+        constMapShared = true;
+        setLocaleHelper(i.getLocaleHelper());
+    }
+
+    /**
+     * Take a snapshot of this interpreter to spawn interpreters from on other
+     * threads. Spawning reads the spawning interpreter's local scopes and
+     * const map, which only the thread running it may do while it runs. The
+     * snapshot is spawned here, on this interpreter's own thread, and as it is
+     * never itself run its scopes and const map never change, so any number
+     * of threads may spawn from it at once. Globals and functions are shared
+     * as usual; locals and consts are those at the time of the snapshot.
+     *
+     * @return a snapshot of this interpreter, not to be run
+     */
+    public Interpreter snapshot() {
+        return new Interpreter(this);
     }
 
     /**
@@ -910,29 +1085,38 @@ public class Interpreter {
      * Initialize internals such as tuple map to store variables.
      */
     protected Interpreter() {
-        interpreterFrame = new InterpreterFrame();
-        interpreterFrameStack = new InterpreterFrameStack();
-        setTupleStack(new TupleStack());
+        initFrames();
         setInputStream(System.in);
         setInputStreamBufferedReader(new BufferedReader(new InputStreamReader(getInputStream())));
         setErroutStream(System.err);
         setOutputStream(System.out);
         setTupleMap(new TupleMap());
         defaultTuples();
-        setCmdMap(new CommandMap());
+        setCmdMap(CommandMap.getDefault());
+        commandPool = new CommandPool();
         setFunctorMap(new FunctorMap());
+        initState();
+        setHistoryFileName(History.DEFAULT_HISTORY_FILENAME);
+        props = new Props();
+        myDBug = new DBug(this);
+        constMap = new ConstMap();
+        setLocaleHelper(new LocaleHelper(null, null, "ublu.resource.MessageBundle"));
+    }
+
+    private void initFrames() {
+        interpreterFrame = new InterpreterFrame();
+        interpreterFrameStack = new InterpreterFrameStack();
+        setTupleStack(new TupleStack());
+    }
+
+    private void initState() {
         setParsingString(false);
         setForBlock(false);
         setBreakIssued(false);
         setIncluding(false);
         setIncludeFileBufferedReader(null);
-        setHistoryFileName(History.DEFAULT_HISTORY_FILENAME);
         setGlobal_ret_val(0);
         setGoodBye(false);
-        props = new Props();
-        myDBug = new DBug(this);
-        constMap = new ConstMap();
-        setLocaleHelper(new LocaleHelper(null, null, "ublu.resource.MessageBundle"));
     }
 
     /**
@@ -1098,11 +1282,20 @@ public class Interpreter {
      * @return command result
      */
     public COMMANDRESULT executeBlock(String block) {
+        return executeBlock(CompiledBlock.compile(block));
+    }
+
+    /**
+     * Execute a compiled block
+     *
+     * @param compiledBlock the compiled block to execute
+     * @return command result
+     */
+    public COMMANDRESULT executeBlock(CompiledBlock compiledBlock) {
         COMMANDRESULT rc;
         pushFrame();
         int deep = getFrameDepth();
-        Parser p = new Parser(this, block);
-        setArgArray(p.parseAnArgArray());
+        setArgArray(new ArgArray(this, compiledBlock));
         rc = loop();
         if (deep <= getFrameDepth()) {
             // /* debug */ outputerrln("about to pop frame in executeBlock");
@@ -1132,6 +1325,75 @@ public class Interpreter {
         return tnl;
     }
 
+    /**
+     * Execute a block in tail position of the command running it, such as the
+     * block of a THEN or an ELSE. If the interpreter is running
+     * {@link #loop()} the block is left for the loop to run on its call stack
+     * once the command returns, so that recursion through the block doesn't
+     * grow the Java stack, and the result is then the result of the block.
+     *
+     * @param block the block to execute
+     * @return command result
+     */
+    public COMMANDRESULT executeBlockDeferred(String block) {
+        COMMANDRESULT rc;
+        if (trampolining && deferredBlock == null) {
+            deferredBlock = CompiledBlock.compile(block);
+            rc = COMMANDRESULT.SUCCESS;
+        } else {
+            rc = executeBlock(block);
+        }
+        return rc;
+    }
+
+    /**
+     * Get the maximum depth of nested function calls as set by the property
+     * <code>ublu.func.maxdepth</code>. Zero or less means no limit.
+     *
+     * @return the maximum depth of nested function calls
+     */
+    public int getMaxFunctionDepth() {
+        int maxDepth = DEFAULT_MAX_FUNCTION_DEPTH;
+        String value = getProperty(MAX_FUNCTION_DEPTH_PROPERTY);
+        if (value != null) {
+            try {
+                maxDepth = Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                getLogger().log(Level.WARNING, "Property " + MAX_FUNCTION_DEPTH_PROPERTY + " is not an integer, using " + DEFAULT_MAX_FUNCTION_DEPTH, ex);
+            }
+        }
+        return maxDepth;
+    }
+
+    /**
+     * How many function calls are currently nested?
+     *
+     * @return depth of nested function calls
+     */
+    public int getFunctionDepth() {
+        return functionDepth;
+    }
+
+    private boolean isArityMatch(Functor f, TupleNameList tupleNames) {
+        boolean result = tupleNames.size() == f.numParams();
+        if (!result) {
+            getLogger().log(Level.SEVERE, "Unable to execute functor {0}\n which needs {1} params but received {2}", new Object[]{f, f.numParams(), tupleNames.toString()});
+        }
+        return result;
+    }
+
+    private boolean enterFunction(String name) {
+        boolean result = true;
+        int maxDepth = getMaxFunctionDepth();
+        if (maxDepth > 0 && functionDepth >= maxDepth) {
+            getLogger().log(Level.SEVERE, "Function {0} would exceed the maximum call depth of {1} set by property {2}", new Object[]{name, maxDepth, MAX_FUNCTION_DEPTH_PROPERTY});
+            result = false;
+        } else {
+            functionDepth++;
+        }
+        return result;
+    }
+
     /**
      * Execute a functor
      *
@@ -1141,23 +1403,17 @@ public class Interpreter {
      */
     public COMMANDRESULT executeFunctor(Functor f, TupleNameList tupleNames) {
         COMMANDRESULT rc;
-        if (tupleNames.size() != f.numParams()) {
-            getLogger().log(Level.SEVERE, "Unable to execute functor {0}\n which needs {1} params but received {2}", new Object[]{f, f.numParams(), tupleNames.toString()});
+        if (!isArityMatch(f, tupleNames) || !enterFunction("functor")) {
             rc = COMMANDRESULT.FAILURE;
         } else {
-            // rc = executeBlock(f.bind(tupleNames.delifoize(this)));
-            // getTupleMap().pushLocal();
-
+            Tuple[] arguments = f.resolveArguments(this, tupleNames);
             pushFrame();
-            String block = f.bindWithSubstitutes(this, tupleNames/*.delifoize(this)*/);
-            rc = executeBlock(block);
-            // getTupleMap().popLocal();
-            // /* debug */ outputerrln("about to pop frame in executeFunctor");
-            // /* debug */ outputerrln("Frame depth in executeFunctor : " + frameDepth());
-            // if (frameDepth() > 0) {
-            popFrame();
-            //  }
-            // /* debug */ outputerrln("popped frame in executeFunctor");
+            try {
+                rc = executeBlock(f.bindToTemplate(this, tupleNames, arguments));
+            } finally {
+                popFrame();
+                functionDepth--;
+            }
         }
         return rc;
     }
@@ -1194,13 +1450,29 @@ public class Interpreter {
     /**
      * The processing loop, processes all the input for a line until exhausted
      * or until a command returns a command result indicating failure.
+     * <p>
+     * Function calls, and blocks deferred by
+     * {@link #executeBlockDeferred(String)}, run on the loop's own call stack
+     * instead of recursing into the loop on the Java stack. A function whose
+     * last command calls the same function again reuses the frame of the
+     * call it is ending.</p>
      *
      * @return the last command result indicating success or failure.
      */
     public COMMANDRESULT loop() {
         COMMANDRESULT lastCommandResult = COMMANDRESULT.SUCCESS;
         String initialCommandLine = getArgArray().toHistoryLine();
-        while (!getArgArray().isEmpty() && !good_bye && !isBreakIssued()) {
+        int base = callStack.size();
+        boolean wasTrampolining = trampolining;
+        trampolining = true;
+        while (!good_bye && !isBreakIssued()) {
+            if (getArgArray().isEmpty()) {
+                if (callStack.size() > base) {
+                    leave(callStack.pop());
+                    continue;
+                }
+                break;
+            }
             // /* Debug */ System.err.println(" arg array is " + getArgArray());
             if (getArgArray().isNextTupleNameOrPop()) {
                 Tuple t = getArgArray().peekNextTupleOrPop();
@@ -1212,12 +1484,16 @@ public class Interpreter {
                     break;
                 }
             }
+            CommandMap.CallSite callSite = resolveNextCommand();
             String commandName = getArgArray().next().trim();
             if (commandName.equals("")) {
                 continue; // cr or some sort of whitespace got parsed, skip to next
             }
-            if (getCmdMap().containsKey(commandName)) {
-                CommandInterface command = getCmd(this, commandName);
+            Profiler profiler = getMyUblu().getActiveProfiler();
+            if (callSite != null) {
+                CommandFactory factory = callSite.getFactory();
+                CommandInterface command = getCommandPool().acquire(factory, this);
+                Profiler.Frame frame = profiler == null ? null : profiler.enter();
                 try {
                     setArgArray(command.cmd(getArgArray()));
                     lastCommandResult = command.getResult();
@@ -1234,12 +1510,29 @@ public class Interpreter {
                     getLogger().log(Level.SEVERE, "Command \"" + commandName + "\" threw exception", ex);
                     lastCommandResult = COMMANDRESULT.FAILURE;
                     break;
+                } catch (StackOverflowError ex) {
+                    /* recursion through blocks which still run on the Java stack */
+                    getLogger().log(Level.SEVERE, "Command \"{0}\" overflowed the stack: recursion too deep", commandName);
+                    lastCommandResult = COMMANDRESULT.FAILURE;
+                    break;
+                } finally {
+                    getCommandPool().release(factory, command);
+                    if (frame != null) {
+                        profiler.exit(frame, Profiler.KIND.COMMAND, commandName);
+                    }
+                }
+                if (deferredBlock != null) {
+                    CompiledBlock block = deferredBlock;
+                    deferredBlock = null;
+                    pushFrame();
+                    setArgArray(new ArgArray(this, block));
+                    callStack.push(new Activation(null, commandName, interpreterFrame, getFrameDepth(), null));
                 }
             } else if (getFunctorMap().containsKey(commandName)) {
                 try {
                     TupleNameList tnl = parseTupleNameList();
                     if (tnl != null) {
-                        lastCommandResult = executeFunctor(getFunctor(commandName), tnl);
+                        lastCommandResult = callFunction(commandName, getFunctor(commandName), tnl, base, profiler);
                         if (lastCommandResult == COMMANDRESULT.FAILURE) {
                             break;
                         }
@@ -1259,6 +1552,11 @@ public class Interpreter {
                 break;
             }
         }
+        deferredBlock = null;
+        while (callStack.size() > base) {
+            leave(callStack.pop());
+        }
+        trampolining = wasTrampolining;
         if (!isIncluding() && !initialCommandLine.isEmpty()) {
             if (getHistory() != null) {
                 try {
@@ -1272,6 +1570,93 @@ public class Interpreter {
         return lastCommandResult;
     }
 
+    /**
+     * Start a function call on the call stack of {@link #loop()}. The caller's
+     * frame stays on the frame stack with its arg array positioned after the
+     * call, where the loop resumes when the function's block is exhausted.
+     *
+     * @param name the function name
+     * @param f the functor
+     * @param tupleNames list of names to sub for params
+     * @param base the size of the call stack when the running loop started
+     * @param profiler the active profiler or null
+     * @return command result
+     */
+    private COMMANDRESULT callFunction(String name, Functor f, TupleNameList tupleNames, int base, Profiler profiler) {
+        COMMANDRESULT rc = COMMANDRESULT.SUCCESS;
+        if (!isArityMatch(f, tupleNames)) {
+            rc = COMMANDRESULT.FAILURE;
+        } else {
+            Tuple[] arguments = f.resolveArguments(this, tupleNames);
+            if (isTailCall(f, base)) {
+                while (!callStack.peek().isFunction()) {
+                    leave(callStack.pop());
+                }
+                Activation activation = callStack.peek();
+                activation.exitProfiler();
+                getTupleMap().popLocal();
+                getTupleMap().popLocal();
+                getTupleMap().pushLocal();
+                CompiledBlock block = f.bindToTemplate(this, tupleNames, arguments);
+                getTupleMap().pushLocal();
+                setArgArray(new ArgArray(this, block));
+                activation.profilerFrame = profiler == null ? null : profiler.enter();
+            } else if (enterFunction(name)) {
+                pushFrame();
+                CompiledBlock block = f.bindToTemplate(this, tupleNames, arguments);
+                pushFrame();
+                setArgArray(new ArgArray(this, block));
+                callStack.push(new Activation(f, name, interpreterFrame, getFrameDepth(), profiler));
+            } else {
+                rc = COMMANDRESULT.FAILURE;
+            }
+        }
+        return rc;
+    }
+
+    /**
+     * Is a call to a function the last thing the innermost running call of
+     * that same function does, the blocks it is nested in being finished too?
+     *
+     * @param f the functor called
+     * @param base the size of the call stack when the running loop started
+     * @return true if the call can reuse the frame of the running call
+     */
+    private boolean isTailCall(Functor f, int base) {
+        boolean result = false;
+        int remaining = callStack.size() - base;
+        Iterator<Activation> it = callStack.iterator();
+        while (remaining-- > 0 && it.hasNext()) {
+            Activation activation = it.next();
+            if (!activation.isFinished()) {
+                break;
+            }
+            if (activation.isFunction()) {
+                result = activation.functor == f;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return from a function call or deferred block on the call stack.
+     *
+     * @param activation the call or block popped from the call stack
+     */
+    private void leave(Activation activation) {
+        if (activation.frameDepth <= getFrameDepth()) {
+            popFrame();
+        }
+        if (activation.isFunction()) {
+            if (activation.frameDepth - 1 <= getFrameDepth()) {
+                popFrame();
+            }
+            functionDepth--;
+        }
+        activation.exitProfiler();
+    }
+
     /**
      * Include a program already parsed into lines
      *
@@ -1301,7 +1686,8 @@ public class Interpreter {
 
     /**
      * Read in a text file and execute as commands, searching ublu.includepath
-     * for relative paths.
+     * for relative paths. The file is taken from the {@link IncludeCache} if
+     * it is cached and unchanged.
      *
      * @param filepath Path to the file of commands
      * @return last command result
@@ -1309,43 +1695,47 @@ public class Interpreter {
      * @throws IOException
      */
     public COMMANDRESULT include(Path filepath) throws FileNotFoundException, IOException {
-        pushFrame();
-
-        boolean foundPath = false;
+        return include(filepath, true);
+    }
 
-        // First order of business is to search the search paths
-        if (!filepath.isAbsolute()) {
-            for (String searchPart : getProperty("ublu.includepath").split(":")) {
-                Path searchPath = FileSystems.getDefault().getPath(searchPart).resolve(filepath);
-                if (searchPath.toFile().exists()) {
-                    foundPath = true;
-                    filepath = searchPath.normalize();
-                    break;
-                }
-            }
-        }
-        // If the path wasn't found or is absolute, try the current path as is
-        // (allowing failure to raise an exception)
-        if (!foundPath) {
-            Path currentIncludePath = getIncludePath();
-            if (currentIncludePath != null) {
-                filepath = currentIncludePath.resolve(filepath.normalize());
-            }
+    /**
+     * Read in a text file and execute as commands, searching ublu.includepath
+     * for relative paths.
+     *
+     * @param filepath Path to the file of commands
+     * @param useCache true if the file may be taken from and kept in the
+     * {@link IncludeCache}, false to read and parse it afresh
+     * @return last command result
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    public COMMANDRESULT include(Path filepath, boolean useCache) throws FileNotFoundException, IOException {
+        pushFrame();
+        IncludeCache includeCache = IncludeCache.getInstance();
+        String includePathProperty = getProperty("ublu.includepath");
+        if (useCache) {
+            filepath = includeCache.resolve(filepath, includePathProperty, getIncludePath());
+        } else {
+            filepath = IncludeCache.resolvePath(filepath, includePathProperty, getIncludePath());
         }
         setIncludePath(filepath.getParent());
         setIncluding(true);
         COMMANDRESULT commandResult = COMMANDRESULT.SUCCESS;
-        File file = filepath.normalize().toFile();
-        try (FileReader fileReader = new FileReader(file); BufferedReader bufferedReader = new BufferedReader(fileReader)) {
+        IncludeCache.Program program = useCache ? includeCache.getProgram(filepath) : null;
+        IncludeCache.ProgramReader programReader = program == null ? null : program.reader();
+        try (BufferedReader bufferedReader = programReader == null
+                ? new BufferedReader(new FileReader(filepath.normalize().toFile())) : programReader) {
             setIncludeFileBufferedReader(bufferedReader);
-            while (getIncludeFileBufferedReader().ready()) {
-                String input = getIncludeFileBufferedReader().readLine();
+            while (bufferedReader.ready()) {
+                int lineNumber = programReader == null ? -1 : programReader.getNextLineNumber();
+                String input = bufferedReader.readLine();
                 if (isEchoInclude()) {
                     getErroutStream().println(":: " + input);
                 }
                 if (!input.isEmpty()) {
-                    ArgArray aa = new Parser(this, input).parseAnArgArray();
-                    setArgArray(aa);
+                    setArgArray(programReader == null
+                            ? new Parser(this, input).parseAnArgArray()
+                            : new ArgArray(this, program.compiled(lineNumber)));
                     commandResult = loop();
                     if (commandResult == COMMANDRESULT.FAILURE) {
                         getLogger().log(Level.SEVERE, "Error in include : {0}", input);
@@ -41,13 +41,16 @@ public class InterpreterLogger extends Logger {
      */
     protected PrintStream errOutStream = System.err;
 
+    private final ThreadLocal<PrintStream> threadErrOutStream = new ThreadLocal<>();
+
     /**
-     * Get the stream we log to.
+     * Get the stream we log to, the stream set for the current thread if any.
      *
      * @return The stream we log to.
      */
     public PrintStream getErrOutStream() {
-        return errOutStream;
+        PrintStream threadStream = threadErrOutStream.get();
+        return threadStream == null ? errOutStream : threadStream;
     }
 
     /**
@@ -59,6 +62,22 @@ public class InterpreterLogger extends Logger {
         this.errOutStream = errOutStream;
     }
 
+    /**
+     * Log records logged by the current thread to a stream of its own instead
+     * of the logger's stream, e.g., the error stream of the client a server
+     * thread is serving. Threads the current thread starts do not inherit it.
+     *
+     * @param errOutStream the thread's stream, or null to log to the
+     * logger's stream again
+     */
+    public void setThreadErrOutStream(PrintStream errOutStream) {
+        if (errOutStream == null) {
+            threadErrOutStream.remove();
+        } else {
+            threadErrOutStream.set(errOutStream);
+        }
+    }
+
     /**
      * Create with a parent and with an err stream
      *
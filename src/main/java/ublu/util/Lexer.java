@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass lexer. Reads its input once, character by character, splitting
+ * lexes at whitespace exactly as <code>trim().split("\\p{Space}+")</code>
+ * does, and packs each <code>${ quotation }$</code> and <code>$[ block ]$</code>
+ * closed within the input into one lex as it goes, so no intermediate array
+ * of lexes is built and no closer is searched for twice.
+ *
+ * <p>
+ * A packed quotation or block is its lexes each followed by one space, as
+ * the language has always defined it, rather than the whitespace as written.
+ * Once an opener is found without its closer, the opener and everything
+ * after it are left as plain lexes for the {@link ArgArray} to assimilate
+ * from further lines of input, just as {@link CompiledBlock#fromLexes}
+ * does.</p>
+ *
+ * @author jwoehr
+ */
+public final class Lexer {
+
+    private final String text;
+    private final int end;
+    private int pos;
+
+    /**
+     * Instance over a text. Leading and trailing characters up to and
+     * including space are skipped as {@link String#trim()} skips them.
+     *
+     * @param text the text to lex
+     */
+    public Lexer(String text) {
+        this.text = text;
+        int first = 0;
+        int last = text.length();
+        while (first < last && text.charAt(first) <= ' ') {
+            first++;
+        }
+        while (last > first && text.charAt(last - 1) <= ' ') {
+            last--;
+        }
+        pos = first;
+        end = last;
+    }
+
+    /* The characters \p{Space} matches */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Get the next lex
+     *
+     * @return the next lex or null if there are no more
+     */
+    public String next() {
+        String lex = null;
+        while (pos < end && isSpace(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < end) {
+            int start = pos;
+            while (pos < end && !isSpace(text.charAt(pos))) {
+                pos++;
+            }
+            lex = text.substring(start, pos);
+        }
+        return lex;
+    }
+
+    /**
+     * Split a text into lexes the way <code>trim().split("\\p{Space}+")</code>
+     * does, so that blank text is one empty lex.
+     *
+     * @param text the text
+     * @return the lexes
+     */
+    public static String[] split(String text) {
+        Lexer lexer = new Lexer(text);
+        String[] lexes = new String[8];
+        int count = 0;
+        String lex = lexer.next();
+        if (lex == null) {
+            lex = "";
+        }
+        while (lex != null) {
+            if (count == lexes.length) {
+                lexes = Arrays.copyOf(lexes, count * 2);
+            }
+            lexes[count++] = lex;
+            lex = lexer.next();
+        }
+        return Arrays.copyOf(lexes, count);
+    }
+
+    /**
+     * Lex a text into a compiled block, packing the quotations and blocks
+     * closed within it.
+     *
+     * @param source the text to record as the compiled block's source
+     * @param text the text to lex
+     * @return the compiled block
+     */
+    public static CompiledBlock lex(String source, String text) {
+        Lexer lexer = new Lexer(text);
+        String[] lexes = new String[8];
+        byte[] kinds = new byte[8];
+        int count = 0;
+        boolean packing = true;
+        String lex = lexer.next();
+        if (lex == null) {
+            lex = "";
+        }
+        while (lex != null) {
+            byte kind = CompiledBlock.LEX;
+            if (packing && CompiledBlock.OPENQUOTE.equals(lex)) {
+                kind = CompiledBlock.QUOTATION;
+            } else if (packing && CompiledBlock.OPENBLOCK.equals(lex)) {
+                kind = CompiledBlock.BLOCK;
+            }
+            if (kind != CompiledBlock.LEX) {
+                int resume = lexer.pos;
+                String body = lexer.body(kind);
+                if (body == null) {
+                    // Unclosed in this text, leave it to the ArgArray to assimilate
+                    lexer.pos = resume;
+                    packing = false;
+                    kind = CompiledBlock.LEX;
+                } else {
+                    lex = body;
+                }
+            }
+            if (count == lexes.length) {
+                lexes = Arrays.copyOf(lexes, count * 2);
+                kinds = Arrays.copyOf(kinds, count * 2);
+            }
+            lexes[count] = lex;
+            kinds[count++] = kind;
+            lex = lexer.next();
+        }
+        return CompiledBlock.fromPacked(source, Arrays.copyOf(lexes, count), Arrays.copyOf(kinds, count));
+    }
+
+    /* Read up to and past the closer of the opener just read, returning the
+     * packed body, or null if the closer is not in the text. Nesting counts
+     * for blocks but not for quotations, as in CompiledBlock. */
+    private String body(byte kind) {
+        StringBuilder sb = new StringBuilder();
+        String body = null;
+        int depth = 1;
+        String lex = next();
+        while (lex != null && body == null) {
+            if (kind == CompiledBlock.QUOTATION) {
+                if (CompiledBlock.CLOSEQUOTE.equals(lex)) {
+                    body = sb.toString();
+                }
+            } else {
+                String trimmed = lex.trim();
+                if (CompiledBlock.OPENBLOCK.equals(trimmed)) {
+                    depth++;
+                } else if (CompiledBlock.CLOSEBLOCK.equals(trimmed)) {
+                    depth--;
+                }
+                if (depth == 0) {
+                    body = sb.toString();
+                }
+            }
+            if (body == null) {
+                sb.append(lex).append(' ');
+                lex = next();
+            }
+        }
+        return body;
+    }
+}
@@ -31,7 +31,9 @@ import java.util.Locale;
 import java.util.ResourceBundle;
 
 /**
- * Manage locale and resources for the Interpreter
+ * Manage locale and resources for the Interpreter. An interpreter spawned from
+ * another shares its locale helper, so a change of locale is made by
+ * instancing a new locale helper rather than by altering a shared one.
  *
  * @author jax
  */
@@ -78,6 +80,15 @@ public class LocaleHelper {
         return messages;
     }
 
+    /**
+     * Get the path of the message resources
+     *
+     * @return the path of the message resources
+     */
+    public String getMessageResourcePath() {
+        return myMessageResourcePath;
+    }
+
     /**
      * not used
      */
@@ -105,6 +116,7 @@ public class LocaleHelper {
         setLocale(lh.currentLocale.getLanguage(), lh.currentLocale.getCountry());
         // /* 1.8 */ setMessageBundle(lh.messages.getBaseBundleName());
         this.messages = lh.messages;
+        this.myMessageResourcePath = lh.myMessageResourcePath;
     }
 
     /**
@@ -52,6 +52,28 @@ public class ParamSubTuple extends Tuple {
         return this;
     }
 
+    @Override
+    public boolean compareAndSetValue(Object expect, Object update) {
+        return bound().compareAndSetValue(expect, update);
+    }
+
+    @Override
+    public Long incrementValue(long delta) {
+        return bound().incrementValue(delta);
+    }
+
+    @Override
+    public Object appendValue(Object item) {
+        return bound().appendValue(item);
+    }
+
+    private synchronized Tuple bound() {
+        if (boundTuple == null) {
+            boundTuple = new Tuple(proposedKey, null);
+        }
+        return boundTuple;
+    }
+
     @Override
     public String getBoundKey() {
         Tuple t = boundTuple;
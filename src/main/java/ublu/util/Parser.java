@@ -73,17 +73,34 @@ public class Parser {
         String[] line = null;
         if (getInput() != null) {
             setInput(getInput().trim());
-            line = getInput().split("\\p{Space}+");
+            line = Lexer.split(getInput());
         }
         return line;
     }
 
+    /**
+     * Parse our line of input into a compiled block in one pass with the
+     * {@link Lexer}, packing any quotations and blocks which are closed on the
+     * line.
+     *
+     * @return the line as a compiled block
+     * @see CompiledBlock
+     */
+    public CompiledBlock parseACompiledBlock() {
+        CompiledBlock compiledBlock = null;
+        if (getInput() != null) {
+            setInput(getInput().trim());
+            compiledBlock = Lexer.lex(getInput(), getInput());
+        }
+        return compiledBlock;
+    }
+
     /**
      * Parse our line of input into an ArgArray for use in the interpreter.
      *
      * @return an ArgArray for use in the interpreter
      */
     public ArgArray parseAnArgArray() {
-        return new ArgArray(myInterpreter, parseALine());
+        return new ArgArray(myInterpreter, parseACompiledBlock());
     }
 }
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Script profiler. The interpreter loop brackets each command and function
+ * call it dispatches with {@link #enter()} and
+ * {@link #exit(Frame, KIND, String)} while a profiler is active, recording
+ * per command name and per function the invocation count, the cumulative and
+ * self wall time, the time spent in host round trips and the bytes allocated.
+ * When no profiler is active the loop does nothing more than check for one.
+ * <p>
+ * Frames nest per thread so that time spent in a command called from a
+ * function is subtracted from the function's self time. Host round trips are
+ * bracketed by the code making them with {@link #hostStart()} and
+ * {@link #hostEnd(long)}.</p>
+ *
+ * @author jwoehr
+ */
+public class Profiler {
+
+    /**
+     * Kinds of things profiled
+     */
+    public enum KIND {
+        /**
+         * a command
+         */
+        COMMAND,
+        /**
+         * a function
+         */
+        FUNC
+    }
+
+    /**
+     * Fields a report may be sorted by
+     */
+    public enum SORTBY {
+        /**
+         * invocation count
+         */
+        COUNT,
+        /**
+         * cumulative time
+         */
+        TOTAL,
+        /**
+         * self time
+         */
+        SELF,
+        /**
+         * host round trip time
+         */
+        HOST,
+        /**
+         * bytes allocated
+         */
+        ALLOC
+    }
+
+    private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final ConcurrentHashMap<String, Entry> commands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> functions = new ConcurrentHashMap<>();
+
+    /**
+     * A command or function invocation in progress
+     */
+    public static final class Frame {
+
+        private final Frame parent;
+        private final long start;
+        private final long startAlloc;
+        private long childNanos;
+        private long hostNanos;
+
+        private Frame(Frame parent) {
+            this.parent = parent;
+            this.startAlloc = allocatedBytes();
+            this.start = System.nanoTime();
+        }
+    }
+
+    /**
+     * Accumulated profile of one command or function
+     */
+    public static final class Entry {
+
+        private final KIND kind;
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long selfNanos;
+        private long hostNanos;
+        private long allocBytes;
+
+        private Entry(KIND kind, String name) {
+            this.kind = kind;
+            this.name = name;
+        }
+
+        private synchronized void add(long total, long self, long host, long alloc) {
+            count++;
+            totalNanos += total;
+            selfNanos += self;
+            hostNanos += host;
+            allocBytes += alloc;
+        }
+
+        private synchronized long get(SORTBY field) {
+            long result;
+            switch (field) {
+                case COUNT:
+                    result = count;
+                    break;
+                case TOTAL:
+                    result = totalNanos;
+                    break;
+                case HOST:
+                    result = hostNanos;
+                    break;
+                case ALLOC:
+                    result = allocBytes;
+                    break;
+                case SELF:
+                default:
+                    result = selfNanos;
+            }
+            return result;
+        }
+
+        private synchronized JSONObject toJSON() throws JSONException {
+            JSONObject jSONObject = new JSONObject();
+            jSONObject.put("kind", kind.name())
+                    .put("name", name)
+                    .put("count", count)
+                    .put("totalMs", totalNanos / 1e6)
+                    .put("selfMs", selfNanos / 1e6)
+                    .put("hostMs", hostNanos / 1e6)
+                    .put("allocBytes", allocBytes);
+            return jSONObject;
+        }
+
+        private synchronized String toRow() {
+            return String.format("%-8s %-24s %10d %12.3f %12.3f %12.3f %14d",
+                    kind.name(), name, count, totalNanos / 1e6, selfNanos / 1e6, hostNanos / 1e6, allocBytes);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        com.sun.management.ThreadMXBean result = null;
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                result = (com.sun.management.ThreadMXBean) bean;
+                if (!result.isThreadAllocatedMemorySupported()) {
+                    result = null;
+                } else if (!result.isThreadAllocatedMemoryEnabled()) {
+                    result.setThreadAllocatedMemoryEnabled(true);
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException | NoClassDefFoundError ex) {
+            result = null; // no allocation accounting on this JVM
+        }
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Begin timing an invocation on the current thread
+     *
+     * @return the frame to pass to {@link #exit(Frame, KIND, String)}
+     */
+    public Frame enter() {
+        Frame frame = new Frame(CURRENT.get());
+        CURRENT.set(frame);
+        return frame;
+    }
+
+    /**
+     * Finish timing an invocation on the current thread and record it
+     *
+     * @param frame the frame returned by {@link #enter()}
+     * @param kind command or function
+     * @param name name of the command or function
+     */
+    public void exit(Frame frame, KIND kind, String name) {
+        long elapsed = System.nanoTime() - frame.start;
+        long alloc = allocatedBytes() - frame.startAlloc;
+        Frame parent = frame.parent;
+        CURRENT.set(parent);
+        if (parent != null) {
+            parent.childNanos += elapsed;
+            parent.hostNanos += frame.hostNanos;
+        }
+        ConcurrentHashMap<String, Entry> entries = kind == KIND.FUNC ? functions : commands;
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            Entry created = new Entry(kind, name);
+            entry = entries.putIfAbsent(name, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        entry.add(elapsed, elapsed - frame.childNanos, frame.hostNanos, alloc);
+    }
+
+    /**
+     * Mark the start of a host round trip
+     *
+     * @return start time to pass to {@link #hostEnd(long)} or 0 if no
+     * invocation is being profiled on this thread
+     */
+    public static long hostStart() {
+        return CURRENT.get() == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a host round trip, charging its time to the invocation
+     * being profiled on this thread
+     *
+     * @param start the value returned by {@link #hostStart()}
+     */
+    public static void hostEnd(long start) {
+        if (start != 0) {
+            Frame frame = CURRENT.get();
+            if (frame != null) {
+                frame.hostNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Discard all data recorded
+     */
+    public void reset() {
+        commands.clear();
+        functions.clear();
+    }
+
+    private List<Entry> sorted(final SORTBY sortBy) {
+        List<Entry> entries = new ArrayList<>(commands.values());
+        entries.addAll(functions.values());
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return Long.compare(o2.get(sortBy), o1.get(sortBy));
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Report as a table sorted descending
+     *
+     * @param sortBy field to sort by
+     * @return the report
+     */
+    public String report(SORTBY sortBy) {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %-24s %10s %12s %12s %12s %14s",
+                "KIND", "NAME", "COUNT", "TOTAL_MS", "SELF_MS", "HOST_MS", "ALLOC_BYTES"));
+        for (Entry entry : sorted(sortBy)) {
+            sb.append('\n').append(entry.toRow());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Report as JSON sorted descending
+     *
+     * @param sortBy field to sort by
+     * @return the report
+     * @throws JSONException on error building the report
+     */
+    public JSONArray reportJSON(SORTBY sortBy) throws JSONException {
+        JSONArray jSONArray = new JSONArray();
+        for (Entry entry : sorted(sortBy)) {
+            jSONArray.put(entry.toJSON());
+        }
+        return jSONArray;
+    }
+}
@@ -130,7 +130,9 @@ public class ProgramCallHelper {
 
         // /* DEBUG */ programCall.setMessageOption(AS400Message.MESSAGE_OPTION_NONE);
         // /* DEBUG */ System.err.println("before running the program call");
+        long hostStart = Profiler.hostStart();
         boolean result = programCall.run();
+        Profiler.hostEnd(hostStart);
         // /* DEBUG */ System.err.println("after running the program call");
         return result;
     }
@@ -79,6 +79,16 @@ public class Props {
         this.myProperties = properties;
     }
 
+    /**
+     * Instance on a copy of another instance's properties
+     *
+     * @param props instance to copy
+     */
+    public Props(Props props) {
+        myProperties = new Properties();
+        myProperties.putAll(props.myProperties);
+    }
+
     /**
      * Read in props from a props file
      *
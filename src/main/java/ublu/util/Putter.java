@@ -211,35 +211,52 @@ public class Putter {
         String stringdata;
         switch (destDataSink.getType()) {
             case FILE:
-                stringdata = new Renderer(getObject(), getCharsetName()).asString();
                 File file = new File(destDataSink.getName());
                 FileWriter fWriter = new FileWriter(file, append);
                 BufferedWriter bWriter = new BufferedWriter(fWriter);
-                bWriter.write(stringdata);
+                if (getObject() instanceof StrBuf) {
+                    StrBuf.class.cast(getObject()).writeTo(bWriter);
+                } else {
+                    bWriter.write(new Renderer(getObject(), getCharsetName()).asString());
+                }
                 bWriter.close();
                 fWriter.close();
                 break;
             case TUPLE:
                 Tuple t = getInterpreter().getTuple(destDataSink.getName());
                 getInterpreter().dbug().dbugTuple("sought Tuple in put case TUPLE: ", t);
-                if (append) {
-                    if (getObject() instanceof String) {
-                        if (!(t == null)) {
-                            Object o = t.getValue();
-                            if (o instanceof String) {
-                                setObject(t.getValue() + (space ? " " : "") + getObject().toString());
+                if (append && t != null && t.getValue() instanceof StrBuf) {
+                    // Accumulate in place rather than building a new string
+                    StrBuf strBuf = StrBuf.class.cast(t.getValue());
+                    if (space) {
+                        strBuf.append(" ");
+                    }
+                    strBuf.append(new Renderer(getObject(), getCharsetName()).asString());
+                } else {
+                    if (append) {
+                        if (getObject() instanceof String) {
+                            if (!(t == null)) {
+                                Object o = t.getValue();
+                                if (o instanceof String) {
+                                    setObject(t.getValue() + (space ? " " : "") + getObject().toString());
+                                }
                             }
                         }
                     }
-                }
-                if (t == null) {
-                    getInterpreter().setTuple(destDataSink.getName(), getObject());
-                } else {
-                    t.setValue(getObject());
+                    if (t == null) {
+                        getInterpreter().setTuple(destDataSink.getName(), getObject());
+                    } else {
+                        t.setValue(getObject());
+                    }
                 }
                 break;
             case ERR:
-                stringdata = new Renderer(getObject(), getCharsetName()).asString();
+                if (getObject() instanceof StrBuf) {
+                    StrBuf.class.cast(getObject()).writeTo(getInterpreter().getErroutStream());
+                    stringdata = "";
+                } else {
+                    stringdata = new Renderer(getObject(), getCharsetName()).asString();
+                }
                 if (space) {
                     stringdata = stringdata + " ";
                 }
@@ -251,7 +268,12 @@ public class Putter {
                 break;
             case STD:
             default:
-                stringdata = new Renderer(getObject(), getCharsetName()).asString();
+                if (getObject() instanceof StrBuf) {
+                    StrBuf.class.cast(getObject()).writeTo(getInterpreter().getOutputStream());
+                    stringdata = "";
+                } else {
+                    stringdata = new Renderer(getObject(), getCharsetName()).asString();
+                }
                 if (space) {
                     stringdata = stringdata + " ";
                 }
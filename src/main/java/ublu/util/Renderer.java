@@ -79,6 +79,217 @@ import ublu.util.Generics.CIMObjectPathArrayList;
  */
 public class Renderer {
 
+    /**
+     * A way to render as string objects of some class type
+     */
+    public interface Rendering {
+
+        /**
+         * Render an object as string
+         *
+         * @param r the renderer doing the rendering, which knows the charset
+         * @param o the object, which is never null
+         * @return object as an appropriate string representation
+         * @throws SQLException
+         * @throws IOException
+         * @throws AS400SecurityException
+         * @throws InterruptedException
+         * @throws ErrorCompletingRequestException
+         * @throws ObjectDoesNotExistException
+         * @throws RequestNotSupportedException
+         */
+        String render(Renderer r, Object o) throws SQLException, IOException, AS400SecurityException, ErrorCompletingRequestException, InterruptedException, ObjectDoesNotExistException, RequestNotSupportedException;
+    }
+
+    /**
+     * The renderings built into Ublu, in the order a class assignable to more
+     * than one of them is matched
+     */
+    public enum BUILTIN implements Rendering {
+        PARAMETERARRAY("com.softwoehr.pigiron.access.ParameterArray"),
+        HISTORYLOG("com.ibm.as400.access.HistoryLog"),
+        AS400MESSAGELIST("ublu.util.Generics$AS400MessageList"),
+        USER("com.ibm.as400.access.User"),
+        USERARRAYLIST("ublu.util.Generics$UserArrayList"),
+        DATABASEMETADATA("java.sql.DatabaseMetaData"),
+        RESULTSETCLOSURE("ublu.db.ResultSetClosure"),
+        JOBLIST("com.ibm.as400.access.JobList"),
+        RESULTSET("java.sql.ResultSet"),
+        OUTPUTQUEUE("com.ibm.as400.access.OutputQueue"),
+        QUEUEDMESSAGE("com.ibm.as400.access.QueuedMessage"),
+        QUEUEDMESSAGELIST("ublu.util.Generics$QueuedMessageList"),
+        RESULTSETFORMATTER("ublu.db.ResultSetFormatter"),
+        PROCESSCLOSURE("ublu.util.SystemHelper$ProcessClosure"),
+        COLUMNTYPENAMELIST("ublu.util.Generics$ColumnTypeNameList"),
+        RESULTSETMETADATA("java.sql.ResultSetMetaData"),
+        SAVEFILEENTRY("com.ibm.as400.access.SaveFileEntry"),
+        SAVEFILEENTRYARRAY("[Lcom.ibm.as400.access.SaveFileEntry;"),
+        STRINGARRAYLIST("ublu.util.Generics$StringArrayList"),
+        SPOOLEDFILE("com.ibm.as400.access.SpooledFile"),
+        SPOOLEDFILEARRAYLIST("ublu.util.Generics$SpooledFileArrayList"),
+        SPOOLEDFILEOPENLIST("com.ibm.as400.access.list.SpooledFileOpenList"),
+        DATAQUEUEENTRY("com.ibm.as400.access.DataQueueEntry"),
+        OBJECTLOCKLISTENTRY("com.ibm.as400.access.ObjectLockListEntry"),
+        STRINGARRAY("[Ljava.lang.String;"),
+        SUBSYSTEM("com.ibm.as400.access.Subsystem"),
+        SUBSYSTEMARRAYLIST("ublu.util.Generics$SubsystemArrayList"),
+        MEMBERLIST("com.ibm.as400.access.MemberList"),
+        RECORDFORMAT("com.ibm.as400.access.RecordFormat"),
+        FIELDDESCRIPTION("com.ibm.as400.access.FieldDescription"),
+        CIMOBJECTPATHARRAYLIST("ublu.util.Generics$CIMObjectPathArrayList"),
+        BYTEARRAY("[B"),
+        BOXEDBYTEARRAY("[Ljava.lang.Byte;");
+
+        private final String typeName;
+
+        BUILTIN(String typeName) {
+            this.typeName = typeName;
+        }
+
+        /**
+         * Get the name of the class type this rendering renders. The type is
+         * named rather than referenced so that the libraries of all the types
+         * need not be loaded to render an object of any one of them.
+         *
+         * @return the binary name of the class type
+         */
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @Override
+        public String render(Renderer r, Object o) throws SQLException, IOException, AS400SecurityException, ErrorCompletingRequestException, InterruptedException, ObjectDoesNotExistException, RequestNotSupportedException {
+            String s = null;
+            switch (this) {
+                case PARAMETERARRAY:
+                    s = r.stringFrom(ParameterArray.class.cast(o));
+                    break;
+                case HISTORYLOG:
+                    s = r.stringFrom(HistoryLog.class.cast(o));
+                    break;
+                case AS400MESSAGELIST:
+                    s = r.stringFrom(AS400MessageList.class.cast(o));
+                    break;
+                case USER:
+                    s = r.stringFrom(User.class.cast(o));
+                    break;
+                case USERARRAYLIST:
+                    s = r.stringFrom(UserArrayList.class.cast(o));
+                    break;
+                case DATABASEMETADATA:
+                    s = r.stringFrom(DatabaseMetaData.class.cast(o));
+                    break;
+                case RESULTSETCLOSURE:
+                    s = r.stringFrom(ResultSetClosure.class.cast(o).getResultSet());
+                    break;
+                case JOBLIST:
+                    s = r.stringFrom(JobList.class.cast(o));
+                    break;
+                case RESULTSET:
+                    s = r.stringFrom(ResultSet.class.cast(o));
+                    break;
+                case OUTPUTQUEUE:
+                    s = r.stringFrom(OutputQueue.class.cast(o));
+                    break;
+                case QUEUEDMESSAGE:
+                    s = r.stringFrom(QueuedMessage.class.cast(o));
+                    break;
+                case QUEUEDMESSAGELIST:
+                    s = r.stringFrom(QueuedMessageList.class.cast(o));
+                    break;
+                case RESULTSETFORMATTER:
+                    s = r.stringFrom(ResultSetFormatter.class.cast(o));
+                    break;
+                case PROCESSCLOSURE:
+                    s = r.stringFrom(ProcessClosure.class.cast(o));
+                    break;
+                case COLUMNTYPENAMELIST:
+                    s = r.stringFrom(ColumnTypeNameList.class.cast(o));
+                    break;
+                case RESULTSETMETADATA:
+                    s = r.stringFrom(ResultSetMetaData.class.cast(o));
+                    break;
+                case SAVEFILEENTRY:
+                    s = r.stringFrom(SaveFileEntry.class.cast(o));
+                    break;
+                case SAVEFILEENTRYARRAY:
+                    s = r.stringFrom(SaveFileEntry[].class.cast(o));
+                    break;
+                case STRINGARRAYLIST:
+                    s = r.stringFrom(StringArrayList.class.cast(o));
+                    break;
+                case SPOOLEDFILE:
+                    s = r.stringFrom(SpooledFile.class.cast(o));
+                    break;
+                case SPOOLEDFILEARRAYLIST:
+                    s = r.stringFrom(SpooledFileArrayList.class.cast(o));
+                    break;
+                case SPOOLEDFILEOPENLIST:
+                    s = r.stringFrom(SpooledFileOpenList.class.cast(o));
+                    break;
+                case DATAQUEUEENTRY:
+                    s = r.stringFrom(DataQueueEntry.class.cast(o));
+                    break;
+                case OBJECTLOCKLISTENTRY:
+                    s = r.stringFrom(ObjectLockListEntry.class.cast(o));
+                    break;
+                case STRINGARRAY:
+                    s = r.stringFrom(String[].class.cast(o));
+                    break;
+                case SUBSYSTEM:
+                    s = r.stringFrom(Subsystem.class.cast(o));
+                    break;
+                case SUBSYSTEMARRAYLIST:
+                    s = r.stringFrom(SubsystemArrayList.class.cast(o));
+                    break;
+                case MEMBERLIST:
+                    s = r.stringFrom(MemberList.class.cast(o));
+                    break;
+                case RECORDFORMAT:
+                    s = r.stringFrom(RecordFormat.class.cast(o));
+                    break;
+                case FIELDDESCRIPTION:
+                    s = r.stringFrom(FieldDescription.class.cast(o));
+                    break;
+                case CIMOBJECTPATHARRAYLIST:
+                    s = r.stringFrom(CIMObjectPathArrayList.class.cast(o));
+                    break;
+                case BYTEARRAY:
+                    s = r.stringFrom(byte[].class.cast(o));
+                    break;
+                case BOXEDBYTEARRAY:
+                    s = r.stringFrom(Byte[].class.cast(o));
+                    break;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * The registry of class types and their renderings. An object whose class
+     * resolves to no rendering is rendered by its <code>toString()</code>.
+     */
+    public static final TypeDispatch<Rendering> RENDERINGS;
+
+    static {
+        RENDERINGS = new TypeDispatch<>(TypeDispatch.PRECEDENCE.FIRST);
+        for (BUILTIN b : BUILTIN.values()) {
+            RENDERINGS.register(b.getTypeName(), b);
+        }
+    }
+
+    /**
+     * Register a rendering for a class type, e.g., by an extension which
+     * renders a class of its own. A rendering registered for the exact class
+     * of an object is always the one used.
+     *
+     * @param c the class type
+     * @param rendering the rendering for objects of the type
+     */
+    public static void register(Class c, Rendering rendering) {
+        RENDERINGS.register(c, rendering);
+    }
+
     /**
      * Charset name for conversion
      */
@@ -156,81 +367,12 @@ public class Renderer {
      */
     public String asString() throws SQLException, IOException, AS400SecurityException, ErrorCompletingRequestException, InterruptedException, ObjectDoesNotExistException, RequestNotSupportedException {
         Object theObject = getObject();
-        String s = "Unable to render object as string.";
-        if (theObject instanceof ParameterArray) {
-            s = stringFrom(ParameterArray.class.cast(theObject));
-        } else if (theObject instanceof HistoryLog) {
-            s = stringFrom(HistoryLog.class.cast(theObject));
-        } else if (theObject instanceof AS400MessageList) {
-            s = stringFrom(AS400MessageList.class.cast(theObject));
-        } else if (theObject instanceof User) {
-            s = stringFrom(User.class.cast(theObject));
-        } else if (theObject instanceof UserArrayList) {
-            s = stringFrom(UserArrayList.class.cast(theObject));
-        } else if (theObject instanceof DatabaseMetaData) {
-            s = stringFrom(DatabaseMetaData.class.cast(theObject));
-        } else if (theObject instanceof ResultSetClosure) {
-            ResultSetClosure rsc = ResultSetClosure.class.cast(theObject);
-            s = stringFrom(rsc.getResultSet());
-        } else if (theObject instanceof JobList) {
-            JobList jl = JobList.class.cast(theObject);
-            s = stringFrom(jl);
-        } else if (theObject instanceof ResultSet) {
-            s = stringFrom(ResultSet.class.cast(theObject));
-        } else if (theObject instanceof OutputQueue) {
-            s = stringFrom(OutputQueue.class.cast(theObject));
-        } else if (theObject instanceof QueuedMessage) {
-            QueuedMessage qm = QueuedMessage.class.cast(theObject);
-            s = stringFrom(qm);
-        } else if (theObject instanceof QueuedMessageList) {
-            QueuedMessageList queuedMessageList = QueuedMessageList.class.cast(theObject);
-            s = stringFrom(queuedMessageList);
-        } else if (theObject instanceof ResultSetFormatter) {
-            s = stringFrom(ResultSetFormatter.class.cast(theObject));
-        } else if (theObject instanceof ProcessClosure) {
-            s = stringFrom(ProcessClosure.class.cast(theObject));
-        } else if (theObject instanceof ColumnTypeNameList) {
-            s = stringFrom(ColumnTypeNameList.class.cast(theObject));
-        } else if (theObject instanceof ResultSetMetaData) {
-            s = stringFrom(ResultSetMetaData.class.cast(theObject));
-        } else if (theObject instanceof SaveFileEntry) {
-            s = stringFrom(SaveFileEntry.class.cast(theObject));
-        } else if (theObject instanceof SaveFileEntry[]) {
-            s = stringFrom(SaveFileEntry[].class.cast(theObject));
-        } else if (theObject instanceof StringArrayList) {
-            s = stringFrom(StringArrayList.class.cast(theObject));
-        } else if (theObject instanceof SpooledFile) {
-            s = stringFrom(SpooledFile.class.cast(theObject));
-        } else if (theObject instanceof SpooledFileArrayList) {
-            s = stringFrom(SpooledFileArrayList.class.cast(theObject));
-        } else if (theObject instanceof SpooledFileOpenList) {
-            s = stringFrom(SpooledFileOpenList.class.cast(theObject));
-        } else if (theObject instanceof DataQueueEntry) {
-            s = stringFrom(DataQueueEntry.class.cast(theObject));
-        } else if (theObject instanceof ObjectLockListEntry) {
-            s = stringFrom(ObjectLockListEntry.class.cast(theObject));
-        } else if (theObject instanceof String[]) {
-            s = stringFrom(String[].class.cast(theObject));
-        } else if (theObject instanceof Subsystem) {
-            s = stringFrom(Subsystem.class.cast(theObject));
-        } else if (theObject instanceof SubsystemArrayList) {
-            s = stringFrom(SubsystemArrayList.class.cast(theObject));
-        } else if (theObject instanceof MemberList) {
-            s = stringFrom(MemberList.class.cast(theObject));
-        } else if (theObject instanceof RecordFormat) {
-            s = stringFrom(RecordFormat.class.cast(theObject));
-        } else if (theObject instanceof FieldDescription) {
-            s = stringFrom(FieldDescription.class.cast(theObject));
-        } else if (theObject instanceof CIMObjectPathArrayList) {
-            s = stringFrom(CIMObjectPathArrayList.class.cast(theObject));
-        } else if (theObject instanceof byte[]) {
-            s = stringFrom(byte[].class.cast(theObject));
-        } else if (theObject instanceof Byte[]) {
-            s = stringFrom(Byte[].class.cast(theObject));
-        } else if (theObject instanceof Object) {
-            s = theObject.toString();
-        } else if (theObject == null) {
+        String s;
+        if (theObject == null) {
             s = "null";
+        } else {
+            Rendering rendering = RENDERINGS.get(theObject.getClass());
+            s = rendering == null ? theObject.toString() : rendering.render(this, theObject);
         }
         return s;
     }
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The stack of local scopes nested into a {@link TupleMap}, kept as a
+ * contiguous array of frames plus one index from each tuple name to its
+ * innermost local binding. Pushing and popping a scope cost only the number of
+ * tuples declared in it, and resolving a name is a single hash probe whatever
+ * the nesting depth.
+ *
+ * <p>
+ * Each frame remembers its tuple names in the order in which they were first
+ * put, so that the scopes display just like the chain of nested maps they
+ * replace.</p>
+ *
+ * @author jwoehr
+ */
+final class ScopeStack {
+
+    /**
+     * One tuple bound in one scope, shadowing any binding of the same name in
+     * an enclosing scope
+     */
+    private static final class Binding {
+
+        private Tuple tuple;
+        private final int level;
+        private Binding shadowed;
+
+        private Binding(Tuple tuple, int level, Binding shadowed) {
+            this.tuple = tuple;
+            this.level = level;
+            this.shadowed = shadowed;
+        }
+    }
+
+    /**
+     * The names bound in one scope in the order first put
+     */
+    private static final class Frame {
+
+        private String[] names = new String[8];
+        private int count;
+
+        private void add(String name) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+            }
+            names[count++] = name;
+        }
+
+        private void remove(String name) {
+            for (int i = 0; i < count; i++) {
+                if (names[i].equals(name)) {
+                    System.arraycopy(names, i + 1, names, i, count - i - 1);
+                    names[--count] = null;
+                    break;
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(names, 0, count, null);
+            count = 0;
+        }
+    }
+
+    /**
+     * frames[1] is the outermost local scope, frames[depth] the innermost
+     */
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private final HashMap<String, Binding> bindings = new HashMap<>();
+
+    /**
+     * Get the number of local scopes
+     *
+     * @return the number of local scopes
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Push a new innermost scope
+     */
+    void push() {
+        if (++depth == frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+        if (frames[depth] == null) {
+            frames[depth] = new Frame();
+        }
+    }
+
+    /**
+     * Pop and discard the innermost scope, if any
+     */
+    void pop() {
+        if (depth > 0) {
+            Frame frame = frames[depth];
+            for (int i = 0; i < frame.count; i++) {
+                unbind(frame.names[i]);
+            }
+            frame.clear();
+            depth--;
+        }
+    }
+
+    /* Drop the innermost binding of a name */
+    private void unbind(String name) {
+        Binding b = bindings.get(name);
+        if (b.shadowed == null) {
+            bindings.remove(name);
+        } else {
+            bindings.put(name, b.shadowed);
+        }
+    }
+
+    /**
+     * Get the innermost local tuple bound to a name
+     *
+     * @param key tuple name
+     * @return the tuple or null if not bound in any local scope
+     */
+    Tuple get(String key) {
+        Binding b = bindings.get(key);
+        return b == null ? null : b.tuple;
+    }
+
+    /**
+     * Get the tuple bound to a name in the innermost scope only
+     *
+     * @param key tuple name
+     * @return the tuple or null if not bound in the innermost scope
+     */
+    Tuple getInnermost(String key) {
+        Binding b = bindings.get(key);
+        return b == null || b.level != depth ? null : b.tuple;
+    }
+
+    /**
+     * Bind a tuple in the innermost scope. Must only be called when there is
+     * a local scope.
+     *
+     * @param key tuple name
+     * @param t the tuple
+     * @return the tuple previously bound to the name in the innermost scope
+     * or null if none
+     */
+    Tuple putInnermost(String key, Tuple t) {
+        Tuple previous = null;
+        Binding b = bindings.get(key);
+        if (b != null && b.level == depth) {
+            previous = b.tuple;
+            b.tuple = t;
+        } else {
+            bindings.put(key, new Binding(t, depth, b));
+            frames[depth].add(key);
+        }
+        return previous;
+    }
+
+    /**
+     * Remove the innermost local binding of a name
+     *
+     * @param key tuple name
+     * @return the tuple removed or null if not bound in any local scope
+     */
+    Tuple remove(String key) {
+        Tuple result = null;
+        Binding b = bindings.get(key);
+        if (b != null) {
+            result = b.tuple;
+            frames[b.level].remove(key);
+            unbind(key);
+        }
+        return result;
+    }
+
+    /**
+     * Remove a tuple from every local scope in which it is bound
+     *
+     * @param t the tuple
+     */
+    void removeEverywhere(Tuple t) {
+        String key = t.getKey();
+        Binding above = null;
+        Binding b = bindings.get(key);
+        while (b != null) {
+            Binding next = b.shadowed;
+            if (b.tuple.equals(t)) {
+                frames[b.level].remove(key);
+                if (above != null) {
+                    above.shadowed = next;
+                } else if (next == null) {
+                    bindings.remove(key);
+                } else {
+                    bindings.put(key, next);
+                }
+            } else {
+                above = b;
+            }
+            b = next;
+        }
+    }
+
+    /* The tuple bound to a name in a given scope */
+    private Tuple tupleAt(String key, int level) {
+        Tuple result = null;
+        for (Binding b = bindings.get(key); b != null; b = b.shadowed) {
+            if (b.level == level) {
+                result = b.tuple;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Push copies of all the scopes of another scope stack. The tuples
+     * themselves are shared, not copied.
+     *
+     * @param src the scope stack to copy
+     */
+    void copyFrom(ScopeStack src) {
+        for (int level = 1; level <= src.depth; level++) {
+            push();
+            Frame frame = src.frames[level];
+            for (int i = 0; i < frame.count; i++) {
+                putInnermost(frame.names[i], src.tupleAt(frame.names[i], level));
+            }
+        }
+    }
+
+    /**
+     * Display the names bound in a scope, each followed by a space
+     *
+     * @param level the scope, 1 being the outermost
+     * @return the names bound in a scope
+     */
+    String keysAsDisplayString(int level) {
+        StringBuilder sb = new StringBuilder();
+        Frame frame = frames[level];
+        for (int i = 0; i < frame.count; i++) {
+            sb.append(frame.names[i]).append(" ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Display a scope the way a map of names to tuples displays
+     *
+     * @param level the scope, 1 being the outermost
+     * @return the scope as a string
+     */
+    String toString(int level) {
+        StringBuilder sb = new StringBuilder("{");
+        Frame frame = frames[level];
+        for (int i = 0; i < frame.count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(frame.names[i]).append('=').append(tupleAt(frame.names[i], level));
+        }
+        return sb.append('}').toString();
+    }
+}
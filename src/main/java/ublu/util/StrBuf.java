@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+
+/**
+ * A mutable string for accumulating text such as a report a piece at a time.
+ * Appending copies only the text appended, so building a string of length n
+ * costs O(n) rather than the O(n&sup2;) of concatenating immutable strings.
+ *
+ * <p>
+ * The text is held in a rope of chunks, each twice the size of the one before
+ * up to a limit, so that a very large buffer is never copied to grow and can
+ * be written out chunk by chunk without first being made into one
+ * string.</p>
+ *
+ * @author jwoehr
+ */
+public class StrBuf {
+
+    private static final int FIRST_CHUNK = 256;
+    private static final int MAX_CHUNK = 1 << 20;
+
+    private final ArrayList<char[]> chunks = new ArrayList<>();
+    private char[] current;
+    private int used;
+    private long length;
+
+    /**
+     * Instance empty
+     */
+    public StrBuf() {
+        clear();
+    }
+
+    /**
+     * Instance holding a string
+     *
+     * @param s initial text
+     */
+    public StrBuf(String s) {
+        this();
+        append(s);
+    }
+
+    /**
+     * Append text
+     *
+     * @param s text to append
+     * @return this
+     */
+    public synchronized StrBuf append(String s) {
+        int offset = 0;
+        int remaining = s.length();
+        while (remaining > 0) {
+            if (used == current.length) {
+                chunks.add(current);
+                current = new char[Math.min(current.length * 2, MAX_CHUNK)];
+                used = 0;
+            }
+            int n = Math.min(remaining, current.length - used);
+            s.getChars(offset, offset + n, current, used);
+            used += n;
+            offset += n;
+            remaining -= n;
+        }
+        length += s.length();
+        return this;
+    }
+
+    /**
+     * Append text and a line separator
+     *
+     * @param s text to append
+     * @return this
+     */
+    public synchronized StrBuf appendln(String s) {
+        return append(s).append(System.lineSeparator());
+    }
+
+    /**
+     * Number of characters held
+     *
+     * @return number of characters held
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+    /**
+     * Empty the buffer
+     *
+     * @return this
+     */
+    public final synchronized StrBuf clear() {
+        chunks.clear();
+        current = new char[FIRST_CHUNK];
+        used = 0;
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Write the text chunk by chunk
+     *
+     * @param out where to write
+     * @throws IOException on write error
+     */
+    public synchronized void writeTo(Appendable out) throws IOException {
+        for (char[] chunk : chunks) {
+            write(out, chunk, chunk.length);
+        }
+        write(out, current, used);
+    }
+
+    private static void write(Appendable out, char[] chunk, int count) throws IOException {
+        if (out instanceof Writer) {
+            ((Writer) out).write(chunk, 0, count);
+        } else {
+            out.append(CharBuffer.wrap(chunk, 0, count));
+        }
+    }
+
+    /**
+     * The text as one string
+     *
+     * @return the text as one string
+     * @throws OutOfMemoryError if the text is too long for a string
+     */
+    @Override
+    public synchronized String toString() {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("StrBuf of " + length + " chars is too long for a String");
+        }
+        StringBuilder sb = new StringBuilder((int) length);
+        for (char[] chunk : chunks) {
+            sb.append(chunk);
+        }
+        sb.append(current, 0, used);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import ublu.util.Generics.ConstMap;
+import ublu.util.Generics.FunctorMap;
+import ublu.util.Generics.FunctorParamList;
+
+/**
+ * A saved system image of consts and functions in a compact versioned binary
+ * format. Each function is saved with its template already scanned for
+ * parameter slots and already lexed into a compiled block, so restoring an
+ * image does none of the parsing that defining the functions did. An image
+ * file is read through a memory-mapped buffer.
+ *
+ * <p>
+ * The format, all integers big-endian and all strings an int byte count
+ * followed by that many bytes of UTF-8:</p>
+ * <pre>
+ * magic     8 bytes "UBLUIMG" and a zero byte
+ * version   int
+ * consts    int count, then for each: name, value
+ * functions int count, then for each:
+ *           name, int param count, params,
+ *           block, int text count, texts, int occurrence count, occurrences,
+ *           int lex count, then for each lex:
+ *             byte kind, int slot count, first piece,
+ *             then for each slot: int slot index, piece
+ * </pre>
+ * <p>
+ * A saved lex is split into the pieces between the parameter slots in it,
+ * because slot names are numbered anew in each process.</p>
+ *
+ * @author jwoehr
+ */
+public class SysImage {
+
+    /**
+     * The magic at the start of an image
+     */
+    public static final byte[] MAGIC = {'U', 'B', 'L', 'U', 'I', 'M', 'G', 0};
+    /**
+     * The version of the image format written
+     */
+    public static final int VERSION = 1;
+
+    private final FunctorMap functorMap;
+    private final ConstMap constMap;
+
+    private SysImage(FunctorMap functorMap, ConstMap constMap) {
+        this.functorMap = functorMap;
+        this.constMap = constMap;
+    }
+
+    /**
+     * Get the functions restored from the image
+     *
+     * @return the functions restored from the image
+     */
+    public FunctorMap getFunctorMap() {
+        return functorMap;
+    }
+
+    /**
+     * Get the consts restored from the image
+     *
+     * @return the consts restored from the image
+     */
+    public ConstMap getConstMap() {
+        return constMap;
+    }
+
+    /**
+     * True if the bytes start with the image magic
+     *
+     * @param bytes bytes to test
+     * @return true if the bytes start with the image magic
+     */
+    public static boolean isImage(byte[] bytes) {
+        boolean result = bytes != null && bytes.length >= MAGIC.length;
+        for (int i = 0; result && i < MAGIC.length; i++) {
+            result = bytes[i] == MAGIC[i];
+        }
+        return result;
+    }
+
+    /**
+     * True if the file starts with the image magic
+     *
+     * @param f file to test
+     * @return true if the file starts with the image magic
+     * @throws IOException
+     */
+    public static boolean isImage(File f) throws IOException {
+        byte[] bytes = new byte[MAGIC.length];
+        int numread = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            if (raf.length() >= MAGIC.length) {
+                raf.readFully(bytes);
+                numread = bytes.length;
+            }
+        }
+        return numread == MAGIC.length && isImage(bytes);
+    }
+
+    /**
+     * Write consts and functions as an image
+     *
+     * @param fm the functions, may be null
+     * @param cm the consts, may be null
+     * @param os stream to write to, which is flushed but not closed
+     * @throws IOException
+     */
+    public static void write(FunctorMap fm, ConstMap cm, OutputStream os) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os));
+        dos.write(MAGIC);
+        dos.writeInt(VERSION);
+        if (cm == null) {
+            dos.writeInt(0);
+        } else {
+            dos.writeInt(cm.size());
+            for (Map.Entry<String, Const> e : cm.entrySet()) {
+                writeString(dos, e.getKey());
+                writeString(dos, e.getValue().getValue());
+            }
+        }
+        if (fm == null) {
+            dos.writeInt(0);
+        } else {
+            dos.writeInt(fm.size());
+            for (Map.Entry<String, Functor> e : fm.entrySet()) {
+                writeFunctor(dos, e.getKey(), e.getValue());
+            }
+        }
+        dos.flush();
+    }
+
+    /**
+     * Write consts and functions as an image to a byte array
+     *
+     * @param fm the functions, may be null
+     * @param cm the consts, may be null
+     * @return the image
+     * @throws IOException
+     */
+    public static byte[] toByteArray(FunctorMap fm, ConstMap cm) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(fm, cm, baos);
+        return baos.toByteArray();
+    }
+
+    private static void writeFunctor(DataOutputStream dos, String name, Functor functor) throws IOException {
+        FunctorTemplate template = functor.getTemplate();
+        writeString(dos, name);
+        FunctorParamList fpl = functor.getFunctorParamList();
+        dos.writeInt(fpl.size());
+        for (String param : fpl) {
+            writeString(dos, param);
+        }
+        writeString(dos, functor.getBlock());
+        String[] texts = template.texts();
+        dos.writeInt(texts.length);
+        for (String text : texts) {
+            writeString(dos, text);
+        }
+        int[] occurrences = template.occurrences();
+        dos.writeInt(occurrences.length);
+        for (int occurrence : occurrences) {
+            dos.writeInt(occurrence);
+        }
+        CompiledBlock compiledBlock = template.getCompiledBlock();
+        String[] lexes = compiledBlock.lexes();
+        byte[] kinds = compiledBlock.kinds();
+        String slotPrefix = template.numSlots() > 0 ? slotPrefix(template.getSlotName(0)) : null;
+        dos.writeInt(lexes.length);
+        for (int i = 0; i < lexes.length; i++) {
+            dos.writeByte(kinds[i]);
+            writeLex(dos, lexes[i], slotPrefix, template.numSlots());
+        }
+    }
+
+    /**
+     * The slot name up to and including the dot before the slot index
+     */
+    private static String slotPrefix(String slotName) {
+        return slotName.substring(0, slotName.lastIndexOf('.') + 1);
+    }
+
+    private static void writeLex(DataOutputStream dos, String lex, String slotPrefix, int numSlots) throws IOException {
+        ArrayList<String> pieces = new ArrayList<>();
+        ArrayList<Integer> slots = new ArrayList<>();
+        int pieceStart = 0;
+        int i = slotPrefix == null ? -1 : lex.indexOf(slotPrefix);
+        while (i != -1) {
+            int indexStart = i + slotPrefix.length();
+            int indexEnd = indexStart;
+            while (indexEnd < lex.length() && Character.isDigit(lex.charAt(indexEnd))) {
+                indexEnd++;
+            }
+            int slot = indexEnd > indexStart ? Integer.parseInt(lex.substring(indexStart, indexEnd)) : -1;
+            if (slot >= 0 && slot < numSlots) {
+                pieces.add(lex.substring(pieceStart, i));
+                slots.add(slot);
+                pieceStart = indexEnd;
+            }
+            i = lex.indexOf(slotPrefix, indexEnd);
+        }
+        pieces.add(lex.substring(pieceStart));
+        dos.writeInt(slots.size());
+        writeString(dos, pieces.get(0));
+        for (int j = 0; j < slots.size(); j++) {
+            dos.writeInt(slots.get(j));
+            writeString(dos, pieces.get(j + 1));
+        }
+    }
+
+    private static void writeString(DataOutputStream dos, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /**
+     * Restore an image from a file, which is memory-mapped for reading
+     *
+     * @param f the image file
+     * @return the restored image
+     * @throws IOException if the file is not an image or is damaged
+     */
+    public static SysImage fromFile(File f) throws IOException {
+        SysImage result;
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r"); FileChannel fc = raf.getChannel()) {
+            result = read(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Restore an image from a byte array
+     *
+     * @param bytes the image
+     * @return the restored image
+     * @throws IOException if the bytes are not an image or are damaged
+     */
+    public static SysImage fromByteArray(byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Restore an image from a buffer
+     *
+     * @param bb buffer positioned at the start of the image
+     * @return the restored image
+     * @throws IOException if the buffer does not hold an image or it is
+     * damaged
+     */
+    public static SysImage read(ByteBuffer bb) throws IOException {
+        FunctorMap fm = new FunctorMap();
+        ConstMap cm = new ConstMap();
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            bb.get(magic);
+            if (!isImage(magic)) {
+                throw new IOException("Not a Ublu system image");
+            }
+            int version = bb.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported Ublu system image version " + version);
+            }
+            int numConsts = bb.getInt();
+            for (int i = 0; i < numConsts; i++) {
+                String name = readString(bb);
+                cm.put(name, new Const(name, readString(bb)));
+            }
+            int numFunctors = bb.getInt();
+            for (int i = 0; i < numFunctors; i++) {
+                String name = readString(bb);
+                fm.put(name, readFunctor(bb));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Damaged Ublu system image", ex);
+        }
+        return new SysImage(fm, cm);
+    }
+
+    private static Functor readFunctor(ByteBuffer bb) {
+        FunctorParamList fpl = new FunctorParamList();
+        int numParams = bb.getInt();
+        for (int i = 0; i < numParams; i++) {
+            fpl.add(readString(bb));
+        }
+        String block = readString(bb);
+        String[] texts = new String[bb.getInt()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = readString(bb);
+        }
+        int[] occurrences = new int[bb.getInt()];
+        for (int i = 0; i < occurrences.length; i++) {
+            occurrences[i] = checkSlot(bb.getInt(), numParams);
+        }
+        int numLexes = bb.getInt();
+        byte[] kinds = new byte[numLexes];
+        String[][] lexPieces = new String[numLexes][];
+        int[][] lexSlots = new int[numLexes][];
+        for (int i = 0; i < numLexes; i++) {
+            kinds[i] = bb.get();
+            int numSlots = bb.getInt();
+            lexPieces[i] = new String[numSlots + 1];
+            lexSlots[i] = new int[numSlots];
+            lexPieces[i][0] = readString(bb);
+            for (int j = 0; j < numSlots; j++) {
+                lexSlots[i][j] = checkSlot(bb.getInt(), numParams);
+                lexPieces[i][j + 1] = readString(bb);
+            }
+        }
+        return new Functor(block, fpl, new FunctorTemplate(numParams, texts, occurrences, kinds, lexPieces, lexSlots));
+    }
+
+    private static int checkSlot(int slot, int numSlots) {
+        if (slot < 0 || slot >= numSlots) {
+            throw new IllegalArgumentException("Slot index " + slot + " out of range");
+        }
+        return slot;
+    }
+
+    private static String readString(ByteBuffer bb) {
+        int length = bb.getInt();
+        if (length < 0 || length > bb.remaining()) {
+            throw new IllegalArgumentException("String length " + length + " out of range");
+        }
+        String result;
+        if (bb.hasArray()) {
+            result = new String(bb.array(), bb.arrayOffset() + bb.position(), length, StandardCharsets.UTF_8);
+            ((Buffer) bb).position(bb.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            bb.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Bounded pool executing {@link UbluTask}s submitted by <code>TASK
+ * -submit</code>. Runs tasks on virtual threads where the JVM supports them,
+ * otherwise on platform threads. Keeps counts and completion latency of the
+ * tasks for monitoring.
+ *
+ * @author jwoehr
+ */
+public class TaskExecutor {
+
+    /**
+     * Property naming the number of tasks which may run at once
+     */
+    public static final String POOLSIZE_PROPERTY = "task.pool.size";
+    /**
+     * Property which if "false" keeps tasks off virtual threads
+     */
+    public static final String VIRTUAL_PROPERTY = "task.virtual";
+
+    private final ThreadPoolExecutor pool;
+    private final boolean virtual;
+    private final AtomicInteger taskNumbers = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Default number of tasks which may run at once
+     *
+     * @return default number of tasks which may run at once
+     */
+    public static int defaultPoolSize() {
+        return Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Create a task executor
+     *
+     * @param poolSize number of tasks which may run at once
+     * @param tryVirtual true if tasks should run on virtual threads if the JVM
+     * supports them
+     */
+    public TaskExecutor(int poolSize, boolean tryVirtual) {
+        ThreadFactory threadFactory = tryVirtual ? virtualThreadFactory() : null;
+        virtual = threadFactory != null;
+        if (threadFactory == null) {
+            threadFactory = new ThreadFactory() {
+                private final AtomicInteger threadNumbers = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "Ublu Task Thread " + threadNumbers.incrementAndGet());
+                }
+            };
+        }
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Create a task executor configured from the properties of an interpreter
+     *
+     * @param interpreter interpreter whose properties configure the executor
+     */
+    public TaskExecutor(Interpreter interpreter) {
+        this(poolSize(interpreter),
+                !interpreter.getProperty(VIRTUAL_PROPERTY, "true").equalsIgnoreCase("false"));
+    }
+
+    /**
+     * Get the pool size set by the property <code>task.pool.size</code>,
+     * falling back to the default if it is unset or not a positive integer.
+     *
+     * @param interpreter interpreter whose properties configure the executor
+     * @return number of tasks which may run at once
+     */
+    private static int poolSize(Interpreter interpreter) {
+        int poolSize = defaultPoolSize();
+        String value = interpreter.getProperty(POOLSIZE_PROPERTY);
+        if (value != null) {
+            try {
+                int configured = Integer.parseInt(value.trim());
+                if (configured > 0) {
+                    poolSize = configured;
+                } else {
+                    interpreter.getLogger().log(Level.WARNING, "Property {0} must be a positive integer, using {1}", new Object[]{POOLSIZE_PROPERTY, poolSize});
+                }
+            } catch (NumberFormatException ex) {
+                interpreter.getLogger().log(Level.WARNING, "Property " + POOLSIZE_PROPERTY + " is not an integer, using " + poolSize, ex);
+            }
+        }
+        return poolSize;
+    }
+
+    /**
+     * Get a factory for virtual threads via reflection since we build for
+     * Java 8.
+     *
+     * @return factory for virtual threads or null if the JVM has none
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        ThreadFactory result = null;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "Ublu Task Thread ", 1L);
+            result = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            // No virtual threads in this JVM (or only as preview), use platform threads
+        }
+        return result;
+    }
+
+    /**
+     * Submit an interpreter all ready to run its program as a task
+     *
+     * @param interpreter interpreter spawned to run the task
+     * @return the task
+     */
+    public UbluTask submit(Interpreter interpreter) {
+        UbluTask task = new UbluTask(this, taskNumbers.incrementAndGet(), interpreter);
+        submitted.incrementAndGet();
+        Future<Object> future = pool.submit(task);
+        task.setFuture(future);
+        return task;
+    }
+
+    /**
+     * Record the completion of a task which ran
+     *
+     * @param latencyNanos time from submission to completion
+     * @param taskFailed true if the task failed
+     */
+    void recordCompletion(long latencyNanos, boolean taskFailed) {
+        completed.incrementAndGet();
+        if (taskFailed) {
+            failed.incrementAndGet();
+        }
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Record the cancellation of a task
+     */
+    void recordCancellation() {
+        cancelled.incrementAndGet();
+    }
+
+    /**
+     * True if tasks run on virtual threads
+     *
+     * @return true if tasks run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Get the number of tasks which may run at once
+     *
+     * @return number of tasks which may run at once
+     */
+    public int getPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Set the number of tasks which may run at once
+     *
+     * @param poolSize number of tasks which may run at once
+     */
+    public synchronized void setPoolSize(int poolSize) {
+        if (poolSize > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(poolSize);
+            pool.setCorePoolSize(poolSize);
+        } else {
+            pool.setCorePoolSize(poolSize);
+            pool.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting to run
+     *
+     * @return number of tasks waiting to run
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Get the number of tasks running
+     *
+     * @return number of tasks running
+     */
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Get the number of tasks submitted
+     *
+     * @return number of tasks submitted
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Get the number of tasks which ran to completion, whether or not they
+     * failed
+     *
+     * @return number of tasks completed
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Get the number of tasks which failed
+     *
+     * @return number of tasks which failed
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Get the number of tasks cancelled
+     *
+     * @return number of tasks cancelled
+     */
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    /**
+     * Get the mean time from submission to completion of completed tasks
+     *
+     * @return mean completion latency in milliseconds
+     */
+    public double getMeanLatencyMillis() {
+        long count = completed.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Get the longest time from submission to completion of a completed task
+     *
+     * @return maximum completion latency in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("pool size: ").append(getPoolSize())
+                .append(" virtual: ").append(isVirtual())
+                .append(" queued: ").append(getQueueDepth())
+                .append(" active: ").append(getActiveCount())
+                .append(" submitted: ").append(getSubmittedCount())
+                .append(" completed: ").append(getCompletedCount())
+                .append(" failed: ").append(getFailedCount())
+                .append(" cancelled: ").append(getCancelledCount())
+                .append(" mean latency ms: ").append(String.format("%.3f", getMeanLatencyMillis()))
+                .append(" max latency ms: ").append(String.format("%.3f", getMaxLatencyMillis()));
+        return sb.toString();
+    }
+}
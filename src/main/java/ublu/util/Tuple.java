@@ -25,6 +25,9 @@
  */
 package ublu.util;
 
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * Tuple variable implementation.
  * <p>
@@ -48,9 +51,13 @@ public class Tuple {
      */
     protected String key;
     /**
-     * object value of the Tuple
+     * object value of the Tuple, volatile since global tuples are shared
+     * between the interpreters of threads and tasks
      */
-    protected Object value;
+    protected volatile Object value;
+
+    private static final AtomicReferenceFieldUpdater<Tuple, Object> VALUE_UPDATER
+            = AtomicReferenceFieldUpdater.newUpdater(Tuple.class, Object.class, "value");
 
     /**
      * get the key
@@ -90,6 +97,101 @@ public class Tuple {
         return this;
     }
 
+    /**
+     * Atomically set the object value to an update if the current value is
+     * equal to an expected value. Values are equal if both are null, if
+     * <code>equals()</code> holds, or if their string representations match,
+     * since Ublu passes numbers and strings around interchangeably.
+     *
+     * @param expect the value expected to be current
+     * @param update the value to set
+     * @return true if the value was set, false if the current value was not
+     * the expected value
+     */
+    public boolean compareAndSetValue(Object expect, Object update) {
+        boolean result = false;
+        boolean done = false;
+        while (!done) {
+            Object current = value;
+            if (valuesEqual(current, expect)) {
+                result = VALUE_UPDATER.compareAndSet(this, current, update);
+                done = result;
+            } else {
+                done = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Atomically add to the numeric object value. A null value counts as zero
+     * and a string value is decoded as a long. The new value is a Long.
+     *
+     * @param delta amount to add
+     * @return the new value
+     * @throws NumberFormatException if the value is not numeric
+     */
+    public Long incrementValue(long delta) {
+        Long result;
+        Object current;
+        do {
+            current = value;
+            result = toLong(current) + delta;
+        } while (!VALUE_UPDATER.compareAndSet(this, current, result));
+        return result;
+    }
+
+    /**
+     * Atomically append to the object value. If the value is a collection the
+     * item is added to it while holding the collection's monitor. Otherwise
+     * the value is treated as a string (null counting as empty) and the
+     * string representation of the item is concatenated.
+     *
+     * @param item the object to append
+     * @return the new value
+     */
+    @SuppressWarnings("unchecked")
+    public Object appendValue(Object item) {
+        Object result = null;
+        boolean done = false;
+        while (!done) {
+            Object current = value;
+            if (current instanceof Collection) {
+                synchronized (current) {
+                    ((Collection<Object>) current).add(item);
+                }
+                result = current;
+                done = true;
+            } else {
+                result = (current == null ? "" : current.toString()) + item;
+                done = VALUE_UPDATER.compareAndSet(this, current, result);
+            }
+        }
+        return result;
+    }
+
+    private static boolean valuesEqual(Object a, Object b) {
+        boolean result;
+        if (a == null || b == null) {
+            result = a == b;
+        } else {
+            result = a.equals(b) || a.toString().equals(b.toString());
+        }
+        return result;
+    }
+
+    private static long toLong(Object o) {
+        long result;
+        if (o == null) {
+            result = 0;
+        } else if (o instanceof Number) {
+            result = ((Number) o).longValue();
+        } else {
+            result = Long.decode(o.toString().trim());
+        }
+        return result;
+    }
+
     /**
      * ctor/1 instance with only key
      *
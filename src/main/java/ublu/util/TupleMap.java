@@ -25,42 +25,80 @@
  */
 package ublu.util;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
-import java.util.Stack;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Map of the associative memory in the intepreter, i.e., the tuple bag.
  *
+ * <p>
+ * The map itself presents the global tuples. These are held in a concurrent
+ * store which is shared by every interpreter spawned from the one which
+ * created it, e.g., for threads, tasks and server connections. Local tuples
+ * are held in a {@link ScopeStack} of nested local scopes pushed and popped as
+ * the interpreter enters and leaves blocks and functions. The scope stack
+ * belongs to a single interpreter and is only ever touched by that
+ * interpreter's thread.</p>
+ *
  * @see Tuple
  * @author jwoehr
  */
-public class TupleMap extends LinkedHashMap<String, Tuple> {
+public class TupleMap extends AbstractMap<String, Tuple> {
 
-    private TupleMap localMap;
+    private final GlobalStore globals;
+    private final ScopeStack scopes = new ScopeStack();
 
     /**
-     * Get the local tuple map nested into this enclosing tuple map
-     *
-     * @return the local tuple map nested into this enclosing tuple map
+     * A global tuple together with its order of insertion, kept so the map
+     * still presents its keys in the order they were first put
      */
-    public TupleMap getLocalMap() {
-        return localMap;
+    private static final class Slot {
+
+        private final Tuple tuple;
+        private final long order;
+
+        private Slot(Tuple tuple, long order) {
+            this.tuple = tuple;
+            this.order = order;
+        }
     }
 
     /**
-     * Set the local tuple map nested into this enclosing tuple map
-     *
-     * @param localMap the local tuple map nested into this enclosing tuple map
+     * The concurrent store of global tuples shared between interpreters
      */
-    public final void setLocalMap(TupleMap localMap) {
-        this.localMap = localMap;
+    private static final class GlobalStore extends ConcurrentHashMap<String, Slot> {
+
+        private final AtomicLong insertions = new AtomicLong();
+
+        private long nextOrder() {
+            return insertions.incrementAndGet();
+        }
     }
 
+    private static final Comparator<Map.Entry<String, Slot>> INSERTION_ORDER = new Comparator<Map.Entry<String, Slot>>() {
+        @Override
+        public int compare(Map.Entry<String, Slot> o1, Map.Entry<String, Slot> o2) {
+            return Long.compare(o1.getValue().order, o2.getValue().order);
+        }
+    };
+
     /**
      * Instance simple
      */
     public TupleMap() {
-        setLocalMap(null);
+        globals = new GlobalStore();
+    }
+
+    private TupleMap(GlobalStore globals) {
+        this.globals = globals;
     }
 
     /**
@@ -80,16 +118,93 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      */
     public final void copyDeep(TupleMap src) {
         putAll(src);
-        Stack<TupleMap> tupleMapStack = new Stack<>();
-        TupleMap latestNest = src.getLocalMap();
-        while (latestNest != null) {
-            tupleMapStack.push(latestNest);
-            latestNest = (latestNest.getLocalMap());
-        }
-        while (!tupleMapStack.isEmpty()) {
-            pushLocal();
-            getLocalMap().putAll(tupleMapStack.pop());
+        scopes.copyFrom(src.scopes);
+    }
+
+    /**
+     * Create a tuple map for an interpreter spawned from the interpreter
+     * owning this map. The new map shares this map's global tuples. Its local
+     * scopes start out as a copy of this map's local scopes holding the same
+     * tuples, so the spawned interpreter sees the locals visible at the point
+     * of spawn, but any scopes it pushes or pops are its own.
+     * <p>
+     * Must be called on the thread owning this map, or on any thread if the
+     * map belongs to an {@link Interpreter#snapshot()}.</p>
+     *
+     * @return a tuple map sharing this map's global tuples
+     */
+    public TupleMap spawn() {
+        TupleMap spawned = new TupleMap(globals);
+        spawned.scopes.copyFrom(scopes);
+        return spawned;
+    }
+
+    @Override
+    public Tuple get(Object key) {
+        Slot slot = globals.get(key);
+        return slot == null ? null : slot.tuple;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return globals.containsKey(key);
+    }
+
+    @Override
+    public Tuple put(String key, Tuple value) {
+        Slot slot = globals.get(key);
+        Slot replaced = globals.put(key, new Slot(value, slot == null ? globals.nextOrder() : slot.order));
+        return replaced == null ? null : replaced.tuple;
+    }
+
+    @Override
+    public Tuple remove(Object key) {
+        Slot slot = globals.remove(key);
+        return slot == null ? null : slot.tuple;
+    }
+
+    @Override
+    public int size() {
+        return globals.size();
+    }
+
+    @Override
+    public void clear() {
+        globals.clear();
+    }
+
+    /**
+     * A snapshot of the global tuples in the order they were first put
+     *
+     * @return a snapshot of the global tuples
+     */
+    @Override
+    public Set<Map.Entry<String, Tuple>> entrySet() {
+        List<Map.Entry<String, Slot>> slots = new ArrayList<>(globals.entrySet());
+        Collections.sort(slots, INSERTION_ORDER);
+        LinkedHashMap<String, Tuple> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, Slot> e : slots) {
+            snapshot.put(e.getKey(), e.getValue().tuple);
         }
+        return snapshot.entrySet();
+    }
+
+    /**
+     * True if there is at least one local scope
+     *
+     * @return true if there is at least one local scope
+     */
+    public boolean hasLocal() {
+        return scopes.depth() > 0;
+    }
+
+    /**
+     * Get the number of nested local scopes
+     *
+     * @return the number of nested local scopes
+     */
+    public int getLocalDepth() {
+        return scopes.depth();
     }
 
     /**
@@ -100,14 +215,9 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      * @return the tuple or null if not found
      */
     public Tuple getTuple(String key) {
-        Tuple tuple = null;
-        if (getLocalMap() != null) {
-            tuple = getLocalMap().getTuple(key);
-        }
+        Tuple tuple = scopes.get(key);
         if (tuple == null) {
-            if (containsKey(key)) {
-                tuple = get(key);
-            }
+            tuple = get(key);
         }
         return tuple;
     }
@@ -119,68 +229,27 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      * @return the tuple or null if not found
      */
     public Tuple getTupleNoLocal(String key) {
-        Tuple tuple = null;
-        if (containsKey(key)) {
-            tuple = get(key);
-        }
-        return tuple;
+        return get(key);
     }
 
     /**
-     * Get a tuple from the local map by key. If not found, check the global map
-     * (this).
+     * Remove a tuple from every local scope in which it is found and from the
+     * global map (this).
      *
      * @param t the tuple
-     * @return the tuple or null if not found
+     * @return null
      */
     public Tuple deleteTuple(Tuple t) {
 //        /*debug */ System.err.println("tuple to delete is " + t.getKey());
-        Tuple result = null;
-        if (getLocalMap() != null) {
-            result = getLocalMap().deleteTuple(t);
-        }
-        if (result == null) {
-            if (containsValue(t)) {
-//                /*debug */ System.err.println("found tuple " + t.getKey());
-                String found = null;
-                for (String k : keySet()) {
-//                    /*debug */ System.err.println("looking for tuple " + t);
-//                    /*debug */ System.err.println("key is " + k);
-//                    /*debug */ System.err.println("value is " + get(k));
-                    if (get(k).equals(t)) {
-//                        /*debug */ System.err.println("found " + k);
-                        found = k;
-                        break;
-                    }
-                }
-                if (found != null) {
-                    Tuple x = remove(found);
-//                    /*debug */ System.err.println("removed " + x.getKey());
-                }
+        scopes.removeEverywhere(t);
+        for (Map.Entry<String, Slot> e : globals.entrySet()) {
+            if (e.getValue().tuple.equals(t)) {
+//                        /*debug */ System.err.println("found " + e.getKey());
+                globals.remove(e.getKey(), e.getValue());
+                break;
             }
         }
-        return result;
-    }
-
-    private Tuple putValueToNew(String key, Object value) {
-        Tuple t = new Tuple(key, value);
-        put(key, t);
-        return t;
-    }
-
-    private Tuple putValueToExtant(String key, Object value) {
-        Tuple t = get(key);
-        t.setValue(value);
-        put(key, t);
-        return t;
-    }
-
-    private Tuple putValueToNewLocal(String key, Object value) {
-        return getMostLocalMap().putValueToNew(key, value);
-    }
-
-    private Tuple putValueToExtantLocal(String key, Object value) {
-        return getMostLocalMap().putValueToExtant(key, value);
+        return null;
     }
 
     /**
@@ -194,26 +263,37 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
     }
 
     /**
-     * Get most nested map
+     * Put a tuple to the most local map
      *
-     * @return most nested map
+     * @param t the tuple
+     * @return the tuple previously in the most local map under the tuple's
+     * key, or null
      */
-    public TupleMap getMostLocalMap() {
-        TupleMap tm = this;
-        while (tm.getLocalMap() != null) {
-            tm = tm.getLocalMap();
-        }
-        return tm;
+    public Tuple putTupleMostLocal(Tuple t) {
+        return hasLocal() ? scopes.putInnermost(t.getKey(), t) : put(t.getKey(), t);
     }
 
     /**
-     * Put a tuple to the most local map
+     * Create or update a tuple in the most local map, i.e., declare a local.
      *
-     * @param t the tuple
-     * @return the tuple
+     * @param key string name
+     * @param value value object
+     * @return the tuple set or created
      */
-    public Tuple putTupleMostLocal(Tuple t) {
-        return getMostLocalMap().put(t.getKey(), t);
+    public Tuple setTupleMostLocal(String key, Object value) {
+        Tuple tuple;
+        if (hasLocal()) {
+            tuple = scopes.getInnermost(key);
+            if (tuple == null) {
+                tuple = new Tuple(key, value);
+                scopes.putInnermost(key, tuple);
+            } else {
+                tuple.setValue(value);
+            }
+        } else {
+            tuple = setTupleNoLocal(key, value);
+        }
+        return tuple;
     }
 
     /**
@@ -225,23 +305,11 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      * @return the tuple set or created
      */
     public Tuple setTuple(String key, Object value) {
-        Tuple tuple = null;
-        Stack<TupleMap> tupleMapStack = new Stack<>();
-        TupleMap lMap = getLocalMap();
-        while (lMap != null) {
-            tupleMapStack.push(lMap);
-            lMap = lMap.getLocalMap();
-        }
-        while (!tupleMapStack.empty()) {
-            lMap = tupleMapStack.pop();
-            if (lMap.containsKey(key)) {
-                tuple = lMap.get(key);
-                tuple.setValue(value);
-                break;
-            }
-        }
+        Tuple tuple = scopes.get(key);
         if (tuple == null) {
             tuple = setTupleNoLocal(key, value);
+        } else {
+            tuple.setValue(value);
         }
         return tuple;
     }
@@ -256,10 +324,42 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      */
     public Tuple setTupleNoLocal(String key, Object value) {
         Tuple tuple;
-        if (containsKey(key)) {
-            tuple = putValueToExtant(key, value);
+        Slot slot = globals.get(key);
+        if (slot == null) {
+            Slot created = new Slot(new Tuple(key, value), globals.nextOrder());
+            slot = globals.putIfAbsent(key, created);
+            if (slot == null) {
+                tuple = created.tuple;
+            } else { // another thread created it first
+                tuple = slot.tuple.setValue(value);
+            }
         } else {
-            tuple = putValueToNew(key, value);
+            tuple = slot.tuple.setValue(value);
+        }
+        return tuple;
+    }
+
+    /**
+     * Get a tuple from the local-est map in which its name exists or else from
+     * the global map, atomically creating it null in the global map if not
+     * found at all. Unlike {@link #setTupleNoLocal(String, Object)} this never
+     * overwrites a value put by another thread racing to create the tuple.
+     *
+     * @param key string name
+     * @return the tuple found or created
+     */
+    public Tuple getOrCreateTuple(String key) {
+        Tuple tuple = scopes.get(key);
+        if (tuple == null) {
+            Slot slot = globals.get(key);
+            if (slot == null) {
+                Slot created = new Slot(new Tuple(key), globals.nextOrder());
+                slot = globals.putIfAbsent(key, created);
+                if (slot == null) {
+                    slot = created;
+                }
+            }
+            tuple = slot.tuple;
         }
         return tuple;
     }
@@ -272,33 +372,13 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
      * @return the Tuple being deleted
      */
     public Object deleteTuple(String key) {
-        Object result = localDeleteTuple(key);
+        Object result = scopes.remove(key);
         if (result == null) {
             result = remove(key);
         }
         return result;
     }
 
-    private Object localDeleteTuple(String key) {
-        Object result = null;
-        TupleMap lmap = getMostLocalMap();
-        if (lmap != null) {
-            result = lmap.deleteTuple(key);
-        }
-        return result;
-    }
-
-//    private Tuple localSetTuple(String key, Object value) {
-//        Tuple tuple;
-//        TupleMap lmap = getMostLocalMap();
-//        if (lmap.containsKey(key)) {
-//            tuple = putValueToExtantLocal(key, value);
-//        } else {
-//            tuple = putValueToNewLocal(key, value);
-//        }
-//        return tuple;
-//    }
-
     /**
      * Display all tuple keys in the local map and global map
      *
@@ -314,77 +394,44 @@ public class TupleMap extends LinkedHashMap<String, Tuple> {
     }
 
     /**
-     * Display all tuple keys in the local map
+     * Display all tuple keys in the local map. As always, this is the keys of
+     * the innermost local scope followed by a newline for each enclosing local
+     * scope.
      *
      * @return string representation of all local keys or empty string.
      */
     public String localKeysAsDisplayString() {
-        String result = "";
         StringBuilder sb = new StringBuilder();
-        TupleMap map = getLocalMap();
-        TupleMap lmap = map == null ? null : map.getLocalMap();
-        if (map != null) {
-            if (lmap != null) {
-                sb.append(map.localKeysAsDisplayString()).append('\n');
-            } else {
-                for (String key : map.keySet()) {
-                    sb.append(key).append(" ");
-                }
+        int depth = scopes.depth();
+        if (depth > 0) {
+            sb.append(scopes.keysAsDisplayString(depth));
+            for (int level = 1; level < depth; level++) {
+                sb.append('\n');
             }
         }
-        if (sb.length() > 0) {
-            result = sb.toString();
-        }
-
-        return result;
+        return sb.toString();
     }
 
     /**
      * Push a new frame of local variables
      */
     public void pushLocal() {
-        TupleMap tm = this;
-        while (tm.getLocalMap() != null) {
-            tm = tm.getLocalMap();
-        }
-        tm.setLocalMap(new TupleMap());
+        scopes.push();
     }
 
     /**
      * Pop and discard a frame of local variables
      */
     public void popLocal() {
-        TupleMap tm = this;
-        while (tm.getLocalMap() != null) {
-            if (tm.getLocalMap().getLocalMap() == null) {
-                break;
-            }
-            tm = tm.getLocalMap();
-        }
-        tm.setLocalMap(null);
-    }
-
-    /**
-     * Allows nested display of local maps
-     *
-     * @param n level of local map
-     * @return string representing map
-     */
-    public String toStringWithLevel(int n) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\nLocal level ").append(n++).append(":\n")
-                .append(toString());
-        if (getLocalMap() != null) {
-            sb.append(getLocalMap().toStringWithLevel(n));
-        }
-        return sb.toString();
+        scopes.pop();
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(super.toString());
-        if (getLocalMap() != null) {
-            sb.append(getLocalMap().toStringWithLevel(1));
+        for (int level = 1; level <= scopes.depth(); level++) {
+            sb.append("\nLocal level ").append(level).append(":\n")
+                    .append(scopes.toString(level));
         }
         return sb.toString();
     }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A registry of values keyed by class type, e.g., the command an autonomic
+ * tuple invokes or the way the {@link Renderer} renders an object. Looking up
+ * a class resolves it against the registered types, superclasses and
+ * interfaces included, only the first time that class is seen: the resolution
+ * is cached in a {@link ClassValue} so every later lookup is a single probe.
+ * Registering a type, which extensions may do at any time, starts the cache
+ * afresh.
+ * <p>
+ * Types are registered and matched by binary class name, so a type may be
+ * registered without loading it or the library it comes from. A class matches
+ * a registered type if the class, one of its superclasses or one of the
+ * interfaces it implements bears the registered name. An array class matches
+ * only an array type of the identical component type.</p>
+ *
+ * @author jwoehr
+ * @param <V> type of value dispatched to
+ */
+public class TypeDispatch<V> {
+
+    /**
+     * Which registered type wins when a class is assignable to more than one of
+     * them and is registered as none of them
+     */
+    public enum PRECEDENCE {
+        /**
+         * The type registered earliest wins, like a chain of instanceof tests
+         */
+        FIRST,
+        /**
+         * The type registered latest wins
+         */
+        LAST
+    }
+
+    /**
+     * Resolution of a class, which may be that it resolves to nothing
+     *
+     * @param <V> type of value dispatched to
+     */
+    private static final class Binding<V> {
+
+        private final V value;
+
+        private Binding(V value) {
+            this.value = value;
+        }
+    }
+
+    private final PRECEDENCE precedence;
+    private final LinkedHashMap<String, V> registry = new LinkedHashMap<>();
+    private volatile ClassValue<Binding<V>> cache;
+
+    /**
+     * Instance with the precedence applied to ambiguous classes
+     *
+     * @param precedence the precedence applied to ambiguous classes
+     */
+    public TypeDispatch(PRECEDENCE precedence) {
+        this.precedence = precedence;
+        this.cache = newCache();
+    }
+
+    private ClassValue<Binding<V>> newCache() {
+        return new ClassValue<Binding<V>>() {
+            @Override
+            protected Binding<V> computeValue(Class<?> c) {
+                return new Binding<>(resolve(c));
+            }
+        };
+    }
+
+    /**
+     * Register a type and the value it dispatches to, replacing any value
+     * already registered for that exact type
+     *
+     * @param c the class type
+     * @param value the value it dispatches to
+     */
+    public void register(Class c, V value) {
+        register(c.getName(), value);
+    }
+
+    /**
+     * Register a type by binary class name, e.g.,
+     * <code>java.sql.ResultSet</code> or <code>[Ljava.lang.String;</code>, and
+     * the value it dispatches to, replacing any value already registered for
+     * that exact type
+     *
+     * @param className binary name of the class type
+     * @param value the value it dispatches to
+     */
+    public void register(String className, V value) {
+        synchronized (registry) {
+            registry.put(className, value);
+            cache = newCache();
+        }
+    }
+
+    /**
+     * Remove a type from the registry
+     *
+     * @param c the class type
+     * @return the value it had dispatched to or null if not registered
+     */
+    public V unregister(Class c) {
+        V result;
+        synchronized (registry) {
+            result = registry.remove(c.getName());
+            cache = newCache();
+        }
+        return result;
+    }
+
+    /**
+     * Get the value a class type dispatches to
+     *
+     * @param c the class type
+     * @return the value it dispatches to or null if none
+     */
+    public V get(Class c) {
+        return c == null ? null : cache.get(c).value;
+    }
+
+    /**
+     * Get the value the class of an object dispatches to
+     *
+     * @param o the object
+     * @return the value it dispatches to or null if none or if object is null
+     */
+    public V getFor(Object o) {
+        return o == null ? null : get(o.getClass());
+    }
+
+    /**
+     * Get a snapshot of the registered type names and their values in the
+     * order registered
+     *
+     * @return snapshot of the registry
+     */
+    public List<Map.Entry<String, V>> entries() {
+        List<Map.Entry<String, V>> result;
+        synchronized (registry) {
+            result = new ArrayList<Map.Entry<String, V>>(new LinkedHashMap<>(registry).entrySet());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private V resolve(Class c) {
+        V result;
+        synchronized (registry) {
+            result = registry.get(c.getName());
+            if (result == null) {
+                Set<String> supertypes = new HashSet<>();
+                addSupertypes(c, supertypes);
+                for (Map.Entry<String, V> e : registry.entrySet()) {
+                    if (supertypes.contains(e.getKey())) {
+                        result = e.getValue();
+                        if (precedence == PRECEDENCE.FIRST) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addSupertypes(Class c, Set<String> supertypes) {
+        if (c != null && supertypes.add(c.getName())) {
+            addSupertypes(c.getSuperclass(), supertypes);
+            for (Class i : c.getInterfaces()) {
+                addSupertypes(i, supertypes);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026, Jack J. Woehr jwoehr@softwoehr.com
+ * SoftWoehr LLC PO Box 82, Beulah CO 81023-0082 http://www.softwoehr.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ublu.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import ublu.command.CommandInterface.COMMANDRESULT;
+
+/**
+ * A block submitted by <code>TASK -submit</code> to run on the
+ * {@link TaskExecutor} in an interpreter of its own. The task's result is the
+ * value of the top of its interpreter's tuple stack when the block finishes,
+ * or null if the stack is empty.
+ *
+ * @author jwoehr
+ */
+public class UbluTask implements Callable<Object> {
+
+    /**
+     * States of a task
+     */
+    public enum STATUS {
+        /**
+         * waiting for a thread
+         */
+        QUEUED,
+        /**
+         * running
+         */
+        RUNNING,
+        /**
+         * completed successfully
+         */
+        DONE,
+        /**
+         * completed with failure
+         */
+        FAILED,
+        /**
+         * cancelled
+         */
+        CANCELLED
+    }
+
+    private final TaskExecutor executor;
+    private final int number;
+    private final Interpreter interpreter;
+    private final long submitNanos;
+    private volatile Future<Object> future;
+    private volatile boolean started;
+    private volatile boolean failed;
+    private final AtomicBoolean counted = new AtomicBoolean();
+
+    /**
+     * Create a task
+     *
+     * @param executor the executor the task is submitted to
+     * @param number serial number of the task
+     * @param interpreter interpreter spawned to run the task
+     */
+    UbluTask(TaskExecutor executor, int number, Interpreter interpreter) {
+        this.executor = executor;
+        this.number = number;
+        this.interpreter = interpreter;
+        this.submitNanos = System.nanoTime();
+    }
+
+    void setFuture(Future<Object> future) {
+        this.future = future;
+    }
+
+    /**
+     * Get serial number of task
+     *
+     * @return serial number of task
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Get the interpreter running the task
+     *
+     * @return the interpreter running the task
+     */
+    public Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    @Override
+    public Object call() throws Exception {
+        started = true;
+        Object result = null;
+        try {
+            failed = interpreter.loop() == COMMANDRESULT.FAILURE;
+            if (!interpreter.getTupleStack().isEmpty()) {
+                result = interpreter.getTupleStack().pop().getValue();
+            }
+        } catch (RuntimeException ex) {
+            failed = true;
+            throw ex;
+        } finally {
+            // A task cancelled while running is counted as cancelled only
+            if (!isCancelled() && counted.compareAndSet(false, true)) {
+                executor.recordCompletion(System.nanoTime() - submitNanos, failed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the status of the task
+     *
+     * @return the status of the task
+     */
+    public STATUS getStatus() {
+        STATUS status;
+        if (future.isCancelled()) {
+            status = STATUS.CANCELLED;
+        } else if (future.isDone()) {
+            status = failed ? STATUS.FAILED : STATUS.DONE;
+        } else if (started) {
+            status = STATUS.RUNNING;
+        } else {
+            status = STATUS.QUEUED;
+        }
+        return status;
+    }
+
+    /**
+     * True if the task ran and failed
+     *
+     * @return true if the task ran and failed
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Wait for the task to complete and get its result
+     *
+     * @param timeoutMillis milliseconds to wait or 0 to wait indefinitely
+     * @return the result of the task
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the task threw
+     * @throws TimeoutException if the wait timed out
+     * @throws CancellationException if the task was cancelled
+     */
+    public Object await(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+        return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+    }
+
+    /**
+     * Cancel the task. A queued task never runs. A running task's interpreter
+     * stops at the next command and its thread is interrupted.
+     *
+     * @return true if the task was cancelled, false if it had already
+     * completed
+     */
+    public boolean cancel() {
+        // Cancel the future first so that call() sees it cancelled once its
+        // interpreter stops
+        boolean result = future.cancel(true);
+        interpreter.setGoodBye(true);
+        if (result && counted.compareAndSet(false, true)) {
+            executor.recordCancellation();
+        }
+        return result;
+    }
+
+    private boolean isCancelled() {
+        return future != null && future.isCancelled();
+    }
+
+    @Override
+    public String toString() {
+        return "UbluTask " + number + " " + getStatus();
+    }
+}